@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.n52.io.request.IoParameters;
+import org.n52.series.spi.srv.CountingMetadataService;
+
+/**
+ * Composes a {@link CountingMetadataService} instance to cache its counts. Counts are cached by method and
+ * the {@link IoParameters#getCanonicalKey() canonical key} of the query and expire after a time to live. The
+ * least recently used counts are evicted once the configured number of counts is exceeded.
+ * <p>
+ * Use a shared {@link CountCache} to compose counting services, so that all controllers share the cached
+ * counts.
+ * </p>
+ */
+public class CachingCountingMetadataService implements CountingMetadataService {
+
+    private final CountingMetadataService composedService;
+
+    private final long ttlMillis;
+
+    private final int maxEntries;
+
+    private final LongSupplier clock;
+
+    // access ordered
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * @param toCompose
+     *        the service to compose
+     * @param ttl
+     *        the time to live in seconds
+     * @param maxEntries
+     *        the maximum number of cached counts
+     */
+    public CachingCountingMetadataService(CountingMetadataService toCompose, long ttl, int maxEntries) {
+        this(toCompose, ttl, maxEntries, System::currentTimeMillis);
+    }
+
+    CachingCountingMetadataService(CountingMetadataService toCompose, long ttl, int maxEntries, LongSupplier clock) {
+        this.composedService = toCompose;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttl);
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    @Override
+    public Long getServiceCount(IoParameters parameters) {
+        return get("services", parameters, () -> composedService.getServiceCount(parameters));
+    }
+
+    @Override
+    public Long getOfferingCount(IoParameters parameters) {
+        return get("offerings", parameters, () -> composedService.getOfferingCount(parameters));
+    }
+
+    @Override
+    public Long getCategoryCount(IoParameters parameters) {
+        return get("categories", parameters, () -> composedService.getCategoryCount(parameters));
+    }
+
+    @Override
+    public Long getFeatureCount(IoParameters parameters) {
+        return get("features", parameters, () -> composedService.getFeatureCount(parameters));
+    }
+
+    @Override
+    public Long getProcedureCount(IoParameters parameters) {
+        return get("procedures", parameters, () -> composedService.getProcedureCount(parameters));
+    }
+
+    @Override
+    public Long getPhenomenaCount(IoParameters parameters) {
+        return get("phenomena", parameters, () -> composedService.getPhenomenaCount(parameters));
+    }
+
+    @Override
+    public Long getPlatformCount(IoParameters parameters) {
+        return get("platforms", parameters, () -> composedService.getPlatformCount(parameters));
+    }
+
+    @Override
+    public Long getDatasetCount(IoParameters parameters) {
+        return get("datasets", parameters, () -> composedService.getDatasetCount(parameters));
+    }
+
+    @Override
+    public Long getStationCount() {
+        return get("stations", null, composedService::getStationCount);
+    }
+
+    @Override
+    public Long getTimeseriesCount() {
+        return get("timeseries", null, composedService::getTimeseriesCount);
+    }
+
+    @Override
+    public Long getSamplingCounter(IoParameters parameters) {
+        return get("samplings", parameters, () -> composedService.getSamplingCounter(parameters));
+    }
+
+    @Override
+    public Long getMeasuringProgramCounter(IoParameters parameters) {
+        return get("measuringPrograms", parameters, () -> composedService.getMeasuringProgramCounter(parameters));
+    }
+
+    @Override
+    public Long getTagCounter(IoParameters parameters) {
+        return get("tags", parameters, () -> composedService.getTagCounter(parameters));
+    }
+
+    private Long get(String count, IoParameters parameters, Supplier<Long> loader) {
+        String key = parameters != null
+                ? count + "|" + parameters.getCanonicalKey()
+                : count;
+        Long cached = getCached(key);
+        if (cached != null) {
+            return cached;
+        }
+        Long value = loader.get();
+        put(key, value);
+        return value;
+    }
+
+    private synchronized Long getCached(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && clock.getAsLong() - entry.created <= ttlMillis) {
+            hits++;
+            return entry.count;
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses++;
+        return null;
+    }
+
+    private synchronized void put(String key, Long count) {
+        if (count == null) {
+            return;
+        }
+        entries.put(key, new Entry(count, clock.getAsLong()));
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet()
+                                                           .iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes all cached counts, e.g. after the underlying metadata has changed.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return the number of counts served from cache
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of counts queried from the composed service
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+
+        private final Long count;
+
+        private final long created;
+
+        private Entry(Long count, long created) {
+            this.count = count;
+            this.created = created;
+        }
+
+    }
+
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.n52.io.TvpDataCollection;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.io.response.dataset.AbstractValue;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetTypesMetadata;
+import org.n52.series.spi.srv.DataCursor;
+import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.DatasetTypesService;
+import org.n52.series.spi.srv.DownsamplingDataService;
+import org.n52.series.spi.srv.DownsamplingRequest;
+import org.n52.series.spi.srv.RawDataService;
+import org.n52.series.spi.srv.StreamingDataService;
+import org.n52.series.spi.srv.ValueCountingDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Composes a {@link DataService} instance to serve observations from an {@link ObservationCache}. A requested
+ * timespan is assembled from cached partitions, only missing partitions are fetched from the composed service.
+ * Datasets missing the same partitions are fetched with a single request.
+ * <p>
+ * Only datasets of value types configured for caching are cached, value types are resolved once per dataset
+ * via the given {@link DatasetTypesService}. Expanded requests are not cached, as the metadata returned along
+ * with the values (e.g. the values before and after the timespan) depends on the requested timespan. Requests
+ * for time intervals (<code>showTimeIntervals</code>) are not cached, as values are partitioned by their
+ * timestamp. Cached series are assembled without metadata, as the metadata of a partition was fetched along
+ * with a different timespan.
+ * Requests for uncached datasets only are streamed, if the composed service supports streaming.
+ * </p>
+ * <p>
+ * Downsampling and value counts are forwarded to the composed service, i.e. downsampled data pushed down
+ * to the composed service is not cached.
+ * </p>
+ *
+ * @param <V>
+ *        the value type
+ */
+public class CachingDataService<V extends AbstractValue< ? >>
+        implements StreamingDataService<V>, DownsamplingDataService<V>, ValueCountingDataService<V> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingDataService.class);
+
+    /**
+     * Parameters changing the values returned by the composed service.
+     */
+    private static final String[] VARIANT_PARAMETERS = {
+        Parameters.OUTPUT_TIMEZONE,
+        Parameters.UNIX_TIME,
+        Parameters.RESULTTIMES,
+        Parameters.SHOW_TIME_INTERVALS,
+        Parameters.SHOW_VERTICAL_INTERVALS,
+        Parameters.HANDLE_AS_VALUE_TYPE,
+        Parameters.ODATA_FILTER,
+        Parameters.LOCALE
+    };
+
+    // value type not resolvable
+    private static final String UNKNOWN_VALUE_TYPE = "";
+
+    private final DataService<Data<V>> composedService;
+
+    private final ObservationCache cache;
+
+    private final DatasetTypesService datasetTypesService;
+
+    private final Map<String, String> valueTypes = new ConcurrentHashMap<>();
+
+    /**
+     * @param toCompose
+     *        the service to compose
+     * @param cache
+     *        the cache
+     * @param datasetTypesService
+     *        resolves the value types of datasets, or <code>null</code> to cache datasets of all value types
+     */
+    public CachingDataService(DataService<Data<V>> toCompose,
+                              ObservationCache cache,
+                              DatasetTypesService datasetTypesService) {
+        this.composedService = toCompose;
+        this.cache = cache;
+        this.datasetTypesService = datasetTypesService;
+    }
+
+    @Override
+    public DataCollection<Data<V>> getData(IoParameters parameters) {
+        List<String> cached = getCachedDatasets(parameters);
+        if (cached.isEmpty()) {
+            return composedService.getData(parameters);
+        }
+        TvpDataCollection<Data<V>> result = new TvpDataCollection<>();
+        List<String> uncached = new ArrayList<>(parameters.getDatasets());
+        uncached.removeAll(cached);
+        if (!uncached.isEmpty()) {
+            result.addAll(composedService.getData(parameters.replaceWith(Parameters.DATASETS, uncached)));
+        }
+
+        Interval timespan = parameters.getTimespan()
+                                      .toInterval();
+        long firstPartition = cache.getPartitionStart(timespan.getStartMillis());
+        long lastPartition = cache.getPartitionStart(timespan.getEndMillis());
+        String variant = createVariant(parameters);
+        Map<String, Map<Long, ObservationCache.Partition>> partitions = new HashMap<>();
+        Map<Interval, List<String>> missing = new LinkedHashMap<>();
+        for (String datasetId : cached) {
+            Map<Long, ObservationCache.Partition> datasetPartitions = new HashMap<>();
+            long missingStart = Long.MAX_VALUE;
+            long missingEnd = Long.MIN_VALUE;
+            for (long start = firstPartition; start <= lastPartition; start += cache.getPartitionLength()) {
+                ObservationCache.Partition partition = cache.get(new ObservationCache.Key(datasetId, variant, start));
+                if (partition != null) {
+                    datasetPartitions.put(start, partition);
+                } else {
+                    missingStart = Math.min(missingStart, start);
+                    missingEnd = Math.max(missingEnd, start);
+                }
+            }
+            partitions.put(datasetId, datasetPartitions);
+            if (missingStart <= missingEnd) {
+                // the end of the last partition is inclusive in requested timespans
+                Interval range = new Interval(missingStart,
+                                              missingEnd + cache.getPartitionLength() - 1,
+                                              DateTimeZone.UTC);
+                missing.computeIfAbsent(range, k -> new ArrayList<>())
+                       .add(datasetId);
+            }
+        }
+
+        for (Map.Entry<Interval, List<String>> entry : missing.entrySet()) {
+            fetch(entry.getKey(), entry.getValue(), variant, parameters, partitions);
+        }
+        for (String datasetId : cached) {
+            result.addNewSeries(datasetId, assemble(partitions.get(datasetId), timespan));
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Observation cache: #{} hits, #{} misses ({} hit ratio), #{} evictions, "
+                    + "#{} expirations, #{} values.",
+                         cache.getHitCount(),
+                         cache.getMissCount(),
+                         cache.getHitRatio(),
+                         cache.getEvictionCount(),
+                         cache.getExpirationCount(),
+                         cache.getWeight());
+        }
+        return result;
+    }
+
+    private void fetch(Interval range,
+                       List<String> datasets,
+                       String variant,
+                       IoParameters parameters,
+                       Map<String, Map<Long, ObservationCache.Partition>> partitions) {
+        long fetched = cache.now();
+        IoParameters fetchParameters = parameters.replaceWith(Parameters.DATASETS, datasets)
+                                                 .replaceWith(Parameters.TIMESPAN, range.toString());
+        DataCollection<Data<V>> data = composedService.getData(fetchParameters);
+        for (String datasetId : datasets) {
+            Data<V> series = data.getSeries(datasetId);
+            Map<Long, List<V>> values = new HashMap<>();
+            if (series != null) {
+                for (V value : series.getValues()) {
+                    long start = cache.getPartitionStart(value.getTimestamp()
+                                                              .getMillis());
+                    values.computeIfAbsent(start, k -> new ArrayList<>())
+                          .add(value);
+                }
+            }
+            // empty partitions are cached as well
+            long length = cache.getPartitionLength();
+            for (long start = range.getStartMillis(); start < range.getEndMillis(); start += length) {
+                List<V> partitionValues = values.getOrDefault(start, Collections.emptyList());
+                ObservationCache.Partition partition = new ObservationCache.Partition(partitionValues,
+                                                                                      start + length > fetched,
+                                                                                      fetched);
+                cache.put(new ObservationCache.Key(datasetId, variant, start), partition);
+                partitions.get(datasetId)
+                          .put(start, partition);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Data<V> assemble(Map<Long, ObservationCache.Partition> partitions, Interval timespan) {
+        Data<V> series = new Data<>();
+        long length = cache.getPartitionLength();
+        long lastPartition = cache.getPartitionStart(timespan.getEndMillis());
+        for (long start = cache.getPartitionStart(timespan.getStartMillis()); start <= lastPartition;
+                start += length) {
+            ObservationCache.Partition partition = partitions.get(start);
+            for (AbstractValue< ? > value : partition.getValues()) {
+                long time = value.getTimestamp()
+                                 .getMillis();
+                if (time >= timespan.getStartMillis() && time <= timespan.getEndMillis()) {
+                    series.addNewValue((V) value);
+                }
+            }
+        }
+        return series;
+    }
+
+    private List<String> getCachedDatasets(IoParameters parameters) {
+        Set<String> datasets = parameters.getDatasets();
+        if (!cache.isEnabled()
+                || datasets.isEmpty()
+                || parameters.isExpanded()
+                || parameters.getAsBoolean(Parameters.EXPAND_WITH_NEXT_VALUES_BEYOND_INTERVAL, false)
+                || parameters.isShowTimeIntervals()) {
+            return Collections.emptyList();
+        }
+        resolveValueTypes(datasets, parameters);
+        List<String> cached = new ArrayList<>();
+        for (String datasetId : datasets) {
+            String valueType = valueTypes.get(datasetId);
+            if (datasetTypesService == null || (valueType != null && cache.isCachedValueType(valueType))) {
+                cached.add(datasetId);
+            }
+        }
+        return cached;
+    }
+
+    private void resolveValueTypes(Set<String> datasets, IoParameters parameters) {
+        if (datasetTypesService == null) {
+            return;
+        }
+        List<String> unresolved = new ArrayList<>();
+        for (String datasetId : datasets) {
+            if (!valueTypes.containsKey(datasetId)) {
+                unresolved.add(datasetId);
+            }
+        }
+        if (!unresolved.isEmpty()) {
+            IoParameters query = parameters.replaceWith(Parameters.DATASETS, unresolved);
+            for (DatasetTypesMetadata types : datasetTypesService.getDatasetTypesMetadata(query)) {
+                if (types.getId() != null && types.getValueType() != null) {
+                    valueTypes.put(types.getId(), types.getValueType());
+                }
+            }
+            for (String datasetId : unresolved) {
+                valueTypes.putIfAbsent(datasetId, UNKNOWN_VALUE_TYPE);
+            }
+        }
+    }
+
+    private static String createVariant(IoParameters parameters) {
+        StringBuilder variant = new StringBuilder();
+        for (String parameter : VARIANT_PARAMETERS) {
+            if (parameters.containsParameter(parameter)) {
+                variant.append(parameter)
+                       .append('=')
+                       .append(parameters.getAsString(parameter))
+                       .append(';');
+            }
+        }
+        return variant.toString();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean supportsStreaming(IoParameters parameters) {
+        return composedService instanceof StreamingDataService
+                && ((StreamingDataService<V>) composedService).supportsStreaming(parameters)
+                && getCachedDatasets(parameters).isEmpty();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public DataCursor<V> getDataCursor(String datasetId, IoParameters parameters) {
+        if (!(composedService instanceof StreamingDataService)) {
+            throw new IllegalStateException("Composed data service does not support streaming.");
+        }
+        return ((StreamingDataService<V>) composedService).getDataCursor(datasetId, parameters);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean supportsDownsampling(DownsamplingRequest request, IoParameters parameters) {
+        return composedService instanceof DownsamplingDataService
+                && ((DownsamplingDataService<V>) composedService).supportsDownsampling(request, parameters);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public DataCollection<Data<V>> getDownsampledData(DownsamplingRequest request, IoParameters parameters) {
+        if (!(composedService instanceof DownsamplingDataService)) {
+            throw new IllegalStateException("Composed data service does not support downsampling.");
+        }
+        return ((DownsamplingDataService<V>) composedService).getDownsampledData(request, parameters);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public OptionalLong getValueCount(String datasetId, IoParameters parameters) {
+        return composedService instanceof ValueCountingDataService
+                ? ((ValueCountingDataService<V>) composedService).getValueCount(datasetId, parameters)
+                : OptionalLong.empty();
+    }
+
+    @Override
+    public boolean supportsRawData() {
+        return composedService.supportsRawData();
+    }
+
+    @Override
+    public RawDataService getRawDataService() {
+        return composedService.getRawDataService();
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.OutputCollection;
+import org.n52.io.response.ParameterOutput;
+import org.n52.series.spi.srv.ParameterService;
+import org.n52.series.spi.srv.RawDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Composes a {@link ParameterService} instance to cache its results. Results are cached by method, requested
+ * items and the {@link IoParameters#getCanonicalKey() canonical key} of the query, so that e.g. expanded and
+ * condensed listings, filters, locale and paging are cached separately. Entries expire after a time to live,
+ * the least recently used entries are evicted once the configured number of entries is exceeded.
+ * <p>
+ * With refresh-ahead enabled, an entry accessed after a configured part of its time to live is reloaded in
+ * the background while the cached result is still returned, so that frequently requested results do not
+ * expire.
+ * </p>
+ * <p>
+ * Cached results are shared by all requests, so the composed service must not return results which get
+ * modified afterwards. Caches of metadata resources are created and invalidated by a shared
+ * {@link MetadataCache}.
+ * </p>
+ *
+ * @param <T>
+ *        the parameter type
+ */
+public class CachingParameterService<T extends ParameterOutput> extends ParameterService<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingParameterService.class);
+
+    private final ParameterService<T> composedService;
+
+    private final long ttlMillis;
+
+    private final int maxEntries;
+
+    private final long refreshAfterMillis;
+
+    private final Executor refreshExecutor;
+
+    private final LongSupplier clock;
+
+    // access ordered
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+
+    private long misses;
+
+    private long refreshes;
+
+    /**
+     * @param toCompose
+     *        the service to compose
+     * @param ttl
+     *        the time to live in seconds
+     * @param maxEntries
+     *        the maximum number of cached results
+     * @param refreshAhead
+     *        the part of the time to live in percent after which accessed entries get refreshed, <code>0</code>
+     *        disables refresh-ahead
+     * @param refreshExecutor
+     *        the executor to refresh entries on
+     */
+    public CachingParameterService(ParameterService<T> toCompose,
+                                   long ttl,
+                                   int maxEntries,
+                                   int refreshAhead,
+                                   Executor refreshExecutor) {
+        this(toCompose, ttl, maxEntries, refreshAhead, refreshExecutor, System::currentTimeMillis);
+    }
+
+    CachingParameterService(ParameterService<T> toCompose,
+                            long ttl,
+                            int maxEntries,
+                            int refreshAhead,
+                            Executor refreshExecutor,
+                            LongSupplier clock) {
+        this.composedService = toCompose;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttl);
+        this.maxEntries = maxEntries;
+        this.refreshAfterMillis = refreshAhead > 0 && refreshAhead < 100
+                ? ttlMillis * refreshAhead / 100
+                : Long.MAX_VALUE;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    @Override
+    public OutputCollection<T> getExpandedParameters(IoParameters query) {
+        return get("expanded|" + query.getCanonicalKey(), () -> composedService.getExpandedParameters(query));
+    }
+
+    @Override
+    public OutputCollection<T> getCondensedParameters(IoParameters query) {
+        return get("condensed|" + query.getCanonicalKey(), () -> composedService.getCondensedParameters(query));
+    }
+
+    @Override
+    public OutputCollection<T> getParameters(String[] items, IoParameters query) {
+        return get("items|" + String.join(",", items) + "|" + query.getCanonicalKey(),
+                   () -> composedService.getParameters(items, query));
+    }
+
+    @Override
+    public T getParameter(String item, IoParameters query) {
+        return get("item|" + item + "|" + query.getCanonicalKey(), () -> composedService.getParameter(item, query));
+    }
+
+    @Override
+    public boolean exists(String id, IoParameters parameters) {
+        return get("exists|" + id + "|" + parameters.getCanonicalKey(), () -> composedService.exists(id, parameters));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R get(String key, Supplier<R> loader) {
+        Entry entry = getEntry(key);
+        if (entry == null) {
+            R value = loader.get();
+            put(key, value);
+            return value;
+        }
+        if (clock.getAsLong() - entry.created > refreshAfterMillis && entry.refreshing.compareAndSet(false, true)) {
+            refreshExecutor.execute(() -> refresh(key, loader, entry));
+        }
+        return (R) entry.value;
+    }
+
+    private void refresh(String key, Supplier< ? > loader, Entry entry) {
+        try {
+            put(key, loader.get());
+            synchronized (this) {
+                refreshes++;
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not refresh cached result '{}'.", key, e);
+            entry.refreshing.set(false);
+        }
+    }
+
+    private synchronized Entry getEntry(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && clock.getAsLong() - entry.created <= ttlMillis) {
+            hits++;
+            return entry;
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses++;
+        return null;
+    }
+
+    private synchronized void put(String key, Object value) {
+        if (value == null) {
+            // not found, e.g. to be handled by the caller
+            return;
+        }
+        entries.put(key, new Entry(value, clock.getAsLong()));
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet()
+                                                           .iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes all cached results, e.g. after the underlying metadata has changed.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Removes the cached results which may contain the given item, i.e. the item itself and all collections,
+     * e.g. after the item has changed. Cached results of other items are kept.
+     *
+     * @param item
+     *        the id of the changed item
+     */
+    public synchronized void invalidate(String item) {
+        entries.keySet()
+               .removeIf(key -> !key.startsWith("item|") && !key.startsWith("exists|")
+                       || key.startsWith("item|" + item + "|")
+                       || key.startsWith("exists|" + item + "|"));
+    }
+
+    /**
+     * @return the number of results served from cache
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of results loaded from the composed service
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of results refreshed ahead of their expiry
+     */
+    public synchronized long getRefreshCount() {
+        return refreshes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public RawDataService getRawDataService() {
+        return composedService.getRawDataService();
+    }
+
+    @Override
+    public boolean supportsRawData() {
+        return composedService.supportsRawData();
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+
+        private final long created;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(Object value, long created) {
+            this.value = value;
+            this.created = created;
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.cache;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.n52.series.spi.srv.CountingMetadataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Composes {@link CountingMetadataService}s with a {@link CachingCountingMetadataService}. One instance is meant
+ * to be shared by all controllers, so that each counting service is composed once and all controllers share
+ * its cached counts.
+ */
+public class CountCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CountCache.class);
+
+    private final long ttl;
+
+    private final int maxEntries;
+
+    private final Map<CountingMetadataService, CachingCountingMetadataService> caches = new IdentityHashMap<>();
+
+    /**
+     * @param ttl
+     *        the time to live in seconds, <code>0</code> disables caching
+     * @param maxEntries
+     *        the maximum number of cached counts
+     */
+    public CountCache(long ttl, int maxEntries) {
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0;
+    }
+
+    /**
+     * Composes the given service with a cache, the same cache each time the same service is given.
+     *
+     * @param toCompose
+     *        the service to compose
+     * @return the caching service, or the given service if caching is disabled
+     */
+    public synchronized CountingMetadataService compose(CountingMetadataService toCompose) {
+        if (toCompose == null || !isEnabled() || toCompose instanceof CachingCountingMetadataService) {
+            return toCompose;
+        }
+        return caches.computeIfAbsent(toCompose, service -> {
+            LOGGER.debug("Caching up to {} counts for {}s.", maxEntries, ttl);
+            return new CachingCountingMetadataService(service, ttl, maxEntries);
+        });
+    }
+
+    /**
+     * Removes all cached counts, e.g. after the underlying metadata has changed.
+     */
+    public synchronized void clear() {
+        caches.values()
+              .forEach(CachingCountingMetadataService::clear);
+    }
+
+}
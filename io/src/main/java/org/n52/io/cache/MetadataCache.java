@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import org.n52.io.response.ParameterOutput;
+import org.n52.series.spi.srv.ParameterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Composes the {@link ParameterService}s of metadata resources with a {@link CachingParameterService}. One
+ * instance is meant to be shared by all resources, so that cached results can be invalidated at one place
+ * once the underlying metadata has changed.
+ * <p>
+ * Cached results are handed to concurrent requests as they are, so only services whose results are not
+ * modified afterwards must be composed.
+ * </p>
+ */
+public class MetadataCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataCache.class);
+
+    private final ToLongFunction<String> ttlByResource;
+
+    private final int maxEntries;
+
+    private final int refreshAhead;
+
+    private final ExecutorService refreshExecutor;
+
+    private final Map<String, Collection<CachingParameterService< ? >>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttlByResource
+     *        the time to live in seconds by resource name, <code>0</code> disables caching of a resource
+     * @param maxEntries
+     *        the maximum number of cached results per resource
+     * @param refreshAhead
+     *        the part of the time to live in percent after which accessed entries get refreshed, <code>0</code>
+     *        disables refresh-ahead
+     */
+    public MetadataCache(ToLongFunction<String> ttlByResource, int maxEntries, int refreshAhead) {
+        this.ttlByResource = ttlByResource;
+        this.maxEntries = maxEntries;
+        this.refreshAhead = refreshAhead;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1,
+                                                             1,
+                                                             60L,
+                                                             TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<>(),
+                                                             runnable -> {
+                                                                 Thread thread = new Thread(runnable,
+                                                                         "metadata-cache-refresh");
+                                                                 thread.setDaemon(true);
+                                                                 return thread;
+                                                             });
+        executor.allowCoreThreadTimeOut(true);
+        this.refreshExecutor = executor;
+    }
+
+    /**
+     * Composes the given service with a cache configured for the given resource.
+     *
+     * @param <T>
+     *        the parameter type
+     * @param toCompose
+     *        the service to compose
+     * @param resource
+     *        the resource name, e.g. <code>stations</code>
+     * @return the caching service, or the given service if caching is disabled for the resource
+     */
+    public <T extends ParameterOutput> ParameterService<T> compose(ParameterService<T> toCompose, String resource) {
+        long ttl = ttlByResource.applyAsLong(resource);
+        if (ttl <= 0) {
+            return toCompose;
+        }
+        LOGGER.debug("Caching up to {} '{}' results for {}s.", maxEntries, resource, ttl);
+        CachingParameterService<T> cache =
+                new CachingParameterService<>(toCompose, ttl, maxEntries, refreshAhead, refreshExecutor);
+        caches.computeIfAbsent(resource, k -> new CopyOnWriteArrayList<>())
+              .add(cache);
+        return cache;
+    }
+
+    /**
+     * Removes the cached results of a resource which may contain the given item.
+     *
+     * @param resource
+     *        the resource name, e.g. <code>stations</code>
+     * @param item
+     *        the id of the changed item
+     * @see CachingParameterService#invalidate(String)
+     */
+    public void invalidate(String resource, String item) {
+        caches.getOrDefault(resource, Collections.emptyList())
+              .forEach(cache -> cache.invalidate(item));
+    }
+
+    /**
+     * Removes all cached results of the given resource.
+     *
+     * @param resource
+     *        the resource name, e.g. <code>stations</code>
+     */
+    public void clear(String resource) {
+        caches.getOrDefault(resource, Collections.emptyList())
+              .forEach(CachingParameterService::clear);
+    }
+
+    /**
+     * Removes all cached results of all resources.
+     */
+    public void clear() {
+        caches.values()
+              .forEach(resourceCaches -> resourceCaches.forEach(CachingParameterService::clear));
+    }
+
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+}
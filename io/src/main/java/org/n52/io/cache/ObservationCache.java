@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.cache;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.n52.io.response.dataset.AbstractValue;
+
+/**
+ * Caches observations of datasets in fixed time partitions (e.g. one partition per dataset and day), so that
+ * overlapping requests (e.g. a sliding "last 24 hours" window refreshed by many clients) can be assembled from
+ * cached partitions and only the missing partitions have to be fetched. Partitions are aligned to the epoch
+ * (UTC).
+ * <p>
+ * A partition reaching into the future at the time it has been fetched is <em>open</em>, i.e. it may still
+ * get new values. Open partitions expire after a short time, closed partitions after a longer time to pick up
+ * late changes. Partitions are bounded by the number of values they hold, either the least recently used
+ * (LRU) or the least frequently used (LFU) partitions are evicted first. To keep eviction cheap, LFU picks the
+ * least frequently used among the {@value #LFU_SAMPLE_SIZE} least recently used partitions.
+ * </p>
+ * <p>
+ * One instance is meant to be shared by all requests, e.g. as a bean of the application context.
+ * </p>
+ */
+public final class ObservationCache {
+
+    public enum Eviction {
+        LRU,
+        LFU
+    }
+
+    static final int LFU_SAMPLE_SIZE = 8;
+
+    private final long maxValues;
+
+    private final long partitionLength;
+
+    private final long ttlMillis;
+
+    private final long openTtlMillis;
+
+    private final Eviction eviction;
+
+    private final Set<String> valueTypes;
+
+    private final LongSupplier clock;
+
+    // access ordered
+    private final LinkedHashMap<Key, Partition> partitions = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long cachedValues;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private long expirations;
+
+    /**
+     * @param maxValues
+     *        the maximum number of cached values, <code>0</code> disables caching
+     * @param partitionLength
+     *        the partition length in milliseconds
+     * @param ttl
+     *        the time closed partitions are valid
+     * @param openTtl
+     *        the time open partitions are valid
+     * @param unit
+     *        the unit of both times
+     * @param eviction
+     *        the eviction policy
+     * @param valueTypes
+     *        the value types to cache, an empty set caches all value types
+     */
+    public ObservationCache(long maxValues,
+                            long partitionLength,
+                            long ttl,
+                            long openTtl,
+                            TimeUnit unit,
+                            Eviction eviction,
+                            Set<String> valueTypes) {
+        this(maxValues, partitionLength, ttl, openTtl, unit, eviction, valueTypes, System::currentTimeMillis);
+    }
+
+    ObservationCache(long maxValues,
+                     long partitionLength,
+                     long ttl,
+                     long openTtl,
+                     TimeUnit unit,
+                     Eviction eviction,
+                     Set<String> valueTypes,
+                     LongSupplier clock) {
+        if (partitionLength <= 0) {
+            throw new IllegalArgumentException("Partition length must be positive: " + partitionLength);
+        }
+        this.maxValues = maxValues;
+        this.partitionLength = partitionLength;
+        this.ttlMillis = unit.toMillis(ttl);
+        this.openTtlMillis = unit.toMillis(openTtl);
+        this.eviction = eviction;
+        this.valueTypes = Collections.unmodifiableSet(new HashSet<>(valueTypes));
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return maxValues > 0;
+    }
+
+    /**
+     * @param valueType
+     *        the value type of a dataset
+     * @return <code>true</code> if observations of the value type are cached
+     */
+    public boolean isCachedValueType(String valueType) {
+        return valueTypes.isEmpty() || valueTypes.contains(valueType);
+    }
+
+    long getPartitionLength() {
+        return partitionLength;
+    }
+
+    /**
+     * @param time
+     *        a time
+     * @return the start of the partition containing the time
+     */
+    long getPartitionStart(long time) {
+        return Math.floorDiv(time, partitionLength) * partitionLength;
+    }
+
+    long now() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Gets a valid partition, expired partitions are removed.
+     *
+     * @param key
+     *        the key
+     * @return the partition or <code>null</code> if none is cached or the cached one has expired
+     */
+    synchronized Partition get(Key key) {
+        Partition partition = partitions.get(key);
+        if (partition != null) {
+            if (now() - partition.created <= (partition.open
+                    ? openTtlMillis
+                    : ttlMillis)) {
+                hits++;
+                partition.uses++;
+                return partition;
+            }
+            remove(key);
+            expirations++;
+        }
+        misses++;
+        return null;
+    }
+
+    synchronized void put(Key key, Partition partition) {
+        if (!isEnabled() || partition.values.size() > maxValues) {
+            return;
+        }
+        remove(key);
+        partitions.put(key, partition);
+        cachedValues += partition.values.size();
+        while (cachedValues > maxValues && !partitions.isEmpty()) {
+            Key evicted = selectEvicted();
+            remove(evicted);
+            evictions++;
+        }
+    }
+
+    private Key selectEvicted() {
+        Iterator<Map.Entry<Key, Partition>> leastRecentlyUsed = partitions.entrySet()
+                                                                          .iterator();
+        Map.Entry<Key, Partition> evicted = leastRecentlyUsed.next();
+        if (eviction == Eviction.LFU) {
+            for (int i = 1; i < LFU_SAMPLE_SIZE && leastRecentlyUsed.hasNext(); i++) {
+                Map.Entry<Key, Partition> candidate = leastRecentlyUsed.next();
+                if (candidate.getValue().uses < evicted.getValue().uses) {
+                    evicted = candidate;
+                }
+            }
+        }
+        return evicted.getKey();
+    }
+
+    private void remove(Key key) {
+        Partition removed = partitions.remove(key);
+        if (removed != null) {
+            cachedValues -= removed.values.size();
+        }
+    }
+
+    public synchronized void clear() {
+        partitions.clear();
+        cachedValues = 0;
+    }
+
+    /**
+     * @return the number of partitions served from cache
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of partitions which had to be fetched
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the ratio of partitions served from cache, <code>0</code> if no partition was requested yet
+     */
+    public synchronized double getHitRatio() {
+        long requests = hits + misses;
+        return requests > 0
+                ? (double) hits / requests
+                : 0d;
+    }
+
+    /**
+     * @return the number of partitions evicted to stay within the size bound
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of partitions dropped as they expired
+     */
+    public synchronized long getExpirationCount() {
+        return expirations;
+    }
+
+    public synchronized int size() {
+        return partitions.size();
+    }
+
+    /**
+     * @return the number of cached values
+     */
+    public synchronized long getWeight() {
+        return cachedValues;
+    }
+
+    static final class Key {
+
+        private final String datasetId;
+
+        private final String variant;
+
+        private final long start;
+
+        /**
+         * @param datasetId
+         *        the dataset id
+         * @param variant
+         *        identifies request parameters which change the values returned by the data service
+         * @param start
+         *        the partition start
+         */
+        Key(String datasetId, String variant, long start) {
+            this.datasetId = datasetId;
+            this.variant = variant;
+            this.start = start;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(datasetId, variant, start);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return start == other.start
+                    && datasetId.equals(other.datasetId)
+                    && variant.equals(other.variant);
+        }
+
+        @Override
+        public String toString() {
+            return datasetId + " [" + start + "] " + variant;
+        }
+
+    }
+
+    static final class Partition {
+
+        private final List<? extends AbstractValue< ? >> values;
+
+        private final boolean open;
+
+        private final long created;
+
+        private int uses;
+
+        /**
+         * @param values
+         *        the partition's values in ascending time order
+         * @param open
+         *        if the partition may still get new values
+         * @param created
+         *        the time the values have been fetched
+         */
+        Partition(List<? extends AbstractValue< ? >> values, boolean open, long created) {
+            this.values = values;
+            this.open = open;
+            this.created = created;
+        }
+
+        List<? extends AbstractValue< ? >> getValues() {
+            return values;
+        }
+
+        boolean isOpen() {
+            return open;
+        }
+
+    }
+
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.format;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.DurationField;
+import org.joda.time.DurationFieldType;
+import org.joda.time.Period;
+import org.joda.time.chrono.ISOChronology;
+import org.n52.io.request.AggregationFunction;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.OptionalOutput;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.AggregationOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.NumericValue;
+
+/**
+ * Aggregates numeric series to time buckets of a fixed period in a single pass over the (time ordered) values.
+ * Buckets are aligned in the output timezone: buckets of a single unit start with that unit, e.g. daily buckets
+ * at midnight and monthly buckets on the first day of a month. Buckets of multiple units (e.g.
+ * <code>PT15M</code>) are counted from <code>1970-01-01T00:00</code>, weekly buckets from Monday
+ * <code>1970-01-05T00:00</code>. No-data values are not aggregated.
+ */
+public class AggregationFormatter<T extends NumericValue< ? >> implements DataFormatter<Data<T>, AggregatedData<T>> {
+
+    private final DurationField field;
+
+    private final int amount;
+
+    private final long origin;
+
+    private final DateTimeZone zone;
+
+    private final Set<AggregationFunction> functions;
+
+    private final boolean unixTime;
+
+    private final boolean summing;
+
+    /**
+     * @param bucketSize
+     *        the bucket size, a period of a single field
+     * @param zone
+     *        the timezone to align buckets in
+     * @param functions
+     *        the functions to apply per bucket
+     * @param unixTime
+     *        if bucket times shall be formatted as unix time
+     * @throws IllegalArgumentException
+     *         if the bucket size is not a period of a single positive field
+     */
+    public AggregationFormatter(Period bucketSize,
+                                DateTimeZone zone,
+                                Set<AggregationFunction> functions,
+                                boolean unixTime) {
+        DurationFieldType type = null;
+        int value = 0;
+        for (int i = 0; i < bucketSize.size(); i++) {
+            if (bucketSize.getValue(i) != 0) {
+                if (type != null) {
+                    throw new IllegalArgumentException("Bucket size must be a period of a single field: "
+                            + bucketSize);
+                }
+                type = bucketSize.getFieldType(i);
+                value = bucketSize.getValue(i);
+            }
+        }
+        if (type == null || value < 0) {
+            throw new IllegalArgumentException("Bucket size must be a positive period: " + bucketSize);
+        }
+        this.field = type.getField(ISOChronology.getInstance(zone));
+        this.amount = value;
+        this.origin = new DateTime(1970, 1, DurationFieldType.weeks().equals(type)
+                ? 5
+                : 1, 0, 0, zone).getMillis();
+        this.zone = zone;
+        this.functions = functions;
+        this.unixTime = unixTime;
+        this.summing = functions.contains(AggregationFunction.SUM) || functions.contains(AggregationFunction.AVG);
+    }
+
+    /**
+     * @param <T>
+     *        the value type
+     * @param parameters
+     *        the parameters defining bucket size, functions, output timezone and time format
+     * @return a formatter as requested by the given parameters
+     */
+    public static <T extends NumericValue< ? >> AggregationFormatter<T> createFrom(IoParameters parameters) {
+        return new AggregationFormatter<>(parameters.getAggregationPeriod(),
+                                          DateTimeZone.forID(parameters.getOutputTimezone()),
+                                          parameters.getAggregationFunctions(),
+                                          parameters.formatToUnixTime());
+    }
+
+    @Override
+    public AggregatedDataCollection<T> format(DataCollection<Data<T>> toFormat) {
+        AggregatedDataCollection<T> dataCollection = new AggregatedDataCollection<>();
+        for (String timeseriesId : toFormat.getAllSeries().keySet()) {
+            Data<T> seriesToFormat = toFormat.getSeries(timeseriesId);
+            dataCollection.addNewSeries(timeseriesId, aggregate(seriesToFormat.getValues().iterator()));
+        }
+        return dataCollection;
+    }
+
+    /**
+     * Aggregates values as they are iterated, only the bucket in progress is kept in memory.
+     *
+     * @param values
+     *        the values in ascending time order
+     * @return the aggregation per bucket
+     */
+    public AggregatedData<T> aggregate(Iterator<T> values) {
+        AggregatedData<T> data = new AggregatedData<>();
+        Bucket bucket = null;
+        while (values.hasNext()) {
+            T value = values.next();
+            BigDecimal number = toBigDecimal(value);
+            if (number == null) {
+                continue;
+            }
+            long time = value.getTimestamp()
+                             .getMillis();
+            if (bucket == null || time < bucket.start || time >= bucket.end) {
+                if (bucket != null) {
+                    data.addValue(bucket.toOutput());
+                }
+                bucket = new Bucket(getBucketStart(time));
+            }
+            bucket.add(value, number);
+        }
+        if (bucket != null) {
+            data.addValue(bucket.toOutput());
+        }
+        return data;
+    }
+
+    private long getBucketStart(long time) {
+        // whole units, truncated towards the origin
+        long index = Math.floorDiv(field.getDifferenceAsLong(time, origin), amount);
+        long start = field.add(origin, index * amount);
+        while (start > time) {
+            index--;
+            start = field.add(origin, index * amount);
+        }
+        return start;
+    }
+
+    private static BigDecimal toBigDecimal(NumericValue< ? > value) {
+        Number number = value.getValue();
+        if (number == null || value.getTimestamp() == null) {
+            return null;
+        }
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        double doubleValue = number.doubleValue();
+        return Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)
+                ? null
+                : BigDecimal.valueOf(doubleValue);
+    }
+
+    private final class Bucket {
+
+        private final long start;
+
+        private final long end;
+
+        private long count;
+
+        private BigDecimal sum = BigDecimal.ZERO;
+
+        private T min;
+
+        private BigDecimal minValue;
+
+        private T max;
+
+        private BigDecimal maxValue;
+
+        private T first;
+
+        private T last;
+
+        private Bucket(long start) {
+            this.start = start;
+            this.end = field.add(start, amount);
+        }
+
+        private void add(T value, BigDecimal number) {
+            count++;
+            if (summing) {
+                sum = sum.add(number);
+            }
+            if (minValue == null || number.compareTo(minValue) < 0) {
+                min = value;
+                minValue = number;
+            }
+            if (maxValue == null || number.compareTo(maxValue) > 0) {
+                max = value;
+                maxValue = number;
+            }
+            if (first == null) {
+                first = value;
+            }
+            last = value;
+        }
+
+        private AggregationOutput<T> toOutput() {
+            AggregationOutput<T> output = new AggregationOutput<T>()
+                    .setTimestart(new TimeOutput(new DateTime(start, zone), unixTime))
+                    .setTimeend(new TimeOutput(new DateTime(end, zone), unixTime));
+            if (functions.contains(AggregationFunction.MIN)) {
+                output.setMin(OptionalOutput.of(min));
+            }
+            if (functions.contains(AggregationFunction.MAX)) {
+                output.setMax(OptionalOutput.of(max));
+            }
+            if (functions.contains(AggregationFunction.AVG)) {
+                output.setAvg(OptionalOutput.of(sum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64)));
+            }
+            if (functions.contains(AggregationFunction.SUM)) {
+                output.setSum(OptionalOutput.of(sum));
+            }
+            if (functions.contains(AggregationFunction.COUNT)) {
+                output.setCount(OptionalOutput.of(count));
+            }
+            if (functions.contains(AggregationFunction.FIRST)) {
+                output.setFirst(OptionalOutput.of(first));
+            }
+            if (functions.contains(AggregationFunction.LAST)) {
+                output.setLast(OptionalOutput.of(last));
+            }
+            return output;
+        }
+
+    }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.format;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Delta encoded representation of a numeric series. Instead of one <code>[timestamp, value]</code> pair per
+ * value, timestamps are written relative to a <code>start</code> timestamp, values are written as plain
+ * array:
+ *
+ * <pre>
+ * {
+ *   "start": 1600000000000,
+ *   "step": 600000,
+ *   "values": [1.2, 1.3, null, 1.1]
+ * }
+ * </pre>
+ *
+ * A regular series (all values have the same distance) is written with a single <code>step</code>. For
+ * irregular series a <code>timestamps</code> array is written instead, holding the difference of each
+ * timestamp to its predecessor (the first entry is always <code>0</code>). No-data values are written as
+ * <code>null</code>.
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+@JsonPropertyOrder({"start", "step", "timestamps", "values"})
+public class CompactData {
+
+    private Long start;
+
+    private Long step;
+
+    private long[] timestamps;
+
+    private double[] values;
+
+    private Number[] valueBeforeTimespan;
+
+    private Number[] valueAfterTimespan;
+
+    private Map<String, CompactData> referenceValues;
+
+    public CompactData() {
+        this.values = new double[0];
+        this.referenceValues = new HashMap<>();
+    }
+
+    /**
+     * Creates a delta encoded series from the given columns.
+     *
+     * @param timestamps
+     *        the timestamps as epoch millis in ascending order
+     * @param values
+     *        the values in order of the timestamps
+     * @param noDataValues
+     *        bitmap of no-data indices, may be <code>null</code>
+     * @param size
+     *        the number of values to take from the columns
+     * @return the delta encoded series
+     */
+    public static CompactData of(long[] timestamps, double[] values, BitSet noDataValues, int size) {
+        CompactData data = new CompactData();
+        data.setColumns(timestamps, values, noDataValues, size);
+        return data;
+    }
+
+    /**
+     * Sets the timestamp and value columns. The given arrays are not modified, but may be shared in case no
+     * copy is needed.
+     *
+     * @param timestampColumn
+     *        the timestamps as epoch millis in ascending order
+     * @param valueColumn
+     *        the values in order of the timestamps
+     * @param noDataValues
+     *        bitmap of no-data indices, may be <code>null</code>
+     * @param size
+     *        the number of values to take from the columns
+     */
+    public void setColumns(long[] timestampColumn, double[] valueColumn, BitSet noDataValues, int size) {
+        boolean hasNoDataValues = noDataValues != null
+                && noDataValues.nextSetBit(0) >= 0
+                && noDataValues.nextSetBit(0) < size;
+        values = hasNoDataValues || valueColumn.length != size
+                ? Arrays.copyOf(valueColumn, size)
+                : valueColumn;
+        if (hasNoDataValues) {
+            for (int i = noDataValues.nextSetBit(0); i >= 0 && i < size; i = noDataValues.nextSetBit(i + 1)) {
+                values[i] = Double.NaN;
+            }
+        }
+
+        start = size > 0
+                ? timestampColumn[0]
+                : null;
+        step = size > 1
+                ? getStep(timestampColumn, size)
+                : null;
+        timestamps = step == null && size > 0
+                ? toDeltas(timestampColumn, size)
+                : null;
+    }
+
+    private static Long getStep(long[] timestampColumn, int size) {
+        long step = timestampColumn[1] - timestampColumn[0];
+        for (int i = 2; i < size; i++) {
+            if (timestampColumn[i] - timestampColumn[i - 1] != step) {
+                return null;
+            }
+        }
+        return step;
+    }
+
+    private static long[] toDeltas(long[] timestampColumn, int size) {
+        long[] deltas = new long[size];
+        for (int i = 1; i < size; i++) {
+            deltas[i] = timestampColumn[i] - timestampColumn[i - 1];
+        }
+        return deltas;
+    }
+
+    @JsonInclude(Include.NON_NULL)
+    public Long getStart() {
+        return start;
+    }
+
+    @JsonInclude(Include.NON_NULL)
+    public Long getStep() {
+        return step;
+    }
+
+    @JsonInclude(Include.NON_NULL)
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * @return the values, <code>Double.NaN</code> for no-data values
+     */
+    @JsonSerialize(using = ValuesSerializer.class)
+    public double[] getValues() {
+        return values;
+    }
+
+    /**
+     * @return the number of values
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param index
+     *        the value index
+     * @return the absolute timestamp of the value at the given index as epoch millis
+     */
+    public long getTimestamp(int index) {
+        if (index < 0 || index >= values.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + values.length);
+        }
+        if (step != null) {
+            return start + index * step;
+        }
+        long timestamp = start;
+        for (int i = 1; i <= index; i++) {
+            timestamp += timestamps[i];
+        }
+        return timestamp;
+    }
+
+    public Number[] getValueBeforeTimespan() {
+        return valueBeforeTimespan;
+    }
+
+    public void setValueBeforeTimespan(Number[] valueBeforeTimespan) {
+        this.valueBeforeTimespan = valueBeforeTimespan;
+    }
+
+    public Number[] getValueAfterTimespan() {
+        return valueAfterTimespan;
+    }
+
+    public void setValueAfterTimespan(Number[] valueAfterTimespan) {
+        this.valueAfterTimespan = valueAfterTimespan;
+    }
+
+    @JsonInclude(Include.NON_EMPTY)
+    public Map<String, CompactData> getReferenceValues() {
+        return referenceValues;
+    }
+
+    public void setReferenceValues(Map<String, CompactData> referenceValues) {
+        this.referenceValues = referenceValues;
+    }
+
+    public void addReferenceValues(String id, CompactData toAdd) {
+        this.referenceValues.put(id, toAdd);
+    }
+
+    /**
+     * Collects timestamp and value columns value by value.
+     */
+    public static final class Builder {
+
+        private static final int DEFAULT_CAPACITY = 64;
+
+        private long[] timestamps = new long[DEFAULT_CAPACITY];
+
+        private double[] values = new double[DEFAULT_CAPACITY];
+
+        private final BitSet noDataValues = new BitSet();
+
+        private int size;
+
+        /**
+         * Adds a value. Timestamps are expected to be added in ascending order.
+         *
+         * @param timestamp
+         *        the timestamp as epoch millis
+         * @param value
+         *        the value, <code>null</code> for a no-data value
+         * @return this instance
+         */
+        public Builder add(long timestamp, Number value) {
+            if (size == timestamps.length) {
+                int capacity = size + (size >> 1);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            timestamps[size] = timestamp;
+            if (value == null) {
+                noDataValues.set(size);
+            } else {
+                values[size] = value.doubleValue();
+            }
+            size++;
+            return this;
+        }
+
+        public CompactData build() {
+            return CompactData.of(timestamps, values, noDataValues, size);
+        }
+    }
+
+    /**
+     * Writes values as plain number array. Integral values are written without fraction, no-data values as
+     * <code>null</code>.
+     */
+    public static final class ValuesSerializer extends StdSerializer<double[]> {
+
+        private static final long serialVersionUID = 6853213870406224869L;
+
+        // integral doubles beyond this are not exact anyway
+        private static final double MAX_EXACT_INTEGRAL = 1L << 53;
+
+        public ValuesSerializer() {
+            super(double[].class);
+        }
+
+        @Override
+        public void serialize(double[] values, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartArray(values, values.length);
+            for (double value : values) {
+                if (Double.isNaN(value)) {
+                    generator.writeNull();
+                } else if (value == Math.rint(value) && Math.abs(value) < MAX_EXACT_INTEGRAL) {
+                    generator.writeNumber((long) value);
+                } else {
+                    generator.writeNumber(value);
+                }
+            }
+            generator.writeEndArray();
+        }
+    }
+
+}
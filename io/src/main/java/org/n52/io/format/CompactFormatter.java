@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.format;
+
+import java.util.Map;
+
+import org.n52.io.response.dataset.ColumnarData;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.io.response.dataset.NumericValue;
+
+/**
+ * Formats numeric series as {@link CompactData}. {@link ColumnarData} is encoded from its columns directly,
+ * other data is collected value by value.
+ */
+public class CompactFormatter<T extends NumericValue<?>> implements DataFormatter<Data<T>, CompactData> {
+
+    @Override
+    public CompactDataCollection format(DataCollection<Data<T>> toFormat) {
+        CompactDataCollection dataCollection = new CompactDataCollection();
+        for (String timeseriesId : toFormat.getAllSeries().keySet()) {
+            Data<T> seriesToFormat = toFormat.getSeries(timeseriesId);
+            CompactData series = createCompactSeries(seriesToFormat);
+            if (seriesToFormat.hasMetadata()) {
+                formatMetadata(seriesToFormat.getMetadata(), series);
+            }
+            dataCollection.addNewSeries(timeseriesId, series);
+        }
+        return dataCollection;
+    }
+
+    private void formatMetadata(DatasetMetadata<T> metadata, CompactData series) {
+        Map<String, Data<T>> referenceValues = metadata.getReferenceValues();
+        for (String referenceValueId : referenceValues.keySet()) {
+            Data<T> referenceValueData = referenceValues.get(referenceValueId);
+            CompactData referenceSeries = createCompactSeries(referenceValueData);
+            if (referenceValueData.hasMetadata()) {
+                DatasetMetadata<T> referenceMetadata = referenceValueData.getMetadata();
+                referenceSeries.setValueBeforeTimespan(formatValue(referenceMetadata.getValueBeforeTimespan()));
+                referenceSeries.setValueAfterTimespan(formatValue(referenceMetadata.getValueAfterTimespan()));
+            }
+            series.addReferenceValues(referenceValueId, referenceSeries);
+        }
+        series.setValueBeforeTimespan(formatValue(metadata.getValueBeforeTimespan()));
+        series.setValueAfterTimespan(formatValue(metadata.getValueAfterTimespan()));
+    }
+
+    private CompactData createCompactSeries(Data<T> data) {
+        if (data instanceof ColumnarData) {
+            ColumnarData<?, ?> columnar = (ColumnarData<?, ?>) data;
+            return CompactData.of(columnar.getTimestampColumn(),
+                                  columnar.getValueColumn(),
+                                  columnar.getNoDataBitmap(),
+                                  (int) columnar.size());
+        }
+        CompactData.Builder builder = new CompactData.Builder();
+        for (T value : data.getValues()) {
+            builder.add(value.getTimestamp().getMillis(), value.getValue());
+        }
+        return builder.build();
+    }
+
+    private Number[] formatValue(T value) {
+        if (value == null) {
+            return null;
+        }
+        return new Number[] { value.getTimestamp().getMillis(), value.getValue() };
+    }
+
+}
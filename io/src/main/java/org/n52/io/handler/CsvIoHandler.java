@@ -50,6 +50,7 @@ import org.n52.io.response.dataset.DataCollection;
 import org.n52.io.response.dataset.DatasetOutput;
 import org.n52.io.response.dataset.DatasetParameters;
 import org.n52.io.response.dataset.TimeseriesMetadataOutput;
+import org.n52.series.spi.srv.DataCursor;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -80,29 +81,67 @@ public abstract class CsvIoHandler<T extends AbstractValue< ? >> extends IoHandl
 
     protected abstract String[] getHeader(DatasetOutput<T> metadata);
 
-    private void writeData(DataCollection<Data<T>> data, OutputStream stream) throws IOException {
-        for (DatasetOutput<T> metadata : seriesMetadatas) {
-            Data<T> series = data.getSeries(metadata.getId());
-            writeData(metadata, series, stream);
-        }
-    }
-
     protected abstract void writeData(DatasetOutput<T> metadata, Data<T> series, OutputStream stream)
             throws IOException;
 
+    /**
+     * Writes the values provided by the given cursor. By default all values are collected before being
+     * passed to {@link #writeData(DatasetOutput, Data, OutputStream)}. Subclasses are encouraged to write
+     * values incrementally instead.
+     *
+     * @param metadata
+     *        the dataset metadata
+     * @param cursor
+     *        the cursor providing the dataset values
+     * @param stream
+     *        the stream to write to
+     * @throws IOException
+     *         if writing fails
+     */
+    protected void writeData(DatasetOutput<T> metadata, DataCursor<T> cursor, OutputStream stream)
+            throws IOException {
+        Data<T> series = new Data<>();
+        cursor.forEachRemaining(series::addNewValue);
+        series.setMetadata(cursor.getMetadata());
+        writeData(metadata, series, stream);
+    }
+
     protected abstract String getFilenameFor(DatasetOutput<T> seriesMetadata);
 
     protected List<DatasetOutput<T>> getMetadatas() {
         return Collections.unmodifiableList(seriesMetadatas);
     }
 
+    @Override
+    protected void writeTo(OutputStream stream) throws IoHandlerException {
+        IoProcessChain<Data<T>> processChain = getProcessChain();
+        if (processChain instanceof StreamingIoProcessChain
+                && ((StreamingIoProcessChain<T>) processChain).supportsStreaming()) {
+            StreamingIoProcessChain<T> streamingChain = (StreamingIoProcessChain<T>) processChain;
+            encodeAndWriteTo(seriesMetadatas.size(), (dataset, output) -> {
+                try (DataCursor<T> cursor = streamingChain.getDataCursor(dataset.getId())) {
+                    writeData(dataset, cursor, output);
+                }
+            }, stream);
+        } else {
+            super.writeTo(stream);
+        }
+    }
+
     @Override
     public void encodeAndWriteTo(DataCollection<Data<T>> data, OutputStream stream) throws IoParseException {
+        encodeAndWriteTo(data.size(), (dataset, output) -> {
+            writeData(dataset, data.getSeries(dataset.getId()), output);
+        }, stream);
+    }
+
+    private void encodeAndWriteTo(int size, DatasetWriter<T> writer, OutputStream stream)
+            throws IoParseException {
         try {
             if (zipOutput) {
-                writeAsZipStream(data, stream);
+                writeAsZipStream(writer, stream);
             } else {
-                writeAsSingleCsv(data, stream);
+                writeAsSingleCsv(size, writer, stream);
             }
         } catch (IOException e) {
             throw new IoParseException("Could not write CSV to output stream.", e);
@@ -110,6 +149,10 @@ public abstract class CsvIoHandler<T extends AbstractValue< ? >> extends IoHandl
     }
 
     protected void writeAsZipStream(DataCollection<Data<T>> data, OutputStream stream) throws IOException {
+        writeAsZipStream((dataset, output) -> writeData(dataset, data.getSeries(dataset.getId()), output), stream);
+    }
+
+    private void writeAsZipStream(DatasetWriter<T> writer, OutputStream stream) throws IOException {
         try (ZipOutputStream zipStream = new ZipOutputStream(stream)) {
             for (DatasetOutput<T> dataset : seriesMetadatas) {
                 String filename = getFilenameFor(dataset) + ".csv";
@@ -118,8 +161,7 @@ public abstract class CsvIoHandler<T extends AbstractValue< ? >> extends IoHandl
                 zipStream.putNextEntry(zipEntry);
 
                 writeHeader(dataset, zipStream);
-                Data<T> series = data.getSeries(dataset.getId());
-                writeData(dataset, series, zipStream);
+                writer.write(dataset, zipStream);
 
                 zipStream.closeEntry();
                 zipStream.flush();
@@ -127,15 +169,17 @@ public abstract class CsvIoHandler<T extends AbstractValue< ? >> extends IoHandl
         }
     }
 
-    private void writeAsSingleCsv(DataCollection<Data<T>> data, OutputStream stream) throws IOException {
+    private void writeAsSingleCsv(int size, DatasetWriter<T> writer, OutputStream stream) throws IOException {
         try (BufferedOutputStream bos = new BufferedOutputStream(stream)) {
-            if (data.size() == 1) {
+            if (size == 1) {
                 DatasetOutput<T> metadata = seriesMetadatas.get(0);
                 writeHeader(metadata, bos);
-                writeData(data, bos);
+                for (DatasetOutput<T> dataset : seriesMetadatas) {
+                    writer.write(dataset, bos);
+                }
                 bos.flush();
             } else {
-                writeAsZipStream(data, stream);
+                writeAsZipStream(writer, stream);
             }
         }
     }
@@ -201,4 +245,9 @@ public abstract class CsvIoHandler<T extends AbstractValue< ? >> extends IoHandl
         return "trajectory".equalsIgnoreCase(datasetType);
     }
 
+    @FunctionalInterface
+    private interface DatasetWriter<T extends AbstractValue< ? >> {
+        void write(DatasetOutput<T> dataset, OutputStream stream) throws IOException;
+    }
+
 }
@@ -73,18 +73,36 @@ public abstract class IoHandler<T extends Data< ? extends AbstractValue< ? >>> {
         try (OutputStream stream = outputStream) {
             if (parameters.isBase64()) {
                 ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                encodeAndWriteTo(processChain.getData(), baos);
+                writeTo(baos);
                 byte[] data = baos.toByteArray();
                 byte[] encode = Base64.encodeBase64(data);
                 stream.write(encode);
             } else {
-                encodeAndWriteTo(processChain.getData(), stream);
+                writeTo(stream);
             }
         } catch (IOException e) {
             throw new IoHandlerException("Error handling output stream.", e);
         }
     }
 
+    /**
+     * Writes the output to the given stream. By default the data is fully materialized via the process chain
+     * and passed to {@link #encodeAndWriteTo(DataCollection, OutputStream)}. Handlers being able to write
+     * data incrementally may override this method.
+     *
+     * @param stream
+     *        the stream to write on the generated ouput.
+     * @throws IoHandlerException
+     *         if writing output to stream fails.
+     */
+    protected void writeTo(OutputStream stream) throws IoHandlerException {
+        encodeAndWriteTo(processChain.getData(), stream);
+    }
+
+    protected IoProcessChain<T> getProcessChain() {
+        return processChain;
+    }
+
     protected IoParameters getParameters() {
         return parameters;
     }
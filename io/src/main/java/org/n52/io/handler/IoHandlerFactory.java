@@ -35,6 +35,7 @@ import java.util.stream.Stream;
 import org.n52.io.Constants;
 import org.n52.io.IoStyleContext;
 import org.n52.io.format.ResultTimeFormatter;
+import org.n52.io.handler.arrow.ArrowIoHandler;
 import org.n52.io.handler.simple.SimpleCsvIoHandler;
 import org.n52.io.request.IoParameters;
 import org.n52.io.request.Parameters;
@@ -42,6 +43,10 @@ import org.n52.io.response.dataset.AbstractValue;
 import org.n52.io.response.dataset.Data;
 import org.n52.io.response.dataset.DataCollection;
 import org.n52.io.response.dataset.DatasetOutput;
+import org.n52.io.type.quantity.generalize.GeneralizationCache;
+import org.n52.io.type.quantity.generalize.GeneralizationExecutor;
+import org.n52.io.type.quantity.generalize.PyramidStore;
+import org.n52.series.spi.srv.DataCursor;
 import org.n52.series.spi.srv.DataService;
 import org.n52.series.spi.srv.ParameterService;
 
@@ -56,6 +61,14 @@ public abstract class IoHandlerFactory<P extends DatasetOutput<V>, V extends Abs
 
     private ParameterService<P> datasetService;
 
+    private GeneralizationExecutor generalizationExecutor;
+
+    private GeneralizationCache generalizationCache;
+
+    private PyramidStore pyramidStore;
+
+    private RequestCostEstimator requestCostEstimator;
+
     public IoHandlerFactory() {
         this.parameters = IoParameters.createDefaults();
     }
@@ -75,6 +88,47 @@ public abstract class IoHandlerFactory<P extends DatasetOutput<V>, V extends Abs
         return this;
     }
 
+    /**
+     * @param generalizationExecutor
+     *        the executor generalizing multiple series in parallel, or <code>null</code> to generalize
+     *        serially
+     * @return this instance for parameter chaining
+     */
+    public IoHandlerFactory<P, V> setGeneralizationExecutor(GeneralizationExecutor generalizationExecutor) {
+        this.generalizationExecutor = generalizationExecutor;
+        return this;
+    }
+
+    /**
+     * @param generalizationCache
+     *        the cache of generalized series, or <code>null</code> to generalize without caching
+     * @return this instance for parameter chaining
+     */
+    public IoHandlerFactory<P, V> setGeneralizationCache(GeneralizationCache generalizationCache) {
+        this.generalizationCache = generalizationCache;
+        return this;
+    }
+
+    /**
+     * @param pyramidStore
+     *        the store of generalization pyramids, or <code>null</code> to generalize raw values only
+     * @return this instance for parameter chaining
+     */
+    public IoHandlerFactory<P, V> setPyramidStore(PyramidStore pyramidStore) {
+        this.pyramidStore = pyramidStore;
+        return this;
+    }
+
+    /**
+     * @param requestCostEstimator
+     *        the estimator of request costs, or <code>null</code> to not estimate costs
+     * @return this instance for parameter chaining
+     */
+    public IoHandlerFactory<P, V> setRequestCostEstimator(RequestCostEstimator requestCostEstimator) {
+        this.requestCostEstimator = requestCostEstimator;
+        return this;
+    }
+
     public IoHandler<Data<V>> createHandler(String outputMimeType) {
         Constants.MimeType mimeType = Constants.MimeType.toInstance(outputMimeType);
         if (isCsvOutput(mimeType)) {
@@ -85,6 +139,8 @@ public abstract class IoHandlerFactory<P extends DatasetOutput<V>, V extends Abs
             boolean zipOutput = parameters.getAsBoolean(Parameters.ZIP, false);
             handler.setZipOutput(zipOutput || mimeType == Constants.MimeType.APPLICATION_ZIP);
             return handler;
+        } else if (mimeType == Constants.MimeType.APPLICATION_ARROW_STREAM) {
+            return createArrowHandler();
         }
 
         String msg = "The requested media type '" + outputMimeType + "' is not supported.";
@@ -93,13 +149,28 @@ public abstract class IoHandlerFactory<P extends DatasetOutput<V>, V extends Abs
     }
 
     public IoProcessChain<Data<V>> createProcessChain() {
-        return new IoProcessChain<Data<V>>() {
+        return new StreamingIoProcessChain<V>() {
 
             @Override
             public DataCollection<Data<V>> getData() {
                 return getDataService().getData(parameters);
             }
 
+            @Override
+            public boolean supportsStreaming() {
+                return !parameters.shallClassifyByResultTimes()
+                        && StreamingIoProcessChain.getStreamingService(getDataService(), parameters)
+                                                  .isPresent();
+            }
+
+            @Override
+            public DataCursor<V> getDataCursor(String datasetId) {
+                return StreamingIoProcessChain.getStreamingService(getDataService(), parameters)
+                                              .map(service -> service.getDataCursor(datasetId, parameters))
+                                              .orElseThrow(() -> new IllegalStateException(
+                                                      "Data service does not support streaming."));
+            }
+
             @Override
             public DataCollection< ? > getProcessedData() {
                 return parameters.shallClassifyByResultTimes()
@@ -110,6 +181,41 @@ public abstract class IoHandlerFactory<P extends DatasetOutput<V>, V extends Abs
         };
     }
 
+    /**
+     * Estimates the cost of reading the requested data (see {@link RequestCostEstimator}).
+     *
+     * @return the estimated cost, {@link RequestCost#notEstimated()} if no budget is configured or dataset
+     *         metadata is not available
+     */
+    public RequestCost estimateCost() {
+        return estimateCost(true);
+    }
+
+    /**
+     * Estimates the cost of reading the requested data (see {@link RequestCostEstimator}).
+     *
+     * @param generalizable
+     *        if the requested output may be generalized, e.g. <code>false</code> for exports of raw values
+     * @return the estimated cost, {@link RequestCost#notEstimated()} if no budget is configured or dataset
+     *         metadata is not available
+     */
+    public RequestCost estimateCost(boolean generalizable) {
+        if (requestCostEstimator == null || !requestCostEstimator.isEnabled() || !hasDatasetService()) {
+            return RequestCost.notEstimated();
+        }
+        return requestCostEstimator.estimate(dataService,
+                                             getMetadatas(),
+                                             generalizable && isGeneralizable(),
+                                             parameters);
+    }
+
+    /**
+     * @return <code>true</code> if the created process chain is able to generalize data
+     */
+    protected boolean isGeneralizable() {
+        return false;
+    }
+
     boolean isAbleToCreateHandlerFor(String outputMimeType) {
         return Constants.MimeType.isKnownMimeType(outputMimeType)
                 && supportsMimeType(Constants.MimeType.toInstance(outputMimeType));
@@ -121,10 +227,16 @@ public abstract class IoHandlerFactory<P extends DatasetOutput<V>, V extends Abs
     }
 
     public Set<String> getSupportedMimeTypes() {
-        return Stream.of(Constants.MimeType.TEXT_CSV, Constants.MimeType.APPLICATION_ZIP)
+        return Stream.of(Constants.MimeType.TEXT_CSV,
+                         Constants.MimeType.APPLICATION_ZIP,
+                         Constants.MimeType.APPLICATION_ARROW_STREAM)
                 .map(Constants.MimeType::getMimeType).sorted().collect(Collectors.toSet());
     }
 
+    protected IoHandler<Data<V>> createArrowHandler() {
+        return new ArrowIoHandler<>(parameters, createProcessChain(), getMetadatas());
+    }
+
     protected IoStyleContext createContext() {
         if (datasetService == null || !parameters.hasStyles()) {
             return IoStyleContext.createEmpty();
@@ -132,6 +244,10 @@ public abstract class IoHandlerFactory<P extends DatasetOutput<V>, V extends Abs
         return IoStyleContext.createContextWith(parameters, getMetadatas());
     }
 
+    protected boolean hasDatasetService() {
+        return datasetService != null;
+    }
+
     protected List<P> getMetadatas() {
         String[] datasetIds = parameters.getDatasets()
                                         .toArray(new String[0]);
@@ -147,6 +263,18 @@ public abstract class IoHandlerFactory<P extends DatasetOutput<V>, V extends Abs
         return dataService;
     }
 
+    protected GeneralizationExecutor getGeneralizationExecutor() {
+        return generalizationExecutor;
+    }
+
+    protected GeneralizationCache getGeneralizationCache() {
+        return generalizationCache;
+    }
+
+    protected PyramidStore getPyramidStore() {
+        return pyramidStore;
+    }
+
     protected boolean isCsvOutput(Constants.MimeType mimeType) {
         return mimeType == Constants.MimeType.TEXT_CSV || mimeType == Constants.MimeType.APPLICATION_ZIP;
     }
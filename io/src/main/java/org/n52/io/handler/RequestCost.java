@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.handler;
+
+import java.util.Locale;
+
+/**
+ * The estimated cost of a data request, i.e. the number of values it would read, and the decision taken on
+ * it by a {@link RequestCostEstimator}.
+ */
+public final class RequestCost {
+
+    private static final RequestCost NOT_ESTIMATED = new RequestCost(-1, Decision.ACCEPT);
+
+    public enum Decision {
+
+        /**
+         * Process the request as requested.
+         */
+        ACCEPT,
+
+        /**
+         * Generalize the data, as the raw values are too many to be returned.
+         */
+        GENERALIZE,
+
+        /**
+         * Stream the output, as the values are too many to be held in memory.
+         */
+        STREAM,
+
+        /**
+         * Reject the request, as the values are too many to be processed at all.
+         */
+        REJECT;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final long estimatedValues;
+
+    private final Decision decision;
+
+    RequestCost(long estimatedValues, Decision decision) {
+        this.estimatedValues = estimatedValues;
+        this.decision = decision;
+    }
+
+    /**
+     * @return a cost which has not been estimated, accepting the request
+     */
+    public static RequestCost notEstimated() {
+        return NOT_ESTIMATED;
+    }
+
+    public boolean isEstimated() {
+        return estimatedValues >= 0;
+    }
+
+    /**
+     * @return the estimated number of values, or <code>-1</code> if not estimated
+     */
+    public long getEstimatedValues() {
+        return estimatedValues;
+    }
+
+    public Decision getDecision() {
+        return decision;
+    }
+
+    public boolean isDecision(Decision other) {
+        return decision == other;
+    }
+
+    /**
+     * @return the cost as it is reported to clients, e.g. <code>generalize; values=1200000</code>
+     */
+    public String toHeaderValue() {
+        return decision + "; values=" + estimatedValues;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [decision: " + decision + ", values: " + estimatedValues + "]";
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.handler;
+
+import java.util.Collection;
+import java.util.OptionalLong;
+
+import org.joda.time.Interval;
+import org.joda.time.format.ISOPeriodFormat;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.AbstractValue;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DatasetOutput;
+import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.ValueCountingDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimates the number of values a data request would read and decides how to process it based on
+ * configured budgets. The number of values of a dataset is taken from the data service if it is a
+ * {@link ValueCountingDataService}. Otherwise it is estimated from the dataset's first and last value times
+ * within the requested timespan and the configured sampling interval.
+ * <p>
+ * Budgets are fixed on construction (e.g. by a bean of the application context), query parameters of a
+ * request cannot override them. A budget of <code>0</code> disables the according decision.
+ * </p>
+ * <p>
+ * Generalized or aggregated output is bounded regardless of the values read, so such requests are neither
+ * generalized nor required to be streamed.
+ * </p>
+ */
+public class RequestCostEstimator {
+
+    static final String DEFAULT_SAMPLING_INTERVAL = "PT1M";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestCostEstimator.class);
+
+    private final int maxValues;
+
+    private final int generalizeBudget;
+
+    private final int streamingBudget;
+
+    private final long samplingInterval;
+
+    /**
+     * @param maxValues
+     *        the number of values above which requests get rejected, <code>0</code> to disable
+     * @param generalizeBudget
+     *        the number of values above which requests get generalized, <code>0</code> to disable
+     * @param streamingBudget
+     *        the number of values above which requests must be streamed, <code>0</code> to disable
+     * @param samplingInterval
+     *        the sampling interval in milliseconds assumed when estimating from value times
+     */
+    public RequestCostEstimator(int maxValues, int generalizeBudget, int streamingBudget, long samplingInterval) {
+        this.maxValues = maxValues;
+        this.generalizeBudget = generalizeBudget;
+        this.streamingBudget = streamingBudget;
+        this.samplingInterval = samplingInterval;
+    }
+
+    /**
+     * Parses a sampling interval given as ISO 8601 period.
+     *
+     * @param interval
+     *        the sampling interval, e.g. <code>PT1M</code>
+     * @return the sampling interval in milliseconds, the one of {@value #DEFAULT_SAMPLING_INTERVAL} if the
+     *         given interval is invalid
+     */
+    public static long parseSamplingInterval(String interval) {
+        try {
+            long millis = ISOPeriodFormat.standard()
+                                         .parsePeriod(interval)
+                                         .toStandardDuration()
+                                         .getMillis();
+            if (millis > 0) {
+                return millis;
+            }
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            LOGGER.debug("Could not parse sampling interval '{}'.", interval, e);
+        }
+        LOGGER.warn("Invalid sampling interval '{}'. Using default '{}'.", interval, DEFAULT_SAMPLING_INTERVAL);
+        return ISOPeriodFormat.standard()
+                              .parsePeriod(DEFAULT_SAMPLING_INTERVAL)
+                              .toStandardDuration()
+                              .getMillis();
+    }
+
+    /**
+     * @return <code>true</code> if any budget is configured
+     */
+    public boolean isEnabled() {
+        return maxValues > 0 || generalizeBudget > 0 || streamingBudget > 0;
+    }
+
+    /**
+     * Estimates the cost of the request and decides how to process it.
+     *
+     * @param <V>
+     *        the value type
+     * @param dataService
+     *        the data service to read the data from
+     * @param metadatas
+     *        the metadata of the requested datasets
+     * @param generalizable
+     *        if the requested data can be generalized
+     * @param parameters
+     *        the request parameters
+     * @return the estimated cost, or {@link RequestCost#notEstimated()} if no budget is configured
+     */
+    public <V extends AbstractValue< ? >> RequestCost estimate(DataService<Data<V>> dataService,
+                                                            Collection< ? extends DatasetOutput<V>> metadatas,
+                                                            boolean generalizable,
+                                                            IoParameters parameters) {
+        if (!isEnabled()) {
+            return RequestCost.notEstimated();
+        }
+        long values = 0;
+        for (DatasetOutput<V> metadata : metadatas) {
+            values += estimateValueCount(dataService, metadata, parameters);
+        }
+        RequestCost cost = new RequestCost(values, decide(values, generalizable, parameters));
+        LOGGER.debug("Estimated cost of request {}: {}", parameters, cost);
+        return cost;
+    }
+
+    RequestCost.Decision decide(long values, boolean generalizable, IoParameters parameters) {
+        if (isExceeding(values, maxValues)) {
+            return RequestCost.Decision.REJECT;
+        }
+        boolean boundedOutput = parameters.isGeneralize() || parameters.isAggregate();
+        if (isExceeding(values, generalizeBudget) && generalizable && !boundedOutput) {
+            return RequestCost.Decision.GENERALIZE;
+        }
+        if (isExceeding(values, streamingBudget) && !boundedOutput) {
+            return RequestCost.Decision.STREAM;
+        }
+        return RequestCost.Decision.ACCEPT;
+    }
+
+    private static boolean isExceeding(long values, int budget) {
+        return budget > 0 && values > budget;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V extends AbstractValue< ? >> long estimateValueCount(DataService<Data<V>> dataService,
+                                                                DatasetOutput<V> metadata,
+                                                                IoParameters parameters) {
+        if (dataService instanceof ValueCountingDataService) {
+            OptionalLong count = ((ValueCountingDataService<V>) dataService).getValueCount(metadata.getId(),
+                                                                                           parameters);
+            if (count.isPresent()) {
+                return count.getAsLong();
+            }
+        }
+        Interval timespan = parameters.getTimespan()
+                                      .toInterval();
+        long start = Math.max(timespan.getStartMillis(), getTime(metadata.getFirstValue(), Long.MIN_VALUE));
+        long end = Math.min(timespan.getEndMillis(), getTime(metadata.getLastValue(), Long.MAX_VALUE));
+        return start <= end
+                ? (end - start) / samplingInterval + 1
+                : 0;
+    }
+
+    private static long getTime(AbstractValue< ? > value, long fallback) {
+        TimeOutput timestamp = value != null
+                ? value.getTimestamp()
+                : null;
+        return timestamp != null && timestamp.getDateTime() != null
+                ? timestamp.getMillis()
+                : fallback;
+    }
+
+}
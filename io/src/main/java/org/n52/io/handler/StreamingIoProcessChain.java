@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.handler;
+
+import java.util.Optional;
+
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.io.response.dataset.AbstractValue;
+import org.n52.io.response.dataset.Data;
+import org.n52.series.spi.srv.DataCursor;
+import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.StreamingDataService;
+
+/**
+ * A process chain which is able to provide data incrementally. Writers have to check
+ * {@link #supportsStreaming()} and fall back to {@link #getData()} otherwise.
+ *
+ * @param <V>
+ *        the value type
+ */
+public interface StreamingIoProcessChain<V extends AbstractValue< ? >> extends IoProcessChain<Data<V>> {
+
+    /**
+     * @return <code>true</code>, if data can be consumed via {@link #getDataCursor(String)}
+     */
+    boolean supportsStreaming();
+
+    /**
+     * Opens a cursor over the (unprocessed) values of the given dataset. The caller is responsible to close
+     * the cursor.
+     *
+     * @param datasetId
+     *        the dataset id
+     * @return a time ordered cursor over the dataset values
+     */
+    DataCursor<V> getDataCursor(String datasetId);
+
+    /**
+     * @return the output format of the data returned by {@link #getProcessedData()}
+     */
+    default String getFormat() {
+        return Parameters.DEFAULT_FORMAT;
+    }
+
+    /**
+     * Returns the given data service as {@link StreamingDataService} in case it is able to stream data for
+     * the given parameters.
+     *
+     * @param <V>
+     *        the value type
+     * @param dataService
+     *        the data service
+     * @param parameters
+     *        the request parameters
+     * @return the streaming service or an empty optional if streaming is not supported
+     */
+    @SuppressWarnings("unchecked")
+    static <V extends AbstractValue< ? >> Optional<StreamingDataService<V>> getStreamingService(
+            DataService<Data<V>> dataService,
+            IoParameters parameters) {
+        return dataService instanceof StreamingDataService
+                && ((StreamingDataService<V>) dataService).supportsStreaming(parameters)
+                        ? Optional.of((StreamingDataService<V>) dataService)
+                        : Optional.empty();
+    }
+
+}
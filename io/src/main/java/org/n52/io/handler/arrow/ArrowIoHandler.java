@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.handler.arrow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.n52.io.handler.IoHandler;
+import org.n52.io.handler.IoHandlerException;
+import org.n52.io.handler.IoProcessChain;
+import org.n52.io.handler.StreamingIoProcessChain;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.AbstractValue;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetOutput;
+import org.n52.io.response.dataset.count.CountValue;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DataCursor;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Writes observation data as Apache Arrow IPC stream (<code>application/vnd.apache.arrow.stream</code>). All
+ * datasets share one schema with the columns
+ * <ul>
+ * <li><code>dataset</code>: the dataset id (utf8)</li>
+ * <li><code>timestamp</code>: the observation time (timestamp in milliseconds, zone of the output
+ * timezone), the end of the interval for values observed over a time interval</li>
+ * <li><code>value</code>: the value (double for quantity and count datasets, utf8 otherwise)</li>
+ * </ul>
+ * Each dataset is written as one or more record batches of at most {@link #getBatchSize()} rows. Values are
+ * consumed incrementally in case the process chain supports streaming.
+ * <p>
+ * Arrow allocates memory off-heap via <code>java.nio</code> internals. On Java 16 and later the JVM has to be
+ * started with <code>--add-opens=java.base/java.nio=ALL-UNNAMED</code>, otherwise creating the allocator fails.
+ * </p>
+ *
+ * @param <T>
+ *        the value type
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP2"})
+public class ArrowIoHandler<T extends AbstractValue< ? >> extends IoHandler<Data<T>> {
+
+    public static final String DATASET = "dataset";
+
+    public static final String TIMESTAMP = "timestamp";
+
+    public static final String VALUE = "value";
+
+    public static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+
+    private static final List<String> NUMERIC_VALUE_TYPES = Arrays.asList(QuantityValue.TYPE, CountValue.TYPE);
+
+    private final List< ? extends DatasetOutput<T>> metadatas;
+
+    private final boolean numericValues;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    public ArrowIoHandler(IoParameters parameters,
+                          IoProcessChain<Data<T>> processChain,
+                          List< ? extends DatasetOutput<T>> metadatas) {
+        super(parameters, processChain);
+        this.metadatas = metadatas;
+        this.numericValues = metadatas.stream()
+                                      .map(DatasetOutput::getValueType)
+                                      .allMatch(type -> type == null || NUMERIC_VALUE_TYPES.contains(type));
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public ArrowIoHandler<T> setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public boolean hasNumericValues() {
+        return numericValues;
+    }
+
+    @Override
+    protected void writeTo(OutputStream stream) throws IoHandlerException {
+        IoProcessChain<Data<T>> processChain = getProcessChain();
+        if (processChain instanceof StreamingIoProcessChain
+                && ((StreamingIoProcessChain<T>) processChain).supportsStreaming()) {
+            write(((StreamingIoProcessChain<T>) processChain)::getDataCursor, stream);
+        } else {
+            super.writeTo(stream);
+        }
+    }
+
+    @Override
+    protected void encodeAndWriteTo(DataCollection<Data<T>> data, OutputStream stream) throws IoHandlerException {
+        write(datasetId -> DataCursor.of(data.getSeries(datasetId)), stream);
+    }
+
+    private void write(CursorProvider<T> cursors, OutputStream stream) throws IoHandlerException {
+        try (BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+             VectorSchemaRoot root = VectorSchemaRoot.create(createSchema(), allocator);
+             ArrowStreamWriter writer = new ArrowStreamWriter(root,
+                                                              new DictionaryProvider.MapDictionaryProvider(),
+                                                              stream)) {
+            writer.start();
+            for (DatasetOutput<T> metadata : metadatas) {
+                try (DataCursor<T> cursor = cursors.open(metadata.getId())) {
+                    writeBatches(metadata.getId(), cursor, root, writer);
+                }
+            }
+            writer.end();
+        } catch (IOException e) {
+            throw new IoHandlerException("Could not write Arrow stream.", e);
+        }
+    }
+
+    private void writeBatches(String datasetId, DataCursor<T> cursor, VectorSchemaRoot root, ArrowStreamWriter writer)
+            throws IOException {
+        VarCharVector datasetVector = (VarCharVector) root.getVector(DATASET);
+        TimeStampVector timeVector = (TimeStampVector) root.getVector(TIMESTAMP);
+        FieldVector valueVector = root.getVector(VALUE);
+        byte[] id = datasetId.getBytes(StandardCharsets.UTF_8);
+
+        int row = 0;
+        root.allocateNew();
+        while (cursor != null && cursor.hasNext()) {
+            T value = cursor.next();
+            datasetVector.setSafe(row, id);
+            TimeOutput timestamp = value.getTimestamp() != null
+                    ? value.getTimestamp()
+                    : value.getTimeend();
+            if (timestamp != null && timestamp.getDateTime() != null) {
+                timeVector.setSafe(row, timestamp.getMillis());
+            } else {
+                timeVector.setNull(row);
+            }
+            setValue(valueVector, row, value.getValue());
+            if (++row == batchSize) {
+                writeBatch(row, root, writer);
+                root.allocateNew();
+                row = 0;
+            }
+        }
+        if (row > 0) {
+            writeBatch(row, root, writer);
+        }
+    }
+
+    private void setValue(FieldVector vector, int row, Object value) {
+        if (numericValues) {
+            Float8Vector valueVector = (Float8Vector) vector;
+            if (value instanceof Number) {
+                valueVector.setSafe(row, ((Number) value).doubleValue());
+            } else {
+                valueVector.setNull(row);
+            }
+        } else {
+            VarCharVector valueVector = (VarCharVector) vector;
+            if (value != null) {
+                valueVector.setSafe(row, value.toString().getBytes(StandardCharsets.UTF_8));
+            } else {
+                valueVector.setNull(row);
+            }
+        }
+    }
+
+    private void writeBatch(int rowCount, VectorSchemaRoot root, ArrowStreamWriter writer) throws IOException {
+        root.setRowCount(rowCount);
+        writer.writeBatch();
+    }
+
+    private Schema createSchema() {
+        String timezone = getParameters().getOutputTimezone();
+        ArrowType valueType = numericValues
+                ? new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)
+                : ArrowType.Utf8.INSTANCE;
+        return new Schema(Arrays.asList(createField(DATASET, false, ArrowType.Utf8.INSTANCE),
+                                        createField(TIMESTAMP, true,
+                                                    new ArrowType.Timestamp(TimeUnit.MILLISECOND, timezone)),
+                                        createField(VALUE, true, valueType)));
+    }
+
+    private static Field createField(String name, boolean nullable, ArrowType type) {
+        return new Field(name, new FieldType(nullable, type, null), Collections.emptyList());
+    }
+
+    @FunctionalInterface
+    private interface CursorProvider<T extends AbstractValue< ? >> {
+        DataCursor<T> open(String datasetId);
+    }
+
+}
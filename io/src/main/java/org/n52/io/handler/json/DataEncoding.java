@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.handler.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.n52.io.Constants;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Encodings observation data can be written with. Binary encodings reuse the TVP, Flot and Highcharts
+ * structures of the JSON output, only the encoding on the wire differs.
+ * <p>
+ * Note that MessagePack has no decimal type and its generator rejects decimals which are not exactly
+ * representable as double. The {@link #MSGPACK} encoding therefore converts decimal values to doubles, which
+ * may lose precision beyond 15-17 significant digits.
+ */
+public enum DataEncoding {
+
+    JSON(Constants.MimeType.APPLICATION_JSON) {
+        @Override
+        protected JsonFactory createFactory() {
+            return new JsonFactory();
+        }
+    },
+
+    CBOR(Constants.MimeType.APPLICATION_CBOR) {
+        @Override
+        protected JsonFactory createFactory() {
+            return new CBORFactory();
+        }
+    },
+
+    SMILE(Constants.MimeType.APPLICATION_SMILE) {
+        @Override
+        protected JsonFactory createFactory() {
+            return new SmileFactory();
+        }
+    },
+
+    MSGPACK(Constants.MimeType.APPLICATION_MSGPACK) {
+        @Override
+        protected JsonFactory createFactory() {
+            return new MessagePackFactory() {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public JsonGenerator createGenerator(OutputStream out, JsonEncoding enc) throws IOException {
+                    return new DoubleDecimalGenerator(super.createGenerator(out, enc));
+                }
+            };
+        }
+    };
+
+    private final Constants.MimeType mimeType;
+
+    DataEncoding(Constants.MimeType mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    protected abstract JsonFactory createFactory();
+
+    public Constants.MimeType getMimeType() {
+        return mimeType;
+    }
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    /**
+     * Creates a mapper for this encoding which serializes like the given JSON mapper, i.e. with the same
+     * serialization config, modules and serializers.
+     *
+     * @param jsonMapper
+     *        the configured JSON mapper
+     * @return the given mapper for {@link #JSON}, a derived mapper otherwise
+     */
+    public ObjectMapper createMapper(ObjectMapper jsonMapper) {
+        if (!isBinary()) {
+            return jsonMapper;
+        }
+        ObjectMapper mapper = new ObjectMapper(createFactory());
+        mapper.setSerializerFactory(jsonMapper.getSerializerFactory());
+        mapper.setConfig(jsonMapper.getSerializationConfig());
+        return mapper;
+    }
+
+    public static Optional<DataEncoding> of(String mimeType) {
+        for (DataEncoding encoding : values()) {
+            if (encoding.mimeType.getMimeType().equalsIgnoreCase(mimeType)) {
+                return Optional.of(encoding);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static final class DoubleDecimalGenerator extends JsonGeneratorDelegate {
+
+        DoubleDecimalGenerator(JsonGenerator delegate) {
+            super(delegate, false);
+        }
+
+        @Override
+        public void writeNumber(BigDecimal value) throws IOException {
+            if (value == null) {
+                writeNull();
+            } else {
+                writeNumber(value.doubleValue());
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.handler.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+
+import org.n52.io.handler.StreamingIoProcessChain;
+import org.n52.io.request.Parameters;
+import org.n52.io.response.dataset.AbstractValue;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.series.spi.srv.DataCursor;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Writes observation data in the time value pair format as JSON directly to an output stream, value by
+ * value. The output is equal to serializing the corresponding {@link Data} instances with the given mapper.
+ * Mappers with a binary factory (see {@link DataEncoding}) write the same structures in the respective binary
+ * encoding. Chart formats (e.g. Flot or Highcharts) are not written by this class but rendered by the
+ * formatters of the process chain.
+ * <p>
+ * Values are consumed incrementally in case the process chain supports streaming. Otherwise the data is
+ * materialized once via {@link StreamingIoProcessChain#getData()}.
+ * </p>
+ *
+ * @param <V>
+ *        the value type
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP2"})
+public class JsonDataWriter<V extends AbstractValue< ? >> {
+
+    private static final String VALUES = "values";
+
+    private final ObjectMapper mapper;
+
+    private final ObjectWriter valueWriter;
+
+    private final StreamingIoProcessChain<V> processChain;
+
+    private DataCollection<Data<V>> data;
+
+    public JsonDataWriter(ObjectMapper mapper, StreamingIoProcessChain<V> processChain) {
+        this.mapper = mapper;
+        this.processChain = processChain;
+        // values are serialized with static typing, see Data#getValues()
+        this.valueWriter = mapper.writerFor(AbstractValue.class)
+                                 .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * @param format
+     *        the requested output format
+     * @return <code>true</code> if data of the given format can be written, i.e. for the time value pair
+     *         format
+     */
+    public static boolean supportsFormat(String format) {
+        return Parameters.DEFAULT_FORMAT.equalsIgnoreCase(format);
+    }
+
+    /**
+     * Writes the data of a single dataset.
+     *
+     * @param datasetId
+     *        the dataset id
+     * @param stream
+     *        the stream to write to
+     * @throws IOException
+     *         if writing fails
+     */
+    public void writeData(String datasetId, OutputStream stream) throws IOException {
+        try (JsonGenerator generator = createGenerator(stream)) {
+            try (DataCursor<V> cursor = openCursor(datasetId)) {
+                writeData(cursor, generator);
+            }
+        }
+    }
+
+    /**
+     * Writes the data of all given datasets as object mapped by dataset id.
+     *
+     * @param datasetIds
+     *        the dataset ids
+     * @param stream
+     *        the stream to write to
+     * @throws IOException
+     *         if writing fails
+     */
+    public void writeDataCollection(Collection<String> datasetIds, OutputStream stream) throws IOException {
+        try (JsonGenerator generator = createGenerator(stream)) {
+            generator.writeStartObject();
+            for (String datasetId : datasetIds) {
+                generator.writeFieldName(datasetId);
+                try (DataCursor<V> cursor = openCursor(datasetId)) {
+                    writeData(cursor, generator);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    protected void writeData(DataCursor<V> cursor, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart(VALUES);
+        while (cursor.hasNext()) {
+            valueWriter.writeValue(generator, cursor.next());
+        }
+        generator.writeEndArray();
+        writeMetadata(cursor.getMetadata(), generator);
+        generator.writeEndObject();
+    }
+
+    private void writeMetadata(DatasetMetadata<V> metadata, JsonGenerator generator) throws IOException {
+        if (metadata != null) {
+            // metadata is unwrapped into the data object, see Data#getMetadata()
+            SerializerProvider provider = mapper.getSerializerProviderInstance();
+            JsonSerializer<Object> serializer = provider.findValueSerializer(metadata.getClass())
+                                                        .unwrappingSerializer(NameTransformer.NOP);
+            serializer.serialize(metadata, generator, provider);
+        }
+    }
+
+    private DataCursor<V> openCursor(String datasetId) {
+        if (processChain.supportsStreaming()) {
+            return processChain.getDataCursor(datasetId);
+        }
+        if (data == null) {
+            data = processChain.getData();
+        }
+        return DataCursor.of(data.getSeries(datasetId));
+    }
+
+    protected JsonGenerator createGenerator(OutputStream stream) throws IOException {
+        return mapper.createGenerator(stream, JsonEncoding.UTF8);
+    }
+
+}
@@ -35,6 +35,7 @@ import java.util.List;
 import org.locationtech.jts.geom.Geometry;
 import org.n52.io.IoParseException;
 import org.n52.io.handler.CsvIoHandler;
+import org.n52.io.handler.IoHandlerException;
 import org.n52.io.handler.IoProcessChain;
 import org.n52.io.request.IoParameters;
 import org.n52.io.response.FeatureOutput;
@@ -64,6 +65,12 @@ public class ProfileCsvIoHandler extends CsvIoHandler<ProfileValue< ? >> {
         super(parameters, processChain, seriesMetadatas);
     }
 
+    @Override
+    protected void writeTo(OutputStream stream) throws IoHandlerException {
+        // profiles are written from materialized data only
+        encodeAndWriteTo(getProcessChain().getData(), stream);
+    }
+
     @Override
     public void encodeAndWriteTo(DataCollection<Data<ProfileValue< ? >>> data, OutputStream stream)
             throws IoParseException {
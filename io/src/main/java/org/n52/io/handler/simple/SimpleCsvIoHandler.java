@@ -29,6 +29,7 @@ package org.n52.io.handler.simple;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -42,6 +43,7 @@ import org.n52.io.response.dataset.AbstractValue;
 import org.n52.io.response.dataset.Data;
 import org.n52.io.response.dataset.DatasetOutput;
 import org.n52.io.response.dataset.DatasetParameters;
+import org.n52.series.spi.srv.DataCursor;
 
 public class SimpleCsvIoHandler<T extends AbstractValue< ? >> extends CsvIoHandler<T> {
 
@@ -116,10 +118,23 @@ public class SimpleCsvIoHandler<T extends AbstractValue< ? >> extends CsvIoHandl
     @Override
     protected void writeData(DatasetOutput<T> metadata, Data<T> series, OutputStream stream)
             throws IOException {
+        writeValues(metadata, series.getValues().iterator(), stream);
+    }
+
+    @Override
+    protected void writeData(DatasetOutput<T> metadata, DataCursor<T> cursor, OutputStream stream)
+            throws IOException {
+        writeValues(metadata, cursor, stream);
+    }
+
+    private void writeValues(DatasetOutput<T> metadata, Iterator<T> values, OutputStream stream)
+            throws IOException {
         int columnSize = getHeader(metadata).length;
+        boolean trajectory = isTrajectory(metadata);
         String[] row = new String[columnSize];
-        for (T value : series.getValues()) {
-            row[0] = isTrajectory(metadata)
+        while (values.hasNext()) {
+            T value = values.next();
+            row[0] = trajectory
                     ? value.getGeometry().toString()
                     : "";
             row[1] = parseTime(value);
@@ -27,6 +27,7 @@
  */
 package org.n52.io.type.count.format;
 
+import org.n52.io.format.CompactFormatter;
 import org.n52.io.format.DataFormatter;
 import org.n52.io.format.FlotFormatter;
 import org.n52.io.format.HighchartFormatter;
@@ -52,6 +53,8 @@ public final class FormatterFactory {
         } else if ("flotcharts".equalsIgnoreCase(format)
                 || "flot".equalsIgnoreCase(format)) {
             return new FlotFormatter<>();
+        } else if ("compact".equalsIgnoreCase(format)) {
+            return new CompactFormatter<>();
         } else {
             return new TvpFormatter<>();
         }
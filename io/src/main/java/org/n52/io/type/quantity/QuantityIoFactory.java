@@ -27,6 +27,8 @@
  */
 package org.n52.io.type.quantity;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -53,6 +55,7 @@ public final class QuantityIoFactory extends IoHandlerFactory<QuantityDatasetOut
         Constants.MimeType.IMAGE_PNG,
         Constants.MimeType.APPLICATION_ZIP,
         Constants.MimeType.APPLICATION_PDF,
+        Constants.MimeType.APPLICATION_ARROW_STREAM,
     };
 
     @Override
@@ -62,9 +65,42 @@ public final class QuantityIoFactory extends IoHandlerFactory<QuantityDatasetOut
                      .collect(Collectors.toSet());
     }
 
+    private Map<String, Long> lastValueTimes;
+
     @Override
     public IoProcessChain<Data<QuantityValue>> createProcessChain() {
-        return new QuantityIoProcessChain(getDataService(), getParameters());
+        return new QuantityIoProcessChain(getDataService(),
+                                          getParameters(),
+                                          this::getLastValueTime,
+                                          getGeneralizationExecutor(),
+                                          getGeneralizationCache(),
+                                          getPyramidStore());
+    }
+
+    @Override
+    protected boolean isGeneralizable() {
+        return true;
+    }
+
+    private Long getLastValueTime(String datasetId) {
+        if (lastValueTimes == null) {
+            lastValueTimes = loadLastValueTimes();
+        }
+        return lastValueTimes.get(datasetId);
+    }
+
+    private Map<String, Long> loadLastValueTimes() {
+        Map<String, Long> times = new HashMap<>();
+        if (hasDatasetService()) {
+            for (QuantityDatasetOutput metadata : getMetadatas()) {
+                QuantityValue lastValue = metadata.getLastValue();
+                if (lastValue != null && lastValue.getTimestamp() != null) {
+                    times.put(metadata.getId(), lastValue.getTimestamp()
+                                                         .getMillis());
+                }
+            }
+        }
+        return times;
     }
 
     @Override
@@ -84,6 +120,8 @@ public final class QuantityIoFactory extends IoHandlerFactory<QuantityDatasetOut
             boolean zipOutput = parameters.getAsBoolean(Parameters.ZIP, false);
             handler.setZipOutput(zipOutput || mimeType == Constants.MimeType.APPLICATION_ZIP);
             return handler;
+        } else if (mimeType == Constants.MimeType.APPLICATION_ARROW_STREAM) {
+            return createArrowHandler();
         }
 
         String msg = "The requested media type '" + outputMimeType + "' is not supported.";
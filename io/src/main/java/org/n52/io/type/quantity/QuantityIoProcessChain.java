@@ -27,45 +27,133 @@
  */
 package org.n52.io.type.quantity;
 
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.n52.io.format.AggregatedDataCollection;
+import org.n52.io.format.AggregationFormatter;
 import org.n52.io.format.ResultTimeClassifiedData;
 import org.n52.io.format.ResultTimeFormatter;
-import org.n52.io.handler.IoProcessChain;
+import org.n52.io.handler.StreamingIoProcessChain;
 import org.n52.io.request.IoParameters;
 import org.n52.io.response.dataset.AbstractValue;
 import org.n52.io.response.dataset.Data;
 import org.n52.io.response.dataset.DataCollection;
 import org.n52.io.response.dataset.quantity.QuantityValue;
 import org.n52.io.type.quantity.format.FormatterFactory;
+import org.n52.io.type.quantity.generalize.CachingGeneralizingQuantityService;
+import org.n52.io.type.quantity.generalize.GeneralizationCache;
+import org.n52.io.type.quantity.generalize.GeneralizationExecutor;
 import org.n52.io.type.quantity.generalize.GeneralizingQuantityService;
+import org.n52.io.type.quantity.generalize.PyramidQuantityService;
+import org.n52.io.type.quantity.generalize.PyramidStore;
+import org.n52.io.type.quantity.rolling.RollingWindowQuantityService;
+import org.n52.series.spi.srv.DataCursor;
 import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.StreamingDataService;
 
-final class QuantityIoProcessChain implements IoProcessChain<Data<QuantityValue>> {
+final class QuantityIoProcessChain implements StreamingIoProcessChain<QuantityValue> {
 
     private final DataService<Data<QuantityValue>> dataService;
 
     private final IoParameters parameters;
 
-    QuantityIoProcessChain(DataService<Data<QuantityValue>> dataService, IoParameters parameters) {
-        this.dataService = dataService;
+    private final Function<String, Long> lastValueTimes;
+
+    private final GeneralizationExecutor executor;
+
+    private final GeneralizationCache cache;
+
+    private final PyramidStore pyramids;
+
+    QuantityIoProcessChain(DataService<Data<QuantityValue>> dataService,
+                           IoParameters parameters,
+                           Function<String, Long> lastValueTimes,
+                           GeneralizationExecutor executor,
+                           GeneralizationCache cache,
+                           PyramidStore pyramids) {
+        this.dataService = parameters.hasRollingWindow()
+                ? new RollingWindowQuantityService(dataService)
+                : dataService;
         this.parameters = parameters;
+        this.lastValueTimes = lastValueTimes;
+        this.executor = executor;
+        this.cache = cache;
+        this.pyramids = pyramids;
     }
 
     @Override
     public DataCollection<Data<QuantityValue>> getData() {
-        boolean generalize = parameters.isGeneralize();
+        // aggregates are calculated from ungeneralized values
+        boolean generalize = parameters.isGeneralize() && !parameters.isAggregate();
         DataService<Data<QuantityValue>> service = generalize
-                ? new GeneralizingQuantityService(dataService)
+                ? createGeneralizingService()
                 : dataService;
         return service.getData(parameters);
     }
 
+    private DataService<Data<QuantityValue>> createGeneralizingService() {
+        if (parameters.hasRollingWindow()) {
+            // cached generalizations and pyramids hold raw values
+            return new GeneralizingQuantityService(dataService, executor);
+        }
+        DataService<Data<QuantityValue>> generalizingService = cache != null && cache.isEnabled()
+                ? new CachingGeneralizingQuantityService(dataService, cache, lastValueTimes, executor)
+                : new GeneralizingQuantityService(dataService, executor);
+        return pyramids != null && pyramids.isEnabled()
+                ? new PyramidQuantityService(dataService, pyramids, generalizingService, lastValueTimes)
+                : generalizingService;
+    }
+
+    @Override
+    public boolean supportsStreaming() {
+        return !parameters.isGeneralize()
+                && !parameters.isAggregate()
+                && !parameters.shallClassifyByResultTimes()
+                && StreamingIoProcessChain.getStreamingService(dataService, parameters)
+                                          .isPresent();
+    }
+
+    @Override
+    public DataCursor<QuantityValue> getDataCursor(String datasetId) {
+        return StreamingIoProcessChain.getStreamingService(dataService, parameters)
+                                      .map(service -> service.getDataCursor(datasetId, parameters))
+                                      .orElseThrow(() -> new IllegalStateException(
+                                              "Data service does not support streaming."));
+    }
+
+    @Override
+    public String getFormat() {
+        return parameters.getFormat();
+    }
+
     @Override
     public DataCollection< ? > getProcessedData() {
+        if (parameters.isAggregate()) {
+            return aggregate();
+        }
         return parameters.shallClassifyByResultTimes()
                 ? formatAccordingToResultTimes()
                 : formatValueOutputs();
     }
 
+    private AggregatedDataCollection<QuantityValue> aggregate() {
+        AggregationFormatter<QuantityValue> formatter = AggregationFormatter.createFrom(parameters);
+        Optional<StreamingDataService<QuantityValue>> streamingService =
+                StreamingIoProcessChain.getStreamingService(dataService, parameters);
+        if (!streamingService.isPresent()) {
+            return formatter.format(getData());
+        }
+        AggregatedDataCollection<QuantityValue> dataCollection = new AggregatedDataCollection<>();
+        for (String datasetId : parameters.getDatasets()) {
+            try (DataCursor<QuantityValue> cursor = streamingService.get()
+                                                                    .getDataCursor(datasetId, parameters)) {
+                dataCollection.addNewSeries(datasetId, formatter.aggregate(cursor));
+            }
+        }
+        return dataCollection;
+    }
+
     private DataCollection<ResultTimeClassifiedData<AbstractValue< ? >>> formatAccordingToResultTimes() {
         return new ResultTimeFormatter<Data<QuantityValue>>().format(getData());
     }
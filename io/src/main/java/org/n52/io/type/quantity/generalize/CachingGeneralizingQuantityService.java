@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.joda.time.Interval;
+import org.n52.io.TvpDataCollection;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.RawDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Composes a {@link DataService} instance to generalize requested timeseries data and caches the results in a
+ * {@link GeneralizationCache}. Only datasets not cached are fetched. If the end of a requested window has
+ * moved forward only slightly, a cached window is extended by the values after its last value.
+ * <p>
+ * Requests without explicit datasets and requests whose generalization is pushed down to the composed service
+ * are not cached. Windows are cached separately for each combination of further request parameters (e.g.
+ * <code>expanded</code> or <code>outputTimezone</code>).
+ * </p>
+ */
+public class CachingGeneralizingQuantityService implements DataService<Data<QuantityValue>> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingGeneralizingQuantityService.class);
+
+    private final DataService<Data<QuantityValue>> composedService;
+
+    private final GeneralizationCache cache;
+
+    private final Function<String, Long> lastValueTimes;
+
+    private final GeneralizationExecutor executor;
+
+    private final GeneralizingQuantityService generalizingService;
+
+    /**
+     * @param toCompose
+     *        the service to compose
+     * @param cache
+     *        the cache
+     * @param lastValueTimes
+     *        provides the time of a dataset's last value (or <code>null</code> if unknown) to invalidate cached
+     *        windows
+     * @param executor
+     *        the executor generalizing multiple series in parallel, or <code>null</code> to generalize
+     *        serially
+     */
+    public CachingGeneralizingQuantityService(DataService<Data<QuantityValue>> toCompose,
+                                              GeneralizationCache cache,
+                                              Function<String, Long> lastValueTimes,
+                                              GeneralizationExecutor executor) {
+        this.composedService = toCompose;
+        this.cache = cache;
+        this.lastValueTimes = lastValueTimes;
+        this.executor = executor;
+        this.generalizingService = new GeneralizingQuantityService(toCompose, executor);
+    }
+
+    @Override
+    public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
+        Set<String> datasets = parameters.getDatasets();
+        Generalizer<Data<QuantityValue>> generalizer = GeneralizerFactory.createGeneralizer(parameters);
+        if (!cache.isEnabled() || datasets.isEmpty() || generalizingService.isPushedDown(generalizer, parameters)) {
+            return generalizingService.getData(parameters);
+        }
+
+        Interval timespan = parameters.getTimespan()
+                                      .toInterval();
+        String generalizerKey = generalizer.getConfigurationKey();
+        String variant = getVariant(parameters);
+        TvpDataCollection<Data<QuantityValue>> result = new TvpDataCollection<>();
+        Map<String, Data<QuantityValue>> toGeneralize = new LinkedHashMap<>();
+        Map<String, Long> currentLastValueTimes = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String datasetId : datasets) {
+            GeneralizationCache.Key key = new GeneralizationCache.Key(datasetId,
+                                                                      timespan.getStartMillis(),
+                                                                      timespan.getEndMillis(),
+                                                                      generalizerKey,
+                                                                      variant);
+            Long lastValueTime = lastValueTimes.apply(datasetId);
+            currentLastValueTimes.put(datasetId, lastValueTime);
+            GeneralizationCache.Entry cached = cache.get(key, lastValueTime);
+            if (cached != null) {
+                result.addNewSeries(datasetId, cached.getGeneralized());
+                continue;
+            }
+            GeneralizationCache.Entry partial = cache.findPartial(key);
+            if (partial != null) {
+                toGeneralize.put(datasetId, extend(partial, key, parameters));
+            } else {
+                missing.add(datasetId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            IoParameters missingParameters = parameters.replaceWith(Parameters.DATASETS, missing);
+            toGeneralize.putAll(composedService.getData(missingParameters)
+                                               .getAllSeries());
+        }
+        if (!toGeneralize.isEmpty() && generalize(generalizer, toGeneralize, result)) {
+            for (Map.Entry<String, Data<QuantityValue>> ungeneralized : toGeneralize.entrySet()) {
+                String datasetId = ungeneralized.getKey();
+                Data<QuantityValue> generalized = result.getSeries(datasetId);
+                if (datasets.contains(datasetId) && generalized != null) {
+                    GeneralizationCache.Key key = new GeneralizationCache.Key(datasetId,
+                                                                              timespan.getStartMillis(),
+                                                                              timespan.getEndMillis(),
+                                                                              generalizerKey,
+                                                                              variant);
+                    cache.put(key,
+                              new GeneralizationCache.Entry(ungeneralized.getValue(),
+                                                            generalized,
+                                                            currentLastValueTimes.get(datasetId)));
+                }
+            }
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Generalization cache: #{} hits, #{} partial hits, #{} misses, #{} evictions, "
+                    + "#{} invalidations, #{} values.",
+                         cache.getHitCount(),
+                         cache.getPartialHitCount(),
+                         cache.getMissCount(),
+                         cache.getEvictionCount(),
+                         cache.getInvalidationCount(),
+                         cache.getWeight());
+        }
+        return result;
+    }
+
+    /**
+     * All parameters but datasets and timespan may change the values or output of a series, e.g.
+     * <code>expanded</code>, <code>resultTimes</code> or <code>outputTimezone</code>.
+     */
+    private static String getVariant(IoParameters parameters) {
+        return parameters.removeAllOf(Parameters.DATASETS)
+                         .removeAllOf(Parameters.TIMESPAN)
+                         .getCanonicalKey();
+    }
+
+    private boolean generalize(Generalizer<Data<QuantityValue>> generalizer,
+                               Map<String, Data<QuantityValue>> toGeneralize,
+                               TvpDataCollection<Data<QuantityValue>> result) {
+        TvpDataCollection<Data<QuantityValue>> ungeneralizedData = new TvpDataCollection<>();
+        ungeneralizedData.setAllSeries(toGeneralize);
+        try {
+            DataCollection<Data<QuantityValue>> generalizedData = executor != null && toGeneralize.size() > 1
+                    ? executor.generalize(generalizer, ungeneralizedData)
+                    : generalizer.generalize(ungeneralizedData);
+            result.addAll(generalizedData);
+            return true;
+        } catch (GeneralizerException e) {
+            LOGGER.error("Couldn't generalize timeseries collection. Returning original data.", e);
+            result.addAll(ungeneralizedData);
+            return false;
+        }
+    }
+
+    /**
+     * Extends the ungeneralized values of a cached window by the values after the window's last value. Values
+     * before the requested window are dropped.
+     */
+    private Data<QuantityValue> extend(GeneralizationCache.Entry partial,
+                                       GeneralizationCache.Key key,
+                                       IoParameters parameters) {
+        Data<QuantityValue> cached = partial.getUngeneralized();
+        Long lastCachedTime = partial.getLastUngeneralizedTime();
+        long from = lastCachedTime != null
+                ? Math.max(lastCachedTime + 1, key.getStart())
+                : key.getStart();
+        Data<QuantityValue> delta = from <= key.getEnd()
+                ? fetch(key.getDatasetId(), new Interval(from, key.getEnd()), parameters)
+                : null;
+
+        DatasetMetadata<QuantityValue> cachedMetadata = cached.getMetadata();
+        DatasetMetadata<QuantityValue> metadata = new DatasetMetadata<>();
+        Data<QuantityValue> extended = new Data<>(metadata);
+        QuantityValue valueBeforeTimespan = cachedMetadata != null
+                ? cachedMetadata.getValueBeforeTimespan()
+                : null;
+        for (QuantityValue value : cached.getValues()) {
+            if (value.getTimestamp()
+                     .getMillis() < key.getStart()) {
+                // only if requested at all
+                valueBeforeTimespan = valueBeforeTimespan != null
+                        ? value
+                        : null;
+            } else {
+                extended.addNewValue(value);
+            }
+        }
+        DatasetMetadata<QuantityValue> latestMetadata = delta != null && delta.hasMetadata()
+                ? delta.getMetadata()
+                : cachedMetadata;
+        if (latestMetadata != null) {
+            metadata.setReferenceValues(latestMetadata.getReferenceValues());
+            metadata.setValueAfterTimespan(latestMetadata.getValueAfterTimespan());
+        }
+        metadata.setValueBeforeTimespan(valueBeforeTimespan);
+        if (delta != null) {
+            for (QuantityValue value : delta.getValues()) {
+                extended.addNewValue(value);
+            }
+        }
+        return extended;
+    }
+
+    private Data<QuantityValue> fetch(String datasetId, Interval timespan, IoParameters parameters) {
+        IoParameters deltaParameters = parameters.replaceWith(Parameters.DATASETS, datasetId)
+                                                 .replaceWith(Parameters.TIMESPAN, timespan.toString());
+        return composedService.getData(deltaParameters)
+                              .getSeries(datasetId);
+    }
+
+    @Override
+    public boolean supportsRawData() {
+        return false;
+    }
+
+    @Override
+    public RawDataService getRawDataService() {
+        return null;
+    }
+
+}
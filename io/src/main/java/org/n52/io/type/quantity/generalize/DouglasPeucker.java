@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Douglas-Peucker simplification on primitive timestamp and value columns. Index ranges still to be
+ * simplified are kept on an explicit work list, so neither recursion nor copies of the input are needed.
+ * Kept points are marked in a bitset.
+ * <p>
+ * No-data values are always kept and split the series into segments which are simplified separately.
+ * Without an output limit ranges are processed depth-first. With an output limit the range having the most
+ * distant point is split first, so that the most significant points are kept once the limit is reached.
+ * </p>
+ */
+final class DouglasPeucker {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final double tolerance;
+
+    private final int maxOutput;
+
+    // pending ranges, a stack or (if limited) a max-heap by distance
+    private int[] froms = new int[INITIAL_CAPACITY];
+
+    private int[] tos = new int[INITIAL_CAPACITY];
+
+    private int[] splits = new int[INITIAL_CAPACITY];
+
+    private double[] distances = new double[INITIAL_CAPACITY];
+
+    private int pending;
+
+    /**
+     * @param tolerance
+     *        points closer than this tolerance to the line between the end points of a range are dropped
+     * @param maxOutput
+     *        the maximum number of points to keep, unlimited if less than or equal to zero. No-data values
+     *        and segment end points are kept anyway.
+     */
+    DouglasPeucker(double tolerance, int maxOutput) {
+        this.tolerance = tolerance;
+        this.maxOutput = maxOutput;
+    }
+
+    /**
+     * @param timestamps
+     *        the input timestamps in ascending order
+     * @param values
+     *        the input values
+     * @param noDataValues
+     *        the indices of no-data input values
+     * @param length
+     *        the number of input points
+     * @return the indices of the points to keep
+     */
+    BitSet simplify(long[] timestamps, double[] values, BitSet noDataValues, int length) {
+        BitSet kept = new BitSet(length);
+        pending = 0;
+        int index = 0;
+        while (index < length) {
+            if (noDataValues.get(index)) {
+                kept.set(index++);
+                continue;
+            }
+            int nextNoData = noDataValues.nextSetBit(index);
+            int end = nextNoData < 0 || nextNoData >= length
+                    ? length - 1
+                    : nextNoData - 1;
+            kept.set(index);
+            kept.set(end);
+            push(index, end, timestamps, values);
+            index = end + 1;
+        }
+
+        int count = kept.cardinality();
+        while (pending > 0 && !isLimitReached(count)) {
+            int top = isLimited()
+                    ? 0
+                    : pending - 1;
+            int from = froms[top];
+            int to = tos[top];
+            int split = splits[top];
+            double distance = distances[top];
+            pop();
+            if (distance < tolerance) {
+                if (isLimited()) {
+                    // no other pending range has a more distant point
+                    break;
+                }
+                continue;
+            }
+            kept.set(split);
+            count++;
+            push(from, split, timestamps, values);
+            push(split, to, timestamps, values);
+        }
+        return kept;
+    }
+
+    private boolean isLimited() {
+        return maxOutput > 0;
+    }
+
+    private boolean isLimitReached(int count) {
+        return isLimited() && count >= maxOutput;
+    }
+
+    private void push(int from, int to, long[] timestamps, double[] values) {
+        if (to - from < 2) {
+            // no inner points
+            return;
+        }
+        // perpendicular distance to the line through the end points
+        double dx = timestamps[to] - timestamps[from];
+        double dy = values[to] - values[from];
+        double lineLength = Math.sqrt(dx * dx + dy * dy);
+        int split = from + 1;
+        double maxDistance = -1;
+        for (int i = from + 1; i < to; i++) {
+            double px = timestamps[i] - timestamps[from];
+            double py = values[i] - values[from];
+            double distance = lineLength == 0
+                    ? Math.sqrt(px * px + py * py)
+                    : Math.abs(dx * py - dy * px) / lineLength;
+            if (distance > maxDistance) {
+                maxDistance = distance;
+                split = i;
+            }
+        }
+
+        ensureCapacity();
+        int slot = pending++;
+        if (isLimited()) {
+            // sift up
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (distances[parent] >= maxDistance) {
+                    break;
+                }
+                move(parent, slot);
+                slot = parent;
+            }
+        }
+        set(slot, from, to, split, maxDistance);
+    }
+
+    private void pop() {
+        pending--;
+        if (!isLimited() || pending == 0) {
+            return;
+        }
+        // sift down the last range from the top
+        int from = froms[pending];
+        int to = tos[pending];
+        int split = splits[pending];
+        double distance = distances[pending];
+        int slot = 0;
+        int child;
+        while ((child = 2 * slot + 1) < pending) {
+            if (child + 1 < pending && distances[child + 1] > distances[child]) {
+                child++;
+            }
+            if (distance >= distances[child]) {
+                break;
+            }
+            move(child, slot);
+            slot = child;
+        }
+        set(slot, from, to, split, distance);
+    }
+
+    private void ensureCapacity() {
+        if (pending == froms.length) {
+            int capacity = froms.length * 2;
+            froms = Arrays.copyOf(froms, capacity);
+            tos = Arrays.copyOf(tos, capacity);
+            splits = Arrays.copyOf(splits, capacity);
+            distances = Arrays.copyOf(distances, capacity);
+        }
+    }
+
+    private void move(int source, int target) {
+        set(target, froms[source], tos[source], splits[source], distances[source]);
+    }
+
+    private void set(int slot, int from, int to, int split, double distance) {
+        froms[slot] = from;
+        tos[slot] = to;
+        splits[slot] = split;
+        distances[slot] = distance;
+    }
+
+}
@@ -27,16 +27,15 @@
  */
 package org.n52.io.type.quantity.generalize;
 
-import java.awt.geom.Line2D;
-import java.awt.geom.Point2D;
-import java.math.BigDecimal;
-import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Optional;
 
 import org.n52.io.TvpDataCollection;
 import org.n52.io.request.IoParameters;
 import org.n52.io.response.dataset.Data;
 import org.n52.io.response.dataset.DataCollection;
 import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DownsamplingRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,7 +44,8 @@ import org.slf4j.LoggerFactory;
  *
  * Characteristic quantity values are picked depending on a given tolerance value. Values that
  * differ less than this tolerance value from an ideal line between some minima and maxima will be
- * dropped.
+ * dropped. Optionally, the number of output values can be limited. Simplification is done on
+ * primitive timestamp and value columns, see {@link DouglasPeucker}.
  */
 public final class DouglasPeuckerGeneralizer extends Generalizer<Data<QuantityValue>> {
 
@@ -66,6 +66,11 @@ public final class DouglasPeuckerGeneralizer extends Generalizer<Data<QuantityVa
      */
     private static final String TOLERANCE_VALUE = "TOLERANCE_VALUE";
 
+    /**
+     * Config-key for {@link #maxOutput}.
+     */
+    private static final String MAX_OUTPUT = "MAX_OUTPUT";
+
     /**
      * {@link #maxEntries} is the value for the maximum points the generalizer will handle,
      * otherwise an exception will be thrown; -1 is unlimited
@@ -86,6 +91,12 @@ public final class DouglasPeuckerGeneralizer extends Generalizer<Data<QuantityVa
     // fallback default
     private double toleranceValue = 0.1;
 
+    /**
+     * The maximum number of values a generalized time series will have; -1 is unlimited
+     */
+    // fallback default
+    private int maxOutput = -1;
+
     /**
      * Creates a new instance. Use static constructors for instantiation.
      *
@@ -104,6 +115,9 @@ public final class DouglasPeuckerGeneralizer extends Generalizer<Data<QuantityVa
             toleranceValue = parameters.containsParameter(TOLERANCE_VALUE)
                     ? Double.parseDouble(parameters.getOther(TOLERANCE_VALUE))
                     : toleranceValue;
+            maxOutput = parameters.containsParameter(MAX_OUTPUT)
+                    ? Integer.parseInt(parameters.getOther(MAX_OUTPUT))
+                    : maxOutput;
         } catch (NumberFormatException ne) {
             LOGGER.error(
                     "Error while reading properties!  Using fallback defaults.",
@@ -118,6 +132,16 @@ public final class DouglasPeuckerGeneralizer extends Generalizer<Data<QuantityVa
         return "Douglas-Peucker";
     }
 
+    @Override
+    public String getConfigurationKey() {
+        return getName() + ";tolerance=" + toleranceValue + ";maxOutput=" + maxOutput + ";maxEntries=" + maxEntries;
+    }
+
+    @Override
+    public Optional<DownsamplingRequest> getDownsamplingRequest() {
+        return Optional.of(new DownsamplingRequest(DownsamplingRequest.DOUGLAS_PEUCKER, maxOutput));
+    }
+
     @Override
     public DataCollection<Data<QuantityValue>> generalize(DataCollection<Data<QuantityValue>> data)
             throws GeneralizerException {
@@ -131,120 +155,30 @@ public final class DouglasPeuckerGeneralizer extends Generalizer<Data<QuantityVa
 
     private Data<QuantityValue> generalize(Data<QuantityValue> timeseries) throws
             GeneralizerException {
-        QuantityValue[] originalValues = getValueArray(timeseries);
-        if (originalValues.length < 3 || toleranceValue <= 0) {
+        int length = (int) timeseries.size();
+        if (length < 3 || toleranceValue <= 0) {
             return timeseries;
         }
 
-        if (maxEntries != -1 && originalValues.length > maxEntries) {
+        if (maxEntries != -1 && length > maxEntries) {
             throw new GeneralizerException(
                     "Maximum number of entries exceeded ("
-                    + originalValues.length + ">"
+                    + length + ">"
                     + maxEntries + ")!");
         }
 
-        Data<QuantityValue> generalizedTimeseries = new Data<>(timeseries.getMetadata());
-        QuantityValue[] generalizedValues = recursiveGeneralize(timeseries);
-        generalizedTimeseries.addValues(generalizedValues);
-
-        // add first element if new list is empty
-        if (generalizedValues.length == 0/* && originalValues.length > 0*/) {
-            generalizedTimeseries.addNewValue(originalValues[0]);
-        }
+        QuantityColumns columns = QuantityColumns.of(timeseries);
+        DouglasPeucker douglasPeucker = new DouglasPeucker(toleranceValue, maxOutput);
+        BitSet kept = douglasPeucker.simplify(columns.getTimestamps(),
+                                              columns.getValues(),
+                                              columns.getNoDataValues(),
+                                              length);
 
-        // add the last one if not already contained!
-        if (generalizedValues.length > 0/* && originalValues.length > 0*/) {
-            QuantityValue lastOriginialValue = originalValues[originalValues.length - 1];
-            QuantityValue lastGeneralizedValue = generalizedValues[generalizedValues.length - 1];
-            if (!lastGeneralizedValue.getTimestamp().equals(lastOriginialValue.getTimestamp())) {
-                generalizedTimeseries.addNewValue(lastOriginialValue);
-            }
+        Data<QuantityValue> generalizedTimeseries = columns.createEmpty(timeseries.getMetadata());
+        for (int i = kept.nextSetBit(0); i >= 0; i = kept.nextSetBit(i + 1)) {
+            generalizedTimeseries.addNewValue(columns.getValue(i));
         }
         return generalizedTimeseries;
     }
 
-    private QuantityValue[] getValueArray(Data<QuantityValue> timeseries) {
-        return timeseries.getValues()
-                .toArray(new QuantityValue[0]);
-    }
-
-    private QuantityValue[] recursiveGeneralize(Data<QuantityValue> timeseries) {
-        QuantityValue[] values = getValueArray(timeseries);
-        QuantityValue startValue = getFirstValue(timeseries);
-        QuantityValue endValue = getLastValue(timeseries);
-        Line2D.Double line = createTendencyLine(startValue, endValue);
-
-        // find the point of maximum distance to the line
-        int index = 0;
-        double maxDist = 0;
-        double distance;
-
-        // start and end value are not mentioned
-        for (int i = 1; i < (values.length - 1); i++) {
-            QuantityValue timeseriesValue = values[i];
-            distance = calculateDistance(line, timeseriesValue);
-            if (distance > maxDist) {
-                index = i;
-                maxDist = distance;
-            }
-        }
-
-        if (maxDist < toleranceValue) {
-            return getValueArray(timeseries);
-        } else {
-            // split and handle both parts separately
-            Data<QuantityValue> generalizedData = new Data<>();
-            Data<QuantityValue> firstPartToBeGeneralized = new Data<>();
-            Data<QuantityValue> restPartToBeGeneralized = new Data<>();
-            firstPartToBeGeneralized.addValues(Arrays.copyOfRange(values, 0, index));
-            restPartToBeGeneralized.addValues(Arrays.copyOfRange(values, index + 1, values.length));
-            generalizedData.addValues(recursiveGeneralize(firstPartToBeGeneralized));
-            generalizedData.addValues(recursiveGeneralize(restPartToBeGeneralized));
-            return getValueArray(generalizedData);
-        }
-
-    }
-
-    private double calculateDistance(Line2D.Double line, QuantityValue timeseriesValue) {
-        return line.ptLineDist(createPoint(timeseriesValue));
-    }
-
-    private Point2D.Double createPoint(QuantityValue timeseriesValue) {
-        Long timestamp = timeseriesValue.getTimestamp().getMillis();
-        BigDecimal value = timeseriesValue.getValue();
-
-        Point2D.Double p = new Point2D.Double();
-        p.setLocation(timestamp, value.doubleValue());
-        return p;
-    }
-
-    private Line2D.Double createTendencyLine(QuantityValue start, QuantityValue end) {
-        Long startTime = start.getTimestamp().getMillis();
-        BigDecimal startValue = start.getValue();
-        Long endTime = end.getTimestamp().getMillis();
-        BigDecimal endValue = end.getValue();
-        return new Line2D.Double(startTime, startValue.doubleValue(), endTime, endValue.doubleValue());
-    }
-
-    private QuantityValue getFirstValue(Data<QuantityValue> timeseries) {
-        QuantityValue[] values = getValueArray(timeseries);
-        if (values == null || values.length == 0) {
-            throwNewMustNotBeEmptyException();
-        }
-        return values[0];
-    }
-
-    private QuantityValue getLastValue(Data<QuantityValue> timeseries) {
-        QuantityValue[] values = getValueArray(timeseries);
-        if (values == null || values.length == 0) {
-            throwNewMustNotBeEmptyException();
-            return null;
-        }
-        return values[values.length - 1];
-    }
-
-    private void throwNewMustNotBeEmptyException() throws IllegalArgumentException {
-        throw new IllegalArgumentException("Timeseries must not be empty.");
-    }
-
 }
@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.io.response.dataset.ColumnarData;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+
+/**
+ * Caches generalized series by dataset id, normalized timespan and generalizer configuration. Along with the
+ * generalized series the ungeneralized series is kept, so that a window whose end has moved forward only
+ * slightly can be served by fetching the values after the cached window only.
+ * <p>
+ * Entries are bounded by the number of values they hold (ungeneralized and generalized), least recently used
+ * entries are evicted first. An entry is invalid once the last value of its dataset has advanced. If the last
+ * value is unknown, an entry is valid for a maximum age only.
+ * </p>
+ * <p>
+ * One instance is meant to be shared by all requests, e.g. as a bean of the application context.
+ * </p>
+ */
+public final class GeneralizationCache {
+
+    /**
+     * The window end may move forward by this part of the window length to reuse an entry partially.
+     */
+    private static final double MAX_END_SHIFT = 0.1;
+
+    private final long maxValues;
+
+    private final long maxAgeMillis;
+
+    // access ordered
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // keys by dataset and generalizer to find entries for partial reuse
+    private final Map<String, Set<Key>> keysBySeries = new HashMap<>();
+
+    private long cachedValues;
+
+    private long hits;
+
+    private long partialHits;
+
+    private long misses;
+
+    private long evictions;
+
+    private long invalidations;
+
+    /**
+     * @param maxValues
+     *        the maximum number of cached values, <code>0</code> disables caching
+     * @param maxAge
+     *        the maximum age of entries for datasets with unknown last value
+     * @param unit
+     *        the unit of the maximum age
+     */
+    public GeneralizationCache(long maxValues, long maxAge, TimeUnit unit) {
+        this.maxValues = maxValues;
+        this.maxAgeMillis = unit.toMillis(maxAge);
+    }
+
+    public boolean isEnabled() {
+        return maxValues > 0;
+    }
+
+    /**
+     * Gets a valid entry for the given key.
+     *
+     * @param key
+     *        the key
+     * @param lastValueTime
+     *        the time of the dataset's current last value, or <code>null</code> if unknown
+     * @return the entry or <code>null</code> if none is cached or the cached one is invalid. An invalid entry
+     *         may still be reused partially, see {@link #findPartial(Key)}.
+     */
+    synchronized Entry get(Key key, Long lastValueTime) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (isValid(entry, lastValueTime)) {
+                hits++;
+                return entry;
+            }
+            // kept for partial reuse
+            invalidations++;
+        }
+        return null;
+    }
+
+    private boolean isValid(Entry entry, Long lastValueTime) {
+        return lastValueTime == null || entry.lastValueTime == null
+                ? System.currentTimeMillis() - entry.created <= maxAgeMillis
+                : lastValueTime <= entry.lastValueTime;
+    }
+
+    /**
+     * Finds an entry of the same dataset and generalizer which covers the start of the given key's window and
+     * ends at or slightly before the window's end. The values after the entry's last ungeneralized value have to
+     * be fetched to reuse the entry. Counts a miss if no entry is found.
+     *
+     * @param key
+     *        the key
+     * @return the entry to reuse or <code>null</code>
+     */
+    synchronized Entry findPartial(Key key) {
+        Set<Key> keys = keysBySeries.get(key.getSeriesKey());
+        if (keys != null) {
+            long maxShift = (long) ((key.end - key.start) * MAX_END_SHIFT);
+            for (Key candidate : keys) {
+                if (candidate.start <= key.start
+                        && candidate.end <= key.end
+                        && candidate.end >= key.end - maxShift) {
+                    partialHits++;
+                    return entries.get(candidate);
+                }
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    synchronized void put(Key key, Entry entry) {
+        if (!isEnabled() || entry.weight > maxValues) {
+            return;
+        }
+        remove(key);
+        entries.put(key, entry);
+        keysBySeries.computeIfAbsent(key.getSeriesKey(), k -> new LinkedHashSet<>())
+                    .add(key);
+        cachedValues += entry.weight;
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet()
+                                                        .iterator();
+        while (cachedValues > maxValues && eldest.hasNext()) {
+            Map.Entry<Key, Entry> evicted = eldest.next();
+            eldest.remove();
+            removeIndex(evicted.getKey());
+            cachedValues -= evicted.getValue().weight;
+            evictions++;
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            removeIndex(key);
+            cachedValues -= removed.weight;
+        }
+    }
+
+    private void removeIndex(Key key) {
+        Set<Key> keys = keysBySeries.get(key.getSeriesKey());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysBySeries.remove(key.getSeriesKey());
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        keysBySeries.clear();
+        cachedValues = 0;
+    }
+
+    /**
+     * @return the number of requests served from cache completely
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return the number of requests served from cache partially
+     */
+    public synchronized long getPartialHitCount() {
+        return partialHits;
+    }
+
+    /**
+     * @return the number of requests not served from cache
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of entries evicted to stay within the size bound
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of entries dropped as their datasets' last values advanced or they got too old
+     */
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of cached values
+     */
+    public synchronized long getWeight() {
+        return cachedValues;
+    }
+
+    static final class Key {
+
+        private final String datasetId;
+
+        private final long start;
+
+        private final long end;
+
+        private final String generalizerKey;
+
+        private final String variant;
+
+        /**
+         * @param datasetId
+         *        the dataset id
+         * @param start
+         *        the start of the window
+         * @param end
+         *        the end of the window
+         * @param generalizerKey
+         *        the configuration of the generalizer
+         * @param variant
+         *        the further parameters changing the values or output of the series
+         */
+        Key(String datasetId, long start, long end, String generalizerKey, String variant) {
+            this.datasetId = datasetId;
+            this.start = start;
+            this.end = end;
+            this.generalizerKey = generalizerKey;
+            this.variant = variant;
+        }
+
+        String getDatasetId() {
+            return datasetId;
+        }
+
+        long getStart() {
+            return start;
+        }
+
+        long getEnd() {
+            return end;
+        }
+
+        private String getSeriesKey() {
+            return datasetId + "|" + generalizerKey + "|" + variant;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(datasetId, start, end, generalizerKey, variant);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return start == other.start
+                    && end == other.end
+                    && datasetId.equals(other.datasetId)
+                    && generalizerKey.equals(other.generalizerKey)
+                    && variant.equals(other.variant);
+        }
+
+        @Override
+        public String toString() {
+            return datasetId + " [" + start + "/" + end + "] " + generalizerKey + " " + variant;
+        }
+
+    }
+
+    static final class Entry {
+
+        private final Data<QuantityValue> ungeneralized;
+
+        private final Data<QuantityValue> generalized;
+
+        private final Long lastValueTime;
+
+        private final Long lastUngeneralizedTime;
+
+        private final long created;
+
+        private final long weight;
+
+        Entry(Data<QuantityValue> ungeneralized, Data<QuantityValue> generalized, Long lastValueTime) {
+            this.ungeneralized = ungeneralized;
+            this.generalized = generalized;
+            this.lastValueTime = lastValueTime;
+            this.lastUngeneralizedTime = getLastTime(ungeneralized);
+            this.created = System.currentTimeMillis();
+            this.weight = generalized == ungeneralized
+                    ? ungeneralized.size()
+                    : ungeneralized.size() + generalized.size();
+        }
+
+        private static Long getLastTime(Data<QuantityValue> data) {
+            if (data instanceof ColumnarData) {
+                ColumnarData< ? , ? > columnar = (ColumnarData< ? , ? >) data;
+                return columnar.size() > 0
+                        ? columnar.getTimestamp((int) columnar.size() - 1)
+                        : null;
+            }
+            Long lastTime = null;
+            for (QuantityValue value : data.getValues()) {
+                lastTime = value.getTimestamp()
+                                .getMillis();
+            }
+            return lastTime;
+        }
+
+        Data<QuantityValue> getUngeneralized() {
+            return ungeneralized;
+        }
+
+        Data<QuantityValue> getGeneralized() {
+            return generalized;
+        }
+
+        /**
+         * @return the time of the last ungeneralized value or <code>null</code> if there are no values
+         */
+        Long getLastUngeneralizedTime() {
+            return lastUngeneralizedTime;
+        }
+
+    }
+
+}
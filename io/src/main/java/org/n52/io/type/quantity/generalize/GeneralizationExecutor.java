@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.n52.io.TvpDataCollection;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generalizes the series of a {@link DataCollection} in parallel on a bounded pool. The series order of the
+ * result equals the order of the input. Series which cannot be queued because the pool is saturated are
+ * generalized on the calling thread.
+ * <p>
+ * One instance is meant to be shared by all requests, e.g. as a bean of the application context which calls
+ * {@link #shutdown()} on close.
+ * </p>
+ */
+public final class GeneralizationExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeneralizationExecutor.class);
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final ThreadPoolExecutor pool;
+
+    private final LongAdder generalizedSeriesCount = new LongAdder();
+
+    private final LongAdder serialFallbacks = new LongAdder();
+
+    private final LongAdder totalQueueWaitNanos = new LongAdder();
+
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+    private final LongAdder totalGeneralizationNanos = new LongAdder();
+
+    private final AtomicLong maxGeneralizationNanos = new AtomicLong();
+
+    /**
+     * @param parallelism
+     *        the number of pool threads
+     * @param queueCapacity
+     *        the number of series which may wait for a pool thread
+     */
+    public GeneralizationExecutor(int parallelism, int queueCapacity) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.pool = new ThreadPoolExecutor(parallelism,
+                                           parallelism,
+                                           60L,
+                                           TimeUnit.SECONDS,
+                                           new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                                           createThreadFactory(),
+                                           new ThreadPoolExecutor.AbortPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    private static ThreadFactory createThreadFactory() {
+        int poolNumber = POOL_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable,
+                                       "generalizer-" + poolNumber + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Generalizes each series of the given collection with the given generalizer.
+     *
+     * @param generalizer
+     *        the generalizer
+     * @param data
+     *        the data to generalize
+     * @return the generalized data
+     * @throws GeneralizerException
+     *         if generalizing a series fails
+     */
+    public DataCollection<Data<QuantityValue>> generalize(Generalizer<Data<QuantityValue>> generalizer,
+                                                          DataCollection<Data<QuantityValue>> data)
+            throws GeneralizerException {
+        Map<String, Data<QuantityValue>> allSeries = data.getAllSeries();
+        List<String> seriesIds = new ArrayList<>(allSeries.keySet());
+        List<Future<Data<QuantityValue>>> results = new ArrayList<>(seriesIds.size());
+        for (String seriesId : seriesIds) {
+            Data<QuantityValue> series = allSeries.get(seriesId);
+            long queuedAt = System.nanoTime();
+            try {
+                results.add(pool.submit(() -> generalize(generalizer, seriesId, series, queuedAt)));
+            } catch (RejectedExecutionException e) {
+                // pool saturated
+                serialFallbacks.increment();
+                results.add(null);
+            }
+        }
+
+        TvpDataCollection<Data<QuantityValue>> generalizedData = new TvpDataCollection<>();
+        try {
+            for (int i = 0; i < seriesIds.size(); i++) {
+                String seriesId = seriesIds.get(i);
+                Future<Data<QuantityValue>> result = results.get(i);
+                Data<QuantityValue> generalizedSeries = result == null
+                        ? generalize(generalizer, seriesId, allSeries.get(seriesId), System.nanoTime())
+                        : getResult(result);
+                generalizedData.addNewSeries(seriesId, generalizedSeries);
+            }
+        } finally {
+            results.stream()
+                   .filter(result -> result != null)
+                   .forEach(result -> result.cancel(true));
+        }
+        return generalizedData;
+    }
+
+    private Data<QuantityValue> generalize(Generalizer<Data<QuantityValue>> generalizer,
+                                           String seriesId,
+                                           Data<QuantityValue> series,
+                                           long queuedAt)
+            throws GeneralizerException {
+        long start = System.nanoTime();
+        record(start - queuedAt, totalQueueWaitNanos, maxQueueWaitNanos);
+
+        TvpDataCollection<Data<QuantityValue>> single = new TvpDataCollection<>();
+        single.addNewSeries(seriesId, series);
+        Data<QuantityValue> generalizedSeries = generalizer.generalize(single)
+                                                           .getSeries(seriesId);
+
+        long duration = System.nanoTime() - start;
+        record(duration, totalGeneralizationNanos, maxGeneralizationNanos);
+        generalizedSeriesCount.increment();
+        LOGGER.trace("Generalized series {} in {}ms (queued {}ms).",
+                     seriesId,
+                     TimeUnit.NANOSECONDS.toMillis(duration),
+                     TimeUnit.NANOSECONDS.toMillis(start - queuedAt));
+        return generalizedSeries;
+    }
+
+    private Data<QuantityValue> getResult(Future<Data<QuantityValue>> result) throws GeneralizerException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+            throw new GeneralizerException("Interrupted while generalizing.", e);
+        } catch (CancellationException e) {
+            throw new GeneralizerException("Generalizing has been cancelled.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GeneralizerException) {
+                throw (GeneralizerException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GeneralizerException("Could not generalize.", cause);
+        }
+    }
+
+    private static void record(long nanos, LongAdder total, AtomicLong max) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return the number of series generalized so far
+     */
+    public long getGeneralizedSeriesCount() {
+        return generalizedSeriesCount.sum();
+    }
+
+    /**
+     * @return the number of series generalized on the calling thread as the pool was saturated
+     */
+    public long getSerialFallbackCount() {
+        return serialFallbacks.sum();
+    }
+
+    /**
+     * @return the time series spent waiting for a pool thread in total
+     */
+    public long getTotalQueueWaitNanos() {
+        return totalQueueWaitNanos.sum();
+    }
+
+    /**
+     * @return the longest time a series waited for a pool thread
+     */
+    public long getMaxQueueWaitNanos() {
+        return maxQueueWaitNanos.get();
+    }
+
+    /**
+     * @return the time spent on generalizing series in total
+     */
+    public long getTotalGeneralizationNanos() {
+        return totalGeneralizationNanos.sum();
+    }
+
+    /**
+     * @return the longest time spent on generalizing a single series
+     */
+    public long getMaxGeneralizationNanos() {
+        return maxGeneralizationNanos.get();
+    }
+
+    /**
+     * @return the number of series currently waiting for a pool thread
+     */
+    public int getQueuedSeriesCount() {
+        return pool.getQueue()
+                   .size();
+    }
+
+    /**
+     * Stops the pool threads. Series already queued are still generalized.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+}
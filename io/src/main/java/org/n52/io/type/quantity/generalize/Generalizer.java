@@ -27,9 +27,13 @@
  */
 package org.n52.io.type.quantity.generalize;
 
+import java.util.Optional;
+
 import org.n52.io.request.IoParameters;
 import org.n52.io.response.dataset.Data;
 import org.n52.io.response.dataset.DataCollection;
+import org.n52.series.spi.srv.DownsamplingDataService;
+import org.n52.series.spi.srv.DownsamplingRequest;
 
 public abstract class Generalizer<T extends Data< ? >> {
 
@@ -49,4 +53,20 @@ public abstract class Generalizer<T extends Data< ? >> {
 
     public abstract String getName();
 
+    /**
+     * @return a key identifying this generalizer and its configuration, i.e. generalizers with equal keys
+     *         produce equal results on equal data
+     */
+    public String getConfigurationKey() {
+        return getName();
+    }
+
+    /**
+     * @return the request to push down generalization to a {@link DownsamplingDataService}, or an empty
+     *         optional if generalization can not be pushed down
+     */
+    public Optional<DownsamplingRequest> getDownsamplingRequest() {
+        return Optional.empty();
+    }
+
 }
@@ -43,6 +43,8 @@ public class GeneralizerFactory {
 
     private static final String DOUGLAS_PEUCKER = "DP";
 
+    private static final String M4 = "M4";
+
     public static final Generalizer<Data<QuantityValue>> createGeneralizer(IoParameters parameters) {
 
         if (!parameters.isGeneralize()) {
@@ -58,6 +60,8 @@ public class GeneralizerFactory {
             generalizer = new LargestTriangleThreeBucketsGeneralizer(parameters);
         } else if (DOUGLAS_PEUCKER.equalsIgnoreCase(algorithm)) {
             generalizer = new DouglasPeuckerGeneralizer(parameters);
+        } else if (M4.equalsIgnoreCase(algorithm)) {
+            generalizer = new M4Generalizer(parameters);
         } else {
             LOG.info("No generalizing algorithm found for code: {}.", algorithm);
             generalizer = new NoActionGeneralizer(parameters);
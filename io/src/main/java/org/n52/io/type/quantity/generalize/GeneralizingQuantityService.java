@@ -27,17 +27,25 @@
  */
 package org.n52.io.type.quantity.generalize;
 
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
 import org.n52.io.request.IoParameters;
 import org.n52.io.response.dataset.Data;
 import org.n52.io.response.dataset.DataCollection;
 import org.n52.io.response.dataset.quantity.QuantityValue;
 import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.DownsamplingDataService;
+import org.n52.series.spi.srv.DownsamplingRequest;
 import org.n52.series.spi.srv.RawDataService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Composes a {@link DataService} instance to generalize requested timeseries data.
+ * Composes a {@link DataService} instance to generalize requested timeseries data. Multiple series are
+ * generalized in parallel by a {@link GeneralizationExecutor}. If the composed service is a
+ * {@link DownsamplingDataService} supporting the requested generalization, generalization is pushed down to
+ * the composed service.
  */
 public class GeneralizingQuantityService implements DataService<Data<QuantityValue>> {
 
@@ -45,19 +53,41 @@ public class GeneralizingQuantityService implements DataService<Data<QuantityVal
 
     private final DataService<Data<QuantityValue>> composedService;
 
-    public GeneralizingQuantityService(DataService<Data<QuantityValue>> toCompose) {
+    private final GeneralizationExecutor executor;
+
+    /**
+     * @param toCompose
+     *        the service to compose
+     * @param executor
+     *        the executor generalizing multiple series in parallel, or <code>null</code> to generalize
+     *        serially
+     */
+    public GeneralizingQuantityService(DataService<Data<QuantityValue>> toCompose,
+                                       GeneralizationExecutor executor) {
         this.composedService = toCompose;
+        this.executor = executor;
     }
 
     @Override
     public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
-        DataCollection<Data<QuantityValue>> data = composedService.getData(parameters);
-        DataCollection<Data<QuantityValue>> ungeneralizedData = data;
+        Generalizer<Data<QuantityValue>> generalizer = GeneralizerFactory.createGeneralizer(parameters);
+        Optional<DownsamplingRequest> downsamplingRequest = generalizer.getDownsamplingRequest();
+        Optional<DownsamplingDataService<QuantityValue>> downsamplingService = downsamplingRequest
+                .flatMap(request -> getDownsamplingService(request, parameters));
+        if (downsamplingService.isPresent()) {
+            LOGGER.debug("Generalization pushed down: {}", downsamplingRequest.get());
+            return downsamplingService.get()
+                                      .getDownsampledData(downsamplingRequest.get(), parameters);
+        }
+
+        DataCollection<Data<QuantityValue>> ungeneralizedData = composedService.getData(parameters);
         try {
-            Generalizer<Data<QuantityValue>> generalizer = GeneralizerFactory.createGeneralizer(parameters);
-            DataCollection<Data<QuantityValue>> generalizedData = generalizer.generalize(ungeneralizedData);
+            DataCollection<Data<QuantityValue>> generalizedData = executor != null && ungeneralizedData.size() > 1
+                    ? executor.generalize(generalizer, ungeneralizedData)
+                    : generalizer.generalize(ungeneralizedData);
             if (LOGGER.isDebugEnabled()) {
                 logGeneralizationAmount(ungeneralizedData, generalizedData);
+                logExecutorMetrics();
             }
             return generalizedData;
         } catch (GeneralizerException e) {
@@ -66,6 +96,22 @@ public class GeneralizingQuantityService implements DataService<Data<QuantityVal
         }
     }
 
+    boolean isPushedDown(Generalizer<Data<QuantityValue>> generalizer, IoParameters parameters) {
+        return generalizer.getDownsamplingRequest()
+                          .flatMap(request -> getDownsamplingService(request, parameters))
+                          .isPresent();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<DownsamplingDataService<QuantityValue>> getDownsamplingService(DownsamplingRequest request,
+                                                                                   IoParameters parameters) {
+        return composedService instanceof DownsamplingDataService
+                && ((DownsamplingDataService<QuantityValue>) composedService).supportsDownsampling(request,
+                                                                                                   parameters)
+                        ? Optional.of((DownsamplingDataService<QuantityValue>) composedService)
+                        : Optional.empty();
+    }
+
     private void logGeneralizationAmount(DataCollection<Data<QuantityValue>> ungeneralizedData,
                                          DataCollection<Data<QuantityValue>> generalizedData) {
         for (String timeseriesId : ungeneralizedData.getAllSeries()
@@ -83,6 +129,18 @@ public class GeneralizingQuantityService implements DataService<Data<QuantityVal
         }
     }
 
+    private void logExecutorMetrics() {
+        if (executor != null) {
+            LOGGER.debug("Generalization executor: #{} series, #{} serial fallbacks, #{} queued, "
+                    + "max queue wait {}ms, max series time {}ms.",
+                         executor.getGeneralizedSeriesCount(),
+                         executor.getSerialFallbackCount(),
+                         executor.getQueuedSeriesCount(),
+                         TimeUnit.NANOSECONDS.toMillis(executor.getMaxQueueWaitNanos()),
+                         TimeUnit.NANOSECONDS.toMillis(executor.getMaxGeneralizationNanos()));
+        }
+    }
+
     @Override
     public boolean supportsRawData() {
         return false;
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.util.BitSet;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling on primitive timestamp and value columns. Apart from the
+ * output columns (sized by the threshold) no memory is allocated.
+ * <p>
+ * The sampled points are kept as sequence of point kinds: either an input point (referenced by index), a
+ * no-data point at the time of an input point, a no-data point at the bucket's average time, or the
+ * bucket's average. The sequence follows the algorithm, i.e. it is not necessarily ordered by time and may
+ * contain points of the same time.
+ * </p>
+ */
+final class LargestTriangleThreeBuckets {
+
+    /**
+     * The input point at {@link #getIndex(int)}.
+     */
+    static final byte INPUT_POINT = 0;
+
+    /**
+     * A no-data point at the time of the input point at {@link #getIndex(int)}.
+     */
+    static final byte NO_DATA_AT_INPUT_POINT = 1;
+
+    /**
+     * A no-data point at {@link #getTimestamp(int)}. The input point at {@link #getIndex(int)} is the
+     * bucket's left triangle point.
+     */
+    static final byte NO_DATA = 2;
+
+    /**
+     * The average of a bucket. {@link #getIndex(int)} references the last input point of the bucket.
+     */
+    static final byte BUCKET_AVERAGE = 3;
+
+    private final double threshold;
+
+    private final double noDataGapThreshold;
+
+    private byte[] kinds = new byte[0];
+
+    private int[] indices = new int[0];
+
+    private long[] timestamps = new long[0];
+
+    private double[] values = new double[0];
+
+    private int size;
+
+    // average of the bucket last calculated
+    private double averageTimestamp;
+
+    private double averageValue;
+
+    LargestTriangleThreeBuckets(double threshold, double noDataGapThreshold) {
+        this.threshold = threshold;
+        this.noDataGapThreshold = noDataGapThreshold;
+    }
+
+    /**
+     * @param length
+     *        the number of input points
+     * @return <code>true</code> if a series of the given length gets downsampled
+     */
+    boolean isDownsampling(int length) {
+        return !(threshold >= length || threshold == 0);
+    }
+
+    /**
+     * Samples the given columns. Results are available until the next call.
+     *
+     * @param inputTimestamps
+     *        the input timestamps in ascending order
+     * @param inputValues
+     *        the input values
+     * @param noDataValues
+     *        the indices of no-data input values
+     * @param length
+     *        the number of input points
+     * @return the number of sampled points
+     */
+    int sample(long[] inputTimestamps, double[] inputValues, BitSet noDataValues, int length) {
+        ensureCapacity(length);
+        size = 0;
+        // Bucket size. Leave room for start and end data points
+        double bucketSize = ((double) length - 2) / (threshold - 2);
+
+        int pointIndex = 0;
+        add(INPUT_POINT, pointIndex, inputTimestamps[pointIndex], inputValues[pointIndex]);
+
+        for (int bucketIndex = 0; bucketIndex < (threshold - 2); bucketIndex++) {
+
+            // get the range for this bucket
+            int rangeOff = (int) Math.floor((bucketIndex + 0) * bucketSize) + 1;
+            int rangeTo = (int) Math.floor((bucketIndex + 1) * bucketSize) + 1;
+
+            // first point of triangle
+            int left = pointIndex;
+            if (noDataValues.get(left)) {
+                add(NO_DATA_AT_INPUT_POINT, left, inputTimestamps[left], Double.NaN);
+                pointIndex = rangeTo - 1;
+                continue;
+            }
+            long leftTimestamp = inputTimestamps[left];
+            double leftValue = inputValues[left];
+
+            // last point of triangle (next bucket's average)
+            calculateBucketAverage(bucketIndex + 1, bucketSize, inputTimestamps, inputValues, noDataValues, length);
+            double rightTimestamp = averageTimestamp;
+            double rightValue = averageValue;
+
+            // init fallback value
+            int lastOfBucket = calculateBucketAverage(bucketIndex,
+                                                      bucketSize,
+                                                      inputTimestamps,
+                                                      inputValues,
+                                                      noDataValues,
+                                                      length);
+            byte maxAreaKind = NO_DATA;
+            int maxAreaIndex = left;
+            long maxAreaTimestamp = (long) averageTimestamp;
+            double maxAreaValue = Double.NaN;
+
+            double area;
+            int amountOfNodataValues = 0;
+            double maxArea = area = -1;
+            int nextPointIndex = 0;
+
+            for (; rangeOff < rangeTo; rangeOff++) {
+                // calculate triangle area over three buckets
+                if (noDataValues.get(rangeOff)) {
+                    amountOfNodataValues++;
+                    if (isExceededGapThreshold(amountOfNodataValues, bucketSize)) {
+                        maxAreaKind = BUCKET_AVERAGE;
+                        maxAreaIndex = lastOfBucket;
+                        maxAreaTimestamp = (long) averageTimestamp;
+                        maxAreaValue = averageValue;
+                        pointIndex = rangeTo - 1;
+                        break;
+                    }
+                } else {
+                    long middleTimestamp = inputTimestamps[rangeOff];
+                    area = Math.abs(((leftTimestamp - rightTimestamp) * (inputValues[rangeOff] - leftValue))
+                            - ((leftTimestamp - middleTimestamp) * (rightValue - leftValue))) * 0.5;
+                    if (area > maxArea) {
+                        maxArea = area;
+                        maxAreaKind = INPUT_POINT;
+                        maxAreaIndex = rangeOff;
+                        maxAreaTimestamp = middleTimestamp;
+                        maxAreaValue = inputValues[rangeOff];
+                        nextPointIndex = rangeOff;
+                    }
+                }
+            }
+
+            // Pick this point from the Bucket
+            add(maxAreaKind, maxAreaIndex, maxAreaTimestamp, maxAreaValue);
+            // This a is the next a
+            pointIndex = nextPointIndex;
+        }
+
+        // Always add last value
+        int last = length - 1;
+        add(INPUT_POINT, last, inputTimestamps[last], inputValues[last]);
+        return size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte getKind(int index) {
+        return kinds[index];
+    }
+
+    int getIndex(int index) {
+        return indices[index];
+    }
+
+    long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * @param index
+     *        the index of the sampled point
+     * @return the value of the sampled point, undefined for no-data points
+     */
+    double getValue(int index) {
+        return values[index];
+    }
+
+    private boolean isExceededGapThreshold(int amountOfNodataValues, double bucketSize) {
+        return noDataGapThreshold <= 1
+                // max percent
+                ? amountOfNodataValues > (noDataGapThreshold * bucketSize)
+                // max absolute
+                : amountOfNodataValues > noDataGapThreshold;
+    }
+
+    /**
+     * Calculates the average time and value of a bucket. No-data values count as zero. Once the absolute
+     * no-data gap threshold is reached, no further values are summed up.
+     *
+     * @return the index of the last point of the bucket
+     */
+    private int calculateBucketAverage(int bucketIndex,
+                                       double bucketSize,
+                                       long[] inputTimestamps,
+                                       double[] inputValues,
+                                       BitSet noDataValues,
+                                       int length) {
+        int avgRangeStart = (int) Math.floor((bucketIndex + 0) * bucketSize) + 1;
+        int avgRangeEnd = (int) Math.floor((bucketIndex + 1) * bucketSize) + 1;
+        avgRangeEnd = avgRangeEnd < length
+                ? avgRangeEnd
+                : length;
+        double avgRangeLength = avgRangeEnd - avgRangeStart;
+
+        double avgTimestamp = 0d;
+        double avgValue = 0d;
+        int amountOfNodataValues = 0;
+        boolean noDataThresholdExceeded = false;
+        for (int i = avgRangeStart; i < avgRangeEnd; i++) {
+            avgTimestamp += inputTimestamps[i];
+            if (noDataThresholdExceeded) {
+                // keep on calc avg timestamp
+                continue;
+            }
+            if (noDataValues.get(i)) {
+                amountOfNodataValues++;
+                if (amountOfNodataValues == noDataGapThreshold) {
+                    noDataThresholdExceeded = true;
+                }
+            } else {
+                avgValue += inputValues[i];
+            }
+        }
+        averageTimestamp = avgTimestamp / avgRangeLength;
+        averageValue = avgValue / avgRangeLength;
+        return avgRangeEnd - 1;
+    }
+
+    private void ensureCapacity(int length) {
+        // first, last and one point per bucket
+        int capacity = (int) Math.min(Math.max(Math.ceil(threshold), 0), length) + 2;
+        if (kinds.length < capacity) {
+            kinds = new byte[capacity];
+            indices = new int[capacity];
+            timestamps = new long[capacity];
+            values = new double[capacity];
+        }
+    }
+
+    private void add(byte kind, int index, long timestamp, double value) {
+        kinds[size] = kind;
+        indices[size] = index;
+        timestamps[size] = timestamp;
+        values[size] = value;
+        size++;
+    }
+
+}
@@ -28,7 +28,7 @@
 package org.n52.io.type.quantity.generalize;
 
 import java.math.BigDecimal;
-import java.math.MathContext;
+import java.util.Optional;
 
 import org.joda.time.DateTime;
 import org.n52.io.TvpDataCollection;
@@ -36,13 +36,14 @@ import org.n52.io.request.IoParameters;
 import org.n52.io.response.TimeOutput;
 import org.n52.io.response.dataset.Data;
 import org.n52.io.response.dataset.DataCollection;
-import org.n52.io.response.dataset.DatasetMetadata;
 import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DownsamplingRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Implementation of a generalizer using the Largest-Triangle-Three-Buckets algorithm
+ * Implementation of a generalizer using the Largest-Triangle-Three-Buckets algorithm. Sampling is done on
+ * primitive timestamp and value columns, see {@link LargestTriangleThreeBuckets}.
  *
  * @see
  * <a href="https://github.com/sveinn-steinarsson/flot-downsample/">
@@ -55,13 +56,15 @@ public class LargestTriangleThreeBucketsGeneralizer extends Generalizer<Data<Qua
 
     private static final String THRESHOLD = "threshold";
 
-    private static final String NO_DATA_GAP_THRESHOLD = "noDataGapThreshold";
+    static final String NO_DATA_GAP_THRESHOLD = "noDataGapThreshold";
+
+    static final double DEFAULT_NO_DATA_GAP_THRESHOLD = 0.2d;
 
     // fallback default
     private double maxOutputValues = 200;
 
     // fallback default
-    private double noDataGapThreshold = 0.2d;
+    private double noDataGapThreshold = DEFAULT_NO_DATA_GAP_THRESHOLD;
 
     public LargestTriangleThreeBucketsGeneralizer(IoParameters parameters) {
         super(parameters);
@@ -82,6 +85,17 @@ public class LargestTriangleThreeBucketsGeneralizer extends Generalizer<Data<Qua
         return "LargestTriangleThreeBuckets";
     }
 
+    @Override
+    public String getConfigurationKey() {
+        return getName() + ";threshold=" + maxOutputValues + ";noDataGapThreshold=" + noDataGapThreshold;
+    }
+
+    @Override
+    public Optional<DownsamplingRequest> getDownsamplingRequest() {
+        return Optional.of(new DownsamplingRequest(DownsamplingRequest.LARGEST_TRIANGLE_THREE_BUCKETS,
+                                                   (int) maxOutputValues));
+    }
+
     @Override
     public DataCollection<Data<QuantityValue>> generalize(
             DataCollection<Data<QuantityValue>> data) throws GeneralizerException {
@@ -95,186 +109,51 @@ public class LargestTriangleThreeBucketsGeneralizer extends Generalizer<Data<Qua
     }
 
     private Data<QuantityValue> generalize(Data<QuantityValue> timeseries) {
-        QuantityValue[] data = timeseries.getValues().toArray(new QuantityValue[0]);
-
-        int dataLength = data.length;
-        if (maxOutputValues >= dataLength || maxOutputValues == 0) {
+        LargestTriangleThreeBuckets lttb = new LargestTriangleThreeBuckets(maxOutputValues, noDataGapThreshold);
+        if (!lttb.isDownsampling((int) timeseries.size())) {
             // nothing to do
             return timeseries;
         }
-        return generalizeData(data, timeseries.getMetadata());
-    }
-
-    private Data<QuantityValue> generalizeData(final QuantityValue[] data,
-                                               final DatasetMetadata<QuantityValue> metadata) {
-        final int dataLength = data.length;
-        // Bucket size. Leave room for start and end data points
-        double bucketSize = ((double) dataLength - 2) / (maxOutputValues - 2);
-
-        int pointIndex = 0;
-        Data<QuantityValue> sampled = new Data<>(metadata);
-        sampled.addNewValue(data[pointIndex]);
-
-        for (int bucketIndex = 0; bucketIndex < (maxOutputValues - 2);
-                bucketIndex++) {
-
-            // get the range for this bucket
-            int rangeOff = (int) Math.floor((bucketIndex + 0) * bucketSize) + 1;
-            int rangeTo = (int) Math.floor((bucketIndex + 1) * bucketSize) + 1;
-
-            // first point of triangle
-            QuantityValue triangleLeft = data[pointIndex];
-            if (triangleLeft.isNoDataValue()) {
-                addNodataValue(sampled, triangleLeft.getTimestamp());
-                pointIndex = rangeTo - 1;
-                continue;
+        QuantityColumns columns = QuantityColumns.of(timeseries);
+        int sampledLength = lttb.sample(columns.getTimestamps(),
+                                        columns.getValues(),
+                                        columns.getNoDataValues(),
+                                        columns.size());
+
+        Data<QuantityValue> sampled = columns.createEmpty(timeseries.getMetadata());
+        for (int i = 0; i < sampledLength; i++) {
+            int index = lttb.getIndex(i);
+            switch (lttb.getKind(i)) {
+                case LargestTriangleThreeBuckets.INPUT_POINT:
+                    sampled.addNewValue(columns.getValue(index));
+                    break;
+                case LargestTriangleThreeBuckets.NO_DATA_AT_INPUT_POINT:
+                    sampled.addNewValue(createQuantityValue(columns.getTime(index)));
+                    break;
+                case LargestTriangleThreeBuckets.NO_DATA:
+                    sampled.addNewValue(createQuantityValue(lttb.getTimestamp(i), columns.getTime(index)));
+                    break;
+                default:
+                    LOGGER.debug("No data value for bucket at {}.", lttb.getTimestamp(i));
+                    QuantityValue average = createQuantityValue(lttb.getTimestamp(i), columns.getTime(index));
+                    average.setValue(BigDecimal.valueOf(lttb.getValue(i)));
+                    sampled.addNewValue(average);
+                    break;
             }
-
-            // last point of triangle (next bucket's average)
-            BucketAverage triangleRight = calculateBucketAverage(bucketIndex + 1,
-                    bucketSize, data);
-
-            // init fallback value
-            BucketAverage avgCurrentBucket = calculateBucketAverage(bucketIndex, bucketSize, data);
-            long fallBackTimestamp = avgCurrentBucket.toTimeseriesValue().getTimestamp().getMillis();
-            QuantityValue maxAreaPoint = createQuantityValue(fallBackTimestamp, triangleLeft.getTimestamp());
-
-            double area;
-            int amountOfNodataValues = 0;
-            double maxArea = area = -1;
-            int nextPointIndex = 0;
-
-            for (; rangeOff < rangeTo; rangeOff++) {
-
-                //if (triangleRight.isNoDataBucket()) {
-                //  triangleRight = // TODO
-                //}
-                // calculate triangle area over three buckets
-                final QuantityValue triangleMiddle = data[rangeOff];
-
-                if (triangleMiddle.isNoDataValue()) {
-                    amountOfNodataValues++;
-                    if (isExceededGapThreshold(amountOfNodataValues, bucketSize)) {
-                        if (triangleMiddle.isNoDataValue()) {
-                            maxAreaPoint = avgCurrentBucket.toTimeseriesValue();
-                            LOGGER.debug("No data value for bucket {}.",
-                                    bucketIndex);
-                            pointIndex = rangeTo - 1;
-                            break;
-                        }
-                    }
-                } else {
-                    area = calcTriangleArea(triangleLeft, triangleRight,
-                            triangleMiddle);
-                    if (area > maxArea) {
-                        maxArea = area;
-                        maxAreaPoint = triangleMiddle;
-                        nextPointIndex = rangeOff;
-                    }
-                }
-            }
-
-            // Pick this point from the Bucket
-            sampled.addNewValue(maxAreaPoint);
-            // This a is the next a
-            pointIndex = nextPointIndex;
         }
-
-        // Always add last value
-        sampled.addNewValue(data[dataLength - 1]);
         return sampled;
     }
 
-    private boolean isExceededGapThreshold(int amountOfNodataValues,
-            double bucketSize) {
-        return noDataGapThreshold <= 1
-                // max percent
-                ? amountOfNodataValues > (noDataGapThreshold * bucketSize)
-                // max absolute
-                : amountOfNodataValues > noDataGapThreshold;
-    }
-
-    private void addNodataValue(Data<QuantityValue> sampled, TimeOutput timeOutput) {
-        sampled.addNewValue(createQuantityValue(timeOutput));
-    }
-
-    private static double calcTriangleArea(QuantityValue left,
-            BucketAverage right, QuantityValue middle) {
-        BigDecimal middleValue = middle.getValue();
-        final BigDecimal leftValue = left.getValue();
-        final BigDecimal rightValue = right.value;
-        return Math.abs(((left.getTimestamp().getMillis() - right.timestamp)
-                * (middleValue.subtract(leftValue).doubleValue()))
-                - ((left.getTimestamp().getMillis() - middle.getTimestamp().getMillis())
-                * (rightValue.subtract(leftValue).doubleValue()))) * 0.5;
-    }
-
-    private BucketAverage calculateBucketAverage(int bucketIndex,
-            double bucketSize, QuantityValue[] data) {
-
-        int dataLength = data.length;
-        int avgRangeStart = (int) Math.floor((bucketIndex + 0) * bucketSize) + 1;
-        int avgRangeEnd = (int) Math.floor((bucketIndex + 1) * bucketSize) + 1;
-        avgRangeEnd = avgRangeEnd < dataLength ? avgRangeEnd : dataLength;
-        double avgRangeLength = avgRangeEnd - avgRangeStart;
-
-        double avgTimestamp = 0d;
-        BigDecimal avgValue = BigDecimal.ZERO;
-        int amountOfNodataValues = 0;
-        boolean noDataThresholdExceeded = false;
-        boolean unixTime = false;
-        for (; avgRangeStart < avgRangeEnd; avgRangeStart++) {
-            final QuantityValue current = data[avgRangeStart];
-            avgTimestamp += current.getTimestamp().getMillis();
-            unixTime = current.getTimestamp().isUnixTime();
-            if (noDataThresholdExceeded) {
-                // keep on calc avg timestamp
-                continue;
-            }
-            if (current.isNoDataValue()) {
-                amountOfNodataValues++;
-                if (amountOfNodataValues == noDataGapThreshold) {
-                    noDataThresholdExceeded = true;
-                }
-            } else {
-                avgValue = avgValue.add(current.getValue());
-            }
-        }
-
-        avgTimestamp /= avgRangeLength;
-        avgValue = avgValue.divide(BigDecimal.valueOf(avgRangeLength), MathContext.DECIMAL128);
-        return new BucketAverage(avgTimestamp, avgValue, unixTime);
-    }
-
     private QuantityValue createQuantityValue(TimeOutput timeOutput) {
         QuantityValue value = new QuantityValue();
         value.setTimestamp(timeOutput);
         return value;
     }
 
-    private QuantityValue createQuantityValue(long fallBackTimestamp, TimeOutput timestamp) {
+    private QuantityValue createQuantityValue(long timestamp, TimeOutput unixTimeReference) {
         QuantityValue value = new QuantityValue();
-        value.setTimestamp(new TimeOutput(new DateTime(fallBackTimestamp), timestamp.isUnixTime()));
+        value.setTimestamp(new TimeOutput(new DateTime(timestamp), unixTimeReference.isUnixTime()));
         return value;
     }
 
-    private static class BucketAverage {
-
-        private final Double timestamp;
-        private final BigDecimal value;
-        private final boolean unixTime;
-
-        BucketAverage(Double timestamp, BigDecimal value, boolean unixTime) {
-            this.timestamp = timestamp;
-            this.value = value;
-            this.unixTime = unixTime;
-        }
-
-        QuantityValue toTimeseriesValue() {
-            QuantityValue quantity = new QuantityValue();
-            quantity.setTimestamp(new TimeOutput(new DateTime(timestamp.longValue()), unixTime));
-            quantity.setValue(value);
-            return quantity;
-        }
-    }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.util.BitSet;
+
+/**
+ * M4 aggregation on primitive timestamp and value columns. The time range of a series is divided into
+ * equally sized buckets (e.g. one per pixel column of a chart). Of each bucket the first, last, minimum
+ * and maximum values are kept, so that a line chart of the result looks like a chart of all values.
+ * <p>
+ * No-data values close the current bucket. The first no-data value of a gap is kept, so that charts still
+ * show the gap.
+ * </p>
+ *
+ * @see <a href="https://doi.org/10.14778/2732951.2732953">M4: A Visualization-Oriented Time Series Data
+ *      Aggregation</a>
+ */
+final class M4Aggregation {
+
+    private final int buckets;
+
+    // indices of the current bucket's values
+    private int first;
+
+    private int last;
+
+    private int min;
+
+    private int max;
+
+    M4Aggregation(int buckets) {
+        this.buckets = buckets;
+    }
+
+    /**
+     * @param length
+     *        the number of input points
+     * @return <code>true</code> if a series of the given length gets reduced
+     */
+    boolean isReducing(int length) {
+        return buckets > 0 && length > 4L * buckets;
+    }
+
+    /**
+     * Aggregates the given columns in a single pass.
+     *
+     * @param timestamps
+     *        the input timestamps in ascending order
+     * @param values
+     *        the input values
+     * @param noDataValues
+     *        the indices of no-data input values
+     * @param length
+     *        the number of input points
+     * @return the indices of the points to keep
+     */
+    BitSet aggregate(long[] timestamps, double[] values, BitSet noDataValues, int length) {
+        BitSet kept = new BitSet(length);
+        if (length == 0) {
+            return kept;
+        }
+        long start = timestamps[0];
+        double bucketsPerMillis = (double) buckets / Math.max(timestamps[length - 1] - start, 1);
+        int currentBucket = -1;
+        first = -1;
+        for (int i = 0; i < length; i++) {
+            if (noDataValues.get(i)) {
+                keepBucket(kept);
+                if (i == 0 || !noDataValues.get(i - 1)) {
+                    kept.set(i);
+                }
+                continue;
+            }
+            int bucket = Math.min((int) ((timestamps[i] - start) * bucketsPerMillis), buckets - 1);
+            if (bucket != currentBucket) {
+                keepBucket(kept);
+                currentBucket = bucket;
+            }
+            if (first < 0) {
+                first = min = max = i;
+            } else if (values[i] < values[min]) {
+                min = i;
+            } else if (values[i] > values[max]) {
+                max = i;
+            }
+            last = i;
+        }
+        keepBucket(kept);
+        return kept;
+    }
+
+    private void keepBucket(BitSet kept) {
+        if (first >= 0) {
+            kept.set(first);
+            kept.set(min);
+            kept.set(max);
+            kept.set(last);
+            first = -1;
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.util.BitSet;
+import java.util.Optional;
+
+import org.n52.io.TvpDataCollection;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DownsamplingRequest;
+
+/**
+ * Implementation of a generalizer using the M4 aggregation: first, last, minimum and maximum values are kept
+ * per pixel column of the requested chart width, so that all visual extremes survive. Aggregation is done on
+ * primitive timestamp and value columns, see {@link M4Aggregation}.
+ */
+public class M4Generalizer extends Generalizer<Data<QuantityValue>> {
+
+    private final int buckets;
+
+    public M4Generalizer(IoParameters parameters) {
+        super(parameters);
+        this.buckets = getParameters().getWidth();
+    }
+
+    @Override
+    public String getName() {
+        return "M4";
+    }
+
+    @Override
+    public String getConfigurationKey() {
+        return getName() + ";buckets=" + buckets;
+    }
+
+    @Override
+    public Optional<DownsamplingRequest> getDownsamplingRequest() {
+        return Optional.of(new DownsamplingRequest(DownsamplingRequest.M4, 4 * buckets));
+    }
+
+    @Override
+    public DataCollection<Data<QuantityValue>> generalize(DataCollection<Data<QuantityValue>> data)
+            throws GeneralizerException {
+        TvpDataCollection<Data<QuantityValue>> generalizedDataCollection = new TvpDataCollection<>();
+        for (String timeseriesId : data.getAllSeries().keySet()) {
+            Data<QuantityValue> timeseries = data.getSeries(timeseriesId);
+            generalizedDataCollection.addNewSeries(timeseriesId, generalize(timeseries));
+        }
+        return generalizedDataCollection;
+    }
+
+    private Data<QuantityValue> generalize(Data<QuantityValue> timeseries) {
+        M4Aggregation m4 = new M4Aggregation(buckets);
+        if (!m4.isReducing((int) timeseries.size())) {
+            // nothing to do
+            return timeseries;
+        }
+        QuantityColumns columns = QuantityColumns.of(timeseries);
+        BitSet kept = m4.aggregate(columns.getTimestamps(),
+                                   columns.getValues(),
+                                   columns.getNoDataValues(),
+                                   columns.size());
+
+        Data<QuantityValue> generalizedTimeseries = columns.createEmpty(timeseries.getMetadata());
+        for (int i = kept.nextSetBit(0); i >= 0; i = kept.nextSetBit(i + 1)) {
+            generalizedTimeseries.addNewValue(columns.getValue(i));
+        }
+        return generalizedTimeseries;
+    }
+
+}
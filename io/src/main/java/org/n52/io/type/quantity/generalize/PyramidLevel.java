@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+/**
+ * The fixed levels of a {@link SeriesPyramid}. Buckets are aligned to UTC, weeks start on Mondays.
+ */
+enum PyramidLevel {
+
+    HOUR(3600000L, 0L),
+
+    DAY(86400000L, 0L),
+
+    // 1970-01-05 has been a Monday
+    WEEK(604800000L, 345600000L);
+
+    private final long duration;
+
+    private final long origin;
+
+    PyramidLevel(long duration, long origin) {
+        this.duration = duration;
+        this.origin = origin;
+    }
+
+    long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @param time
+     *        the time as epoch millis
+     * @return the start of the bucket containing the given time
+     */
+    long getBucketStart(long time) {
+        return Math.floorDiv(time - origin, duration) * duration + origin;
+    }
+
+    /**
+     * @param start
+     *        the start of the range as epoch millis, inclusive
+     * @param end
+     *        the end of the range as epoch millis, inclusive
+     * @return the number of buckets overlapping the given range
+     */
+    long getBucketCount(long start, long end) {
+        return (getBucketStart(end) - getBucketStart(start)) / duration + 1;
+    }
+
+    /**
+     * @param start
+     *        the start of the range as epoch millis, inclusive
+     * @param end
+     *        the end of the range as epoch millis, inclusive
+     * @param maxBuckets
+     *        the maximum number of buckets
+     * @return the finest level whose buckets overlapping the given range do not exceed the given number, or
+     *         <code>null</code> if even the coarsest level exceeds it
+     */
+    static PyramidLevel getFinest(long start, long end, long maxBuckets) {
+        for (PyramidLevel level : values()) {
+            if (level.getBucketCount(start, end) <= maxBuckets) {
+                return level;
+            }
+        }
+        return null;
+    }
+
+}
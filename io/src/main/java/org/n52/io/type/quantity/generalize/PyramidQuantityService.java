@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.n52.io.TvpDataCollection;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.DownsamplingRequest;
+import org.n52.series.spi.srv.RawDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Composes a {@link DataService} instance to serve generalized requests from pre-aggregated
+ * {@link SeriesPyramid}s. Per bucket the first, minimum, maximum and last value is served from the finest
+ * {@link PyramidLevel} whose output stays within the target size of the requested generalizer (e.g. the
+ * <code>threshold</code> of LTTB). Buckets exceeding the <code>noDataGapThreshold</code> of no-data values
+ * keep a no-data value, timestamps are output in the requested <code>outputTimezone</code>. Values not covered
+ * by a pyramid yet are fetched from the composed service in chunks of bounded length and aggregated
+ * beforehand. Pyramids are filled by dataset and timespan only, so that they hold the unfiltered values of a
+ * dataset. Pyramids cover a dataset up to its last value time only, so that values arriving later are
+ * aggregated once the last value time has moved on.
+ * <p>
+ * The following requests are passed to a fallback service:
+ * </p>
+ * <ul>
+ * <li>requests for expanded data (i.e. reference values and values beyond the timespan)</li>
+ * <li>requests filtering or changing values, e.g. by <code>resultTimes</code> or <code>$filter</code></li>
+ * <li>requests whose generalizer has no target size or whose pyramid output would exceed it</li>
+ * <li>datasets whose values within the timespan do not exceed the target size, i.e. which would not be
+ * generalized at all</li>
+ * <li>datasets whose last value time is not known</li>
+ * </ul>
+ */
+public class PyramidQuantityService implements DataService<Data<QuantityValue>> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PyramidQuantityService.class);
+
+    private static final String[] FILTER_PARAMETERS = {
+        Parameters.RESULTTIMES,
+        Parameters.SHOW_TIME_INTERVALS,
+        Parameters.SHOW_VERTICAL_INTERVALS,
+        Parameters.HANDLE_AS_VALUE_TYPE,
+        Parameters.ODATA_FILTER,
+        Parameters.EXPAND_WITH_NEXT_VALUES_BEYOND_INTERVAL
+    };
+
+    // first, minimum, maximum and last value
+    private static final int VALUES_PER_BUCKET = 4;
+
+    private static final long DEFAULT_FETCH_LENGTH = TimeUnit.DAYS.toMillis(7);
+
+    private final DataService<Data<QuantityValue>> composedService;
+
+    private final PyramidStore store;
+
+    private final DataService<Data<QuantityValue>> fallbackService;
+
+    private final Function<String, Long> lastValueTimes;
+
+    private final long fetchLength;
+
+    /**
+     * @param toCompose
+     *        the service to fetch values from
+     * @param store
+     *        the pyramid store
+     * @param fallbackService
+     *        the service to pass requests to which cannot be served from pyramids
+     * @param lastValueTimes
+     *        provides the last value time of a dataset, or <code>null</code> if unknown
+     */
+    public PyramidQuantityService(DataService<Data<QuantityValue>> toCompose,
+                                  PyramidStore store,
+                                  DataService<Data<QuantityValue>> fallbackService,
+                                  Function<String, Long> lastValueTimes) {
+        this(toCompose, store, fallbackService, lastValueTimes, DEFAULT_FETCH_LENGTH);
+    }
+
+    /**
+     * @param toCompose
+     *        the service to fetch values from
+     * @param store
+     *        the pyramid store
+     * @param fallbackService
+     *        the service to pass requests to which cannot be served from pyramids
+     * @param lastValueTimes
+     *        provides the last value time of a dataset, or <code>null</code> if unknown
+     * @param fetchLength
+     *        the maximum length in milliseconds of a time range fetched at once
+     */
+    public PyramidQuantityService(DataService<Data<QuantityValue>> toCompose,
+                                  PyramidStore store,
+                                  DataService<Data<QuantityValue>> fallbackService,
+                                  Function<String, Long> lastValueTimes,
+                                  long fetchLength) {
+        this.composedService = toCompose;
+        this.store = store;
+        this.fallbackService = fallbackService;
+        this.lastValueTimes = lastValueTimes;
+        this.fetchLength = fetchLength;
+    }
+
+    @Override
+    public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
+        Set<String> datasets = parameters.getDatasets();
+        if (!store.isEnabled() || datasets.isEmpty() || parameters.isExpanded() || isFiltered(parameters)) {
+            return fallbackService.getData(parameters);
+        }
+        Interval timespan = parameters.getTimespan()
+                                      .toInterval();
+        long start = timespan.getStartMillis();
+        long end = timespan.getEndMillis();
+        int targetSize = getTargetSize(parameters);
+        PyramidLevel level = PyramidLevel.getFinest(start, end, targetSize / VALUES_PER_BUCKET);
+        if (level == null) {
+            return fallbackService.getData(parameters);
+        }
+
+        double noDataGapThreshold = getNoDataGapThreshold(parameters);
+        DateTimeZone zone = DateTimeZone.forID(parameters.getOutputTimezone());
+        boolean unixTime = parameters.formatToUnixTime();
+        TvpDataCollection<Data<QuantityValue>> result = new TvpDataCollection<>();
+        List<String> ungeneralized = new ArrayList<>();
+        for (String datasetId : datasets) {
+            Long lastValueTime = lastValueTimes.apply(datasetId);
+            if (lastValueTime == null) {
+                ungeneralized.add(datasetId);
+                continue;
+            }
+            SeriesPyramid pyramid = store.get(datasetId);
+            // later values may still arrive
+            boolean changed = cover(pyramid, start, Math.min(end, lastValueTime));
+            synchronized (pyramid) {
+                if (changed) {
+                    store.save(pyramid);
+                }
+                if (pyramid.getCount(level, start, end) <= targetSize) {
+                    ungeneralized.add(datasetId);
+                } else {
+                    result.addNewSeries(datasetId,
+                                        pyramid.getData(level, start, end, noDataGapThreshold, zone, unixTime));
+                }
+            }
+        }
+        if (!ungeneralized.isEmpty()) {
+            result.addAll(fallbackService.getData(parameters.replaceWith(Parameters.DATASETS, ungeneralized)));
+        }
+        LOGGER.debug("Served {} of {} datasets from {} pyramid level.",
+                     datasets.size() - ungeneralized.size(),
+                     datasets.size(),
+                     level);
+        return result;
+    }
+
+    private static boolean isFiltered(IoParameters parameters) {
+        for (String parameter : FILTER_PARAMETERS) {
+            if (parameters.containsParameter(parameter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int getTargetSize(IoParameters parameters) {
+        Optional<DownsamplingRequest> downsamplingRequest = GeneralizerFactory.createGeneralizer(parameters)
+                                                                              .getDownsamplingRequest();
+        return downsamplingRequest.filter(DownsamplingRequest::isLimited)
+                                  .map(DownsamplingRequest::getTargetPointCount)
+                                  .orElse(0);
+    }
+
+    private static double getNoDataGapThreshold(IoParameters parameters) {
+        String threshold = parameters.getOther(LargestTriangleThreeBucketsGeneralizer.NO_DATA_GAP_THRESHOLD);
+        try {
+            return threshold != null
+                    ? Double.parseDouble(threshold)
+                    : LargestTriangleThreeBucketsGeneralizer.DEFAULT_NO_DATA_GAP_THRESHOLD;
+        } catch (NumberFormatException e) {
+            LOGGER.debug("Invalid no-data gap threshold '{}'. Using fallback.", threshold);
+            return LargestTriangleThreeBucketsGeneralizer.DEFAULT_NO_DATA_GAP_THRESHOLD;
+        }
+    }
+
+    /**
+     * Fetches and aggregates the values of the given range not covered by the pyramid yet. The covered range is
+     * kept contiguous, i.e. a gap to a disjoint range is fetched as well. Values are fetched in chunks without
+     * holding the pyramid's lock, chunks covered by a concurrent request in the meantime are discarded.
+     *
+     * @return <code>true</code> if values have been added
+     */
+    private boolean cover(SeriesPyramid pyramid, long start, long end) {
+        boolean changed = false;
+        long[] chunk = getNextChunk(pyramid, start, end);
+        while (chunk != null) {
+            long from = chunk[0];
+            long until = chunk[1];
+            Data<QuantityValue> data = fetchValues(pyramid.getDatasetId(), from, until);
+            synchronized (pyramid) {
+                if (isAdjoining(pyramid, from, until)) {
+                    pyramid.add(data, from, until);
+                    changed = true;
+                }
+            }
+            chunk = getNextChunk(pyramid, start, end);
+        }
+        return changed;
+    }
+
+    private long[] getNextChunk(SeriesPyramid pyramid, long start, long end) {
+        synchronized (pyramid) {
+            if (start > end) {
+                return null;
+            }
+            if (!pyramid.isCovering()) {
+                return new long[] {start, Math.min(end, start + fetchLength - 1)};
+            }
+            if (start < pyramid.getCoveredFrom()) {
+                long until = pyramid.getCoveredFrom() - 1;
+                return new long[] {Math.max(start, until - fetchLength + 1), until};
+            }
+            if (end > pyramid.getCoveredUntil()) {
+                long from = pyramid.getCoveredUntil() + 1;
+                return new long[] {from, Math.min(end, from + fetchLength - 1)};
+            }
+            return null;
+        }
+    }
+
+    private static boolean isAdjoining(SeriesPyramid pyramid, long from, long until) {
+        return !pyramid.isCovering()
+                || until + 1 == pyramid.getCoveredFrom()
+                || from == pyramid.getCoveredUntil() + 1;
+    }
+
+    private Data<QuantityValue> fetchValues(String datasetId, long from, long until) {
+        LOGGER.debug("Aggregating values of dataset '{}' within [{}, {}].", datasetId, from, until);
+        // unfiltered values only, independent of the request
+        IoParameters rangeParameters = IoParameters.createDefaults()
+                                                   .extendWith(Parameters.DATASETS, datasetId)
+                                                   .extendWith(Parameters.TIMESPAN,
+                                                               new Interval(from, until + 1).toString());
+        Data<QuantityValue> data = composedService.getData(rangeParameters)
+                                                  .getSeries(datasetId);
+        return data != null
+                ? data
+                : new Data<>();
+    }
+
+    @Override
+    public boolean supportsRawData() {
+        return false;
+    }
+
+    @Override
+    public RawDataService getRawDataService() {
+        return null;
+    }
+
+}
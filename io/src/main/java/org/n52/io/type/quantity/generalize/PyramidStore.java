@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the {@link SeriesPyramid}s of datasets and persists them to a local directory, one file per dataset.
+ * Pyramids are loaded on first use, the least recently used ones are unloaded once more than the configured
+ * number of pyramids are loaded.
+ * <p>
+ * One instance is meant to be shared by all requests, e.g. as a bean of the application context.
+ * </p>
+ * <p>
+ * Pyramids are not rebuilt if already covered values change in the data source. Delete the directory to
+ * rebuild all pyramids in that case.
+ * </p>
+ */
+public final class PyramidStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PyramidStore.class);
+
+    private static final String FILE_SUFFIX = ".pyramid";
+
+    private final Path directory;
+
+    private final Map<String, SeriesPyramid> loaded;
+
+    /**
+     * @param directory
+     *        the directory to persist pyramids to, or <code>null</code> to disable pyramids
+     * @param maxLoaded
+     *        the maximum number of pyramids kept in memory
+     */
+    public PyramidStore(Path directory, int maxLoaded) {
+        this.directory = directory;
+        this.loaded = new LinkedHashMap<String, SeriesPyramid>(16, 0.75f, true) {
+            private static final long serialVersionUID = 5387208574427126390L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SeriesPyramid> eldest) {
+                return size() > maxLoaded;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Gets the pyramid of a dataset, loaded from its file if not in memory already. Callers have to synchronize
+     * on the returned instance while using it.
+     *
+     * @param datasetId
+     *        the dataset id
+     * @return the dataset's pyramid, empty if not built yet
+     */
+    synchronized SeriesPyramid get(String datasetId) {
+        return loaded.computeIfAbsent(datasetId, this::load);
+    }
+
+    private SeriesPyramid load(String datasetId) {
+        Path file = getFile(datasetId);
+        if (Files.isRegularFile(file)) {
+            try (InputStream stream = Files.newInputStream(file);
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+                SeriesPyramid pyramid = SeriesPyramid.read(in);
+                if (datasetId.equals(pyramid.getDatasetId())) {
+                    return pyramid;
+                }
+                LOGGER.warn("Pyramid file '{}' belongs to dataset '{}'. Rebuilding pyramid.",
+                            file,
+                            pyramid.getDatasetId());
+            } catch (IOException e) {
+                LOGGER.warn("Could not read pyramid file '{}'. Rebuilding pyramid.", file, e);
+            }
+        }
+        return new SeriesPyramid(datasetId);
+    }
+
+    /**
+     * Persists a pyramid. The caller has to synchronize on the pyramid. A pyramid which could not be persisted
+     * is still used from memory.
+     *
+     * @param pyramid
+     *        the pyramid to persist
+     */
+    void save(SeriesPyramid pyramid) {
+        Path file = getFile(pyramid.getDatasetId());
+        Path tempFile = null;
+        try {
+            Files.createDirectories(directory);
+            tempFile = Files.createTempFile(directory, null, FILE_SUFFIX);
+            try (OutputStream stream = Files.newOutputStream(tempFile);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                pyramid.write(out);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Could not persist pyramid of dataset '{}' to '{}'.", pyramid.getDatasetId(), file, e);
+            deleteQuietly(tempFile);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOGGER.debug("Could not delete temporary pyramid file '{}'.", file, e);
+            }
+        }
+    }
+
+    private Path getFile(String datasetId) {
+        return directory.resolve(URLEncoder.encode(datasetId, StandardCharsets.UTF_8) + FILE_SUFFIX);
+    }
+
+    /**
+     * @return the number of pyramids in memory
+     */
+    public synchronized int getLoadedCount() {
+        return loaded.size();
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.util.BitSet;
+
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.io.response.dataset.quantity.QuantityColumnarData;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+
+/**
+ * Primitive timestamp and value columns of a quantity series as input for generalizers. Columns of
+ * {@link QuantityColumnarData} are used as they are, other data is read once into new columns.
+ */
+final class QuantityColumns {
+
+    private final Data<QuantityValue> data;
+
+    private final QuantityColumnarData columnar;
+
+    private final QuantityValue[] valueObjects;
+
+    private final long[] timestamps;
+
+    private final double[] values;
+
+    private final BitSet noDataValues;
+
+    private final int size;
+
+    private QuantityColumns(Data<QuantityValue> data) {
+        this.data = data;
+        if (data instanceof QuantityColumnarData) {
+            this.columnar = (QuantityColumnarData) data;
+            this.valueObjects = null;
+            this.size = (int) columnar.size();
+            this.timestamps = columnar.getTimestampColumn();
+            this.values = columnar.getValueColumn();
+            this.noDataValues = columnar.getNoDataBitmap();
+        } else {
+            this.columnar = null;
+            this.valueObjects = data.getValues()
+                                    .toArray(new QuantityValue[0]);
+            this.size = valueObjects.length;
+            this.timestamps = new long[size];
+            this.values = new double[size];
+            this.noDataValues = new BitSet(size);
+            for (int i = 0; i < size; i++) {
+                QuantityValue value = valueObjects[i];
+                timestamps[i] = value.getTimestamp()
+                                     .getMillis();
+                if (value.isNoDataValue()) {
+                    noDataValues.set(i);
+                } else {
+                    values[i] = value.getValue()
+                                     .doubleValue();
+                }
+            }
+        }
+    }
+
+    static QuantityColumns of(Data<QuantityValue> data) {
+        return new QuantityColumns(data);
+    }
+
+    Data<QuantityValue> getData() {
+        return data;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the timestamps as epoch millis. Must not be modified.
+     */
+    long[] getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * @return the values, entries of no-data values are undefined. Must not be modified.
+     */
+    double[] getValues() {
+        return values;
+    }
+
+    /**
+     * @return the indices of no-data values. Must not be modified.
+     */
+    BitSet getNoDataValues() {
+        return noDataValues;
+    }
+
+    boolean isNoDataValue(int index) {
+        return noDataValues.get(index);
+    }
+
+    /**
+     * @param index
+     *        the value index
+     * @return the value object at the given index, i.e. the original instance if available.
+     */
+    QuantityValue getValue(int index) {
+        return valueObjects != null
+                ? valueObjects[index]
+                : columnar.getValueAt(index);
+    }
+
+    TimeOutput getTime(int index) {
+        return valueObjects != null
+                ? valueObjects[index].getTimestamp()
+                : columnar.getValueAt(index)
+                          .getTimestamp();
+    }
+
+    /**
+     * @param metadata
+     *        the metadata of the new instance
+     * @return an empty data instance of the same layout as the wrapped data
+     */
+    Data<QuantityValue> createEmpty(DatasetMetadata<QuantityValue> metadata) {
+        return columnar != null
+                ? new QuantityColumnarData(metadata)
+                : new Data<>(metadata);
+    }
+
+}
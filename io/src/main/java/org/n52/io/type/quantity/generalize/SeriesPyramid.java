@@ -0,0 +1,468 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+
+/**
+ * Pre-aggregated values of a quantity series at each {@link PyramidLevel}. Per bucket the count, sum, minimum,
+ * maximum, first and last value is kept, minimum and maximum along with their times. No-data values are only
+ * counted per bucket along with the time of the first one, so that no-data gaps can be reproduced.
+ * <p>
+ * A pyramid covers a contiguous time range. Values are added per fetched range which must not overlap the
+ * covered range, so that no value is aggregated twice. Instances are not thread-safe.
+ * </p>
+ */
+final class SeriesPyramid {
+
+    private static final int FORMAT_VERSION = 2;
+
+    private final String datasetId;
+
+    private final Buckets[] levels;
+
+    private long coveredFrom;
+
+    private long coveredUntil;
+
+    private boolean covering;
+
+    SeriesPyramid(String datasetId) {
+        this.datasetId = datasetId;
+        this.levels = new Buckets[PyramidLevel.values().length];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new Buckets();
+        }
+    }
+
+    String getDatasetId() {
+        return datasetId;
+    }
+
+    /**
+     * @return <code>true</code> if a time range has been added already
+     */
+    boolean isCovering() {
+        return covering;
+    }
+
+    /**
+     * @return the start of the covered time range, inclusive
+     */
+    long getCoveredFrom() {
+        return coveredFrom;
+    }
+
+    /**
+     * @return the end of the covered time range, inclusive
+     */
+    long getCoveredUntil() {
+        return coveredUntil;
+    }
+
+    /**
+     * @param level
+     *        the level
+     * @return the number of non-empty buckets of the given level
+     */
+    int getBucketCount(PyramidLevel level) {
+        return levels[level.ordinal()].size;
+    }
+
+    /**
+     * Aggregates the values of a fetched time range. The range has to adjoin the covered range, values outside
+     * the range are ignored.
+     *
+     * @param data
+     *        the fetched values
+     * @param from
+     *        the start of the fetched range, inclusive
+     * @param until
+     *        the end of the fetched range, inclusive
+     * @throws IllegalArgumentException
+     *         if the range overlaps or does not adjoin the covered range
+     */
+    void add(Data<QuantityValue> data, long from, long until) {
+        if (covering && !(until + 1 == coveredFrom || from == coveredUntil + 1)) {
+            throw new IllegalArgumentException("Range [" + from + ", " + until + "] does not adjoin covered range ["
+                    + coveredFrom + ", " + coveredUntil + "] of dataset " + datasetId);
+        }
+        QuantityColumns columns = QuantityColumns.of(data);
+        long[] timestamps = columns.getTimestamps();
+        double[] values = columns.getValues();
+        PyramidLevel[] pyramidLevels = PyramidLevel.values();
+        for (int i = 0; i < columns.size(); i++) {
+            long time = timestamps[i];
+            if (time < from || time > until) {
+                continue;
+            }
+            boolean noData = columns.isNoDataValue(i);
+            for (PyramidLevel level : pyramidLevels) {
+                Buckets buckets = levels[level.ordinal()];
+                if (noData) {
+                    buckets.addNoData(level.getBucketStart(time), time);
+                } else {
+                    buckets.add(level.getBucketStart(time), time, values[i]);
+                }
+            }
+        }
+        coveredFrom = covering
+                ? Math.min(coveredFrom, from)
+                : from;
+        coveredUntil = covering
+                ? Math.max(coveredUntil, until)
+                : until;
+        covering = true;
+    }
+
+    /**
+     * Creates a series of first, minimum, maximum and last value of each bucket within the given range. Only
+     * values within the range are contained. Like {@link LargestTriangleThreeBuckets}, a bucket whose no-data
+     * values exceed the given threshold gets a no-data value at the time of its first no-data value.
+     *
+     * @param level
+     *        the level to read
+     * @param start
+     *        the start of the range, inclusive
+     * @param end
+     *        the end of the range, inclusive
+     * @param noDataGapThreshold
+     *        the part of no-data values within a bucket (if not greater than <code>1</code>) or their number
+     *        from which on a no-data gap is kept
+     * @param zone
+     *        the timezone to output timestamps in
+     * @param unixTime
+     *        if timestamps shall be formatted as unix time
+     * @return the series
+     */
+    Data<QuantityValue> getData(PyramidLevel level,
+                                long start,
+                                long end,
+                                double noDataGapThreshold,
+                                DateTimeZone zone,
+                                boolean unixTime) {
+        Data<QuantityValue> data = new Data<>();
+        Buckets buckets = levels[level.ordinal()];
+        int index = buckets.indexOf(level.getBucketStart(start));
+        for (int i = index < 0 ? -index - 1 : index; i < buckets.size && buckets.starts[i] <= end; i++) {
+            if (isExceededGapThreshold(buckets.noDataCounts[i], buckets.counts[i], noDataGapThreshold)) {
+                addValue(data, buckets.noDataTimes[i], null, start, end, zone, unixTime);
+            }
+            if (buckets.counts[i] > 0) {
+                addValue(data, buckets.firstTimes[i], buckets.firstValues[i], start, end, zone, unixTime);
+                addValue(data, buckets.minTimes[i], buckets.mins[i], start, end, zone, unixTime);
+                addValue(data, buckets.maxTimes[i], buckets.maxs[i], start, end, zone, unixTime);
+                addValue(data, buckets.lastTimes[i], buckets.lastValues[i], start, end, zone, unixTime);
+            }
+        }
+        return data;
+    }
+
+    private static boolean isExceededGapThreshold(long noDataCount, long count, double noDataGapThreshold) {
+        return noDataCount > 0 && (noDataGapThreshold <= 1
+                ? noDataCount > noDataGapThreshold * (noDataCount + count)
+                : noDataCount > noDataGapThreshold);
+    }
+
+    private static void addValue(Data<QuantityValue> data,
+                                 long time,
+                                 Double value,
+                                 long start,
+                                 long end,
+                                 DateTimeZone zone,
+                                 boolean unixTime) {
+        if (time >= start && time <= end) {
+            QuantityValue quantityValue = new QuantityValue();
+            quantityValue.setTimestamp(new TimeOutput(new DateTime(time, zone), unixTime));
+            quantityValue.setValue(value != null
+                    ? BigDecimal.valueOf(value)
+                    : null);
+            // values of equal time are dropped by the data's set
+            data.addNewValue(quantityValue);
+        }
+    }
+
+    /**
+     * @param level
+     *        the level
+     * @param start
+     *        the start of the range, inclusive
+     * @param end
+     *        the end of the range, inclusive
+     * @return the number of values aggregated in the buckets overlapping the given range
+     */
+    long getCount(PyramidLevel level, long start, long end) {
+        Buckets buckets = levels[level.ordinal()];
+        int index = buckets.indexOf(level.getBucketStart(start));
+        long count = 0;
+        for (int i = index < 0 ? -index - 1 : index; i < buckets.size && buckets.starts[i] <= end; i++) {
+            count += buckets.counts[i];
+        }
+        return count;
+    }
+
+    /**
+     * @param level
+     *        the level
+     * @param bucketStart
+     *        the start of the bucket
+     * @return the average of the bucket or {@link Double#NaN} if the bucket is empty
+     */
+    double getAverage(PyramidLevel level, long bucketStart) {
+        Buckets buckets = levels[level.ordinal()];
+        int index = buckets.indexOf(bucketStart);
+        return index < 0
+                ? Double.NaN
+                : buckets.sums[index] / buckets.counts[index];
+    }
+
+    /**
+     * @param level
+     *        the level
+     * @param bucketStart
+     *        the start of the bucket
+     * @return the number of values aggregated in the bucket
+     */
+    long getCount(PyramidLevel level, long bucketStart) {
+        Buckets buckets = levels[level.ordinal()];
+        int index = buckets.indexOf(bucketStart);
+        return index < 0
+                ? 0
+                : buckets.counts[index];
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(datasetId);
+        out.writeBoolean(covering);
+        out.writeLong(coveredFrom);
+        out.writeLong(coveredUntil);
+        out.writeInt(levels.length);
+        for (Buckets buckets : levels) {
+            buckets.write(out);
+        }
+    }
+
+    static SeriesPyramid read(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported pyramid format version: " + version);
+        }
+        SeriesPyramid pyramid = new SeriesPyramid(in.readUTF());
+        pyramid.covering = in.readBoolean();
+        pyramid.coveredFrom = in.readLong();
+        pyramid.coveredUntil = in.readLong();
+        int levelCount = in.readInt();
+        if (levelCount != pyramid.levels.length) {
+            throw new IOException("Unexpected number of pyramid levels: " + levelCount);
+        }
+        for (Buckets buckets : pyramid.levels) {
+            buckets.read(in);
+        }
+        return pyramid;
+    }
+
+    /**
+     * Non-empty buckets of a level as columns ordered by bucket start.
+     */
+    private static final class Buckets {
+
+        private long[] starts = new long[0];
+
+        private long[] counts = new long[0];
+
+        private double[] sums = new double[0];
+
+        private double[] mins = new double[0];
+
+        private long[] minTimes = new long[0];
+
+        private double[] maxs = new double[0];
+
+        private long[] maxTimes = new long[0];
+
+        private double[] firstValues = new double[0];
+
+        private long[] firstTimes = new long[0];
+
+        private double[] lastValues = new double[0];
+
+        private long[] lastTimes = new long[0];
+
+        private long[] noDataCounts = new long[0];
+
+        private long[] noDataTimes = new long[0];
+
+        private int size;
+
+        private int indexOf(long bucketStart) {
+            // values are added in time order mostly
+            if (size > 0 && starts[size - 1] == bucketStart) {
+                return size - 1;
+            }
+            return Arrays.binarySearch(starts, 0, size, bucketStart);
+        }
+
+        private void add(long bucketStart, long time, double value) {
+            int index = indexOf(bucketStart);
+            if (index < 0) {
+                index = -index - 1;
+                insert(index, bucketStart);
+            }
+            counts[index]++;
+            sums[index] += value;
+            if (value < mins[index] || value == mins[index] && time < minTimes[index]) {
+                mins[index] = value;
+                minTimes[index] = time;
+            }
+            if (value > maxs[index] || value == maxs[index] && time < maxTimes[index]) {
+                maxs[index] = value;
+                maxTimes[index] = time;
+            }
+            if (time < firstTimes[index]) {
+                firstTimes[index] = time;
+                firstValues[index] = value;
+            }
+            if (time > lastTimes[index]) {
+                lastTimes[index] = time;
+                lastValues[index] = value;
+            }
+        }
+
+        private void addNoData(long bucketStart, long time) {
+            int index = indexOf(bucketStart);
+            if (index < 0) {
+                index = -index - 1;
+                insert(index, bucketStart);
+            }
+            noDataCounts[index]++;
+            if (time < noDataTimes[index]) {
+                noDataTimes[index] = time;
+            }
+        }
+
+        private void insert(int index, long bucketStart) {
+            if (size == starts.length) {
+                int capacity = Math.max(16, size * 2);
+                starts = Arrays.copyOf(starts, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                sums = Arrays.copyOf(sums, capacity);
+                mins = Arrays.copyOf(mins, capacity);
+                minTimes = Arrays.copyOf(minTimes, capacity);
+                maxs = Arrays.copyOf(maxs, capacity);
+                maxTimes = Arrays.copyOf(maxTimes, capacity);
+                firstValues = Arrays.copyOf(firstValues, capacity);
+                firstTimes = Arrays.copyOf(firstTimes, capacity);
+                lastValues = Arrays.copyOf(lastValues, capacity);
+                lastTimes = Arrays.copyOf(lastTimes, capacity);
+                noDataCounts = Arrays.copyOf(noDataCounts, capacity);
+                noDataTimes = Arrays.copyOf(noDataTimes, capacity);
+            }
+            if (index < size) {
+                int length = size - index;
+                System.arraycopy(starts, index, starts, index + 1, length);
+                System.arraycopy(counts, index, counts, index + 1, length);
+                System.arraycopy(sums, index, sums, index + 1, length);
+                System.arraycopy(mins, index, mins, index + 1, length);
+                System.arraycopy(minTimes, index, minTimes, index + 1, length);
+                System.arraycopy(maxs, index, maxs, index + 1, length);
+                System.arraycopy(maxTimes, index, maxTimes, index + 1, length);
+                System.arraycopy(firstValues, index, firstValues, index + 1, length);
+                System.arraycopy(firstTimes, index, firstTimes, index + 1, length);
+                System.arraycopy(lastValues, index, lastValues, index + 1, length);
+                System.arraycopy(lastTimes, index, lastTimes, index + 1, length);
+                System.arraycopy(noDataCounts, index, noDataCounts, index + 1, length);
+                System.arraycopy(noDataTimes, index, noDataTimes, index + 1, length);
+            }
+            starts[index] = bucketStart;
+            counts[index] = 0;
+            sums[index] = 0;
+            mins[index] = Double.POSITIVE_INFINITY;
+            maxs[index] = Double.NEGATIVE_INFINITY;
+            firstTimes[index] = Long.MAX_VALUE;
+            lastTimes[index] = Long.MIN_VALUE;
+            noDataCounts[index] = 0;
+            noDataTimes[index] = Long.MAX_VALUE;
+            size++;
+        }
+
+        private void write(DataOutput out) throws IOException {
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(starts[i]);
+                out.writeLong(counts[i]);
+                out.writeDouble(sums[i]);
+                out.writeDouble(mins[i]);
+                out.writeLong(minTimes[i]);
+                out.writeDouble(maxs[i]);
+                out.writeLong(maxTimes[i]);
+                out.writeDouble(firstValues[i]);
+                out.writeLong(firstTimes[i]);
+                out.writeDouble(lastValues[i]);
+                out.writeLong(lastTimes[i]);
+                out.writeLong(noDataCounts[i]);
+                out.writeLong(noDataTimes[i]);
+            }
+        }
+
+        private void read(DataInput in) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long bucketStart = in.readLong();
+                if (size > 0 && bucketStart <= starts[size - 1]) {
+                    throw new IOException("Pyramid buckets are not ordered.");
+                }
+                insert(size, bucketStart);
+                counts[i] = in.readLong();
+                sums[i] = in.readDouble();
+                mins[i] = in.readDouble();
+                minTimes[i] = in.readLong();
+                maxs[i] = in.readDouble();
+                maxTimes[i] = in.readLong();
+                firstValues[i] = in.readDouble();
+                firstTimes[i] = in.readLong();
+                lastValues[i] = in.readDouble();
+                lastTimes[i] = in.readLong();
+                noDataCounts[i] = in.readLong();
+                noDataTimes[i] = in.readLong();
+            }
+        }
+
+    }
+
+}
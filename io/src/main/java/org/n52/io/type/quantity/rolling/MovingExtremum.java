@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.rolling;
+
+/**
+ * The minimum or maximum of the values within the window. A monotonic deque keeps only values which may still
+ * become the extremum, i.e. values not dominated by a later value.
+ */
+final class MovingExtremum extends RollingWindow {
+
+    private final TimeValueDeque candidates = new TimeValueDeque();
+
+    private final boolean maximum;
+
+    /**
+     * @param duration
+     *        the window duration in millis
+     * @param maximum
+     *        <code>true</code> for the maximum, <code>false</code> for the minimum
+     */
+    MovingExtremum(long duration, boolean maximum) {
+        super(duration);
+        this.maximum = maximum;
+    }
+
+    @Override
+    double add(long time, double value) {
+        while (!candidates.isEmpty() && isDominated(candidates.getLastValue(), value)) {
+            candidates.removeLast();
+        }
+        candidates.addLast(time, value);
+        long windowStart = getWindowStart(time);
+        while (candidates.getTime(0) <= windowStart) {
+            candidates.removeFirst();
+        }
+        return candidates.getValue(0);
+    }
+
+    private boolean isDominated(double candidate, double value) {
+        return maximum
+                ? candidate <= value
+                : candidate >= value;
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.rolling;
+
+import org.n52.io.request.RollingFunction;
+
+/**
+ * A trailing window of fixed duration over values in ascending time order. The window of a value at time
+ * <code>t</code> contains all values added within <code>(t - duration, t]</code>. Adding a value takes amortized
+ * constant time, memory is bounded by the number of values within a window.
+ */
+abstract class RollingWindow {
+
+    private final long duration;
+
+    RollingWindow(long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @param function
+     *        the function to apply on the window
+     * @param duration
+     *        the window duration in millis
+     * @return a new window
+     */
+    static RollingWindow create(RollingFunction function, long duration) {
+        switch (function) {
+            case MIN:
+                return new MovingExtremum(duration, false);
+            case MAX:
+                return new MovingExtremum(duration, true);
+            case TIME_WEIGHTED_AVG:
+                return new TimeWeightedMovingAverage(duration);
+            case AVG:
+            default:
+                return new MovingAverage(duration);
+        }
+    }
+
+    long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @param time
+     *        the time of the value to add
+     * @return the start of the window ending at the given time (exclusive)
+     */
+    long getWindowStart(long time) {
+        return time - duration;
+    }
+
+    /**
+     * Adds a value and moves the window to end at the value's time.
+     *
+     * @param time
+     *        the time of the value, not before the time of the previously added value
+     * @param value
+     *        the value
+     * @return the function's result over the window ending at the given time
+     */
+    abstract double add(long time, double value);
+
+}
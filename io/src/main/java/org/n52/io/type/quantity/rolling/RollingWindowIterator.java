@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.rolling;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+
+/**
+ * Applies a {@link RollingWindow} on values as they are iterated. Each value is replaced by the window's result
+ * at its time, i.e. the end of the interval for values observed over time intervals. All other properties of
+ * a value are kept. Values before a given time only fill the window and are not returned. No-data values are
+ * returned as they are and not added to the window.
+ */
+final class RollingWindowIterator implements Iterator<QuantityValue> {
+
+    private final Iterator<QuantityValue> values;
+
+    private final RollingWindow window;
+
+    private final long from;
+
+    private QuantityValue next;
+
+    /**
+     * @param values
+     *        the values in ascending time order
+     * @param window
+     *        the window to apply
+     * @param from
+     *        the time of the first value to return
+     */
+    RollingWindowIterator(Iterator<QuantityValue> values, RollingWindow window, long from) {
+        this.values = values;
+        this.window = window;
+        this.from = from;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && values.hasNext()) {
+            next = apply(values.next());
+        }
+        return next != null;
+    }
+
+    @Override
+    public QuantityValue next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        QuantityValue current = next;
+        next = null;
+        return current;
+    }
+
+    private QuantityValue apply(QuantityValue value) {
+        long time = getTime(value);
+        if (value.isNoDataValue()) {
+            return time >= from
+                    ? value
+                    : null;
+        }
+        double result = window.add(time, value.getValue()
+                                              .doubleValue());
+        if (time < from) {
+            return null;
+        }
+        return copy(value, BigDecimal.valueOf(result));
+    }
+
+    private static long getTime(QuantityValue value) {
+        TimeOutput timestamp = value.getTimestamp() != null
+                ? value.getTimestamp()
+                : value.getTimeend();
+        return timestamp.getMillis();
+    }
+
+    private static QuantityValue copy(QuantityValue value, BigDecimal result) {
+        QuantityValue copy = new QuantityValue();
+        copy.setTimestart(value.getTimestart());
+        copy.setTimestamp(value.isSetTimestart()
+                ? value.getTimeend()
+                : value.getTimestamp());
+        copy.setValue(result);
+        copy.setValueFormatter(value.getValueFormatter());
+        copy.setValidTime(value.getValidTime());
+        copy.setResultTime(value.getResultTime());
+        copy.setGeometry(value.getGeometry());
+        if (value.getParameters() != null) {
+            copy.setParameters(value.getParameters());
+        }
+        copy.setDetectionLimit(value.getDetectionLimit());
+        return copy;
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.rolling;
+
+import java.util.Iterator;
+
+import org.joda.time.Interval;
+import org.n52.io.TvpDataCollection;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DataCursor;
+import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.RawDataService;
+import org.n52.series.spi.srv.StreamingDataService;
+
+/**
+ * Composes a {@link DataService} instance to apply a trailing rolling window (see
+ * {@link Parameters#ROLLING_WINDOW}) on the values of each series. The requested timespan is extended by the
+ * window duration, so that the first values of the timespan are calculated over full windows. Values are
+ * processed as they are read, a streaming composed service is streamed as well.
+ * <p>
+ * A value before the (extended) timespan provided by the composed service's metadata (see
+ * {@link DatasetMetadata#getValueBeforeTimespan()}) fills the window ahead of the first value. This matters for
+ * the time-weighted mean, where the value before the window holds into the window. Reference values are passed
+ * as they are.
+ * </p>
+ */
+public class RollingWindowQuantityService implements StreamingDataService<QuantityValue> {
+
+    private final DataService<Data<QuantityValue>> composedService;
+
+    public RollingWindowQuantityService(DataService<Data<QuantityValue>> toCompose) {
+        this.composedService = toCompose;
+    }
+
+    @Override
+    public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
+        Interval timespan = parameters.getTimespan()
+                                      .toInterval();
+        DataCollection<Data<QuantityValue>> data = composedService.getData(extendTimespan(parameters, timespan));
+        TvpDataCollection<Data<QuantityValue>> result = new TvpDataCollection<>();
+        for (String datasetId : data.getAllSeries()
+                                    .keySet()) {
+            Data<QuantityValue> series = data.getSeries(datasetId);
+            Data<QuantityValue> rolled = new Data<>(series.getMetadata());
+            Iterator<QuantityValue> values = createIterator(series.getValues()
+                                                                  .iterator(),
+                                                            series.getMetadata(),
+                                                            parameters,
+                                                            timespan);
+            while (values.hasNext()) {
+                rolled.addNewValue(values.next());
+            }
+            result.addNewSeries(datasetId, rolled);
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean supportsStreaming(IoParameters parameters) {
+        return composedService instanceof StreamingDataService
+                && ((StreamingDataService<QuantityValue>) composedService).supportsStreaming(parameters);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public DataCursor<QuantityValue> getDataCursor(String datasetId, IoParameters parameters) {
+        if (!(composedService instanceof StreamingDataService)) {
+            throw new IllegalStateException("Composed data service does not support streaming.");
+        }
+        Interval timespan = parameters.getTimespan()
+                                      .toInterval();
+        StreamingDataService<QuantityValue> streamingService = (StreamingDataService<QuantityValue>) composedService;
+        DataCursor<QuantityValue> cursor = streamingService.getDataCursor(datasetId,
+                                                                          extendTimespan(parameters, timespan));
+        Iterator<QuantityValue> values = createIterator(cursor, cursor.getMetadata(), parameters, timespan);
+        return new DataCursor<QuantityValue>() {
+
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public QuantityValue next() {
+                return values.next();
+            }
+
+            @Override
+            public DatasetMetadata<QuantityValue> getMetadata() {
+                return cursor.getMetadata();
+            }
+
+            @Override
+            public void close() {
+                cursor.close();
+            }
+        };
+    }
+
+    private static Iterator<QuantityValue> createIterator(Iterator<QuantityValue> values,
+                                                          DatasetMetadata<QuantityValue> metadata,
+                                                          IoParameters parameters,
+                                                          Interval timespan) {
+        RollingWindow window = RollingWindow.create(parameters.getRollingFunction(),
+                                                    parameters.getRollingWindow()
+                                                              .getMillis());
+        QuantityValue valueBefore = metadata != null
+                ? metadata.getValueBeforeTimespan()
+                : null;
+        if (valueBefore != null && !valueBefore.isNoDataValue()) {
+            window.add(valueBefore.getTimestamp()
+                                  .getMillis(),
+                       valueBefore.getValue()
+                                  .doubleValue());
+        }
+        return new RollingWindowIterator(values, window, timespan.getStartMillis());
+    }
+
+    private static IoParameters extendTimespan(IoParameters parameters, Interval timespan) {
+        long windowStart = timespan.getStartMillis() - parameters.getRollingWindow()
+                                                                 .getMillis();
+        Interval extended = new Interval(windowStart, timespan.getEndMillis(), timespan.getChronology());
+        return parameters.replaceWith(Parameters.TIMESPAN, extended.toString());
+    }
+
+    @Override
+    public boolean supportsRawData() {
+        return false;
+    }
+
+    @Override
+    public RawDataService getRawDataService() {
+        return null;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.rolling;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A double ended queue of time-value pairs on primitive ring buffers. The capacity grows as needed and is never
+ * shrunk, so it is bounded by the maximum number of values within a window.
+ */
+final class TimeValueDeque {
+
+    private long[] times = new long[16];
+
+    private double[] values = new double[16];
+
+    private int head;
+
+    private int size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void addLast(long time, double value) {
+        if (size == times.length) {
+            grow();
+        }
+        int tail = index(size);
+        times[tail] = time;
+        values[tail] = value;
+        size++;
+    }
+
+    void removeFirst() {
+        checkNotEmpty();
+        head = index(1);
+        size--;
+    }
+
+    void removeLast() {
+        checkNotEmpty();
+        size--;
+    }
+
+    /**
+     * @param position
+     *        the position counted from the first entry
+     * @return the time at the given position
+     */
+    long getTime(int position) {
+        return times[index(position)];
+    }
+
+    /**
+     * @param position
+     *        the position counted from the first entry
+     * @return the value at the given position
+     */
+    double getValue(int position) {
+        return values[index(position)];
+    }
+
+    long getLastTime() {
+        return getTime(size - 1);
+    }
+
+    double getLastValue() {
+        return getValue(size - 1);
+    }
+
+    private int index(int position) {
+        int index = head + position;
+        return index < times.length
+                ? index
+                : index - times.length;
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+    }
+
+    private void grow() {
+        long[] newTimes = new long[times.length * 2];
+        double[] newValues = new double[values.length * 2];
+        for (int i = 0; i < size; i++) {
+            newTimes[i] = getTime(i);
+            newValues[i] = getValue(i);
+        }
+        times = newTimes;
+        values = newValues;
+        head = 0;
+    }
+
+}
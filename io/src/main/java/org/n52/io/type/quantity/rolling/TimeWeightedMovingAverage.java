@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.rolling;
+
+/**
+ * The mean of the values within the window weighted by time. Each value holds until the next value (sample and
+ * hold), so irregularly sampled values count by the time they represent. The value before the window holds
+ * into the window until the window's first value.
+ * <p>
+ * The integral over the values is kept as running area of the steps between the window's values, with the
+ * last value before the window as first entry.
+ * </p>
+ */
+final class TimeWeightedMovingAverage extends RollingWindow {
+
+    private final TimeValueDeque window = new TimeValueDeque();
+
+    // sum of value * step width over consecutive entries
+    private double area;
+
+    TimeWeightedMovingAverage(long duration) {
+        super(duration);
+    }
+
+    @Override
+    double add(long time, double value) {
+        if (!window.isEmpty()) {
+            area += window.getLastValue() * (time - window.getLastTime());
+        }
+        window.addLast(time, value);
+
+        long windowStart = getWindowStart(time);
+        // keep the last entry before the window, it holds into the window
+        while (window.size() > 1 && window.getTime(1) <= windowStart) {
+            area -= window.getValue(0) * (window.getTime(1) - window.getTime(0));
+            window.removeFirst();
+        }
+        if (window.size() == 1) {
+            // avoids accumulating rounding errors across windows
+            area = 0;
+        }
+
+        long firstTime = window.getTime(0);
+        long start = Math.max(firstTime, windowStart);
+        if (time == start) {
+            return value;
+        }
+        double integral = firstTime < windowStart
+                ? area - window.getValue(0) * (windowStart - firstTime)
+                : area;
+        return integral / (time - start);
+    }
+
+}
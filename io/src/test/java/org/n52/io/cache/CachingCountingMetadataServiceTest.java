@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.spi.srv.CountingMetadataService;
+
+public class CachingCountingMetadataServiceTest {
+
+    private final AtomicLong queries = new AtomicLong();
+
+    private CountingMetadataService delegate;
+
+    private long now;
+
+    @BeforeEach
+    public void setUp() {
+        delegate = new QueryCountingService();
+        now = 0L;
+    }
+
+    @Test
+    public void when_countedTwice_then_queryOnce() {
+        CachingCountingMetadataService service = new CachingCountingMetadataService(delegate, 60, 100, () -> now);
+        IoParameters query = IoParameters.createDefaults();
+        service.getDatasetCount(query);
+        service.getDatasetCount(IoParameters.createDefaults());
+
+        assertThat(queries.get(), is(1L));
+        assertThat(service.getHitCount(), is(1L));
+    }
+
+    @Test
+    public void when_countsOrQueriesDiffer_then_separateEntries() {
+        CachingCountingMetadataService service = new CachingCountingMetadataService(delegate, 60, 100, () -> now);
+        IoParameters query = IoParameters.createDefaults();
+        service.getDatasetCount(query);
+        service.getFeatureCount(query);
+        service.getDatasetCount(query.extendWith(Parameters.FILTER_DATASET_TYPES, "timeseries"));
+        service.getStationCount();
+        service.getStationCount();
+
+        assertThat(queries.get(), is(4L));
+        assertThat(service.size(), is(4));
+    }
+
+    @Test
+    public void when_ttlExceeded_then_queryAgain() {
+        CachingCountingMetadataService service = new CachingCountingMetadataService(delegate, 60, 100, () -> now);
+        IoParameters query = IoParameters.createDefaults();
+        assertThat(service.getPlatformCount(query), is(1L));
+        now += 60001;
+        assertThat(service.getPlatformCount(query), is(2L));
+    }
+
+    @Test
+    public void when_maxEntriesExceeded_then_evictLeastRecentlyUsed() {
+        CachingCountingMetadataService service = new CachingCountingMetadataService(delegate, 60, 2, () -> now);
+        IoParameters query = IoParameters.createDefaults();
+        service.getServiceCount(query);
+        service.getTagCounter(query);
+        service.getServiceCount(query);
+        service.getOfferingCount(query);
+
+        assertThat(service.size(), is(2));
+        service.getTagCounter(query);
+        assertThat(queries.get(), is(4L));
+    }
+
+    @Test
+    public void when_ttlNotConfigured_then_serviceNotComposed() {
+        assertThat(new CountCache(0, 100).compose(delegate), is(sameInstance(delegate)));
+        CountingMetadataService caching = new CountCache(60, 100).compose(delegate);
+        assertThat(caching instanceof CachingCountingMetadataService, is(true));
+    }
+
+    @Test
+    public void when_composedTwice_then_cachedCountsAreShared() {
+        CountCache cache = new CountCache(60, 100);
+        IoParameters query = IoParameters.createDefaults();
+        cache.compose(delegate)
+             .getDatasetCount(query);
+        cache.compose(delegate)
+             .getDatasetCount(query);
+        assertThat(cache.compose(delegate), is(sameInstance(cache.compose(delegate))));
+        assertThat(queries.get(), is(1L));
+    }
+
+    private final class QueryCountingService implements CountingMetadataService {
+
+        @Override
+        public Long getServiceCount(IoParameters parameters) {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getOfferingCount(IoParameters parameters) {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getCategoryCount(IoParameters parameters) {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getFeatureCount(IoParameters parameters) {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getProcedureCount(IoParameters parameters) {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getPhenomenaCount(IoParameters parameters) {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getPlatformCount(IoParameters paramters) {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getDatasetCount(IoParameters parameters) {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getStationCount() {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getTimeseriesCount() {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getSamplingCounter(IoParameters parameters) {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getMeasuringProgramCounter(IoParameters parameters) {
+            return queries.incrementAndGet();
+        }
+
+        @Override
+        public Long getTagCounter(IoParameters parameters) {
+            return queries.incrementAndGet();
+        }
+
+    }
+
+}
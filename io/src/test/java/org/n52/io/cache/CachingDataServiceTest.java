@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.io.response.dataset.DatasetTypesMetadata;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.io.type.quantity.generalize.InMemoryDownsamplingDataService;
+import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.DownsamplingRequest;
+import org.n52.series.spi.srv.RawDataService;
+
+public class CachingDataServiceTest {
+
+    private static final long HOUR = 3600000L;
+
+    private static final long DAY = 24 * HOUR;
+
+    private static final DateTime START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private final List<IoParameters> fetches = new ArrayList<>();
+
+    private InMemoryDownsamplingDataService data;
+
+    private long now;
+
+    @BeforeEach
+    public void setUp() {
+        data = new InMemoryDownsamplingDataService();
+        data.addSeries("ds_1", createHourlySeries(10 * 24));
+        data.addSeries("ds_2", createHourlySeries(10 * 24));
+        // beyond the series' values, all partitions are closed
+        now = START.plusDays(30)
+                   .getMillis();
+    }
+
+    @Test
+    public void when_requestingSameTimespanTwice_then_secondRequestIsServedFromCache() {
+        ObservationCache cache = createCache(1000000, ObservationCache.Eviction.LRU);
+        CachingDataService<QuantityValue> service = new CachingDataService<>(new RecordingService(), cache, null);
+
+        IoParameters parameters = createParameters(0, 48, "ds_1", "ds_2");
+        DataCollection<Data<QuantityValue>> first = service.getData(parameters);
+        DataCollection<Data<QuantityValue>> second = service.getData(parameters);
+
+        assertThat(fetches.size(), is(1));
+        assertThat(getTimes(second, "ds_1"), is(getTimes(data.getData(parameters), "ds_1")));
+        assertThat(getTimes(second, "ds_2"), is(getTimes(first, "ds_2")));
+        assertThat(cache.getHitRatio(), is(closeTo(0.5, 0.0001)));
+    }
+
+    @Test
+    public void when_windowSlidesIntoNextPartition_then_onlyMissingPartitionIsFetched() {
+        ObservationCache cache = createCache(1000000, ObservationCache.Eviction.LRU);
+        CachingDataService<QuantityValue> service = new CachingDataService<>(new RecordingService(), cache, null);
+
+        service.getData(createParameters(0, 23, "ds_1"));
+        IoParameters slided = createParameters(6, 29, "ds_1");
+        DataCollection<Data<QuantityValue>> result = service.getData(slided);
+
+        assertThat(fetches.size(), is(2));
+        Interval fetched = fetches.get(1)
+                                  .getTimespan()
+                                  .toInterval();
+        // partition of the second day only
+        assertThat(fetched.getStartMillis(), is(START.getMillis() + DAY));
+        assertThat(fetched.getEndMillis(), is(START.getMillis() + 2 * DAY - 1));
+        assertThat(getTimes(result, "ds_1"), is(getTimes(data.getData(slided), "ds_1")));
+    }
+
+    @Test
+    public void when_openPartitionExpires_then_itIsFetchedAgain() {
+        now = START.plusHours(12)
+                   .getMillis();
+        ObservationCache cache = createCache(1000000, ObservationCache.Eviction.LRU);
+        CachingDataService<QuantityValue> service = new CachingDataService<>(new RecordingService(), cache, null);
+
+        IoParameters parameters = createParameters(0, 12, "ds_1");
+        service.getData(parameters);
+        now += TimeUnit.SECONDS.toMillis(10);
+        service.getData(parameters);
+        assertThat(fetches.size(), is(1));
+
+        now += TimeUnit.SECONDS.toMillis(30);
+        service.getData(parameters);
+        assertThat(fetches.size(), is(2));
+        assertThat(cache.getExpirationCount(), is(1L));
+    }
+
+    @Test
+    public void when_budgetExceeded_then_leastRecentlyUsedPartitionsAreEvicted() {
+        // two partitions of 24 values each
+        ObservationCache cache = createCache(48, ObservationCache.Eviction.LRU);
+        CachingDataService<QuantityValue> service = new CachingDataService<>(new RecordingService(), cache, null);
+
+        service.getData(createParameters(0, 23, "ds_1"));
+        service.getData(createParameters(24, 47, "ds_1"));
+        service.getData(createParameters(48, 71, "ds_1"));
+        assertThat(cache.getEvictionCount(), is(1L));
+        assertThat(cache.getWeight(), is(48L));
+
+        // first day has been evicted
+        service.getData(createParameters(0, 23, "ds_1"));
+        assertThat(fetches.size(), is(4));
+    }
+
+    @Test
+    public void when_lfuEviction_then_frequentlyUsedPartitionIsKept() {
+        ObservationCache cache = createCache(48, ObservationCache.Eviction.LFU);
+        CachingDataService<QuantityValue> service = new CachingDataService<>(new RecordingService(), cache, null);
+
+        service.getData(createParameters(0, 23, "ds_1"));
+        service.getData(createParameters(0, 23, "ds_1"));
+        service.getData(createParameters(24, 47, "ds_1"));
+        // least recently used, but most frequently used
+        service.getData(createParameters(48, 71, "ds_1"));
+        service.getData(createParameters(0, 23, "ds_1"));
+        assertThat(fetches.size(), is(3));
+    }
+
+    @Test
+    public void when_valueTypeNotCached_then_datasetIsFetchedEveryTime() {
+        ObservationCache cache = createCache(1000000, ObservationCache.Eviction.LRU);
+        CachingDataService<QuantityValue> service = new CachingDataService<>(new RecordingService(),
+                                                                             cache,
+                                                                             parameters -> Arrays.asList(
+                                                                                     createTypes("ds_1",
+                                                                                                 "quantity"),
+                                                                                     createTypes("ds_2",
+                                                                                                 "text")));
+
+        IoParameters parameters = createParameters(0, 48, "ds_1", "ds_2");
+        service.getData(parameters);
+        DataCollection<Data<QuantityValue>> result = service.getData(parameters);
+
+        assertThat(fetches.size(), is(3));
+        assertThat(fetches.get(2)
+                          .getDatasets(),
+                   contains("ds_2"));
+        assertThat(getTimes(result, "ds_2"), is(getTimes(data.getData(parameters), "ds_2")));
+    }
+
+    @Test
+    public void when_expandedRequest_then_cacheIsBypassed() {
+        ObservationCache cache = createCache(1000000, ObservationCache.Eviction.LRU);
+        CachingDataService<QuantityValue> service = new CachingDataService<>(new RecordingService(), cache, null);
+
+        IoParameters parameters = createParameters(0, 48, "ds_1").extendWith("expanded", "true");
+        service.getData(parameters);
+        service.getData(parameters);
+
+        assertThat(fetches.size(), is(2));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void when_timeIntervalsRequested_then_cacheIsBypassed() {
+        ObservationCache cache = createCache(1000000, ObservationCache.Eviction.LRU);
+        CachingDataService<QuantityValue> service = new CachingDataService<>(new RecordingService(), cache, null);
+
+        IoParameters parameters = createParameters(0, 48, "ds_1").extendWith("showTimeIntervals", "true");
+        service.getData(parameters);
+        service.getData(parameters);
+
+        assertThat(fetches.size(), is(2));
+        assertThat(fetches.get(1)
+                          .isShowTimeIntervals(),
+                   is(true));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void when_servedFromCache_then_metadataOfOtherTimespanIsDropped() {
+        Data<QuantityValue> series = createHourlySeries(10 * 24);
+        series.setMetadata(new DatasetMetadata<>());
+        data.addSeries("ds_1", series);
+        ObservationCache cache = createCache(1000000, ObservationCache.Eviction.LRU);
+        CachingDataService<QuantityValue> service = new CachingDataService<>(new RecordingService(), cache, null);
+
+        service.getData(createParameters(0, 23, "ds_1"));
+        DataCollection<Data<QuantityValue>> result = service.getData(createParameters(6, 18, "ds_1"));
+
+        assertThat(fetches.size(), is(1));
+        assertThat(result.getSeries("ds_1")
+                         .getMetadata(),
+                   is(nullValue()));
+    }
+
+    @Test
+    public void when_composedServiceDownsamples_then_downsamplingIsForwarded() {
+        ObservationCache cache = createCache(1000000, ObservationCache.Eviction.LRU);
+        DownsamplingRequest request = new DownsamplingRequest(DownsamplingRequest.M4, 40);
+        IoParameters parameters = createParameters(0, 48, "ds_1");
+
+        CachingDataService<QuantityValue> service = new CachingDataService<>(data, cache, null);
+        assertThat(service.supportsDownsampling(request, parameters), is(true));
+        assertThat(service.getDownsampledData(request, parameters)
+                          .getSeries("ds_1")
+                          .getValues()
+                          .size(),
+                   is(lessThanOrEqualTo(40)));
+        assertThat(cache.size(), is(0));
+
+        CachingDataService<QuantityValue> notDownsampling = new CachingDataService<>(new RecordingService(),
+                                                                                     cache,
+                                                                                     null);
+        assertThat(notDownsampling.supportsDownsampling(request, parameters), is(false));
+        assertThat(notDownsampling.getValueCount("ds_1", parameters)
+                                  .isPresent(),
+                   is(false));
+    }
+
+    private ObservationCache createCache(long maxValues, ObservationCache.Eviction eviction) {
+        return new ObservationCache(maxValues,
+                                    DAY,
+                                    3600,
+                                    30,
+                                    TimeUnit.SECONDS,
+                                    eviction,
+                                    Collections.singleton("quantity"),
+                                    () -> now);
+    }
+
+    private static DatasetTypesMetadata createTypes(String id, String valueType) {
+        return new DatasetTypesMetadata().setId(id)
+                                         .setValueType(valueType);
+    }
+
+    private static IoParameters createParameters(int startHour, int endHour, String... datasets) {
+        Interval timespan = new Interval(START.plusHours(startHour), START.plusHours(endHour));
+        return IoParameters.createDefaults()
+                           .extendWith("datasets", datasets)
+                           .extendWith("timespan", timespan.toString());
+    }
+
+    private static List<Long> getTimes(DataCollection<Data<QuantityValue>> collection, String datasetId) {
+        List<Long> times = new ArrayList<>();
+        for (QuantityValue value : collection.getSeries(datasetId)
+                                             .getValues()) {
+            times.add(value.getTimestamp()
+                           .getMillis());
+        }
+        return times;
+    }
+
+    private static Data<QuantityValue> createHourlySeries(int hours) {
+        Data<QuantityValue> series = new Data<>();
+        for (int i = 0; i < hours; i++) {
+            QuantityValue value = new QuantityValue();
+            value.setTimestamp(new TimeOutput(START.plusHours(i)));
+            value.setValue(BigDecimal.valueOf(i));
+            series.addNewValue(value);
+        }
+        return series;
+    }
+
+    private final class RecordingService implements DataService<Data<QuantityValue>> {
+
+        @Override
+        public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
+            fetches.add(parameters);
+            return data.getData(parameters);
+        }
+
+        @Override
+        public RawDataService getRawDataService() {
+            return null;
+        }
+
+    }
+
+}
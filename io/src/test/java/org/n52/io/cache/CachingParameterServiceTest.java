@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.OutputCollection;
+import org.n52.io.response.PhenomenonOutput;
+import org.n52.series.spi.srv.ParameterService;
+
+public class CachingParameterServiceTest {
+
+    private static final long TTL_MILLIS = 60000L;
+
+    private final List<Runnable> pendingRefreshes = new ArrayList<>();
+
+    private CountingParameterService delegate;
+
+    private long now;
+
+    @BeforeEach
+    public void setUp() {
+        delegate = new CountingParameterService();
+        now = 0L;
+    }
+
+    @Test
+    public void when_requestedTwice_then_loadOnce() {
+        CachingParameterService<PhenomenonOutput> service = createCachingService(0, 100);
+        IoParameters query = IoParameters.createDefaults();
+        OutputCollection<PhenomenonOutput> first = service.getCondensedParameters(query);
+        OutputCollection<PhenomenonOutput> second = service.getCondensedParameters(query);
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(delegate.loads, is(1));
+        assertThat(service.getHitCount(), is(1L));
+        assertThat(service.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void when_parameterOrderDiffers_then_sameEntry() {
+        CachingParameterService<PhenomenonOutput> service = createCachingService(0, 100);
+        service.getExpandedParameters(IoParameters.createDefaults()
+                                                  .extendWith("locale", "de")
+                                                  .extendWith("offset", "0"));
+        service.getExpandedParameters(IoParameters.createDefaults()
+                                                  .extendWith("offset", "0")
+                                                  .extendWith("locale", "de"));
+
+        assertThat(delegate.loads, is(1));
+    }
+
+    @Test
+    public void when_queryOrMethodDiffers_then_separateEntries() {
+        CachingParameterService<PhenomenonOutput> service = createCachingService(0, 100);
+        IoParameters query = IoParameters.createDefaults();
+        service.getExpandedParameters(query);
+        service.getCondensedParameters(query);
+        service.getCondensedParameters(query.extendWith("locale", "de"));
+
+        assertThat(delegate.loads, is(3));
+        assertThat(service.size(), is(3));
+    }
+
+    @Test
+    public void when_ttlExceeded_then_reload() {
+        CachingParameterService<PhenomenonOutput> service = createCachingService(0, 100);
+        IoParameters query = IoParameters.createDefaults();
+        OutputCollection<PhenomenonOutput> first = service.getCondensedParameters(query);
+        now += TTL_MILLIS + 1;
+        OutputCollection<PhenomenonOutput> second = service.getCondensedParameters(query);
+
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(delegate.loads, is(2));
+    }
+
+    @Test
+    public void when_maxEntriesExceeded_then_evictLeastRecentlyUsed() {
+        CachingParameterService<PhenomenonOutput> service = createCachingService(0, 2);
+        IoParameters query = IoParameters.createDefaults();
+        service.getParameter("1", query);
+        service.getParameter("2", query);
+        // access 1 so that 2 is evicted
+        service.getParameter("1", query);
+        service.getParameter("3", query);
+        service.getParameter("1", query);
+        service.getParameter("2", query);
+
+        assertThat(service.size(), is(2));
+        assertThat(delegate.loads, is(4));
+    }
+
+    @Test
+    public void when_notFound_then_notCached() {
+        CachingParameterService<PhenomenonOutput> service = createCachingService(0, 100);
+        IoParameters query = IoParameters.createDefaults();
+        assertThat(service.getParameter("unknown", query), is(nullValue()));
+        assertThat(service.getParameter("unknown", query), is(nullValue()));
+
+        assertThat(delegate.loads, is(2));
+        assertThat(service.size(), is(0));
+    }
+
+    @Test
+    public void when_refreshAheadReached_then_refreshOnceInBackground() {
+        CachingParameterService<PhenomenonOutput> service = createCachingService(50, 100);
+        IoParameters query = IoParameters.createDefaults();
+        OutputCollection<PhenomenonOutput> first = service.getCondensedParameters(query);
+        now += TTL_MILLIS / 2 + 1;
+        OutputCollection<PhenomenonOutput> stale = service.getCondensedParameters(query);
+        service.getCondensedParameters(query);
+
+        assertThat(stale, is(sameInstance(first)));
+        assertThat(pendingRefreshes.size(), is(1));
+
+        pendingRefreshes.remove(0)
+                        .run();
+        OutputCollection<PhenomenonOutput> refreshed = service.getCondensedParameters(query);
+        assertThat(refreshed, is(not(sameInstance(first))));
+        assertThat(delegate.loads, is(2));
+        assertThat(service.getRefreshCount(), is(1L));
+
+        // refreshed entry lives on beyond the first entry's ttl
+        now += TTL_MILLIS / 2;
+        assertThat(service.getCondensedParameters(query), is(sameInstance(refreshed)));
+    }
+
+    @Test
+    public void when_itemInvalidated_then_onlyItemAndCollectionsReloaded() {
+        CachingParameterService<PhenomenonOutput> service = createCachingService(0, 100);
+        IoParameters query = IoParameters.createDefaults();
+        service.getParameter("1", query);
+        service.getParameter("2", query);
+        service.getCondensedParameters(query);
+        service.invalidate("1");
+
+        assertThat(service.size(), is(1));
+        service.getParameter("2", query);
+        assertThat(delegate.loads, is(3));
+    }
+
+    private CachingParameterService<PhenomenonOutput> createCachingService(int refreshAhead, int maxEntries) {
+        Executor executor = pendingRefreshes::add;
+        return new CachingParameterService<>(delegate,
+                                             TTL_MILLIS / 1000,
+                                             maxEntries,
+                                             refreshAhead,
+                                             executor,
+                                             () -> now);
+    }
+
+    private static final class CountingParameterService extends ParameterService<PhenomenonOutput> {
+
+        private int loads;
+
+        @Override
+        public OutputCollection<PhenomenonOutput> getExpandedParameters(IoParameters query) {
+            return load();
+        }
+
+        @Override
+        public OutputCollection<PhenomenonOutput> getCondensedParameters(IoParameters query) {
+            return load();
+        }
+
+        @Override
+        public OutputCollection<PhenomenonOutput> getParameters(String[] items, IoParameters query) {
+            return load();
+        }
+
+        @Override
+        public PhenomenonOutput getParameter(String item, IoParameters query) {
+            loads++;
+            if ("unknown".equals(item)) {
+                return null;
+            }
+            PhenomenonOutput output = new PhenomenonOutput();
+            output.setId(item);
+            return output;
+        }
+
+        @Override
+        public boolean exists(String id, IoParameters parameters) {
+            loads++;
+            return true;
+        }
+
+        private OutputCollection<PhenomenonOutput> load() {
+            loads++;
+            return new OutputCollection<>(Arrays.asList(new PhenomenonOutput()));
+        }
+
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.OutputCollection;
+import org.n52.io.response.PhenomenonOutput;
+import org.n52.series.spi.srv.ParameterService;
+
+public class MetadataCacheTest {
+
+    private MetadataCache metadataCache;
+
+    @BeforeEach
+    public void setUp() {
+        metadataCache = new MetadataCache(resource -> "phenomena".equals(resource) ? 60 : 0, 100, 0);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        metadataCache.shutdown();
+    }
+
+    @Test
+    public void when_ttlNotConfigured_then_serviceNotComposed() {
+        ParameterService<PhenomenonOutput> delegate = new LoadingParameterService();
+
+        assertThat(metadataCache.compose(delegate, "phenomena"), is(instanceOf(CachingParameterService.class)));
+        assertThat(metadataCache.compose(delegate, "stations"), is(sameInstance(delegate)));
+    }
+
+    @Test
+    public void when_itemInvalidated_then_composedCachesReload() {
+        LoadingParameterService delegate = new LoadingParameterService();
+        ParameterService<PhenomenonOutput> service = metadataCache.compose(delegate, "phenomena");
+        IoParameters query = IoParameters.createDefaults();
+        service.getParameter("1", query);
+        service.getParameter("2", query);
+        metadataCache.invalidate("stations", "1");
+        service.getParameter("1", query);
+        assertThat(delegate.loads, is(2));
+
+        metadataCache.invalidate("phenomena", "1");
+        service.getParameter("1", query);
+        service.getParameter("2", query);
+        assertThat(delegate.loads, is(3));
+
+        metadataCache.clear();
+        service.getParameter("2", query);
+        assertThat(delegate.loads, is(4));
+    }
+
+    private static final class LoadingParameterService extends ParameterService<PhenomenonOutput> {
+
+        private int loads;
+
+        @Override
+        public OutputCollection<PhenomenonOutput> getExpandedParameters(IoParameters query) {
+            return new OutputCollection<>(Arrays.asList(getParameter("1", query)));
+        }
+
+        @Override
+        public OutputCollection<PhenomenonOutput> getCondensedParameters(IoParameters query) {
+            return getExpandedParameters(query);
+        }
+
+        @Override
+        public OutputCollection<PhenomenonOutput> getParameters(String[] items, IoParameters query) {
+            return getExpandedParameters(query);
+        }
+
+        @Override
+        public PhenomenonOutput getParameter(String item, IoParameters query) {
+            loads++;
+            PhenomenonOutput output = new PhenomenonOutput();
+            output.setId(item);
+            return output;
+        }
+
+        @Override
+        public boolean exists(String id, IoParameters parameters) {
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.format;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.AggregationFunction;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.AggregationOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+
+public class AggregationFormatterTest {
+
+    private static final DateTimeZone BERLIN = DateTimeZone.forID("Europe/Berlin");
+
+    private static final Set<AggregationFunction> ALL_FUNCTIONS = EnumSet.allOf(AggregationFunction.class);
+
+    @Test
+    public void when_aggregatingHourly_then_functionsAreCalculatedPerBucket() {
+        Data<QuantityValue> data = new Data<>();
+        data.addNewValue(createValue(utc(0, 10), "2"));
+        data.addNewValue(createValue(utc(0, 20), "1"));
+        data.addNewValue(createValue(utc(0, 30), "6"));
+        data.addNewValue(createValue(utc(1, 0), "5"));
+
+        List<AggregationOutput<QuantityValue>> buckets = aggregate(Period.hours(1), DateTimeZone.UTC, data);
+
+        assertThat(buckets.size(), is(2));
+        AggregationOutput<QuantityValue> first = buckets.get(0);
+        assertThat(first.getTimestart().getDateTime(), is(utc(0, 0)));
+        assertThat(first.getTimeend().getDateTime(), is(utc(1, 0)));
+        assertThat(first.getMin().getValue(), is(new BigDecimal("1")));
+        assertThat(first.getMin().getTimestamp().getDateTime(), is(utc(0, 20)));
+        assertThat(first.getMax().getValue(), is(new BigDecimal("6")));
+        assertThat(first.getAvg().compareTo(new BigDecimal("3")), is(0));
+        assertThat(first.getSum(), is(new BigDecimal("9")));
+        assertThat(first.getCount(), is(3L));
+        assertThat(first.getFirst().getValue(), is(new BigDecimal("2")));
+        assertThat(first.getLast().getValue(), is(new BigDecimal("6")));
+        assertThat(buckets.get(1).getCount(), is(1L));
+    }
+
+    @Test
+    public void when_aggregatingDaily_then_bucketsAreAlignedInOutputTimezone() {
+        Data<QuantityValue> data = new Data<>();
+        // 2020-01-01T23:30 UTC is 2020-01-02T00:30 in Berlin
+        data.addNewValue(createValue(utc(22, 30), "1"));
+        data.addNewValue(createValue(utc(23, 30), "2"));
+
+        List<AggregationOutput<QuantityValue>> buckets = aggregate(Period.days(1), BERLIN, data);
+
+        assertThat(buckets.size(), is(2));
+        assertThat(buckets.get(0).getTimestart().getDateTime(), is(new DateTime(2020, 1, 1, 0, 0, BERLIN)));
+        assertThat(buckets.get(1).getTimestart().getDateTime(), is(new DateTime(2020, 1, 2, 0, 0, BERLIN)));
+        assertThat(buckets.get(1).getTimeend().getDateTime(), is(new DateTime(2020, 1, 3, 0, 0, BERLIN)));
+    }
+
+    @Test
+    public void when_aggregatingMonthly_then_bucketsFollowCalendarMonths() {
+        Data<QuantityValue> data = new Data<>();
+        data.addNewValue(createValue(new DateTime(2020, 1, 31, 12, 0, DateTimeZone.UTC), "1"));
+        data.addNewValue(createValue(new DateTime(2020, 2, 29, 12, 0, DateTimeZone.UTC), "2"));
+
+        List<AggregationOutput<QuantityValue>> buckets = aggregate(Period.months(1), DateTimeZone.UTC, data);
+
+        assertThat(buckets.size(), is(2));
+        assertThat(buckets.get(0).getTimeend().getDateTime(), is(new DateTime(2020, 2, 1, 0, 0, DateTimeZone.UTC)));
+        assertThat(buckets.get(1).getTimeend().getDateTime(), is(new DateTime(2020, 3, 1, 0, 0, DateTimeZone.UTC)));
+    }
+
+    @Test
+    public void when_aggregatingMultipleUnits_then_bucketsAreCountedFromOrigin() {
+        Data<QuantityValue> data = new Data<>();
+        data.addNewValue(createValue(utc(0, 14), "1"));
+        data.addNewValue(createValue(utc(0, 15), "2"));
+        data.addNewValue(createValue(utc(0, 44), "3"));
+
+        List<AggregationOutput<QuantityValue>> buckets = aggregate(Period.minutes(15), DateTimeZone.UTC, data);
+
+        assertThat(buckets.size(), is(3));
+        assertThat(buckets.get(1).getTimestart().getDateTime(), is(utc(0, 15)));
+        assertThat(buckets.get(2).getTimestart().getDateTime(), is(utc(0, 30)));
+    }
+
+    @Test
+    public void when_aggregatingWeekly_then_bucketsStartOnMondays() {
+        Data<QuantityValue> data = new Data<>();
+        // a Wednesday
+        data.addNewValue(createValue(utc(12, 0), "1"));
+
+        List<AggregationOutput<QuantityValue>> buckets = aggregate(Period.weeks(1), DateTimeZone.UTC, data);
+
+        assertThat(buckets.get(0).getTimestart().getDateTime(), is(new DateTime(2019, 12, 30, 0, 0, DateTimeZone.UTC)));
+    }
+
+    @Test
+    public void when_noDataValues_then_theyAreNotAggregated() {
+        Data<QuantityValue> data = new Data<>();
+        data.addNewValue(createValue(utc(0, 10), "2"));
+        data.addNewValue(createValue(utc(0, 20), null));
+        data.addNewValue(createValue(utc(5, 20), null));
+
+        List<AggregationOutput<QuantityValue>> buckets = aggregate(Period.hours(1), DateTimeZone.UTC, data);
+
+        assertThat(buckets.size(), is(1));
+        assertThat(buckets.get(0).getCount(), is(1L));
+    }
+
+    @Test
+    public void when_functionsRestricted_then_onlyRequestedFunctionsAreSet() {
+        Data<QuantityValue> data = new Data<>();
+        data.addNewValue(createValue(utc(0, 10), "2"));
+        AggregationFormatter<QuantityValue> formatter = new AggregationFormatter<>(Period.hours(1),
+                                                                                   DateTimeZone.UTC,
+                                                                                   EnumSet.of(AggregationFunction.AVG),
+                                                                                   false);
+
+        AggregationOutput<QuantityValue> bucket = formatter.aggregate(data.getValues().iterator())
+                                                           .getValues()
+                                                           .get(0);
+
+        assertThat(bucket.getAvg().compareTo(new BigDecimal("2")), is(0));
+        assertThat(bucket.getMin(), is(nullValue()));
+        assertThat(bucket.getSum(), is(nullValue()));
+        assertThat(bucket.getCount(), is(nullValue()));
+        assertThat(bucket.getFirst(), is(nullValue()));
+    }
+
+    @Test
+    public void when_periodOfMultipleFields_then_exceptionIsThrown() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new AggregationFormatter<QuantityValue>(Period.days(1).plusHours(12),
+                                                          DateTimeZone.UTC,
+                                                          ALL_FUNCTIONS,
+                                                          false));
+    }
+
+    private List<AggregationOutput<QuantityValue>> aggregate(Period period,
+                                                             DateTimeZone zone,
+                                                             Data<QuantityValue> data) {
+        DataCollection<Data<QuantityValue>> collection = new DataCollection<>();
+        collection.addNewSeries("dataset", data);
+        AggregationFormatter<QuantityValue> formatter = new AggregationFormatter<>(period, zone, ALL_FUNCTIONS, false);
+        return formatter.format(collection)
+                        .getSeries("dataset")
+                        .getValues();
+    }
+
+    private static DateTime utc(int hour, int minute) {
+        return new DateTime(2020, 1, 1, hour, minute, DateTimeZone.UTC);
+    }
+
+    private static QuantityValue createValue(DateTime time, String value) {
+        QuantityValue quantityValue = new QuantityValue();
+        quantityValue.setTimestamp(new TimeOutput(time));
+        quantityValue.setValue(value != null
+                ? new BigDecimal(value)
+                : null);
+        return quantityValue;
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.format;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.io.response.dataset.quantity.QuantityColumnarData;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CompactFormatterTest {
+
+    private static final String DATASET_ID = "42";
+
+    private static final long TEN_MINUTES = 600_000L;
+
+    private ObjectMapper mapper;
+
+    private Data<QuantityValue> data;
+
+    @BeforeEach
+    public void setUp() {
+        mapper = new ObjectMapper();
+        data = new Data<>();
+    }
+
+    @Test
+    public void when_seriesIsRegular_then_singleStepIsWritten() throws IOException {
+        data.addNewValue(createValue(1000L, "1.5"));
+        data.addNewValue(createValue(1000L + TEN_MINUTES, null));
+        data.addNewValue(createValue(1000L + 2 * TEN_MINUTES, "3"));
+
+        CompactData series = format(data);
+        assertThat(series.getStep(), is(TEN_MINUTES));
+        assertThat(series.getTimestamps(), is(nullValue()));
+        assertThat(series.getTimestamp(2), is(1000L + 2 * TEN_MINUTES));
+        assertThat(mapper.writeValueAsString(series),
+                   is("{\"start\":1000,\"step\":600000,\"values\":[1.5,null,3],"
+                           + "\"valueBeforeTimespan\":null,\"valueAfterTimespan\":null}"));
+    }
+
+    @Test
+    public void when_seriesIsIrregular_then_deltasAreWritten() throws IOException {
+        data.addNewValue(createValue(1000L, "1"));
+        data.addNewValue(createValue(2000L, "2"));
+        data.addNewValue(createValue(4000L, "-0.25"));
+
+        CompactData series = format(data);
+        assertThat(series.getStep(), is(nullValue()));
+        assertThat(series.getTimestamp(2), is(4000L));
+        assertThat(mapper.writeValueAsString(series),
+                   is("{\"start\":1000,\"timestamps\":[0,1000,2000],\"values\":[1,2,-0.25],"
+                           + "\"valueBeforeTimespan\":null,\"valueAfterTimespan\":null}"));
+    }
+
+    @Test
+    public void when_seriesIsEmpty_then_onlyValuesAreWritten() throws IOException {
+        assertThat(mapper.writeValueAsString(format(data)),
+                   is("{\"values\":[],\"valueBeforeTimespan\":null,\"valueAfterTimespan\":null}"));
+    }
+
+    @Test
+    public void when_dataIsColumnar_then_outputEqualsPlainData() throws IOException {
+        data.addNewValue(createValue(1000L, "1.1"));
+        data.addNewValue(createValue(3000L, null));
+        data.addNewValue(createValue(4000L, "-3.30"));
+        DatasetMetadata<QuantityValue> metadata = new DatasetMetadata<>();
+        metadata.setValueBeforeTimespan(createValue(0L, "0.5"));
+        data.setMetadata(metadata);
+
+        String expected = mapper.writeValueAsString(format(data));
+        assertThat(mapper.writeValueAsString(format(QuantityColumnarData.of(data))), is(expected));
+    }
+
+    @Test
+    public void when_columnarDataHasNoDataValues_then_columnsAreNotModified() {
+        data.addNewValue(createValue(1000L, "1"));
+        data.addNewValue(createValue(2000L, null));
+        QuantityColumnarData columnar = QuantityColumnarData.of(data);
+
+        CompactData series = format(columnar);
+        assertThat(Double.isNaN(series.getValues()[1]), is(true));
+        assertThat(columnar.getValueColumn()[1], is(0d));
+        assertThat(columnar.isNoDataValue(1), is(true));
+    }
+
+    private CompactData format(Data<QuantityValue> toFormat) {
+        DataCollection<Data<QuantityValue>> collection = new DataCollection<>();
+        collection.addNewSeries(DATASET_ID, toFormat);
+        return new CompactFormatter<QuantityValue>().format(collection)
+                                                   .getSeries(DATASET_ID);
+    }
+
+    private QuantityValue createValue(long timestamp, String value) {
+        QuantityValue quantityValue = new QuantityValue();
+        quantityValue.setTimestamp(new TimeOutput(new DateTime(timestamp, DateTimeZone.UTC)));
+        quantityValue.setValue(value != null
+                ? new BigDecimal(value)
+                : null);
+        return quantityValue;
+    }
+
+}
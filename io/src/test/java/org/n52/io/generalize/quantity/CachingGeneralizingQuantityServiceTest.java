@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.generalize.quantity;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.io.type.quantity.generalize.CachingGeneralizingQuantityService;
+import org.n52.io.type.quantity.generalize.GeneralizationCache;
+import org.n52.io.type.quantity.generalize.GeneralizingQuantityService;
+import org.n52.io.type.quantity.generalize.InMemoryDownsamplingDataService;
+import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.RawDataService;
+
+public class CachingGeneralizingQuantityServiceTest {
+
+    private static final DateTime START = new DateTime(1600000000000L);
+
+    private InMemoryDownsamplingDataService data;
+
+    private RecordingService service;
+
+    private Map<String, Long> lastValueTimes;
+
+    @BeforeEach
+    public void setUp() {
+        data = new InMemoryDownsamplingDataService();
+        data.addSeries("dataset_1", createSeries(0, 10000));
+        data.addSeries("dataset_2", createSeries(0, 10000));
+        service = new RecordingService(data);
+        lastValueTimes = new HashMap<>();
+        lastValueTimes.put("dataset_1", START.plusMinutes(9999).getMillis());
+        lastValueTimes.put("dataset_2", START.plusMinutes(9999).getMillis());
+    }
+
+    @Test
+    public void when_requestedTwice_then_secondRequestIsServedFromCache() {
+        GeneralizationCache cache = new GeneralizationCache(100000, 60, TimeUnit.SECONDS);
+        IoParameters parameters = createParameters(0, 5000);
+
+        DataCollection<Data<QuantityValue>> first = getData(cache, parameters);
+        DataCollection<Data<QuantityValue>> second = getData(cache, parameters);
+
+        assertThat(service.requestedTimespans.size(), is(1));
+        assertThat(cache.getMissCount(), is(2L));
+        assertThat(cache.getHitCount(), is(2L));
+        assertEqualSeries(second, first);
+        assertEqualSeries(second, getUncachedData(parameters));
+    }
+
+    @Test
+    public void when_requestedWithDifferentOutputParameters_then_cachedEntriesAreNotShared() {
+        GeneralizationCache cache = new GeneralizationCache(100000, 60, TimeUnit.SECONDS);
+        IoParameters parameters = createParameters(0, 5000);
+        getData(cache, parameters);
+        getData(cache, parameters.extendWith("expanded", "true"));
+        getData(cache, parameters.extendWith("outputTimezone", "Europe/Berlin"));
+        getData(cache, parameters.extendWith("showTimeIntervals", "true"));
+
+        assertThat(service.requestedTimespans.size(), is(4));
+        assertThat(cache.getHitCount(), is(0L));
+        assertThat(cache.getPartialHitCount(), is(0L));
+    }
+
+    @Test
+    public void when_lastValueAdvanced_then_onlyNewValuesAreFetched() {
+        GeneralizationCache cache = new GeneralizationCache(100000, 60, TimeUnit.SECONDS);
+        data.addSeries("dataset_1", createSeries(0, 4000));
+        lastValueTimes.put("dataset_1", START.plusMinutes(3999).getMillis());
+        IoParameters parameters = createParameters(0, 5000).replaceWith("datasets", "dataset_1");
+        getData(cache, parameters);
+
+        data.addSeries("dataset_1", createSeries(0, 4500));
+        lastValueTimes.put("dataset_1", START.plusMinutes(4499).getMillis());
+        DataCollection<Data<QuantityValue>> actual = getData(cache, parameters);
+
+        assertThat(cache.getInvalidationCount(), is(1L));
+        assertThat(cache.getPartialHitCount(), is(1L));
+        assertThat(service.requestedTimespans.get(1).getStartMillis(), is(START.plusMinutes(3999).getMillis() + 1));
+        assertEqualSeries(actual, getUncachedData(parameters));
+    }
+
+    @Test
+    public void when_windowEndMovedSlightly_then_cachedWindowIsExtended() {
+        GeneralizationCache cache = new GeneralizationCache(100000, 60, TimeUnit.SECONDS);
+        getData(cache, createParameters(0, 5000));
+        IoParameters moved = createParameters(100, 5100);
+        DataCollection<Data<QuantityValue>> actual = getData(cache, moved);
+
+        assertThat(cache.getPartialHitCount(), is(2L));
+        assertThat(service.requestedTimespans.get(1).getStartMillis(), is(START.plusMinutes(5000).getMillis() + 1));
+        assertEqualSeries(actual, getUncachedData(moved));
+    }
+
+    @Test
+    public void when_windowEndMovedFar_then_windowIsFetchedCompletely() {
+        GeneralizationCache cache = new GeneralizationCache(100000, 60, TimeUnit.SECONDS);
+        getData(cache, createParameters(0, 5000));
+        getData(cache, createParameters(2000, 7000));
+
+        assertThat(cache.getPartialHitCount(), is(0L));
+        assertThat(service.requestedTimespans.get(1), is(toInterval(2000, 7000)));
+    }
+
+    @Test
+    public void when_sizeBoundExceeded_then_leastRecentlyUsedEntriesAreEvicted() {
+        GeneralizationCache cache = new GeneralizationCache(12000, 60, TimeUnit.SECONDS);
+        getData(cache, createParameters(0, 5000));
+        getData(cache, createParameters(5001, 9999));
+
+        assertThat(cache.getEvictionCount(), is(greaterThan(0L)));
+        assertThat(cache.getWeight() <= 12000, is(true));
+    }
+
+    @Test
+    public void when_lastValueUnknownAndMaxAgeExceeded_then_entryIsInvalid() throws InterruptedException {
+        GeneralizationCache cache = new GeneralizationCache(100000, 0, TimeUnit.SECONDS);
+        lastValueTimes.clear();
+        IoParameters parameters = createParameters(0, 5000);
+        getData(cache, parameters);
+        Thread.sleep(5);
+        getData(cache, parameters);
+
+        assertThat(cache.getHitCount(), is(0L));
+        assertThat(cache.getInvalidationCount(), is(2L));
+    }
+
+    private DataCollection<Data<QuantityValue>> getData(GeneralizationCache cache, IoParameters parameters) {
+        return new CachingGeneralizingQuantityService(service, cache, lastValueTimes::get, null).getData(parameters);
+    }
+
+    private DataCollection<Data<QuantityValue>> getUncachedData(IoParameters parameters) {
+        return new GeneralizingQuantityService(new RecordingService(data), null).getData(parameters);
+    }
+
+    private void assertEqualSeries(DataCollection<Data<QuantityValue>> actual,
+                                   DataCollection<Data<QuantityValue>> expected) {
+        assertThat(actual.getAllSeries().keySet(), is(expected.getAllSeries().keySet()));
+        for (String datasetId : expected.getAllSeries().keySet()) {
+            List<QuantityValue> actualValues = new ArrayList<>(actual.getSeries(datasetId).getValues());
+            List<QuantityValue> expectedValues = new ArrayList<>(expected.getSeries(datasetId).getValues());
+            assertThat(actualValues.size(), is(expectedValues.size()));
+            for (int i = 0; i < expectedValues.size(); i++) {
+                assertThat(actualValues.get(i).getTimestamp(), is(expectedValues.get(i).getTimestamp()));
+                assertThat(actualValues.get(i).getValue(), is(expectedValues.get(i).getValue()));
+            }
+        }
+    }
+
+    private IoParameters createParameters(int startMinute, int endMinute) {
+        return IoParameters.createDefaults()
+                           .extendWith("generalize", "true")
+                           .extendWith("threshold", "100")
+                           .extendWith("datasets", "dataset_1", "dataset_2")
+                           .extendWith("timespan", toInterval(startMinute, endMinute).toString());
+    }
+
+    private Interval toInterval(int startMinute, int endMinute) {
+        return new Interval(START.plusMinutes(startMinute), START.plusMinutes(endMinute));
+    }
+
+    private Data<QuantityValue> createSeries(int startMinute, int endMinute) {
+        Random seeded = new Random(42);
+        Data<QuantityValue> series = new Data<>();
+        for (int i = startMinute; i < endMinute; i++) {
+            QuantityValue value = new QuantityValue();
+            value.setTimestamp(new TimeOutput(START.plusMinutes(i)));
+            value.setValue(BigDecimal.valueOf(seeded.nextInt(1000), 2));
+            series.addNewValue(value);
+        }
+        return series;
+    }
+
+    private static final class RecordingService implements DataService<Data<QuantityValue>> {
+
+        private final DataService<Data<QuantityValue>> delegate;
+
+        private final List<Interval> requestedTimespans = new ArrayList<>();
+
+        RecordingService(DataService<Data<QuantityValue>> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
+            requestedTimespans.add(parameters.getTimespan().toInterval());
+            return delegate.getData(parameters);
+        }
+
+        @Override
+        public RawDataService getRawDataService() {
+            return null;
+        }
+
+    }
+
+}
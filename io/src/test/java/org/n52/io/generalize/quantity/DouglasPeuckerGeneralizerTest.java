@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.generalize.quantity;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.n52.io.TvpDataCollection;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.quantity.QuantityColumnarData;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.io.type.quantity.generalize.DouglasPeuckerGeneralizer;
+import org.n52.io.type.quantity.generalize.GeneralizerException;
+
+public class DouglasPeuckerGeneralizerTest {
+
+    private static final DateTime START = new DateTime(1600000000000L);
+
+    @Test
+    public void when_valuesOnStraightLine_then_onlyStartAndEndAreKept() throws GeneralizerException {
+        Data<QuantityValue> data = new Data<>();
+        for (int i = 0; i < 100; i++) {
+            data.addNewValue(createQuantityValue(i, BigDecimal.valueOf(i)));
+        }
+        Data<QuantityValue> generalized = generalize(data, IoParameters.createDefaults());
+        assertThat(getTimeIndices(generalized), contains(0L, 99L));
+    }
+
+    @Test
+    public void when_spikeExceedsTolerance_then_spikeIsKept() throws GeneralizerException {
+        Data<QuantityValue> data = new Data<>();
+        for (int i = 0; i < 100; i++) {
+            data.addNewValue(createQuantityValue(i, BigDecimal.valueOf(i == 50 ? 10 : 0)));
+        }
+        Data<QuantityValue> generalized = generalize(data, IoParameters.createDefaults());
+        assertThat(getTimeIndices(generalized), contains(0L, 49L, 50L, 51L, 99L));
+    }
+
+    @Test
+    public void when_generalizing_then_originalValueInstancesAreKept() throws GeneralizerException {
+        Data<QuantityValue> data = getRandomData(1000, 0);
+        Data<QuantityValue> generalized = generalize(data, IoParameters.createDefaults());
+        assertThat(generalized.size(), is(lessThan(data.size())));
+        List<QuantityValue> values = new ArrayList<>(data.getValues());
+        for (QuantityValue value : generalized.getValues()) {
+            assertThat(value, is(sameInstance(values.get((int) getTimeIndex(value)))));
+        }
+    }
+
+    @Test
+    public void when_maxOutputSet_then_outputIsLimited() throws GeneralizerException {
+        Data<QuantityValue> data = getRandomData(5000, 0);
+        IoParameters parameters = IoParameters.createDefaults()
+                                              .extendWith("tolerance_value", "0.0001")
+                                              .extendWith("max_output", "50");
+        assertThat(generalize(data, parameters).size(), is(50L));
+    }
+
+    @Test
+    public void when_maxOutputSet_then_mostDistantValueIsKept() throws GeneralizerException {
+        Random seeded = new Random(42);
+        Data<QuantityValue> data = new Data<>();
+        for (int i = 0; i < 5000; i++) {
+            BigDecimal value = i == 2500
+                    ? BigDecimal.valueOf(1000)
+                    : BigDecimal.valueOf(seeded.nextInt(1000), 2);
+            data.addNewValue(createQuantityValue(i, value));
+        }
+        IoParameters parameters = IoParameters.createDefaults()
+                                              .extendWith("max_output", "3");
+        assertThat(getTimeIndices(generalize(data, parameters)), contains(0L, 2500L, 4999L));
+    }
+
+    @Test
+    public void when_seriesHasNoDataValues_then_noDataValuesAreKept() throws GeneralizerException {
+        Data<QuantityValue> data = getRandomData(1000, 0.05);
+        List<Long> noDataIndices = new ArrayList<>();
+        for (QuantityValue value : data.getValues()) {
+            if (value.isNoDataValue()) {
+                noDataIndices.add(getTimeIndex(value));
+            }
+        }
+        List<Long> generalized = getTimeIndices(generalize(data, IoParameters.createDefaults()));
+        for (Long noDataIndex : noDataIndices) {
+            assertThat(generalized, hasItem(noDataIndex));
+        }
+    }
+
+    @Test
+    public void when_generalizingColumnarData_then_resultEqualsPlainData() throws GeneralizerException {
+        Data<QuantityValue> data = getRandomData(2000, 0.05);
+        Data<QuantityValue> expected = generalize(data, IoParameters.createDefaults());
+        Data<QuantityValue> actual = generalize(QuantityColumnarData.of(data), IoParameters.createDefaults());
+        assertThat(actual, is(instanceOf(QuantityColumnarData.class)));
+        assertThat(getTimeIndices(actual), is(getTimeIndices(expected)));
+    }
+
+    @Test
+    public void when_generalizingLongSeries_then_noStackOverflow() throws GeneralizerException {
+        // each split separates a single value only
+        Data<QuantityValue> data = new Data<>();
+        for (int i = 0; i < 100000; i++) {
+            data.addNewValue(createQuantityValue(i, BigDecimal.valueOf(Math.pow(1.0001, i))));
+        }
+        IoParameters parameters = IoParameters.createDefaults()
+                                              .extendWith("tolerance_value", "0.000001");
+        assertThat(generalize(data, parameters).size(), is(lessThan(data.size())));
+    }
+
+    @Test
+    public void when_toleranceNotPositive_then_seriesIsReturnedAsIs() throws GeneralizerException {
+        Data<QuantityValue> data = getRandomData(100, 0);
+        IoParameters parameters = IoParameters.createDefaults()
+                                              .extendWith("tolerance_value", "0");
+        assertThat(generalize(data, parameters), is(sameInstance(data)));
+    }
+
+    private Data<QuantityValue> generalize(Data<QuantityValue> data, IoParameters parameters)
+            throws GeneralizerException {
+        TvpDataCollection<Data<QuantityValue>> collection = new TvpDataCollection<>();
+        collection.addNewSeries("test", data);
+        return new DouglasPeuckerGeneralizer(parameters).generalize(collection)
+                                                        .getSeries("test");
+    }
+
+    private List<Long> getTimeIndices(Data<QuantityValue> data) {
+        List<Long> indices = new ArrayList<>();
+        for (QuantityValue value : data.getValues()) {
+            indices.add(getTimeIndex(value));
+        }
+        return indices;
+    }
+
+    private long getTimeIndex(QuantityValue value) {
+        return (value.getTimestamp().getMillis() - START.getMillis()) / 60000;
+    }
+
+    private Data<QuantityValue> getRandomData(int maxValues, double noDataRate) {
+        Random seeded = new Random(42);
+        Data<QuantityValue> data = new Data<>();
+        for (int i = 0; i < maxValues; i++) {
+            BigDecimal value = i > 0 && i < maxValues - 1 && seeded.nextDouble() < noDataRate
+                    ? null
+                    : BigDecimal.valueOf(seeded.nextInt(1000), 2);
+            data.addNewValue(createQuantityValue(i, value));
+        }
+        return data;
+    }
+
+    private QuantityValue createQuantityValue(int minutes, BigDecimal value) {
+        QuantityValue quantityValue = new QuantityValue();
+        quantityValue.setTimestamp(new TimeOutput(START.plusMinutes(minutes)));
+        quantityValue.setValue(value);
+        return quantityValue;
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.generalize.quantity;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.TvpDataCollection;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.io.type.quantity.generalize.GeneralizationExecutor;
+import org.n52.io.type.quantity.generalize.Generalizer;
+import org.n52.io.type.quantity.generalize.GeneralizerException;
+import org.n52.io.type.quantity.generalize.LargestTriangleThreeBucketsGeneralizer;
+
+public class GeneralizationExecutorTest {
+
+    private GeneralizationExecutor executor;
+
+    @AfterEach
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void when_generalizingInParallel_then_resultEqualsSerialResult() throws GeneralizerException {
+        executor = new GeneralizationExecutor(4, 16);
+        DataCollection<Data<QuantityValue>> data = createData(20, 1000);
+        Generalizer<Data<QuantityValue>> generalizer = new LargestTriangleThreeBucketsGeneralizer(
+                IoParameters.createDefaults().extendWith("threshold", "100"));
+
+        DataCollection<Data<QuantityValue>> expected = generalizer.generalize(data);
+        DataCollection<Data<QuantityValue>> actual = executor.generalize(generalizer, data);
+        assertThat(actual.getAllSeries().keySet(), is(expected.getAllSeries().keySet()));
+        for (String seriesId : data.getAllSeries().keySet()) {
+            assertThat(actual.getSeries(seriesId).getValues(), is(expected.getSeries(seriesId).getValues()));
+        }
+        assertThat(executor.getGeneralizedSeriesCount(), is(20L));
+    }
+
+    @Test
+    public void when_poolSaturated_then_seriesAreGeneralizedOnCallingThread() throws GeneralizerException {
+        executor = new GeneralizationExecutor(1, 1);
+        DataCollection<Data<QuantityValue>> data = createData(6, 10);
+        DataCollection<Data<QuantityValue>> actual = executor.generalize(new SlowGeneralizer(), data);
+        assertThat(actual.size(), is(6));
+        assertThat(executor.getSerialFallbackCount(), is(greaterThan(0L)));
+        assertThat(executor.getGeneralizedSeriesCount(), is(6L));
+        assertThat(executor.getMaxGeneralizationNanos(), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void when_generalizingSeriesFails_then_exceptionIsThrown() {
+        executor = new GeneralizationExecutor(2, 4);
+        DataCollection<Data<QuantityValue>> data = createData(3, 10);
+        assertThrows(GeneralizerException.class, () -> executor.generalize(new FailingGeneralizer(), data));
+    }
+
+    private DataCollection<Data<QuantityValue>> createData(int seriesCount, int valueCount) {
+        Random seeded = new Random(42);
+        DateTime start = new DateTime(1600000000000L);
+        TvpDataCollection<Data<QuantityValue>> collection = new TvpDataCollection<>();
+        for (int i = 0; i < seriesCount; i++) {
+            Data<QuantityValue> data = new Data<>();
+            for (int j = 0; j < valueCount; j++) {
+                QuantityValue value = new QuantityValue();
+                value.setTimestamp(new TimeOutput(start.plusMinutes(j)));
+                value.setValue(BigDecimal.valueOf(seeded.nextInt(1000), 2));
+                data.addNewValue(value);
+            }
+            collection.addNewSeries("series_" + i, data);
+        }
+        return collection;
+    }
+
+    private static final class SlowGeneralizer extends Generalizer<Data<QuantityValue>> {
+
+        SlowGeneralizer() {
+            super(null);
+        }
+
+        @Override
+        public DataCollection<Data<QuantityValue>> generalize(DataCollection<Data<QuantityValue>> data)
+                throws GeneralizerException {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GeneralizerException("interrupted", e);
+            }
+            return data;
+        }
+
+        @Override
+        public String getName() {
+            return "slow";
+        }
+
+    }
+
+    private static final class FailingGeneralizer extends Generalizer<Data<QuantityValue>> {
+
+        FailingGeneralizer() {
+            super(null);
+        }
+
+        @Override
+        public DataCollection<Data<QuantityValue>> generalize(DataCollection<Data<QuantityValue>> data)
+                throws GeneralizerException {
+            throw new GeneralizerException("failing");
+        }
+
+        @Override
+        public String getName() {
+            return "failing";
+        }
+
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.generalize.quantity;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.io.type.quantity.generalize.GeneralizingQuantityService;
+import org.n52.io.type.quantity.generalize.InMemoryDownsamplingDataService;
+import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.DownsamplingRequest;
+import org.n52.series.spi.srv.RawDataService;
+
+public class InMemoryDownsamplingDataServiceTest {
+
+    @Test
+    public void when_downsampling_then_targetPointCountIsNotExceeded() {
+        CountingService service = createService(3, 10000);
+        for (String algorithm : new String[] {
+            DownsamplingRequest.LARGEST_TRIANGLE_THREE_BUCKETS,
+            DownsamplingRequest.DOUGLAS_PEUCKER,
+            DownsamplingRequest.M4
+        }) {
+            DownsamplingRequest request = new DownsamplingRequest(algorithm, 200);
+            DataCollection<Data<QuantityValue>> data = service.getDownsampledData(request, createParameters());
+            assertThat(data.getAllSeries().keySet(), is(service.getAllSeries().keySet()));
+            for (String datasetId : data.getAllSeries().keySet()) {
+                List<QuantityValue> original = new ArrayList<>(service.getAllSeries().get(datasetId).getValues());
+                List<QuantityValue> downsampled = new ArrayList<>(data.getSeries(datasetId).getValues());
+                assertThat(downsampled.size(), is(lessThanOrEqualTo(200)));
+                assertThat(downsampled.get(0), is(original.get(0)));
+                assertThat(downsampled.get(downsampled.size() - 1), is(original.get(original.size() - 1)));
+            }
+        }
+    }
+
+    @Test
+    public void when_datasetsRequested_then_onlyRequestedDatasetsAreReturned() {
+        CountingService service = createService(3, 100);
+        IoParameters parameters = createParameters().extendWith("datasets", "dataset_1");
+        DownsamplingRequest request = new DownsamplingRequest(DownsamplingRequest.M4, 40);
+        assertThat(service.getDownsampledData(request, parameters).getAllSeries().keySet(), contains("dataset_1"));
+    }
+
+    @Test
+    public void when_serviceSupportsDownsampling_then_generalizationIsPushedDown() {
+        CountingService service = createService(2, 1000);
+        IoParameters parameters = createParameters().extendWith("threshold", "100");
+        DataCollection<Data<QuantityValue>> pushedDown = new GeneralizingQuantityService(service, null)
+                .getData(parameters);
+        DataCollection<Data<QuantityValue>> generalized = new GeneralizingQuantityService(hide(service), null)
+                .getData(parameters);
+
+        assertThat(service.downsampledRequests, contains(
+                new DownsamplingRequest(DownsamplingRequest.LARGEST_TRIANGLE_THREE_BUCKETS, 100)));
+        for (String datasetId : generalized.getAllSeries().keySet()) {
+            assertThat(pushedDown.getSeries(datasetId).getValues(), is(generalized.getSeries(datasetId).getValues()));
+        }
+    }
+
+    @Test
+    public void when_downsamplingNotSupported_then_dataIsGeneralizedLocally() {
+        CountingService service = createService(2, 1000);
+        service.supported = false;
+        IoParameters parameters = createParameters().extendWith("threshold", "100");
+        DataCollection<Data<QuantityValue>> data = new GeneralizingQuantityService(service, null)
+                .getData(parameters);
+
+        assertThat(service.downsampledRequests.isEmpty(), is(true));
+        for (Data<QuantityValue> series : data.getAllSeries().values()) {
+            assertThat(series.size(), is(100L));
+        }
+    }
+
+    private IoParameters createParameters() {
+        return IoParameters.createDefaults()
+                           .extendWith("generalize", "true");
+    }
+
+    private CountingService createService(int seriesCount, int valueCount) {
+        Random seeded = new Random(42);
+        DateTime start = new DateTime(1600000000000L);
+        CountingService service = new CountingService();
+        for (int i = 0; i < seriesCount; i++) {
+            Data<QuantityValue> data = new Data<>();
+            for (int j = 0; j < valueCount; j++) {
+                QuantityValue value = new QuantityValue();
+                value.setTimestamp(new TimeOutput(start.plusMinutes(j)));
+                value.setValue(BigDecimal.valueOf(seeded.nextInt(1000), 2));
+                data.addNewValue(value);
+            }
+            service.addSeries("dataset_" + i, data);
+        }
+        return service;
+    }
+
+    private DataService<Data<QuantityValue>> hide(DataService<Data<QuantityValue>> service) {
+        return new DataService<Data<QuantityValue>>() {
+
+            @Override
+            public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
+                return service.getData(parameters);
+            }
+
+            @Override
+            public RawDataService getRawDataService() {
+                return null;
+            }
+        };
+    }
+
+    private static final class CountingService extends InMemoryDownsamplingDataService {
+
+        private final List<DownsamplingRequest> downsampledRequests = new ArrayList<>();
+
+        private boolean supported = true;
+
+        @Override
+        public boolean supportsDownsampling(DownsamplingRequest request, IoParameters parameters) {
+            return supported && super.supportsDownsampling(request, parameters);
+        }
+
+        @Override
+        public DataCollection<Data<QuantityValue>> getDownsampledData(DownsamplingRequest request,
+                                                                      IoParameters parameters) {
+            downsampledRequests.add(request);
+            return super.getDownsampledData(request, parameters);
+        }
+
+    }
+
+}
@@ -28,8 +28,15 @@
 package org.n52.io.generalize.quantity;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Iterator;
 import java.util.Random;
 
 import org.hamcrest.core.Is;
@@ -40,6 +47,8 @@ import org.n52.io.request.IoParameters;
 import org.n52.io.response.TimeOutput;
 import org.n52.io.response.dataset.Data;
 import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.io.response.dataset.quantity.QuantityColumnarData;
 import org.n52.io.response.dataset.quantity.QuantityValue;
 import org.n52.io.type.quantity.generalize.Generalizer;
 import org.n52.io.type.quantity.generalize.GeneralizerException;
@@ -64,6 +73,88 @@ public class LargestTriangleThreeBucketsGeneralizerTest {
         assertThat(generalizedData.getSeries("test").size(), Is.is(threshold));
     }
 
+    @Test
+    public void when_generalizingSeriesWithGaps_then_resultEqualsFormerImplementation()
+            throws GeneralizerException {
+        Data<QuantityValue> data = getDataWithGaps(5000);
+        for (double threshold : new double[] {3, 100, 200, 333, 4999}) {
+            for (double noDataGapThreshold : new double[] {0.2, 1, 3, 10}) {
+                Data<QuantityValue> expected = new BigDecimalReference(threshold, noDataGapThreshold)
+                        .generalize(data);
+                assertEquivalent(generalize(data, threshold, noDataGapThreshold), expected);
+            }
+        }
+    }
+
+    @Test
+    public void when_generalizingColumnarData_then_resultEqualsPlainData() throws GeneralizerException {
+        Data<QuantityValue> data = getDataWithGaps(2000);
+        Data<QuantityValue> expected = generalize(data, 150, 0.2);
+        Data<QuantityValue> actual = generalize(QuantityColumnarData.of(data), 150, 0.2);
+        assertThat(actual, is(instanceOf(QuantityColumnarData.class)));
+        assertEquivalent(actual, expected);
+    }
+
+    @Test
+    public void when_generalizing_then_originalValueInstancesAreKept() throws GeneralizerException {
+        Data<QuantityValue> data = getData(1000);
+        Data<QuantityValue> generalized = generalize(data, 100, 0.2);
+        QuantityValue first = data.getValues().iterator().next();
+        assertThat(generalized.getValues().iterator().next(), is(sameInstance(first)));
+    }
+
+    @Test
+    public void when_thresholdNotExceeded_then_seriesIsReturnedAsIs() throws GeneralizerException {
+        Data<QuantityValue> data = getData(100);
+        assertThat(generalize(data, 100, 0.2), is(sameInstance(data)));
+        assertThat(generalize(data, 0, 0.2), is(sameInstance(data)));
+    }
+
+    private Data<QuantityValue> generalize(Data<QuantityValue> data, double threshold, double noDataGapThreshold)
+            throws GeneralizerException {
+        TvpDataCollection<Data<QuantityValue>> collection = new TvpDataCollection<>();
+        collection.addNewSeries("test", data);
+        IoParameters parameters = IoParameters.createDefaults()
+                                              .extendWith("threshold", Double.toString(threshold))
+                                              .extendWith("noDataGapThreshold",
+                                                          Double.toString(noDataGapThreshold));
+        return new LargestTriangleThreeBucketsGeneralizer(parameters).generalize(collection)
+                                                                     .getSeries("test");
+    }
+
+    private void assertEquivalent(Data<QuantityValue> actual, Data<QuantityValue> expected) {
+        assertThat(actual.size(), is(expected.size()));
+        Iterator<QuantityValue> expectedValues = expected.getValues().iterator();
+        for (QuantityValue actualValue : actual.getValues()) {
+            QuantityValue expectedValue = expectedValues.next();
+            assertThat(actualValue.getTimestamp().getMillis(), is(expectedValue.getTimestamp().getMillis()));
+            if (expectedValue.isNoDataValue()) {
+                assertThat(actualValue.getValue(), is(nullValue()));
+            } else {
+                assertThat(actualValue.getValue().doubleValue(),
+                           is(closeTo(expectedValue.getValue().doubleValue(), 1e-9)));
+            }
+        }
+    }
+
+    private Data<QuantityValue> getDataWithGaps(int maxValues) {
+        Random seeded = new Random(42);
+        Data<QuantityValue> data = new Data<>();
+        DateTime time = new DateTime(1600000000000L);
+        int gap = 0;
+        for (int i = 0; i < maxValues; i++) {
+            if (gap == 0 && seeded.nextInt(50) == 0) {
+                gap = 1 + seeded.nextInt(20);
+            }
+            BigDecimal value = gap > 0
+                    ? null
+                    : BigDecimal.valueOf(seeded.nextInt(100000), 2);
+            gap = Math.max(gap - 1, 0);
+            data.addNewValue(createQuantityValue(time.plusMinutes(10 * i), value));
+        }
+        return data;
+    }
+
     private Data<QuantityValue> getData(int maxValues) {
         BigDecimal startValue = BigDecimal.valueOf(0);
         QuantityValue current = createQuantityValue(DateTime.now(), startValue);
@@ -87,5 +178,202 @@ public class LargestTriangleThreeBucketsGeneralizerTest {
         quantityValue.setValue(value);
         return quantityValue;
     }
-}
 
+    /**
+     * The former implementation calculating on {@link BigDecimal} values, kept to verify results.
+     */
+    private static final class BigDecimalReference {
+
+        private final double maxOutputValues;
+
+        private final double noDataGapThreshold;
+
+        BigDecimalReference(double maxOutputValues, double noDataGapThreshold) {
+            this.maxOutputValues = maxOutputValues;
+            this.noDataGapThreshold = noDataGapThreshold;
+        }
+
+        Data<QuantityValue> generalize(Data<QuantityValue> timeseries) {
+            QuantityValue[] data = timeseries.getValues().toArray(new QuantityValue[0]);
+
+            int dataLength = data.length;
+            if (maxOutputValues >= dataLength || maxOutputValues == 0) {
+                // nothing to do
+                return timeseries;
+            }
+            return generalizeData(data, timeseries.getMetadata());
+        }
+
+        private Data<QuantityValue> generalizeData(final QuantityValue[] data,
+                                                   final DatasetMetadata<QuantityValue> metadata) {
+            final int dataLength = data.length;
+            // Bucket size. Leave room for start and end data points
+            double bucketSize = ((double) dataLength - 2) / (maxOutputValues - 2);
+
+            int pointIndex = 0;
+            Data<QuantityValue> sampled = new Data<>(metadata);
+            sampled.addNewValue(data[pointIndex]);
+
+            for (int bucketIndex = 0; bucketIndex < (maxOutputValues - 2);
+                    bucketIndex++) {
+
+                // get the range for this bucket
+                int rangeOff = (int) Math.floor((bucketIndex + 0) * bucketSize) + 1;
+                int rangeTo = (int) Math.floor((bucketIndex + 1) * bucketSize) + 1;
+
+                // first point of triangle
+                QuantityValue triangleLeft = data[pointIndex];
+                if (triangleLeft.isNoDataValue()) {
+                    addNodataValue(sampled, triangleLeft.getTimestamp());
+                    pointIndex = rangeTo - 1;
+                    continue;
+                }
+
+                // last point of triangle (next bucket's average)
+                BucketAverage triangleRight = calculateBucketAverage(bucketIndex + 1,
+                        bucketSize, data);
+
+                // init fallback value
+                BucketAverage avgCurrentBucket = calculateBucketAverage(bucketIndex, bucketSize, data);
+                long fallBackTimestamp = avgCurrentBucket.toTimeseriesValue().getTimestamp().getMillis();
+                QuantityValue maxAreaPoint = createQuantityValue(fallBackTimestamp, triangleLeft.getTimestamp());
+
+                double area;
+                int amountOfNodataValues = 0;
+                double maxArea = area = -1;
+                int nextPointIndex = 0;
+
+                for (; rangeOff < rangeTo; rangeOff++) {
+
+                    //if (triangleRight.isNoDataBucket()) {
+                    //  triangleRight = // TODO
+                    //}
+                    // calculate triangle area over three buckets
+                    final QuantityValue triangleMiddle = data[rangeOff];
+
+                    if (triangleMiddle.isNoDataValue()) {
+                        amountOfNodataValues++;
+                        if (isExceededGapThreshold(amountOfNodataValues, bucketSize)) {
+                            if (triangleMiddle.isNoDataValue()) {
+                                maxAreaPoint = avgCurrentBucket.toTimeseriesValue();
+                                pointIndex = rangeTo - 1;
+                                break;
+                            }
+                        }
+                    } else {
+                        area = calcTriangleArea(triangleLeft, triangleRight,
+                                triangleMiddle);
+                        if (area > maxArea) {
+                            maxArea = area;
+                            maxAreaPoint = triangleMiddle;
+                            nextPointIndex = rangeOff;
+                        }
+                    }
+                }
+
+                // Pick this point from the Bucket
+                sampled.addNewValue(maxAreaPoint);
+                // This a is the next a
+                pointIndex = nextPointIndex;
+            }
+
+            // Always add last value
+            sampled.addNewValue(data[dataLength - 1]);
+            return sampled;
+        }
+
+        private boolean isExceededGapThreshold(int amountOfNodataValues,
+                double bucketSize) {
+            return noDataGapThreshold <= 1
+                    // max percent
+                    ? amountOfNodataValues > (noDataGapThreshold * bucketSize)
+                    // max absolute
+                    : amountOfNodataValues > noDataGapThreshold;
+        }
+
+        private void addNodataValue(Data<QuantityValue> sampled, TimeOutput timeOutput) {
+            sampled.addNewValue(createQuantityValue(timeOutput));
+        }
+
+        private static double calcTriangleArea(QuantityValue left,
+                BucketAverage right, QuantityValue middle) {
+            BigDecimal middleValue = middle.getValue();
+            final BigDecimal leftValue = left.getValue();
+            final BigDecimal rightValue = right.value;
+            return Math.abs(((left.getTimestamp().getMillis() - right.timestamp)
+                    * (middleValue.subtract(leftValue).doubleValue()))
+                    - ((left.getTimestamp().getMillis() - middle.getTimestamp().getMillis())
+                    * (rightValue.subtract(leftValue).doubleValue()))) * 0.5;
+        }
+
+        private BucketAverage calculateBucketAverage(int bucketIndex,
+                double bucketSize, QuantityValue[] data) {
+
+            int dataLength = data.length;
+            int avgRangeStart = (int) Math.floor((bucketIndex + 0) * bucketSize) + 1;
+            int avgRangeEnd = (int) Math.floor((bucketIndex + 1) * bucketSize) + 1;
+            avgRangeEnd = avgRangeEnd < dataLength ? avgRangeEnd : dataLength;
+            double avgRangeLength = avgRangeEnd - avgRangeStart;
+
+            double avgTimestamp = 0d;
+            BigDecimal avgValue = BigDecimal.ZERO;
+            int amountOfNodataValues = 0;
+            boolean noDataThresholdExceeded = false;
+            boolean unixTime = false;
+            for (; avgRangeStart < avgRangeEnd; avgRangeStart++) {
+                final QuantityValue current = data[avgRangeStart];
+                avgTimestamp += current.getTimestamp().getMillis();
+                unixTime = current.getTimestamp().isUnixTime();
+                if (noDataThresholdExceeded) {
+                    // keep on calc avg timestamp
+                    continue;
+                }
+                if (current.isNoDataValue()) {
+                    amountOfNodataValues++;
+                    if (amountOfNodataValues == noDataGapThreshold) {
+                        noDataThresholdExceeded = true;
+                    }
+                } else {
+                    avgValue = avgValue.add(current.getValue());
+                }
+            }
+
+            avgTimestamp /= avgRangeLength;
+            avgValue = avgValue.divide(BigDecimal.valueOf(avgRangeLength), MathContext.DECIMAL128);
+            return new BucketAverage(avgTimestamp, avgValue, unixTime);
+        }
+
+        private QuantityValue createQuantityValue(TimeOutput timeOutput) {
+            QuantityValue value = new QuantityValue();
+            value.setTimestamp(timeOutput);
+            return value;
+        }
+
+        private QuantityValue createQuantityValue(long fallBackTimestamp, TimeOutput timestamp) {
+            QuantityValue value = new QuantityValue();
+            value.setTimestamp(new TimeOutput(new DateTime(fallBackTimestamp), timestamp.isUnixTime()));
+            return value;
+        }
+
+        private static class BucketAverage {
+
+            private final Double timestamp;
+            private final BigDecimal value;
+            private final boolean unixTime;
+
+            BucketAverage(Double timestamp, BigDecimal value, boolean unixTime) {
+                this.timestamp = timestamp;
+                this.value = value;
+                this.unixTime = unixTime;
+            }
+
+            QuantityValue toTimeseriesValue() {
+                QuantityValue quantity = new QuantityValue();
+                quantity.setTimestamp(new TimeOutput(new DateTime(timestamp.longValue()), unixTime));
+                quantity.setValue(value);
+                return quantity;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.generalize.quantity;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.n52.io.TvpDataCollection;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.quantity.QuantityColumnarData;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.io.type.quantity.generalize.GeneralizerException;
+import org.n52.io.type.quantity.generalize.GeneralizerFactory;
+import org.n52.io.type.quantity.generalize.M4Generalizer;
+
+public class M4GeneralizerTest {
+
+    private static final DateTime START = new DateTime(1600000000000L);
+
+    @Test
+    public void when_algorithmIsM4_then_factoryCreatesM4Generalizer() {
+        IoParameters parameters = IoParameters.createDefaults()
+                                              .extendWith("generalize", "true")
+                                              .extendWith("generalizing_algorithm", "m4");
+        assertThat(GeneralizerFactory.createGeneralizer(parameters), is(instanceOf(M4Generalizer.class)));
+    }
+
+    @Test
+    public void when_generalizing_then_atMostFourValuesPerPixelColumn() throws GeneralizerException {
+        Data<QuantityValue> generalized = generalize(getRandomData(100000, 0), 100);
+        assertThat(generalized.size(), is(lessThanOrEqualTo(400L)));
+    }
+
+    @Test
+    public void when_generalizing_then_spikesSurvive() throws GeneralizerException {
+        Data<QuantityValue> data = new Data<>();
+        Random seeded = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            BigDecimal value = i == 12345
+                    ? BigDecimal.valueOf(1000)
+                    : i == 67890
+                            ? BigDecimal.valueOf(-1000)
+                            : BigDecimal.valueOf(seeded.nextInt(1000), 2);
+            data.addNewValue(createQuantityValue(i, value));
+        }
+        List<Long> generalized = getTimeIndices(generalize(data, 50));
+        assertThat(generalized, hasItem(0L));
+        assertThat(generalized, hasItem(12345L));
+        assertThat(generalized, hasItem(67890L));
+        assertThat(generalized, hasItem(99999L));
+    }
+
+    @Test
+    public void when_generalizing_then_everyPixelColumnKeepsItsExtremes() throws GeneralizerException {
+        Data<QuantityValue> data = getRandomData(10000, 0);
+        Data<QuantityValue> generalized = generalize(data, 10);
+        // 1000 values per column
+        List<QuantityValue> values = new ArrayList<>(data.getValues());
+        for (int column = 0; column < 10; column++) {
+            List<QuantityValue> columnValues = values.subList(column * 1000, column * 1000 + 1000);
+            QuantityValue min = columnValues.stream()
+                                            .min((a, b) -> a.getValue().compareTo(b.getValue()))
+                                            .get();
+            QuantityValue max = columnValues.stream()
+                                            .max((a, b) -> a.getValue().compareTo(b.getValue()))
+                                            .get();
+            assertThat(generalized.getValues(), hasItem(min));
+            assertThat(generalized.getValues(), hasItem(max));
+        }
+    }
+
+    @Test
+    public void when_seriesHasGaps_then_gapsAreKept() throws GeneralizerException {
+        Data<QuantityValue> data = getRandomData(10000, 0);
+        List<QuantityValue> values = new ArrayList<>(data.getValues());
+        for (int i = 5000; i < 5100; i++) {
+            values.get(i).setValue(null);
+        }
+        List<Long> generalized = getTimeIndices(generalize(data, 10));
+        assertThat(generalized, hasItem(4999L));
+        assertThat(generalized, hasItem(5000L));
+        assertThat(generalized, hasItem(5100L));
+    }
+
+    @Test
+    public void when_generalizingColumnarData_then_resultEqualsPlainData() throws GeneralizerException {
+        Data<QuantityValue> data = getRandomData(10000, 0.01);
+        Data<QuantityValue> expected = generalize(data, 100);
+        Data<QuantityValue> actual = generalize(QuantityColumnarData.of(data), 100);
+        assertThat(actual, is(instanceOf(QuantityColumnarData.class)));
+        assertThat(getTimeIndices(actual), is(getTimeIndices(expected)));
+    }
+
+    @Test
+    public void when_seriesSmallerThanFourValuesPerColumn_then_seriesIsReturnedAsIs() throws GeneralizerException {
+        Data<QuantityValue> data = getRandomData(400, 0);
+        assertThat(generalize(data, 100), is(sameInstance(data)));
+    }
+
+    private Data<QuantityValue> generalize(Data<QuantityValue> data, int width) throws GeneralizerException {
+        TvpDataCollection<Data<QuantityValue>> collection = new TvpDataCollection<>();
+        collection.addNewSeries("test", data);
+        IoParameters parameters = IoParameters.createDefaults()
+                                              .extendWith("width", Integer.toString(width));
+        return new M4Generalizer(parameters).generalize(collection)
+                                            .getSeries("test");
+    }
+
+    private List<Long> getTimeIndices(Data<QuantityValue> data) {
+        List<Long> indices = new ArrayList<>();
+        for (QuantityValue value : data.getValues()) {
+            indices.add((value.getTimestamp().getMillis() - START.getMillis()) / 60000);
+        }
+        return indices;
+    }
+
+    private Data<QuantityValue> getRandomData(int maxValues, double noDataRate) {
+        Random seeded = new Random(42);
+        Data<QuantityValue> data = new Data<>();
+        for (int i = 0; i < maxValues; i++) {
+            BigDecimal value = seeded.nextDouble() < noDataRate
+                    ? null
+                    : BigDecimal.valueOf(seeded.nextInt(100000), 2);
+            data.addNewValue(createQuantityValue(i, value));
+        }
+        return data;
+    }
+
+    private QuantityValue createQuantityValue(int minutes, BigDecimal value) {
+        QuantityValue quantityValue = new QuantityValue();
+        quantityValue.setTimestamp(new TimeOutput(START.plusMinutes(minutes)));
+        quantityValue.setValue(value);
+        return quantityValue;
+    }
+
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.generalize.quantity;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.io.type.quantity.generalize.InMemoryDownsamplingDataService;
+import org.n52.io.type.quantity.generalize.PyramidQuantityService;
+import org.n52.io.type.quantity.generalize.PyramidStore;
+import org.n52.series.spi.srv.DataService;
+import org.n52.series.spi.srv.RawDataService;
+
+public class PyramidQuantityServiceTest {
+
+    private static final DateTime START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private static final int DAYS = 60;
+
+    private static final long FETCH_LENGTH = 7 * 86400000L;
+
+    private Path directory;
+
+    private Data<QuantityValue> series;
+
+    private RecordingService service;
+
+    private RecordingService fallback;
+
+    private Map<String, Long> lastValueTimes;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("pyramids");
+        series = createSeries();
+        InMemoryDownsamplingDataService data = new InMemoryDownsamplingDataService();
+        data.addSeries("dataset_1", series);
+        service = new RecordingService(data);
+        fallback = new RecordingService(data);
+        lastValueTimes = new HashMap<>();
+        lastValueTimes.put("dataset_1", toMillis(DAYS) - 600000L);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder())
+                                  .collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void when_coarseRequest_then_extremesOfEachBucketAreServed() {
+        // 30 days with a threshold of 200 values: served from daily buckets
+        DataCollection<Data<QuantityValue>> actual = getData(new PyramidStore(directory, 10), 0, 30, 200);
+
+        List<QuantityValue> values = new ArrayList<>(actual.getSeries("dataset_1")
+                                                           .getValues());
+        assertThat(fallback.requestedTimespans.size(), is(0));
+        assertThat(values.size(), is(lessThanOrEqualTo(30 * 4)));
+        Map<Long, double[]> extremesPerDay = getExtremesPerDay(0, 30);
+        for (double[] extremes : extremesPerDay.values()) {
+            assertThat(toValues(values), hasItem(extremes[0]));
+            assertThat(toValues(values), hasItem(extremes[1]));
+        }
+    }
+
+    @Test
+    public void when_requestedAgain_then_pyramidIsNotRebuilt() {
+        PyramidStore store = new PyramidStore(directory, 10);
+        DataCollection<Data<QuantityValue>> first = getData(store, 0, 30, 200);
+        int fetches = service.requestedTimespans.size();
+        DataCollection<Data<QuantityValue>> second = getData(store, 0, 30, 200);
+
+        assertThat(service.requestedTimespans.size(), is(fetches));
+        assertThat(toValues(second.getSeries("dataset_1")
+                                  .getValues()),
+                   is(toValues(first.getSeries("dataset_1")
+                                    .getValues())));
+    }
+
+    @Test
+    public void when_storeReloaded_then_persistedPyramidIsUsed() {
+        DataCollection<Data<QuantityValue>> first = getData(new PyramidStore(directory, 10), 0, 30, 200);
+        int fetches = service.requestedTimespans.size();
+        DataCollection<Data<QuantityValue>> reloaded = getData(new PyramidStore(directory, 10), 0, 30, 200);
+
+        assertThat(service.requestedTimespans.size(), is(fetches));
+        assertThat(toValues(reloaded.getSeries("dataset_1")
+                                    .getValues()),
+                   is(toValues(first.getSeries("dataset_1")
+                                    .getValues())));
+    }
+
+    @Test
+    public void when_windowMoved_then_onlyUncoveredValuesAreFetched() {
+        PyramidStore store = new PyramidStore(directory, 10);
+        getData(store, 10, 40, 200);
+        int fetches = service.requestedTimespans.size();
+        DataCollection<Data<QuantityValue>> moved = getData(store, 5, 45, 200);
+
+        assertThat(service.requestedTimespans.size(), is(fetches + 2));
+        assertThat(service.requestedTimespans.get(fetches), is(new Interval(toMillis(5), toMillis(10))));
+        assertThat(service.requestedTimespans.get(fetches + 1),
+                   is(new Interval(toMillis(40) + 1, toMillis(45) + 1)));
+        DataCollection<Data<QuantityValue>> fresh = getData(new PyramidStore(directory.resolve("fresh"), 10),
+                                                            5,
+                                                            45,
+                                                            200);
+        assertThat(toValues(moved.getSeries("dataset_1")
+                                 .getValues()),
+                   is(toValues(fresh.getSeries("dataset_1")
+                                    .getValues())));
+    }
+
+    @Test
+    public void when_uncoveredRangeFetched_then_chunksAreBounded() {
+        getData(new PyramidStore(directory, 10), 0, 30, 200);
+
+        assertThat(service.requestedTimespans.size(), is(5));
+        for (Interval timespan : service.requestedTimespans) {
+            assertThat(timespan.toDurationMillis(), is(lessThanOrEqualTo(FETCH_LENGTH)));
+        }
+        assertThat(service.requestedTimespans.get(4)
+                                             .getEndMillis(),
+                   is(toMillis(30) + 1));
+    }
+
+    @Test
+    public void when_lastValueTimeMovesOn_then_laterValuesAreAggregated() {
+        PyramidStore store = new PyramidStore(directory, 10);
+        lastValueTimes.put("dataset_1", toMillis(20));
+        getData(store, 0, 30, 200);
+        Interval lastFetched = service.requestedTimespans.get(service.requestedTimespans.size() - 1);
+        assertThat(lastFetched.getEndMillis(), is(toMillis(20) + 1));
+
+        lastValueTimes.put("dataset_1", toMillis(25));
+        int fetches = service.requestedTimespans.size();
+        DataCollection<Data<QuantityValue>> actual = getData(store, 0, 30, 200);
+        assertThat(service.requestedTimespans.size(), is(fetches + 1));
+        assertThat(service.requestedTimespans.get(fetches), is(new Interval(toMillis(20) + 1, toMillis(25) + 1)));
+        for (double[] extremes : getExtremesPerDay(21, 24).values()) {
+            assertThat(toValues(actual.getSeries("dataset_1")
+                                      .getValues()),
+                       hasItem(extremes[1]));
+        }
+    }
+
+    @Test
+    public void when_lastValueTimeUnknown_then_fallbackIsUsed() {
+        lastValueTimes.clear();
+        getData(new PyramidStore(directory, 10), 0, 30, 200);
+
+        assertThat(service.requestedTimespans.size(), is(0));
+        assertThat(fallback.requestedTimespans.size(), is(1));
+    }
+
+    @Test
+    public void when_pyramidOutputExceedsTargetSize_then_fallbackIsUsed() {
+        // even 5 weekly buckets exceed a threshold of 10 values
+        getData(new PyramidStore(directory, 10), 0, 30, 10);
+
+        assertThat(service.requestedTimespans.size(), is(0));
+        assertThat(fallback.requestedTimespans.size(), is(1));
+    }
+
+    @Test
+    public void when_valuesWithinTargetSize_then_fallbackIsUsed() {
+        // 144 values would not be generalized at all
+        getData(new PyramidStore(directory, 10), 0, 1, 200);
+
+        assertThat(fallback.requestedTimespans.size(), is(1));
+    }
+
+    @Test
+    public void when_filteredRequest_then_fallbackIsUsed() {
+        IoParameters parameters = createParameters(0, 30, 200).extendWith("resultTimes", "2020-01-01T00:00:00Z");
+        createService(new PyramidStore(directory, 10)).getData(parameters);
+
+        assertThat(service.requestedTimespans.size(), is(0));
+        assertThat(fallback.requestedTimespans.size(), is(1));
+    }
+
+    @Test
+    public void when_pyramidFilled_then_onlyDatasetAndTimespanAreRequested() {
+        IoParameters parameters = createParameters(0, 30, 200).extendWith("outputTimezone", "Europe/Berlin");
+        createService(new PyramidStore(directory, 10)).getData(parameters);
+
+        IoParameters requested = service.requestedParameters.get(0);
+        assertThat(requested.containsParameter("generalize"), is(false));
+        assertThat(requested.containsParameter("threshold"), is(false));
+        assertThat(requested.containsParameter("outputTimezone"), is(false));
+    }
+
+    @Test
+    public void when_outputTimezoneRequested_then_timestampsAreInOutputTimezone() {
+        IoParameters parameters = createParameters(0, 30, 200).extendWith("outputTimezone", "Europe/Berlin");
+        DataCollection<Data<QuantityValue>> actual =
+                createService(new PyramidStore(directory, 10)).getData(parameters);
+
+        for (QuantityValue value : actual.getSeries("dataset_1")
+                                         .getValues()) {
+            assertThat(value.getTimestamp()
+                            .getDateTime()
+                            .getZone(),
+                       is(DateTimeZone.forID("Europe/Berlin")));
+        }
+    }
+
+    @Test
+    public void when_noDataValuesWithinBuckets_then_noDataGapsAreKept() {
+        for (QuantityValue value : series.getValues()) {
+            long time = value.getTimestamp()
+                             .getMillis();
+            if (time >= toMillis(10) && time < toMillis(12)) {
+                value.setValue(null);
+            }
+        }
+        DataCollection<Data<QuantityValue>> actual = getData(new PyramidStore(directory, 10), 0, 30, 200);
+
+        List<QuantityValue> noDataValues = new ArrayList<>();
+        for (QuantityValue value : actual.getSeries("dataset_1")
+                                         .getValues()) {
+            if (value.isNoDataValue()) {
+                noDataValues.add(value);
+                assertThat(value.getTimestamp()
+                                .getMillis() >= toMillis(10), is(true));
+                assertThat(value.getTimestamp()
+                                .getMillis() < toMillis(12), is(true));
+            }
+        }
+        assertThat(noDataValues.size(), is(2));
+        assertThat(noDataValues.get(0)
+                               .getValue(),
+                   is(nullValue()));
+    }
+
+    @Test
+    public void when_storeDisabled_then_fallbackIsUsed() {
+        getData(new PyramidStore(null, 10), 0, 30, 200);
+
+        assertThat(service.requestedTimespans.size(), is(0));
+        assertThat(fallback.requestedTimespans.size(), is(1));
+    }
+
+    private DataCollection<Data<QuantityValue>> getData(PyramidStore store,
+                                                        int startDay,
+                                                        int endDay,
+                                                        int threshold) {
+        IoParameters parameters = createParameters(startDay, endDay, threshold);
+        return createService(store).getData(parameters);
+    }
+
+    private PyramidQuantityService createService(PyramidStore store) {
+        return new PyramidQuantityService(service, store, fallback, lastValueTimes::get, FETCH_LENGTH);
+    }
+
+    private static IoParameters createParameters(int startDay, int endDay, int threshold) {
+        return IoParameters.createDefaults()
+                           .extendWith("generalize", "true")
+                           .extendWith("threshold", Integer.toString(threshold))
+                           .extendWith("datasets", "dataset_1")
+                           .extendWith("timespan", new Interval(toMillis(startDay), toMillis(endDay)).toString());
+    }
+
+    private Map<Long, double[]> getExtremesPerDay(int startDay, int endDay) {
+        Map<Long, double[]> extremes = new HashMap<>();
+        for (QuantityValue value : series.getValues()) {
+            long time = value.getTimestamp()
+                             .getMillis();
+            if (time >= toMillis(startDay) && time <= toMillis(endDay)) {
+                double current = value.getValue()
+                                      .doubleValue();
+                double[] minMax = extremes.computeIfAbsent(time / 86400000L,
+                                                           day -> new double[] {current, current});
+                minMax[0] = Math.min(minMax[0], current);
+                minMax[1] = Math.max(minMax[1], current);
+            }
+        }
+        return extremes;
+    }
+
+    private static List<Double> toValues(Iterable<QuantityValue> values) {
+        List<Double> result = new ArrayList<>();
+        for (QuantityValue value : values) {
+            result.add(value.getValue()
+                            .doubleValue());
+        }
+        return result;
+    }
+
+    private static long toMillis(int day) {
+        return START.plusDays(day)
+                    .getMillis();
+    }
+
+    private static Data<QuantityValue> createSeries() {
+        Random seeded = new Random(42);
+        Data<QuantityValue> data = new Data<>();
+        for (DateTime time = START; time.isBefore(START.plusDays(DAYS)); time = time.plusMinutes(10)) {
+            QuantityValue value = new QuantityValue();
+            value.setTimestamp(new TimeOutput(time));
+            value.setValue(BigDecimal.valueOf(seeded.nextInt(10000), 2));
+            data.addNewValue(value);
+        }
+        return data;
+    }
+
+    private static final class RecordingService implements DataService<Data<QuantityValue>> {
+
+        private final DataService<Data<QuantityValue>> delegate;
+
+        private final List<Interval> requestedTimespans = new ArrayList<>();
+
+        private final List<IoParameters> requestedParameters = new ArrayList<>();
+
+        RecordingService(DataService<Data<QuantityValue>> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
+            requestedTimespans.add(parameters.getTimespan()
+                                             .toInterval());
+            requestedParameters.add(parameters);
+            return delegate.getData(parameters);
+        }
+
+        @Override
+        public RawDataService getRawDataService() {
+            return null;
+        }
+
+    }
+
+}
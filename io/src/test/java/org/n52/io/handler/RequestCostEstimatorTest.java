@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.handler;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.OptionalOutput;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetOutput;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.io.type.quantity.generalize.InMemoryDownsamplingDataService;
+import org.n52.series.spi.srv.RawDataService;
+import org.n52.series.spi.srv.ValueCountingDataService;
+
+public class RequestCostEstimatorTest {
+
+    private static final DateTime START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private final InMemoryDownsamplingDataService dataService = new InMemoryDownsamplingDataService();
+
+    @Test
+    public void when_noBudgetConfigured_then_costIsNotEstimated() {
+        RequestCost cost = createEstimator(0, 0, 0).estimate(dataService,
+                                                            createMetadatas(0, 24),
+                                                            true,
+                                                            createParameters(24));
+        assertThat(cost.isEstimated(), is(false));
+        assertThat(cost.getDecision(), is(RequestCost.Decision.ACCEPT));
+    }
+
+    @Test
+    public void when_valueTimesWithinTimespan_then_valuesAreEstimatedBySamplingInterval() {
+        RequestCostEstimator estimator = new RequestCostEstimator(100000, 0, 0, TimeUnit.MINUTES.toMillis(10));
+        // values from hour 12 on, i.e. 12 hours or 72 intervals within the timespan
+        RequestCost cost = estimator.estimate(dataService, createMetadatas(12, 48), true, createParameters(24));
+        assertThat(cost.getEstimatedValues(), is(73L));
+        assertThat(cost.getDecision(), is(RequestCost.Decision.ACCEPT));
+    }
+
+    @Test
+    public void when_valueTimesOutsideTimespan_then_noValuesAreEstimated() {
+        RequestCost cost = createEstimator(1, 0, 0).estimate(dataService,
+                                                            createMetadatas(48, 72),
+                                                            true,
+                                                            createParameters(24));
+        assertThat(cost.getEstimatedValues(), is(0L));
+    }
+
+    @Test
+    public void when_countHintAvailable_then_hintIsUsed() {
+        RequestCost cost = createEstimator(100000, 0, 0).estimate(new CountingService(42),
+                                                            createMetadatas(0, 24, 0, 24),
+                                                            true,
+                                                            createParameters(24));
+        assertThat(cost.getEstimatedValues(), is(84L));
+    }
+
+    @Test
+    public void when_exceedingMaxValues_then_requestIsRejected() {
+        RequestCost cost = createEstimator(1000, 100, 0).estimate(dataService,
+                                                            createMetadatas(0, 24),
+                                                            true,
+                                                            createParameters(24));
+        assertThat(cost.getDecision(), is(RequestCost.Decision.REJECT));
+        assertThat(cost.toHeaderValue(), is("reject; values=1441"));
+    }
+
+    @Test
+    public void when_budgetsPassedAsQueryParameters_then_configuredBudgetsApply() {
+        IoParameters parameters = createParameters(24).extendWith("request_cost_max_values", "0")
+                                                      .extendWith("request_cost_sampling_interval", "P1Y");
+        RequestCost cost = createEstimator(1000, 0, 0).estimate(dataService, createMetadatas(0, 24), true, parameters);
+        assertThat(cost.getEstimatedValues(), is(1441L));
+        assertThat(cost.getDecision(), is(RequestCost.Decision.REJECT));
+
+        RequestCost unlimited = createEstimator(0, 0, 0).estimate(dataService,
+                                                                 createMetadatas(0, 24),
+                                                                 true,
+                                                                 parameters);
+        assertThat(unlimited.isEstimated(), is(false));
+    }
+
+    @Test
+    public void when_exceedingGeneralizeBudget_then_generalizableDataIsGeneralized() {
+        RequestCostEstimator estimator = createEstimator(0, 1000, 1000);
+        IoParameters parameters = createParameters(24);
+        assertThat(estimator.decide(1441, true, parameters), is(RequestCost.Decision.GENERALIZE));
+        assertThat(estimator.decide(1441, false, parameters), is(RequestCost.Decision.STREAM));
+        assertThat(estimator.decide(1000, true, parameters), is(RequestCost.Decision.ACCEPT));
+    }
+
+    @Test
+    public void when_outputIsGeneralizedAlready_then_streamingIsNotRequired() {
+        IoParameters parameters = createParameters(24).extendWith("generalize", "true");
+        assertThat(createEstimator(0, 1000, 1000).decide(1441, true, parameters), is(RequestCost.Decision.ACCEPT));
+    }
+
+    private static RequestCostEstimator createEstimator(int maxValues, int generalizeBudget, int streamingBudget) {
+        return new RequestCostEstimator(maxValues, generalizeBudget, streamingBudget, TimeUnit.MINUTES.toMillis(1));
+    }
+
+    private static IoParameters createParameters(int hours) {
+        Interval timespan = new Interval(START, START.plusHours(hours));
+        return IoParameters.createDefaults()
+                           .extendWith("timespan", timespan.toString());
+    }
+
+    private static List<DatasetOutput<QuantityValue>> createMetadatas(int... firstAndLastHours) {
+        List<DatasetOutput<QuantityValue>> metadatas = new ArrayList<>();
+        for (int i = 0; i < firstAndLastHours.length; i += 2) {
+            DatasetOutput<QuantityValue> metadata = new DatasetOutput<>();
+            metadata.setId("dataset_" + i);
+            metadata.setFirstValue(OptionalOutput.of(createValue(firstAndLastHours[i])));
+            metadata.setLastValue(OptionalOutput.of(createValue(firstAndLastHours[i + 1])));
+            metadatas.add(metadata);
+        }
+        return metadatas;
+    }
+
+    private static QuantityValue createValue(int hour) {
+        QuantityValue value = new QuantityValue();
+        value.setTimestamp(new TimeOutput(START.plusHours(hour)));
+        return value;
+    }
+
+    private static final class CountingService implements ValueCountingDataService<QuantityValue> {
+
+        private final long count;
+
+        CountingService(long count) {
+            this.count = count;
+        }
+
+        @Override
+        public OptionalLong getValueCount(String datasetId, IoParameters parameters) {
+            return OptionalLong.of(count);
+        }
+
+        @Override
+        public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
+            return new InMemoryDownsamplingDataService().getData(parameters);
+        }
+
+        @Override
+        public RawDataService getRawDataService() {
+            return null;
+        }
+
+    }
+
+}
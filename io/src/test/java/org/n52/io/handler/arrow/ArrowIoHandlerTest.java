@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.handler.arrow;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.handler.IoHandlerException;
+import org.n52.io.handler.IoProcessChain;
+import org.n52.io.handler.StreamingIoProcessChain;
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.OptionalOutput;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.io.response.dataset.DatasetOutput;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DataCursor;
+
+public class ArrowIoHandlerTest {
+
+    private DataCollection<Data<QuantityValue>> collection;
+
+    private List<DatasetOutput<QuantityValue>> metadatas;
+
+    @BeforeEach
+    public void setUp() {
+        collection = new DataCollection<>();
+        metadatas = new ArrayList<>();
+        addDataset("1", 0L, 5);
+        addDataset("2", 10_000L, 3);
+    }
+
+    @Test
+    public void when_writingCollection_then_allRowsAreReadBack() throws Exception {
+        List<Row> rows = readRows(write(new ArrowIoHandler<>(IoParameters.createDefaults(),
+                                                              createProcessChain(),
+                                                              metadatas)));
+        assertThat(rows.size(), is(8));
+        assertThat(rows.get(0), is(new Row("1", 0L, 0d)));
+        assertThat(rows.get(4), is(new Row("1", 4000L, null)));
+        assertThat(rows.get(5), is(new Row("2", 10_000L, 0d)));
+    }
+
+    @Test
+    public void when_batchSizeIsSmall_then_datasetsAreChunked() throws Exception {
+        ArrowIoHandler<QuantityValue> handler = new ArrowIoHandler<>(IoParameters.createDefaults(),
+                                                                     createProcessChain(),
+                                                                     metadatas).setBatchSize(2);
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Row> rows = readRows(write(handler), batchSizes);
+        assertThat(rows.size(), is(8));
+        // batches never span datasets
+        assertThat(batchSizes, contains(2, 2, 1, 2, 1));
+    }
+
+    @Test
+    public void when_valueTypeIsNotNumeric_then_valuesAreWrittenAsText() throws Exception {
+        metadatas.forEach(metadata -> metadata.setValueType(OptionalOutput.of("text")));
+        ArrowIoHandler<QuantityValue> handler = new ArrowIoHandler<>(IoParameters.createDefaults(),
+                                                                     createProcessChain(),
+                                                                     metadatas);
+        assertThat(handler.hasNumericValues(), is(false));
+
+        try (BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(write(handler)),
+                                                              allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertThat(reader.loadNextBatch(), is(true));
+            VarCharVector values = (VarCharVector) root.getVector(ArrowIoHandler.VALUE);
+            assertThat(new String(values.get(1), StandardCharsets.UTF_8), is("1.5"));
+        }
+    }
+
+    @Test
+    public void when_valuesObservedOverIntervals_then_timeendIsWritten() throws Exception {
+        QuantityValue value = new QuantityValue();
+        value.setTimestart(new TimeOutput(new DateTime(0L, DateTimeZone.UTC)));
+        value.setTimestamp(new TimeOutput(new DateTime(60_000L, DateTimeZone.UTC)));
+        value.setValue(BigDecimal.ONE);
+        ArrowIoHandler<QuantityValue> handler = new ArrowIoHandler<>(IoParameters.createDefaults(),
+                                                                     createStreamingProcessChain(value),
+                                                                     metadatas.subList(0, 1));
+        List<Row> rows = readRows(write(handler));
+        assertThat(rows, contains(new Row("1", 60_000L, 1d)));
+    }
+
+    private byte[] write(ArrowIoHandler<QuantityValue> handler) throws IoHandlerException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        handler.writeBinary(stream);
+        return stream.toByteArray();
+    }
+
+    private List<Row> readRows(byte[] bytes) throws IOException {
+        return readRows(bytes, new ArrayList<>());
+    }
+
+    private List<Row> readRows(byte[] bytes, List<Integer> batchSizes) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(bytes), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            while (reader.loadNextBatch()) {
+                VarCharVector datasets = (VarCharVector) root.getVector(ArrowIoHandler.DATASET);
+                TimeStampVector timestamps = (TimeStampVector) root.getVector(ArrowIoHandler.TIMESTAMP);
+                Float8Vector values = (Float8Vector) root.getVector(ArrowIoHandler.VALUE);
+                batchSizes.add(root.getRowCount());
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    rows.add(new Row(new String(datasets.get(i), StandardCharsets.UTF_8),
+                                     timestamps.get(i),
+                                     values.isNull(i) ? null : values.get(i)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private void addDataset(String id, long start, int size) {
+        Data<QuantityValue> data = new Data<>();
+        for (int i = 0; i < size; i++) {
+            QuantityValue value = new QuantityValue();
+            value.setTimestamp(new TimeOutput(new DateTime(start + i * 1000L, DateTimeZone.UTC)));
+            // last value of each dataset is a no-data value
+            value.setValue(i < size - 1 ? BigDecimal.valueOf(i * 15L, 1) : null);
+            data.addNewValue(value);
+        }
+        collection.addNewSeries(id, data);
+        DatasetOutput<QuantityValue> metadata = new DatasetOutput<>();
+        metadata.setId(id);
+        metadata.setValueType(OptionalOutput.of(QuantityValue.TYPE));
+        metadatas.add(metadata);
+    }
+
+    private IoProcessChain<Data<QuantityValue>> createProcessChain() {
+        return new IoProcessChain<Data<QuantityValue>>() {
+
+            @Override
+            public DataCollection<Data<QuantityValue>> getData() {
+                return collection;
+            }
+
+            @Override
+            public DataCollection< ? > getProcessedData() {
+                return collection;
+            }
+        };
+    }
+
+    private StreamingIoProcessChain<QuantityValue> createStreamingProcessChain(QuantityValue... values) {
+        return new StreamingIoProcessChain<QuantityValue>() {
+
+            @Override
+            public DataCollection<Data<QuantityValue>> getData() {
+                return collection;
+            }
+
+            @Override
+            public DataCollection< ? > getProcessedData() {
+                return collection;
+            }
+
+            @Override
+            public boolean supportsStreaming() {
+                return true;
+            }
+
+            @Override
+            public DataCursor<QuantityValue> getDataCursor(String datasetId) {
+                Iterator<QuantityValue> iterator = Arrays.asList(values)
+                                                         .iterator();
+                return new DataCursor<QuantityValue>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public QuantityValue next() {
+                        return iterator.next();
+                    }
+
+                    @Override
+                    public DatasetMetadata<QuantityValue> getMetadata() {
+                        return null;
+                    }
+
+                    @Override
+                    public void close() {
+                        // nothing to release
+                    }
+                };
+            }
+        };
+    }
+
+    private static final class Row {
+
+        private final String dataset;
+
+        private final long timestamp;
+
+        private final Double value;
+
+        Row(String dataset, long timestamp, Double value) {
+            this.dataset = dataset;
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Row)) {
+                return false;
+            }
+            Row other = (Row) obj;
+            return dataset.equals(other.dataset)
+                    && timestamp == other.timestamp
+                    && Arrays.asList(value).equals(Arrays.asList(other.value));
+        }
+
+        @Override
+        public int hashCode() {
+            return dataset.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return dataset + "@" + timestamp + "=" + value;
+        }
+    }
+
+}
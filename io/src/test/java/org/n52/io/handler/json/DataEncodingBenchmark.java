@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.handler.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.n52.io.handler.StreamingIoProcessChain;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.ValueSerializerModule;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DataCursor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares encode throughput and payload size of the JSON and binary {@link DataEncoding}s when writing
+ * observation data via {@link JsonDataWriter}. The payload size is reported as auxiliary counter
+ * <code>bytes</code>. Run via {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataEncodingBenchmark {
+
+    private static final String DATASET_ID = "1";
+
+    @Param({"JSON", "CBOR", "SMILE", "MSGPACK"})
+    private DataEncoding encoding;
+
+    @Param({"100000"})
+    private int size;
+
+    private Data<QuantityValue> data;
+
+    private ObjectMapper mapper;
+
+    private ByteArrayOutputStream stream;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+
+        public long bytes;
+
+    }
+
+    @Setup
+    public void setUp() {
+        ObjectMapper jsonMapper = new ObjectMapper().registerModule(new ValueSerializerModule());
+        mapper = encoding.createMapper(jsonMapper);
+        stream = new ByteArrayOutputStream();
+
+        DateTimeZone zone = DateTimeZone.forID("Europe/Berlin");
+        long start = new DateTime(2020, 1, 1, 0, 0, zone).getMillis();
+        data = new Data<>();
+        for (int i = 0; i < size; i++) {
+            QuantityValue value = new QuantityValue();
+            value.setTimestamp(new TimeOutput(new DateTime(start + i * 60_000L, zone)));
+            value.setValue(BigDecimal.valueOf(i % 1000, 2));
+            data.addNewValue(value);
+        }
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream write(Payload payload) throws IOException {
+        stream.reset();
+        new JsonDataWriter<>(mapper, createProcessChain()).writeData(DATASET_ID, stream);
+        payload.bytes = stream.size();
+        return stream;
+    }
+
+    private StreamingIoProcessChain<QuantityValue> createProcessChain() {
+        return new StreamingIoProcessChain<QuantityValue>() {
+
+            @Override
+            public DataCollection<Data<QuantityValue>> getData() {
+                DataCollection<Data<QuantityValue>> collection = new DataCollection<>();
+                collection.addNewSeries(DATASET_ID, data);
+                return collection;
+            }
+
+            @Override
+            public DataCollection< ? > getProcessedData() {
+                return getData();
+            }
+
+            @Override
+            public boolean supportsStreaming() {
+                return true;
+            }
+
+            @Override
+            public DataCursor<QuantityValue> getDataCursor(String datasetId) {
+                return DataCursor.of(data);
+            }
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DataEncodingBenchmark.class.getSimpleName())
+                                       .build()).run();
+    }
+
+}
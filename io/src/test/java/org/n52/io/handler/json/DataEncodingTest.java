@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.handler.json;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.Constants;
+import org.n52.io.format.FlotDataCollection;
+import org.n52.io.format.FlotFormatter;
+import org.n52.io.format.HighchartDataCollection;
+import org.n52.io.format.HighchartFormatter;
+import org.n52.io.handler.StreamingIoProcessChain;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.io.response.dataset.ValueSerializerModule;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DataCursor;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class DataEncodingTest {
+
+    private static final String DATASET_ID = "42";
+
+    private ObjectMapper mapper;
+
+    private Data<QuantityValue> data;
+
+    @BeforeEach
+    public void setUp() {
+        mapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                                   .registerModule(new ValueSerializerModule());
+        data = new Data<>();
+        data.addNewValue(createValue(1000L, "1.1"));
+        data.addNewValue(createValue(2000L, null));
+        data.addNewValue(createValue(3000L, "-3.30"));
+        DatasetMetadata<QuantityValue> metadata = new DatasetMetadata<>();
+        metadata.setValueBeforeTimespan(createValue(0L, "0.5"));
+        data.setMetadata(metadata);
+    }
+
+    @Test
+    public void when_json_then_mapperIsReused() {
+        assertThat(DataEncoding.JSON.createMapper(mapper), is(sameInstance(mapper)));
+    }
+
+    @Test
+    public void when_lookingUpMimeType_then_encodingIsFound() {
+        assertThat(DataEncoding.of(Constants.APPLICATION_CBOR), is(Optional.of(DataEncoding.CBOR)));
+        assertThat(DataEncoding.of(Constants.APPLICATION_SMILE), is(Optional.of(DataEncoding.SMILE)));
+        assertThat(DataEncoding.of(Constants.APPLICATION_MSGPACK), is(Optional.of(DataEncoding.MSGPACK)));
+        assertThat(DataEncoding.of(Constants.TEXT_CSV), is(Optional.empty()));
+    }
+
+    @Test
+    public void when_writingBinaryTvp_then_contentEqualsJson() throws IOException {
+        assertContentEqualsJson(this::write);
+    }
+
+    @Test
+    public void when_writingBinaryFlot_then_contentEqualsJson() throws IOException {
+        FlotDataCollection formatted = new FlotFormatter<QuantityValue>().format(createProcessChain().getData());
+        assertContentEqualsJson(encoding -> encoding.createMapper(mapper)
+                                                    .writeValueAsBytes(formatted.getSeries(DATASET_ID)));
+    }
+
+    @Test
+    public void when_writingBinaryHighcharts_then_contentEqualsJson() throws IOException {
+        HighchartDataCollection formatted = new HighchartFormatter<QuantityValue>()
+                .format(createProcessChain().getData());
+        assertContentEqualsJson(encoding -> encoding.createMapper(mapper)
+                                                    .writeValueAsBytes(formatted.getSeriesOutput()));
+    }
+
+    @Test
+    public void when_writingHighPrecisionDecimalAsMsgpack_then_valueIsWrittenAsDouble() throws IOException {
+        data = new Data<>();
+        data.addNewValue(createValue(1000L, "12.345678901234567891"));
+        ObjectMapper msgpackMapper = DataEncoding.MSGPACK.createMapper(mapper);
+        JsonNode actual = msgpackMapper.readTree(write(DataEncoding.MSGPACK));
+
+        JsonNode value = actual.get("values").get(0).get("value");
+        assertThat(value.isDouble(), is(true));
+        assertThat(value.doubleValue(), is(12.345678901234567891d));
+    }
+
+    private void assertContentEqualsJson(Writer writer) throws IOException {
+        JsonNode expected = normalize(mapper.readTree(writer.write(DataEncoding.JSON)));
+        for (DataEncoding encoding : new DataEncoding[] {
+            DataEncoding.CBOR,
+            DataEncoding.SMILE,
+            DataEncoding.MSGPACK
+        }) {
+            ObjectMapper binaryMapper = encoding.createMapper(mapper);
+            JsonNode actual = normalize(binaryMapper.readTree(writer.write(encoding)));
+            assertThat(encoding + " differs", actual, is(expected));
+        }
+    }
+
+    private byte[] write(DataEncoding encoding) throws IOException {
+        JsonDataWriter<QuantityValue> writer = new JsonDataWriter<>(encoding.createMapper(mapper),
+                                                                    createProcessChain());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.writeData(DATASET_ID, stream);
+        return stream.toByteArray();
+    }
+
+    /**
+     * Encodings represent decimals differently, so numbers are compared by their double value.
+     */
+    private JsonNode normalize(JsonNode node) {
+        JsonNodeFactory factory = JsonNodeFactory.instance;
+        if (node.isNumber()) {
+            return factory.numberNode(node.doubleValue());
+        } else if (node.isArray()) {
+            ArrayNode array = factory.arrayNode();
+            node.forEach(element -> array.add(normalize(element)));
+            return array;
+        } else if (node.isObject()) {
+            ObjectNode object = factory.objectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                object.set(field.getKey(), normalize(field.getValue()));
+            }
+            return object;
+        }
+        return node;
+    }
+
+    private StreamingIoProcessChain<QuantityValue> createProcessChain() {
+        return new StreamingIoProcessChain<QuantityValue>() {
+
+            @Override
+            public DataCollection<Data<QuantityValue>> getData() {
+                DataCollection<Data<QuantityValue>> collection = new DataCollection<>();
+                collection.addNewSeries(DATASET_ID, data);
+                return collection;
+            }
+
+            @Override
+            public DataCollection< ? > getProcessedData() {
+                return getData();
+            }
+
+            @Override
+            public boolean supportsStreaming() {
+                return true;
+            }
+
+            @Override
+            public DataCursor<QuantityValue> getDataCursor(String datasetId) {
+                return DataCursor.of(data);
+            }
+        };
+    }
+
+    private QuantityValue createValue(long timestamp, String value) {
+        QuantityValue quantityValue = new QuantityValue();
+        quantityValue.setTimestamp(new TimeOutput(new DateTime(timestamp, DateTimeZone.UTC)));
+        quantityValue.setValue(value != null
+                ? new BigDecimal(value)
+                : null);
+        return quantityValue;
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+
+        byte[] write(DataEncoding encoding) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.handler.json;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.handler.StreamingIoProcessChain;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DataCursor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonDataWriterTest {
+
+    private static final String DATASET_ID = "42";
+
+    private ObjectMapper mapper;
+
+    private Data<QuantityValue> data;
+
+    private boolean streaming;
+
+    @BeforeEach
+    public void setUp() {
+        mapper = new ObjectMapper();
+        streaming = true;
+        data = new Data<>();
+        data.addNewValue(createValue(1000L, "1.1"));
+        data.addNewValue(createValue(2000L, null));
+        data.addNewValue(createValue(3000L, "-3.30"));
+    }
+
+    @Test
+    public void when_writingSingleDataset_then_outputEqualsSerializedData() throws IOException {
+        assertThat(writeData(), is(mapper.writeValueAsString(data)));
+    }
+
+    @Test
+    public void when_writingEmptyDataset_then_outputEqualsSerializedData() throws IOException {
+        data = new Data<>();
+        assertThat(writeData(), is(mapper.writeValueAsString(data)));
+    }
+
+    @Test
+    public void when_writingDatasetWithMetadata_then_metadataIsUnwrapped() throws IOException {
+        Data<QuantityValue> referenceValues = new Data<>();
+        referenceValues.addNewValue(createValue(1000L, "10"));
+        Map<String, Data<QuantityValue>> references = new HashMap<>();
+        references.put("ref", referenceValues);
+
+        DatasetMetadata<QuantityValue> metadata = new DatasetMetadata<>();
+        metadata.setReferenceValues(references);
+        metadata.setValueBeforeTimespan(createValue(0L, "0.5"));
+        data.setMetadata(metadata);
+        assertThat(writeData(), is(mapper.writeValueAsString(data)));
+    }
+
+    @Test
+    public void when_writingCollection_then_outputEqualsSerializedMap() throws IOException {
+        JsonDataWriter<QuantityValue> writer = new JsonDataWriter<>(mapper, createProcessChain());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.writeDataCollection(Collections.singleton(DATASET_ID), stream);
+
+        Map<String, Data<QuantityValue>> expected = Collections.singletonMap(DATASET_ID, data);
+        assertThat(stream.toString(StandardCharsets.UTF_8), is(mapper.writeValueAsString(expected)));
+    }
+
+    @Test
+    public void when_formatRequested_then_onlyTimeValuePairsAreSupported() {
+        assertThat(JsonDataWriter.supportsFormat("tvp"), is(true));
+        assertThat(JsonDataWriter.supportsFormat("flot"), is(false));
+        assertThat(JsonDataWriter.supportsFormat("highcharts"), is(false));
+        assertThat(JsonDataWriter.supportsFormat("compact"), is(false));
+    }
+
+    @Test
+    public void when_streamingNotSupported_then_dataIsMaterialized() throws IOException {
+        streaming = false;
+        assertThat(writeData(), is(mapper.writeValueAsString(data)));
+    }
+
+    private String writeData() throws IOException {
+        JsonDataWriter<QuantityValue> writer = new JsonDataWriter<>(mapper, createProcessChain());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.writeData(DATASET_ID, stream);
+        return stream.toString(StandardCharsets.UTF_8);
+    }
+
+    private StreamingIoProcessChain<QuantityValue> createProcessChain() {
+        return new StreamingIoProcessChain<QuantityValue>() {
+
+            @Override
+            public DataCollection<Data<QuantityValue>> getData() {
+                DataCollection<Data<QuantityValue>> collection = new DataCollection<>();
+                collection.addNewSeries(DATASET_ID, data);
+                return collection;
+            }
+
+            @Override
+            public DataCollection< ? > getProcessedData() {
+                return getData();
+            }
+
+            @Override
+            public boolean supportsStreaming() {
+                return streaming;
+            }
+
+            @Override
+            public DataCursor<QuantityValue> getDataCursor(String datasetId) {
+                return DataCursor.of(data);
+            }
+        };
+    }
+
+    private QuantityValue createValue(long timestamp, String value) {
+        QuantityValue quantityValue = new QuantityValue();
+        quantityValue.setTimestamp(new TimeOutput(new DateTime(timestamp, DateTimeZone.UTC)));
+        quantityValue.setValue(value != null
+                ? new BigDecimal(value)
+                : null);
+        return quantityValue;
+    }
+
+}
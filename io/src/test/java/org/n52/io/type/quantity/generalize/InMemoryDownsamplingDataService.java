@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.generalize;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.Interval;
+import org.n52.io.TvpDataCollection;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.series.spi.srv.DownsamplingDataService;
+import org.n52.series.spi.srv.DownsamplingRequest;
+import org.n52.series.spi.srv.RawDataService;
+
+/**
+ * Test fake of a {@link DownsamplingDataService} holding quantity series in memory. Series are downsampled
+ * by the generalizer matching the requested algorithm before they are returned, i.e. the same way a backend
+ * would downsample data close to the data source.
+ */
+public class InMemoryDownsamplingDataService implements DownsamplingDataService<QuantityValue> {
+
+    private static final String GENERALIZING_ALGORITHM = "generalizing_algorithm";
+
+    private static final String LTTB_THRESHOLD = "threshold";
+
+    private static final String DP_MAX_OUTPUT = "max_output";
+
+    private final Map<String, Data<QuantityValue>> allSeries = new LinkedHashMap<>();
+
+    /**
+     * @param datasetId
+     *        the dataset id
+     * @param data
+     *        the dataset's data
+     */
+    public void addSeries(String datasetId, Data<QuantityValue> data) {
+        allSeries.put(datasetId, data);
+    }
+
+    public Map<String, Data<QuantityValue>> getAllSeries() {
+        return Collections.unmodifiableMap(allSeries);
+    }
+
+    @Override
+    public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
+        Set<String> datasets = parameters.getDatasets();
+        TvpDataCollection<Data<QuantityValue>> data = new TvpDataCollection<>();
+        for (Map.Entry<String, Data<QuantityValue>> entry : allSeries.entrySet()) {
+            String datasetId = entry.getKey();
+            if (datasets.isEmpty() || datasets.contains(datasetId)) {
+                data.addNewSeries(datasetId, filterTimespan(entry.getValue(), parameters));
+            }
+        }
+        return data;
+    }
+
+    private Data<QuantityValue> filterTimespan(Data<QuantityValue> series, IoParameters parameters) {
+        if (!parameters.containsParameter(Parameters.TIMESPAN)) {
+            return series;
+        }
+        Interval timespan = parameters.getTimespan()
+                                      .toInterval();
+        Data<QuantityValue> filtered = new Data<>(series.getMetadata());
+        for (QuantityValue value : series.getValues()) {
+            long time = value.getTimestamp()
+                             .getMillis();
+            if (time >= timespan.getStartMillis() && time <= timespan.getEndMillis()) {
+                filtered.addNewValue(value);
+            }
+        }
+        return filtered;
+    }
+
+    @Override
+    public boolean supportsDownsampling(DownsamplingRequest request, IoParameters parameters) {
+        return request.isAlgorithm(DownsamplingRequest.LARGEST_TRIANGLE_THREE_BUCKETS)
+                || request.isAlgorithm(DownsamplingRequest.DOUGLAS_PEUCKER)
+                || request.isAlgorithm(DownsamplingRequest.M4);
+    }
+
+    @Override
+    public DataCollection<Data<QuantityValue>> getDownsampledData(DownsamplingRequest request,
+                                                                  IoParameters parameters) {
+        if (!supportsDownsampling(request, parameters)) {
+            throw new IllegalArgumentException("Unsupported downsampling: " + request);
+        }
+        IoParameters generalizerParameters = parameters.extendWith(Parameters.GENERALIZE, Boolean.TRUE.toString())
+                                                       .extendWith(GENERALIZING_ALGORITHM, request.getAlgorithm());
+        if (request.isLimited()) {
+            generalizerParameters = withTargetPointCount(generalizerParameters, request);
+        }
+        try {
+            return GeneralizerFactory.createGeneralizer(generalizerParameters)
+                                     .generalize(getData(parameters));
+        } catch (GeneralizerException e) {
+            throw new IllegalStateException("Could not downsample data.", e);
+        }
+    }
+
+    private IoParameters withTargetPointCount(IoParameters parameters, DownsamplingRequest request) {
+        int targetPointCount = request.getTargetPointCount();
+        if (request.isAlgorithm(DownsamplingRequest.LARGEST_TRIANGLE_THREE_BUCKETS)) {
+            return parameters.extendWith(LTTB_THRESHOLD, Integer.toString(targetPointCount));
+        } else if (request.isAlgorithm(DownsamplingRequest.M4)) {
+            // four values per pixel column
+            return parameters.extendWith(Parameters.WIDTH, Integer.toString(Math.max(targetPointCount / 4, 1)));
+        } else {
+            return parameters.extendWith(DP_MAX_OUTPUT, Integer.toString(targetPointCount));
+        }
+    }
+
+    @Override
+    public boolean supportsRawData() {
+        return false;
+    }
+
+    @Override
+    public RawDataService getRawDataService() {
+        return null;
+    }
+
+}
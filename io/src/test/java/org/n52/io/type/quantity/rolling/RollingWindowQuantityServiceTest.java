@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.type.quantity.rolling;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.RollingFunction;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+import org.n52.io.response.dataset.DatasetMetadata;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.io.type.quantity.generalize.InMemoryDownsamplingDataService;
+import org.n52.series.spi.srv.DataCursor;
+import org.n52.series.spi.srv.RawDataService;
+import org.n52.series.spi.srv.StreamingDataService;
+
+public class RollingWindowQuantityServiceTest {
+
+    private static final DateTime START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private static final long MINUTE = 60000L;
+
+    private InMemoryDownsamplingDataService data;
+
+    @BeforeEach
+    public void setUp() {
+        data = new InMemoryDownsamplingDataService();
+    }
+
+    @Test
+    public void when_movingAverage_then_valuesOfWindowAreAveraged() {
+        data.addSeries("dataset", createRegularSeries(20));
+
+        List<QuantityValue> actual = getValues(createParameters(60, 190, "PT30M", "avg"));
+
+        assertThat(actual.size(), is(14));
+        // window (50, 60] contains values at 40, 50 and 60 minutes: 4, 5 and 6
+        assertThat(actual.get(0).getTimestamp().getMillis(), is(toMillis(60)));
+        assertThat(actual.get(0).getValue().doubleValue(), is(closeTo(5, 0.0001)));
+    }
+
+    @Test
+    public void when_movingMinimumAndMaximum_then_resultsMatchExhaustiveCalculation() {
+        Data<QuantityValue> series = createIrregularSeries(2000);
+        data.addSeries("dataset", series);
+
+        List<QuantityValue> minimums = getValues(createParameters(0, 100000, "PT2H", "min"));
+        List<QuantityValue> maximums = getValues(createParameters(0, 100000, "PT2H", "max"));
+
+        List<QuantityValue> values = new ArrayList<>(series.getValues());
+        for (int i = 0; i < values.size(); i++) {
+            long time = values.get(i).getTimestamp().getMillis();
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (QuantityValue value : values) {
+                long valueTime = value.getTimestamp().getMillis();
+                if (valueTime > time - 120 * MINUTE && valueTime <= time) {
+                    min = Math.min(min, value.getValue().doubleValue());
+                    max = Math.max(max, value.getValue().doubleValue());
+                }
+            }
+            assertThat(minimums.get(i).getValue().doubleValue(), is(min));
+            assertThat(maximums.get(i).getValue().doubleValue(), is(max));
+        }
+    }
+
+    @Test
+    public void when_timeWeightedAverage_then_valuesAreWeightedByTheirDuration() {
+        Data<QuantityValue> series = new Data<>();
+        series.addNewValue(createValue(0, "10"));
+        series.addNewValue(createValue(50, "20"));
+        series.addNewValue(createValue(60, "0"));
+        data.addSeries("dataset", series);
+
+        List<QuantityValue> actual = getValues(createParameters(60, 60, "PT1H", "time_weighted_avg"));
+
+        // 10 for 50 minutes, 20 for 10 minutes
+        assertThat(actual.get(0).getValue().doubleValue(), is(closeTo((10 * 50 + 20 * 10) / 60d, 0.0001)));
+    }
+
+    @Test
+    public void when_timeWeightedAverage_then_valueBeforeWindowHoldsIntoWindow() {
+        // backends provide the value before the timespan as metadata
+        DatasetMetadata<QuantityValue> metadata = new DatasetMetadata<>();
+        metadata.setValueBeforeTimespan(createValue(0, "10"));
+        Data<QuantityValue> series = new Data<>(metadata);
+        series.addNewValue(createValue(90, "20"));
+        series.addNewValue(createValue(100, "0"));
+        data.addSeries("dataset", series);
+
+        List<QuantityValue> actual = getValues(createParameters(100, 100, "PT1H", "time_weighted_avg"));
+
+        // window (40, 100]: 10 for 50 minutes, 20 for 10 minutes
+        assertThat(actual.get(0).getValue().doubleValue(), is(closeTo((10 * 50 + 20 * 10) / 60d, 0.0001)));
+    }
+
+    @Test
+    public void when_timeWeightedAverage_then_resultsMatchExhaustiveCalculation() {
+        Data<QuantityValue> series = createIrregularSeries(2000);
+        data.addSeries("dataset", series);
+
+        List<QuantityValue> actual = getValues(createParameters(0, 100000, "PT3H", "time_weighted_avg"));
+
+        List<QuantityValue> values = new ArrayList<>(series.getValues());
+        long window = 180 * MINUTE;
+        for (int i = 1; i < values.size(); i++) {
+            long time = values.get(i).getTimestamp().getMillis();
+            long windowStart = Math.max(time - window, values.get(0).getTimestamp().getMillis());
+            double integral = 0;
+            for (int j = 0; j < i; j++) {
+                long from = Math.max(values.get(j).getTimestamp().getMillis(), windowStart);
+                long to = Math.max(values.get(j + 1).getTimestamp().getMillis(), windowStart);
+                integral += values.get(j).getValue().doubleValue() * (to - from);
+            }
+            double expected = integral / (time - windowStart);
+            assertThat(actual.get(i).getValue().doubleValue(), is(closeTo(expected, 0.0001)));
+        }
+    }
+
+    @Test
+    public void when_noDataValues_then_theyArePassedAndNotAveraged() {
+        Data<QuantityValue> series = new Data<>();
+        series.addNewValue(createValue(0, "10"));
+        series.addNewValue(createValue(10, null));
+        series.addNewValue(createValue(20, "20"));
+        data.addSeries("dataset", series);
+
+        List<QuantityValue> actual = getValues(createParameters(0, 20, "PT1H", "avg"));
+
+        assertThat(actual.get(1).getValue(), is(nullValue()));
+        assertThat(actual.get(2).getValue().doubleValue(), is(closeTo(15, 0.0001)));
+    }
+
+    @Test
+    public void when_streaming_then_cursorReturnsSameValues() {
+        data.addSeries("dataset", createRegularSeries(50));
+        IoParameters parameters = createParameters(100, 400, "PT1H", "max");
+        StreamingService streamingService = new StreamingService(data);
+        RollingWindowQuantityService service = new RollingWindowQuantityService(streamingService);
+
+        List<Double> streamed = new ArrayList<>();
+        try (DataCursor<QuantityValue> cursor = service.getDataCursor("dataset", parameters)) {
+            while (cursor.hasNext()) {
+                streamed.add(cursor.next().getValue().doubleValue());
+            }
+        }
+
+        List<Double> expected = new ArrayList<>();
+        for (QuantityValue value : getValues(parameters)) {
+            expected.add(value.getValue().doubleValue());
+        }
+        assertThat(streamed, is(expected));
+        assertThat(streamingService.closed, is(true));
+    }
+
+    @Test
+    public void when_intervalValuesRolled_then_valuePropertiesAreKept() {
+        QuantityValue first = createIntervalValue(0, 10, "10");
+        QuantityValue second = createIntervalValue(10, 20, "20");
+        second.setResultTime(new TimeOutput(new DateTime(toMillis(30), DateTimeZone.UTC)));
+        second.setValidTime(first.getTimestart(), second.getTimeend());
+        second.addParameter(Collections.singletonMap("name", "depth"));
+        second.setValueFormatter(v -> v.setScale(2, RoundingMode.HALF_UP).toPlainString());
+        List<QuantityValue> values = Arrays.asList(first, second);
+
+        Iterator<QuantityValue> rolled = new RollingWindowIterator(values.iterator(),
+                                                                   RollingWindow.create(RollingFunction.AVG,
+                                                                                        60 * MINUTE),
+                                                                   toMillis(20));
+
+        QuantityValue actual = rolled.next();
+        assertThat(rolled.hasNext(), is(false));
+        assertThat(actual.getValue().doubleValue(), is(closeTo(15, 0.0001)));
+        assertThat(actual.getTimestart(), is(second.getTimestart()));
+        assertThat(actual.getTimeend(), is(second.getTimeend()));
+        assertThat(actual.getResultTime(), is(second.getResultTime()));
+        assertThat(actual.getValidTime(), is(second.getValidTime()));
+        assertThat(actual.getParameters(), is(second.getParameters()));
+        assertThat(actual.getFormattedValue(), is("15.00"));
+    }
+
+    private List<QuantityValue> getValues(IoParameters parameters) {
+        DataCollection<Data<QuantityValue>> rolled = new RollingWindowQuantityService(data).getData(parameters);
+        return new ArrayList<>(rolled.getSeries("dataset").getValues());
+    }
+
+    private static IoParameters createParameters(int startMinute, int endMinute, String window, String function) {
+        return IoParameters.createDefaults()
+                           .extendWith("datasets", "dataset")
+                           .extendWith("rollingWindow", window)
+                           .extendWith("rollingFunction", function)
+                           .extendWith("timespan",
+                                       new Interval(toMillis(startMinute), toMillis(endMinute)).toString());
+    }
+
+    private static Data<QuantityValue> createRegularSeries(int size) {
+        Data<QuantityValue> series = new Data<>();
+        for (int i = 0; i < size; i++) {
+            series.addNewValue(createValue(i * 10, Integer.toString(i)));
+        }
+        return series;
+    }
+
+    private static Data<QuantityValue> createIrregularSeries(int size) {
+        Random random = new Random(42);
+        Data<QuantityValue> series = new Data<>();
+        int minute = 0;
+        for (int i = 0; i < size; i++) {
+            minute += 1 + random.nextInt(30);
+            series.addNewValue(createValue(minute, Integer.toString(random.nextInt(1000))));
+        }
+        return series;
+    }
+
+    private static long toMillis(int minute) {
+        return START.getMillis() + minute * MINUTE;
+    }
+
+    private static QuantityValue createValue(int minute, String value) {
+        QuantityValue quantityValue = new QuantityValue();
+        quantityValue.setTimestamp(new TimeOutput(new DateTime(toMillis(minute), DateTimeZone.UTC)));
+        quantityValue.setValue(value != null
+                ? new BigDecimal(value)
+                : null);
+        return quantityValue;
+    }
+
+    private static QuantityValue createIntervalValue(int startMinute, int endMinute, String value) {
+        QuantityValue quantityValue = createValue(endMinute, value);
+        quantityValue.setTimestart(new TimeOutput(new DateTime(toMillis(startMinute), DateTimeZone.UTC)));
+        return quantityValue;
+    }
+
+    private static final class StreamingService implements StreamingDataService<QuantityValue> {
+
+        private final InMemoryDownsamplingDataService delegate;
+
+        private boolean closed;
+
+        StreamingService(InMemoryDownsamplingDataService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
+            return delegate.getData(parameters);
+        }
+
+        @Override
+        public DataCursor<QuantityValue> getDataCursor(String datasetId, IoParameters parameters) {
+            DataCursor<QuantityValue> cursor = DataCursor.of(getData(parameters).getSeries(datasetId));
+            return new DataCursor<QuantityValue>() {
+
+                @Override
+                public boolean hasNext() {
+                    return cursor.hasNext();
+                }
+
+                @Override
+                public QuantityValue next() {
+                    return cursor.next();
+                }
+
+                @Override
+                public DatasetMetadata<QuantityValue> getMetadata() {
+                    return cursor.getMetadata();
+                }
+
+                @Override
+                public void close() {
+                    closed = true;
+                }
+            };
+        }
+
+        @Override
+        public RawDataService getRawDataService() {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.web.common;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Response content which keeps encoded variants once they have been created. Caches holding instances of
+ * this class serve compressed bytes without compressing them again on each request.
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+public final class CompressedContent {
+
+    private final byte[] content;
+
+    private final String contentType;
+
+    private final Map<ContentEncoding, byte[]> encoded = new ConcurrentHashMap<>();
+
+    public CompressedContent(byte[] content, String contentType) {
+        this.content = content;
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return the unencoded content. Must not be modified.
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the content encoded with the given coding. The encoded variant is created on first access
+     * (using the encoding's default level) and kept for subsequent calls.
+     *
+     * @param encoding
+     *        the content coding
+     * @return the encoded content. Must not be modified.
+     */
+    public byte[] getEncoded(ContentEncoding encoding) {
+        return getEncoded(encoding, encoding.getDefaultLevel());
+    }
+
+    /**
+     * Returns the content encoded with the given coding. The level is used only in case the encoded variant
+     * has not been created yet.
+     *
+     * @param encoding
+     *        the content coding
+     * @param level
+     *        the compression level
+     * @return the encoded content. Must not be modified.
+     */
+    public byte[] getEncoded(ContentEncoding encoding, int level) {
+        return encoded.computeIfAbsent(encoding, e -> e.encode(content, level));
+    }
+
+    /**
+     * Adds an already encoded variant, e.g. read from a persistent cache.
+     *
+     * @param encoding
+     *        the content coding
+     * @param encodedContent
+     *        the encoded content
+     * @return this instance
+     */
+    public CompressedContent withEncoded(ContentEncoding encoding, byte[] encodedContent) {
+        encoded.put(encoding, encodedContent);
+        return this;
+    }
+
+    public boolean hasEncoded(ContentEncoding encoding) {
+        return encoded.containsKey(encoding);
+    }
+
+    /**
+     * @return the number of bytes held by this instance, including all encoded variants
+     */
+    public long getSize() {
+        long size = content.length;
+        for (byte[] variant : encoded.values()) {
+            size += variant.length;
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.web.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Compresses the response body with a negotiated {@link ContentEncoding}. The body is held back until it
+ * exceeds a minimum size. Smaller bodies are written as is, larger ones are compressed unless their content
+ * type is already compressed (e.g. images) or a <code>Content-Encoding</code> has been set already. The
+ * <code>Content-Length</code> is kept for responses written as is.
+ * <p>
+ * Non-blocking IO is passed through to the wrapped response uncompressed, i.e. setting a {@link WriteListener}
+ * before the body exceeded the minimum size disables compression.
+ * </p>
+ * <p>
+ * {@link #finish()} has to be called once the response has been written.
+ * </p>
+ */
+public class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    private final ContentEncoding encoding;
+
+    private final int level;
+
+    private final int minSize;
+
+    private CompressingOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    // set by the application, held back until known whether the body is compressed
+    private long contentLength = -1;
+
+    public CompressingResponseWrapper(HttpServletResponse response,
+                                      ContentEncoding encoding,
+                                      int level,
+                                      int minSize) {
+        super(response);
+        this.encoding = encoding;
+        this.level = level;
+        this.minSize = minSize;
+    }
+
+    /**
+     * Finds the compressing wrapper the given response is wrapped with.
+     *
+     * @param response
+     *        the response
+     * @return the compressing wrapper or <code>null</code> if the response is not compressed
+     */
+    public static CompressingResponseWrapper unwrap(ServletResponse response) {
+        ServletResponse current = response;
+        while (current instanceof HttpServletResponseWrapper) {
+            if (current instanceof CompressingResponseWrapper) {
+                return (CompressingResponseWrapper) current;
+            }
+            current = ((HttpServletResponseWrapper) current).getResponse();
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a body of the given length would be compressed with respect to the current content type and
+     * headers. Content encoded by the application (see {@link CompressedContent}) has to set its
+     * <code>Content-Encoding</code>, so that it is written as is.
+     *
+     * @param length
+     *        the length of the body
+     * @return <code>true</code> if the body would be compressed
+     */
+    public boolean isCompressing(long length) {
+        return length > minSize && isCompressible();
+    }
+
+    public ContentEncoding getEncoding() {
+        return encoding;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called.");
+        }
+        return getCompressingStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called.");
+            }
+            Charset charset = Charset.forName(getCharacterEncoding());
+            writer = new PrintWriter(new OutputStreamWriter(getCompressingStream(), charset));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        if (outputStream != null && outputStream.isDecided() && !outputStream.isCompressing()) {
+            super.setContentLengthLong(length);
+        } else {
+            contentLength = length;
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (isContentLength(name)) {
+            setContentLengthLong(parseContentLength(value));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (isContentLength(name)) {
+            setContentLengthLong(parseContentLength(value));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null && outputStream.isDecided()) {
+            outputStream.flush();
+        } else if (outputStream == null) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (outputStream != null && !outputStream.isDecided()) {
+            outputStream.reset();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        contentLength = -1;
+        if (outputStream != null && !outputStream.isDecided()) {
+            outputStream.reset();
+        }
+    }
+
+    /**
+     * Completes the response. Held back content is written, an active encoding is finished.
+     *
+     * @throws IOException
+     *         if writing fails
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.close();
+        }
+    }
+
+    private CompressingOutputStream getCompressingStream() {
+        if (outputStream == null) {
+            outputStream = new CompressingOutputStream();
+        }
+        return outputStream;
+    }
+
+    private boolean isCompressible() {
+        if (getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+            return false;
+        }
+        String contentType = getContentType();
+        if (contentType == null) {
+            return true;
+        }
+        String mimeType = contentType.toLowerCase(Locale.ROOT);
+        return !((mimeType.startsWith("image/") && !mimeType.startsWith("image/svg"))
+                || mimeType.startsWith("application/pdf")
+                || mimeType.startsWith("application/zip")
+                || mimeType.startsWith("application/gzip"));
+    }
+
+    private static boolean isContentLength(String name) {
+        return HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+    }
+
+    private static long parseContentLength(String value) {
+        try {
+            return value != null
+                    ? Long.parseLong(value.trim())
+                    : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private final class CompressingOutputStream extends ServletOutputStream {
+
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(minSize);
+
+        private OutputStream target;
+
+        // the wrapped stream in case content is written as is
+        private ServletOutputStream passThrough;
+
+        private boolean compressing;
+
+        private boolean closed;
+
+        boolean isDecided() {
+            return target != null;
+        }
+
+        boolean isCompressing() {
+            return compressing;
+        }
+
+        void reset() {
+            buffer.reset();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed.");
+            }
+            if (target == null) {
+                if (buffer.size() + len <= minSize) {
+                    buffer.write(b, off, len);
+                    return;
+                }
+                decide(isCompressible());
+            }
+            target.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // held back content must not be committed before the decision
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (target == null) {
+                // the whole body fits into the minimum size
+                byte[] content = buffer.toByteArray();
+                buffer = null;
+                HttpServletResponse response = (HttpServletResponse) getResponse();
+                response.setContentLength(content.length);
+                ServletOutputStream stream = response.getOutputStream();
+                stream.write(content);
+                stream.flush();
+            } else {
+                target.close();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return passThrough == null || passThrough.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            if (target == null) {
+                try {
+                    // non-blocking writes are not compressed
+                    decide(false);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not write held back content.", e);
+                }
+            }
+            if (compressing) {
+                throw new UnsupportedOperationException("Non-blocking IO is not supported for compressed content.");
+            }
+            passThrough.setWriteListener(writeListener);
+        }
+
+        private void decide(boolean compress) throws IOException {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            ServletOutputStream stream = response.getOutputStream();
+            if (compress) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.getToken());
+                compressing = true;
+                target = encoding.encode(stream, level);
+            } else {
+                if (contentLength >= 0) {
+                    response.setContentLengthLong(contentLength);
+                }
+                passThrough = stream;
+                target = stream;
+            }
+            buffer.writeTo(target);
+            buffer = null;
+        }
+    }
+
+}
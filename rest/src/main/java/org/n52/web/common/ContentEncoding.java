@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.web.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.airlift.compress.zstd.ZstdOutputStream;
+
+/**
+ * HTTP content codings supported for response compression. All codings are implemented in Java, no native
+ * libraries are needed.
+ */
+public enum ContentEncoding {
+
+    ZSTD("zstd", 3) {
+
+        @Override
+        public OutputStream encode(OutputStream stream, int level) throws IOException {
+            // the pure Java zstd compressor does not support levels
+            return new ZstdOutputStream(stream);
+        }
+    },
+
+    GZIP("gzip", Deflater.DEFAULT_COMPRESSION) {
+
+        @Override
+        public OutputStream encode(OutputStream stream, int level) throws IOException {
+            return new GZIPOutputStream(stream, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+    },
+
+    DEFLATE("deflate", Deflater.DEFAULT_COMPRESSION) {
+
+        @Override
+        public OutputStream encode(OutputStream stream, int level) {
+            // 'deflate' content coding means zlib format (RFC 1950)
+            Deflater deflater = new Deflater(level);
+            return new DeflaterOutputStream(stream, deflater, BUFFER_SIZE) {
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final String token;
+
+    private final int defaultLevel;
+
+    ContentEncoding(String token, int defaultLevel) {
+        this.token = token;
+        this.defaultLevel = defaultLevel;
+    }
+
+    /**
+     * @return the content coding token as used in <code>Accept-Encoding</code> and
+     *         <code>Content-Encoding</code> headers.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    public int getDefaultLevel() {
+        return defaultLevel;
+    }
+
+    /**
+     * Wraps the given stream so that everything written is encoded. Closing the returned stream finishes the
+     * encoding and closes the given stream.
+     *
+     * @param stream
+     *        the stream to write encoded content to
+     * @param level
+     *        the compression level
+     * @return the encoding stream
+     * @throws IOException
+     *         if the encoding stream could not be created
+     */
+    public abstract OutputStream encode(OutputStream stream, int level) throws IOException;
+
+    /**
+     * Encodes the given content at once, e.g. to keep the encoded variant of cached content.
+     *
+     * @param content
+     *        the content to encode
+     * @param level
+     *        the compression level
+     * @return the encoded content
+     */
+    public byte[] encode(byte[] content, int level) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(Math.max(content.length / 4, 64));
+        try (OutputStream stream = encode(encoded, level)) {
+            stream.write(content);
+        } catch (IOException e) {
+            // in-memory streams do not fail
+            throw new IllegalStateException("Could not encode content with '" + token + "'.", e);
+        }
+        return encoded.toByteArray();
+    }
+
+    public static Optional<ContentEncoding> of(String token) {
+        return token == null
+                ? Optional.empty()
+                : Arrays.stream(values())
+                        .filter(encoding -> encoding.token.equalsIgnoreCase(token.trim()))
+                        .findFirst();
+    }
+
+    /**
+     * Selects the content coding to use for the given <code>Accept-Encoding</code> header. The coding with
+     * the highest quality value wins, ties are decided by the order of the given candidates. Codings with
+     * quality <code>0</code> are excluded, a <code>*</code> applies to all codings not listed explicitly.
+     *
+     * @param acceptEncoding
+     *        the <code>Accept-Encoding</code> header value, may be <code>null</code>
+     * @param candidates
+     *        the codings supported by the server in order of preference
+     * @return the coding to use, or empty if the response shall not be encoded
+     */
+    public static Optional<ContentEncoding> negotiate(String acceptEncoding,
+                                                      Collection<ContentEncoding> candidates) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return Optional.empty();
+        }
+        ContentEncoding selected = null;
+        double selectedQuality = 0d;
+        for (ContentEncoding candidate : candidates) {
+            double quality = getQuality(acceptEncoding, candidate.token);
+            if (quality > selectedQuality) {
+                selected = candidate;
+                selectedQuality = quality;
+            }
+        }
+        return Optional.ofNullable(selected);
+    }
+
+    private static double getQuality(String acceptEncoding, String token) {
+        double wildcardQuality = 0d;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim()
+                                       .toLowerCase(Locale.ROOT);
+            if (name.equals(token)) {
+                return parseQuality(parameters);
+            } else if ("*".equals(name)) {
+                wildcardQuality = parseQuality(parameters);
+            }
+        }
+        return wildcardQuality;
+    }
+
+    private static double parseQuality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)
+                                                       .trim());
+                } catch (NumberFormatException e) {
+                    return 0d;
+                }
+            }
+        }
+        return 1d;
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.web.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Compresses responses according to the <code>Accept-Encoding</code> request header. Supported are
+ * <code>zstd</code>, <code>gzip</code> and <code>deflate</code>, see {@link ContentEncoding}. Responses
+ * smaller than {@link #setMinSize(int) a minimum size} are written uncompressed.
+ * <p>
+ * The filter can be configured in the <code>web.xml</code> of a Web application. Init parameters are mapped
+ * to the properties of this filter:
+ * </p>
+ *
+ * <pre>
+ * &lt;filter&gt;
+ *     &lt;filter-name&gt;compression&lt;/filter-name&gt;
+ *     &lt;filter-class&gt;org.n52.web.common.ResponseCompressionFilter&lt;/filter-class&gt;
+ *     &lt;init-param&gt;
+ *         &lt;param-name&gt;encodings&lt;/param-name&gt;
+ *         &lt;param-value&gt;zstd,gzip,deflate&lt;/param-value&gt;
+ *     &lt;/init-param&gt;
+ *     &lt;init-param&gt;
+ *         &lt;param-name&gt;minSize&lt;/param-name&gt;
+ *         &lt;param-value&gt;1024&lt;/param-value&gt;
+ *     &lt;/init-param&gt;
+ * &lt;/filter&gt;
+ * &lt;filter-mapping&gt;
+ *     &lt;filter-name&gt;compression&lt;/filter-name&gt;
+ *     &lt;url-pattern&gt;/api/*&lt;/url-pattern&gt;
+ * &lt;/filter-mapping&gt;
+ * </pre>
+ */
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+    public static final int DEFAULT_MIN_SIZE = 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCompressionFilter.class);
+
+    private List<ContentEncoding> encodings = List.of(ContentEncoding.values());
+
+    private int gzipLevel = ContentEncoding.GZIP.getDefaultLevel();
+
+    private int deflateLevel = ContentEncoding.DEFLATE.getDefaultLevel();
+
+    private int minSize = DEFAULT_MIN_SIZE;
+
+    public List<ContentEncoding> getEncodings() {
+        return Collections.unmodifiableList(encodings);
+    }
+
+    /**
+     * @param encodings
+     *        comma separated content codings in order of preference, e.g. <code>gzip,deflate</code>. An empty
+     *        value disables compression.
+     */
+    public void setEncodings(String encodings) {
+        List<ContentEncoding> configured = new ArrayList<>();
+        if (encodings != null) {
+            for (String token : encodings.split(",")) {
+                if (!token.isBlank()) {
+                    ContentEncoding encoding = ContentEncoding.of(token)
+                                                              .orElseThrow(() -> new IllegalArgumentException(
+                                                                      "Unsupported content coding: " + token));
+                    if (!configured.contains(encoding)) {
+                        configured.add(encoding);
+                    }
+                }
+            }
+        }
+        this.encodings = configured;
+    }
+
+    public int getGzipLevel() {
+        return gzipLevel;
+    }
+
+    public void setGzipLevel(int gzipLevel) {
+        this.gzipLevel = checkLevel(gzipLevel);
+    }
+
+    public int getDeflateLevel() {
+        return deflateLevel;
+    }
+
+    public void setDeflateLevel(int deflateLevel) {
+        this.deflateLevel = checkLevel(deflateLevel);
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * @param minSize
+     *        the minimum body size in bytes from which on responses are compressed
+     */
+    public void setMinSize(int minSize) {
+        if (minSize < 0) {
+            throw new IllegalArgumentException("minSize must not be negative: " + minSize);
+        }
+        this.minSize = minSize;
+    }
+
+    public int getLevel(ContentEncoding encoding) {
+        switch (encoding) {
+            case GZIP:
+                return gzipLevel;
+            case DEFLATE:
+                return deflateLevel;
+            default:
+                return encoding.getDefaultLevel();
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (encodings.isEmpty() || "HEAD".equalsIgnoreCase(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        Optional<ContentEncoding> negotiated = ContentEncoding.negotiate(acceptEncoding, encodings);
+        if (!negotiated.isPresent()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        ContentEncoding encoding = negotiated.get();
+        LOGGER.trace("compress response with '{}'", encoding.getToken());
+        CompressingResponseWrapper wrapper =
+                new CompressingResponseWrapper(response, encoding, getLevel(encoding), minSize);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            wrapper.finish();
+        }
+    }
+
+    private static int checkLevel(int level) {
+        if (level < -1 || level > 9) {
+            throw new IllegalArgumentException("compression level must be within -1 and 9: " + level);
+        }
+        return level;
+    }
+
+}
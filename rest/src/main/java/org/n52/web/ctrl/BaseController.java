@@ -48,6 +48,8 @@ import org.n52.io.request.IoParameters;
 import org.n52.io.request.Parameters;
 import org.n52.io.request.RequestSimpleParameterSet;
 import org.n52.io.request.RequestStyledParameterSet;
+import org.n52.web.common.CompressedContent;
+import org.n52.web.common.CompressingResponseWrapper;
 import org.n52.web.common.RequestUtils;
 import org.n52.web.exception.BadQueryParameterException;
 import org.n52.web.exception.BadRequestException;
@@ -236,6 +238,33 @@ public abstract class BaseController {
         return new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
     }
 
+    /**
+     * Writes cached content. In case the response is compressed (see
+     * {@link org.n52.web.common.ResponseCompressionFilter}) the encoded variant of the content is written, so
+     * that it is compressed only once.
+     *
+     * @param content
+     *        the content to write
+     * @param response
+     *        the response to write to
+     * @throws IOException
+     *         if writing fails
+     */
+    protected void writeContent(CompressedContent content, HttpServletResponse response) throws IOException {
+        response.setContentType(content.getContentType());
+        byte[] bytes = content.getContent();
+        CompressingResponseWrapper compression = CompressingResponseWrapper.unwrap(response);
+        if (compression != null && compression.isCompressing(bytes.length)) {
+            bytes = content.getEncoded(compression.getEncoding(), compression.getLevel());
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, compression.getEncoding()
+                                                                        .getToken());
+        }
+        response.setContentLength(bytes.length);
+        try (OutputStream outputStream = response.getOutputStream()) {
+            outputStream.write(bytes);
+        }
+    }
+
     protected abstract void addCacheHeader(IoParameters parameter, HttpServletResponse response);
 
     protected void addCacheHeader(HttpServletResponse response, long maxAge) {
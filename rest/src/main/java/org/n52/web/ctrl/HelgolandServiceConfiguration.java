@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.web.ctrl;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.format.ISOPeriodFormat;
+import org.n52.io.cache.CountCache;
+import org.n52.io.cache.MetadataCache;
+import org.n52.io.cache.ObservationCache;
+import org.n52.io.handler.RequestCostEstimator;
+import org.n52.io.type.quantity.generalize.GeneralizationCache;
+import org.n52.io.type.quantity.generalize.GeneralizationExecutor;
+import org.n52.io.type.quantity.generalize.PyramidStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Provides the caches and executors shared by all controllers. Settings are read from the application's
+ * environment, e.g. an <code>application.properties</code> file.
+ */
+@Configuration
+public class HelgolandServiceConfiguration {
+
+    private static final String METADATA_CACHE_TTL = "metadata_cache_ttl";
+
+    @Bean
+    public MetadataCache metadataCache(Environment environment,
+                                       @Value("${" + METADATA_CACHE_TTL + ":0}") long ttl,
+                                       @Value("${metadata_cache_size:1000}") int maxEntries,
+                                       @Value("${metadata_cache_refresh_ahead:0}") int refreshAhead) {
+        return new MetadataCache(resource -> environment.getProperty(METADATA_CACHE_TTL + "_" + resource,
+                                                                     Long.class,
+                                                                     ttl),
+                                 maxEntries,
+                                 refreshAhead);
+    }
+
+    @Bean
+    public CountCache countCache(@Value("${count_cache_ttl:0}") long ttl,
+                                 @Value("${count_cache_size:1000}") int maxEntries) {
+        return new CountCache(ttl, maxEntries);
+    }
+
+    @Bean
+    public GeneralizationExecutor generalizationExecutor(@Value("${generalizing_parallelism:0}") int parallelism,
+                                                         @Value("${generalizing_queue_capacity:0}") int queueCapacity) {
+        int threads = parallelism > 0
+                ? parallelism
+                : Runtime.getRuntime()
+                         .availableProcessors();
+        return new GeneralizationExecutor(threads, queueCapacity > 0
+                ? queueCapacity
+                : 4 * threads);
+    }
+
+    @Bean
+    public GeneralizationCache generalizationCache(@Value("${generalizing_cache_size:1000000}") long maxValues,
+                                                   @Value("${generalizing_cache_max_age:60}") long maxAge) {
+        return new GeneralizationCache(maxValues, maxAge, TimeUnit.SECONDS);
+    }
+
+    @Bean
+    public PyramidStore pyramidStore(@Value("${generalizing_pyramid_directory:}") String directory,
+                                     @Value("${generalizing_pyramid_max_loaded:100}") int maxLoaded) {
+        return new PyramidStore(directory.isEmpty()
+                ? null
+                : Paths.get(directory), maxLoaded);
+    }
+
+    @Bean
+    public RequestCostEstimator requestCostEstimator(@Value("${request_cost_max_values:0}") int maxValues,
+                                                     @Value("${request_cost_generalize_values:0}") int generalizeBudget,
+                                                     @Value("${request_cost_streaming_values:0}") int streamingBudget,
+                                                     @Value("${request_cost_sampling_interval:PT1M}") String interval) {
+        return new RequestCostEstimator(maxValues,
+                                        generalizeBudget,
+                                        streamingBudget,
+                                        RequestCostEstimator.parseSamplingInterval(interval));
+    }
+
+    @Bean
+    public ObservationCache observationCache(@Value("${observation_cache_size:0}") long maxValues,
+                                             @Value("${observation_cache_partition:P1D}") String partition,
+                                             @Value("${observation_cache_ttl:3600}") long ttl,
+                                             @Value("${observation_cache_open_ttl:30}") long openTtl,
+                                             @Value("${observation_cache_eviction:lru}") String eviction,
+                                             @Value("${observation_cache_value_types:quantity}") String[] valueTypes) {
+        long partitionLength = ISOPeriodFormat.standard()
+                                              .parsePeriod(partition)
+                                              .toStandardDuration()
+                                              .getMillis();
+        return new ObservationCache(maxValues,
+                                    partitionLength,
+                                    ttl,
+                                    openTtl,
+                                    TimeUnit.SECONDS,
+                                    ObservationCache.Eviction.valueOf(eviction.toUpperCase(Locale.ROOT)),
+                                    new HashSet<>(Arrays.asList(valueTypes)));
+    }
+
+}
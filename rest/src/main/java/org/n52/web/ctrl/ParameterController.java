@@ -40,12 +40,14 @@ import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.IOUtils;
+import org.n52.io.cache.MetadataCache;
 import org.n52.io.request.IoParameters;
 import org.n52.io.request.Parameters;
 import org.n52.io.response.OutputCollection;
 import org.n52.io.response.ParameterOutput;
 import org.n52.io.response.extension.MetadataExtension;
 import org.n52.series.spi.srv.ParameterService;
+import org.n52.series.spi.srv.RawDataService;
 import org.n52.web.common.OffsetBasedPagination;
 import org.n52.web.common.PageLinkUtil;
 import org.n52.web.common.Paginated;
@@ -70,10 +72,25 @@ public abstract class ParameterController<T extends ParameterOutput>
 
     private Set<MetadataExtension<T>> metadataExtensions = new LinkedHashSet<>();
 
-    private final ParameterService<T> parameterService;
+    private final ParameterService<T> composedService;
+
+    private ParameterService<T> parameterService;
 
     public ParameterController(ParameterService<T> parameterService) {
-        this.parameterService = new SpiAssertionExceptionAdapter<>(parameterService);
+        // extend outputs before they get cached, cached outputs are shared by all requests
+        this.composedService = new ExtendingParameterService(new SpiAssertionExceptionAdapter<>(parameterService));
+        this.parameterService = composedService;
+    }
+
+    private ParameterService<T> getParameterService() {
+        return parameterService;
+    }
+
+    @Autowired(required = false)
+    public void setMetadataCache(MetadataCache metadataCache) {
+        this.parameterService = metadataCache != null
+                ? metadataCache.compose(composedService, getResourcePathFrom(getCollectionName()))
+                : composedService;
     }
 
     @Override
@@ -81,14 +98,14 @@ public abstract class ParameterController<T extends ParameterOutput>
                            String id,
                            String locale,
                            MultiValueMap<String, String> query) {
-        if (!parameterService.supportsRawData()) {
+        if (!getParameterService().supportsRawData()) {
             throw new BadRequestException("Querying raw procedure data is not supported!");
         }
 
         IoParameters queryMap = createParameters(query, locale, response);
         LOGGER.debug("getRawData() with id '{}' and query '{}'", id, queryMap);
 
-        try (InputStream inputStream = parameterService.getRawDataService()
+        try (InputStream inputStream = getParameterService().getRawDataService()
                                                             .getRawData(id, queryMap)) {
             IOUtils.copyLarge(inputStream, response.getOutputStream());
         } catch (IOException e) {
@@ -103,7 +120,7 @@ public abstract class ParameterController<T extends ParameterOutput>
         LOGGER.debug("getExtras() with id '{}' and query '{}'", resourceId, map);
 
         Map<String, Object> extras = new HashMap<>();
-        T from = parameterService.getParameter(resourceId, map);
+        T from = getParameterService().getParameter(resourceId, map);
         for (MetadataExtension<T> extension : metadataExtensions) {
             final Map<String, Object> furtherExtras = extension.getExtras(from, map);
             Collection<String> overridableKeys = checkForOverridingData(extras, furtherExtras);
@@ -149,8 +166,8 @@ public abstract class ParameterController<T extends ParameterOutput>
 
     private OutputCollection<T> getCollection(IoParameters parameters) {
         return parameters.isExpanded()
-                ? addExtensionInfos(parameterService.getExpandedParameters(parameters), parameters)
-                : parameterService.getCondensedParameters(parameters);
+                ? getParameterService().getExpandedParameters(parameters)
+                : getParameterService().getCondensedParameters(parameters);
     }
 
     private void preparePagingHeaders(IoParameters parameters, HttpServletResponse response) {
@@ -176,11 +193,11 @@ public abstract class ParameterController<T extends ParameterOutput>
     }
 
     private T getItem(String id, IoParameters parameters) {
-        T item = parameterService.getParameter(id, parameters);
+        T item = getParameterService().getParameter(id, parameters);
         if (item == null) {
             throw new ResourceNotFoundException("Resource with id '" + id + "' not found.");
         }
-        return addExtensionInfos(item, parameters);
+        return item;
     }
 
     protected T addExtensionInfos(T output, IoParameters parameters) {
@@ -229,4 +246,55 @@ public abstract class ParameterController<T extends ParameterOutput>
         }
     }
 
+    /**
+     * Adds the infos of the metadata extensions to the outputs of the composed service.
+     */
+    private final class ExtendingParameterService extends ParameterService<T> {
+
+        private final ParameterService<T> composedService;
+
+        private ExtendingParameterService(ParameterService<T> toCompose) {
+            this.composedService = toCompose;
+        }
+
+        @Override
+        public OutputCollection<T> getExpandedParameters(IoParameters query) {
+            return addExtensionInfos(composedService.getExpandedParameters(query), query);
+        }
+
+        @Override
+        public OutputCollection<T> getCondensedParameters(IoParameters query) {
+            return composedService.getCondensedParameters(query);
+        }
+
+        @Override
+        public OutputCollection<T> getParameters(String[] items, IoParameters query) {
+            return composedService.getParameters(items, query);
+        }
+
+        @Override
+        public T getParameter(String item, IoParameters query) {
+            T output = composedService.getParameter(item, query);
+            return output != null
+                    ? addExtensionInfos(output, query)
+                    : null;
+        }
+
+        @Override
+        public boolean exists(String id, IoParameters parameters) {
+            return composedService.exists(id, parameters);
+        }
+
+        @Override
+        public RawDataService getRawDataService() {
+            return composedService.getRawDataService();
+        }
+
+        @Override
+        public boolean supportsRawData() {
+            return composedService.supportsRawData();
+        }
+
+    }
+
 }
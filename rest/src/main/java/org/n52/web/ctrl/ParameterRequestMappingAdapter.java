@@ -32,6 +32,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.n52.io.Constants;
 import org.n52.io.HrefHelper;
 import org.n52.io.I18N;
+import org.n52.io.cache.CountCache;
 import org.n52.io.request.IoParameters;
 import org.n52.io.request.Parameters;
 import org.n52.io.response.ParameterOutput;
@@ -52,7 +53,7 @@ import org.springframework.web.servlet.ModelAndView;
 public abstract class ParameterRequestMappingAdapter<T extends ParameterOutput> extends ParameterController<T>
         implements ResoureControllerConstants {
 
-    private final CountingMetadataService counter;
+    private CountingMetadataService counter;
 
     @Autowired
     public ParameterRequestMappingAdapter(CountingMetadataService counter, ParameterService<T> parameterService) {
@@ -60,6 +61,15 @@ public abstract class ParameterRequestMappingAdapter<T extends ParameterOutput>
         this.counter = counter;
     }
 
+    /**
+     * @param countCache
+     *        the cache of counts shared by all controllers, counts are not cached if not set
+     */
+    @Autowired(required = false)
+    public void setCountCache(CountCache countCache) {
+        this.counter = countCache.compose(counter);
+    }
+
     @Override
     @RequestMapping(path = "", produces = Constants.APPLICATION_JSON)
     public ModelAndView getCollection(HttpServletResponse response,
@@ -116,14 +126,18 @@ public abstract class ParameterRequestMappingAdapter<T extends ParameterOutput>
     }
 
     public ResourceCollection getResourceCollection(I18N i18n, IoParameters parameters) {
-        ResourceCollection resourceCollection = ResourceCollection.createResource(getResource())
-                .withDescription(getDescription(i18n)).withLabel(getLabel()).withHref(getHref(parameters));
+        ResourceCollection resourceCollection = createResourceCollection(i18n, parameters);
         if (parameters.isExpanded()) {
             resourceCollection.setSize(getSize(parameters));
         }
         return resourceCollection;
     }
 
+    ResourceCollection createResourceCollection(I18N i18n, IoParameters parameters) {
+        return ResourceCollection.createResource(getResource())
+                .withDescription(getDescription(i18n)).withLabel(getLabel()).withHref(getHref(parameters));
+    }
+
     protected abstract String getResource();
 
     protected abstract String getLabel();
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.web.ctrl;
+
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.n52.io.request.IoParameters;
+import org.n52.web.ctrl.ResourcesController.ResourceCollection;
+import org.n52.web.exception.InternalServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sets the sizes of resource collections. By default, counts are queried one after another. Configured with a
+ * timeout (<code>config-general.json</code>), counts are queried concurrently on a bounded executor:
+ * <ul>
+ * <li>{@value #TIMEOUT}: the time in milliseconds to wait for counts (default <code>0</code>),
+ * <code>0</code> queries counts one after another</li>
+ * <li>{@value #THREADS}: the number of threads querying counts (default {@value #DEFAULT_THREADS})</li>
+ * </ul>
+ * Counts not available within the timeout are left unknown (i.e. <code>null</code>) instead of blocking the
+ * response. They are not cancelled, so that a count cache composed by the counting service gets populated
+ * anyway.
+ */
+final class ResourceCounter {
+
+    static final String TIMEOUT = "resources_count_timeout";
+
+    static final String THREADS = "resources_count_threads";
+
+    static final int DEFAULT_THREADS = 4;
+
+    private static final int MAX_QUEUED_COUNTS = 1000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceCounter.class);
+
+    private final long timeoutMillis;
+
+    private final Executor executor;
+
+    /**
+     * @param timeoutMillis
+     *        the time to wait for counts, <code>0</code> or less to count sequentially
+     * @param executor
+     *        the executor to count concurrently, ignored when counting sequentially
+     */
+    ResourceCounter(long timeoutMillis, Executor executor) {
+        this.timeoutMillis = timeoutMillis;
+        this.executor = executor;
+    }
+
+    static ResourceCounter createFromConfig(IoParameters config) {
+        int timeout = config.getAsInteger(TIMEOUT, 0);
+        if (timeout <= 0) {
+            return new ResourceCounter(0, null);
+        }
+        int threads = Math.max(1, config.getAsInteger(THREADS, DEFAULT_THREADS));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads,
+                                                             threads,
+                                                             60L,
+                                                             TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<>(MAX_QUEUED_COUNTS),
+                                                             runnable -> {
+                                                                 Thread thread = new Thread(runnable,
+                                                                                            "resource-count");
+                                                                 thread.setDaemon(true);
+                                                                 return thread;
+                                                             },
+                                                             new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        LOGGER.debug("Counting resources concurrently on {} threads waiting at most {}ms.", threads, timeout);
+        return new ResourceCounter(timeout, executor);
+    }
+
+    boolean isConcurrent() {
+        return timeoutMillis > 0;
+    }
+
+    /**
+     * Sets the sizes of the given resource collections.
+     *
+     * @param counts
+     *        the count query for each resource collection
+     */
+    void count(Map<ResourceCollection, Supplier<Long>> counts) {
+        if (!isConcurrent()) {
+            counts.forEach((collection, count) -> collection.setSize(count.get()));
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Map<ResourceCollection, CompletableFuture<Long>> pending = new LinkedHashMap<>();
+        counts.forEach((collection, count) -> pending.put(collection, supplyAsync(count, executor)));
+        for (Map.Entry<ResourceCollection, CompletableFuture<Long>> entry : pending.entrySet()) {
+            ResourceCollection collection = entry.getKey();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                collection.setSize(entry.getValue()
+                                        .get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                LOGGER.debug("Count of '{}' not available within {}ms.", collection.getId(), timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                      .interrupt();
+                LOGGER.debug("Interrupted while counting '{}'.", collection.getId());
+                return;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new InternalServerException("Could not count '" + collection.getId() + "'.", cause);
+            }
+        }
+    }
+
+}
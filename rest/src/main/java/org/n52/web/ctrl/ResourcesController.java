@@ -28,17 +28,18 @@
 package org.n52.web.ctrl;
 
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 import javax.servlet.http.HttpServletResponse;
 
 import org.n52.io.HrefHelper;
 import org.n52.io.I18N;
+import org.n52.io.cache.CountCache;
 import org.n52.io.request.IoParameters;
 import org.n52.series.spi.srv.CountingMetadataService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,7 +55,8 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 @RequestMapping(value = UrlSettings.BASE, produces = { "application/json" })
 public class ResourcesController extends BaseController implements ResoureControllerConstants {
 
-    private final CountingMetadataService metadataService;
+    private CountingMetadataService metadataService;
+    private final ResourceCounter counter;
     private Collection<ParameterRequestMappingAdapter<?>> parameterController;
 
     @Autowired
@@ -62,9 +64,19 @@ public class ResourcesController extends BaseController implements ResoureContro
     public ResourcesController(CountingMetadataService metadataService,
             Collection<ParameterRequestMappingAdapter<?>> parameterController) {
         this.metadataService = metadataService;
+        this.counter = ResourceCounter.createFromConfig(IoParameters.createDefaults());
         this.parameterController = parameterController;
     }
 
+    /**
+     * @param countCache
+     *        the cache of counts shared by all controllers, counts are not cached if not set
+     */
+    @Autowired(required = false)
+    public void setCountCache(CountCache countCache) {
+        this.metadataService = countCache.compose(metadataService);
+    }
+
     @RequestMapping("/")
     public ModelAndView getResources(HttpServletResponse response,
             @RequestParam(required = false) MultiValueMap<String, String> parameters) {
@@ -87,8 +99,18 @@ public class ResourcesController extends BaseController implements ResoureContro
     }
 
     private Set<ResourceCollection> createDynamicResources(IoParameters parameters, I18N i18n) {
-        return parameterController.stream().filter(p -> p.getResource() != null && !p.getResource().isEmpty())
-                .map(p -> p.getResourceCollection(i18n, parameters)).collect(Collectors.toCollection(TreeSet::new));
+        Map<ResourceCollection, Supplier<Long>> counts = new LinkedHashMap<>();
+        Set<ResourceCollection> resources = new TreeSet<>();
+        parameterController.stream().filter(p -> p.getResource() != null && !p.getResource().isEmpty())
+                .forEach(p -> {
+                    ResourceCollection resource = p.createResourceCollection(i18n, parameters);
+                    if (parameters.isExpanded()) {
+                        counts.put(resource, () -> p.getSize(parameters));
+                    }
+                    resources.add(resource);
+                });
+        counter.count(counts);
+        return resources;
     }
 
     private Set<ResourceCollection> createStaticResources(IoParameters parameters, I18N i18n) {
@@ -120,22 +142,22 @@ public class ResourcesController extends BaseController implements ResoureContro
                 i18n.get(DESCRIPTION_KEY_MEASURING_PROGRAMS), parameters);
         ResourceCollection tags = add(RESOURCE_TAGS, LABEL_TAGS, i18n.get(DESCRIPTION_KEY_TAGS), parameters);
         if (parameters.isExpanded()) {
-            services.setSize(metadataService.getServiceCount(parameters));
-            categories.setSize(metadataService.getCategoryCount(parameters));
-            offerings.setSize(metadataService.getOfferingCount(parameters));
-            features.setSize(metadataService.getFeatureCount(parameters));
-            procedures.setSize(metadataService.getProcedureCount(parameters));
-            phenomena.setSize(metadataService.getPhenomenaCount(parameters));
-            platforms.setSize(metadataService.getPlatformCount(parameters));
-            datasets.setSize(metadataService.getDatasetCount(parameters));
-            List<String> datasetTypes = new LinkedList<>(parameters.getDatasetTypes());
-            timeseries.setSize(countDatasets(parameters, RESOURCE_TIMESERIES));
-            trajectories.setSize(countDatasets(parameters, RESOURCE_TRAJECTORIES));
-            individualObservations.setSize(countDatasets(parameters, RESOURCE_INDIVIDUAL_OBSERVATIONS));
-            parameters.extendWith(IoParameters.FILTER_DATASET_TYPES, datasetTypes);
-            samplings.setSize(metadataService.getSamplingCounter(parameters));
-            measuringPrograms.setSize(metadataService.getMeasuringProgramCounter(parameters));
-            tags.setSize(metadataService.getTagCounter(parameters));
+            Map<ResourceCollection, Supplier<Long>> counts = new LinkedHashMap<>();
+            counts.put(services, () -> metadataService.getServiceCount(parameters));
+            counts.put(categories, () -> metadataService.getCategoryCount(parameters));
+            counts.put(offerings, () -> metadataService.getOfferingCount(parameters));
+            counts.put(features, () -> metadataService.getFeatureCount(parameters));
+            counts.put(procedures, () -> metadataService.getProcedureCount(parameters));
+            counts.put(phenomena, () -> metadataService.getPhenomenaCount(parameters));
+            counts.put(platforms, () -> metadataService.getPlatformCount(parameters));
+            counts.put(datasets, () -> metadataService.getDatasetCount(parameters));
+            counts.put(timeseries, () -> countDatasets(parameters, RESOURCE_TIMESERIES));
+            counts.put(trajectories, () -> countDatasets(parameters, RESOURCE_TRAJECTORIES));
+            counts.put(individualObservations, () -> countDatasets(parameters, RESOURCE_INDIVIDUAL_OBSERVATIONS));
+            counts.put(samplings, () -> metadataService.getSamplingCounter(parameters));
+            counts.put(measuringPrograms, () -> metadataService.getMeasuringProgramCounter(parameters));
+            counts.put(tags, () -> metadataService.getTagCounter(parameters));
+            counter.count(counts);
         }
         Set<ResourceCollection> resources = new TreeSet<>();
         resources.add(services);
@@ -33,7 +33,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -45,10 +47,17 @@ import org.joda.time.Interval;
 import org.joda.time.Period;
 import org.n52.io.Constants;
 import org.n52.io.IntervalWithTimeZone;
+import org.n52.io.cache.CachingDataService;
+import org.n52.io.cache.ObservationCache;
 import org.n52.io.handler.DatasetFactoryException;
 import org.n52.io.handler.DefaultIoFactory;
 import org.n52.io.handler.IoHandlerFactory;
 import org.n52.io.handler.IoProcessChain;
+import org.n52.io.handler.RequestCost;
+import org.n52.io.handler.RequestCostEstimator;
+import org.n52.io.handler.StreamingIoProcessChain;
+import org.n52.io.handler.json.DataEncoding;
+import org.n52.io.handler.json.JsonDataWriter;
 import org.n52.io.request.IoParameters;
 import org.n52.io.request.Parameters;
 import org.n52.io.request.RequestSimpleParameterSet;
@@ -58,6 +67,10 @@ import org.n52.io.response.dataset.Data;
 import org.n52.io.response.dataset.DataCollection;
 import org.n52.io.response.dataset.DatasetOutput;
 import org.n52.io.response.dataset.DatasetTypesMetadata;
+import org.n52.io.response.dataset.ValueSerializerModule;
+import org.n52.io.type.quantity.generalize.GeneralizationCache;
+import org.n52.io.type.quantity.generalize.GeneralizationExecutor;
+import org.n52.io.type.quantity.generalize.PyramidStore;
 import org.n52.series.spi.srv.DataService;
 import org.n52.series.spi.srv.DatasetTypesService;
 import org.n52.series.spi.srv.ParameterService;
@@ -70,6 +83,8 @@ import org.n52.web.exception.ResourceNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -79,6 +94,8 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 @SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
@@ -89,6 +106,8 @@ public abstract class DataController extends BaseController {
     protected static final String CONTENT_DISPOSITION_VALUE_TEMPLATE =
             "attachment; filename=\"Observations_for_Dataset_";
 
+    protected static final String REQUEST_COST_HEADER = "Request-Cost";
+
     protected static final String SHOWTIMEINTERVALS_QUERY_OPTION = "showTimeIntervals";
 
     protected static final String PROFILE = "profile";
@@ -101,19 +120,56 @@ public abstract class DataController extends BaseController {
 
     private final DefaultIoFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> ioFactoryCreator;
 
-    private final DataService<Data<AbstractValue< ? >>> dataService;
+    private final DataService<Data<AbstractValue< ? >>> uncachedDataService;
+
+    private DataService<Data<AbstractValue< ? >>> dataService;
 
     private final ParameterService<DatasetOutput<AbstractValue< ? >>> datasetService;
 
+    private ObjectMapper objectMapper;
+
+    private GeneralizationExecutor generalizationExecutor;
+
+    private GeneralizationCache generalizationCache;
+
+    private PyramidStore pyramidStore;
+
+    private RequestCostEstimator requestCostEstimator;
+
+    private final Map<DataEncoding, ObjectMapper> binaryMappers = new ConcurrentHashMap<>();
+
     @Autowired
     public DataController(DefaultIoFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> ioFactory,
                           ParameterService<DatasetOutput<AbstractValue< ? >>> datasetService,
                           DataService<Data<AbstractValue< ? >>> dataService) {
         this.ioFactoryCreator = ioFactory;
         this.datasetService = datasetService;
+        this.uncachedDataService = dataService;
         this.dataService = dataService;
     }
 
+    /**
+     * @param observationCache
+     *        the cache of observation partitions, observations are not cached if not set
+     */
+    @Autowired(required = false)
+    public void setObservationCache(ObservationCache observationCache) {
+        this.dataService = createCachingDataService(uncachedDataService, datasetService, observationCache);
+    }
+
+    private static DataService<Data<AbstractValue< ? >>> createCachingDataService(
+            DataService<Data<AbstractValue< ? >>> dataService,
+            ParameterService<DatasetOutput<AbstractValue< ? >>> datasetService,
+            ObservationCache cache) {
+        if (cache == null || !cache.isEnabled()) {
+            return dataService;
+        }
+        DatasetTypesService datasetTypesService = datasetService instanceof DatasetTypesService
+                ? (DatasetTypesService) datasetService
+                : null;
+        return new CachingDataService<>(dataService, cache, datasetTypesService);
+    }
+
     protected ParameterService<DatasetOutput<AbstractValue< ? >>> getDatasetService() {
         return datasetService;
     }
@@ -130,6 +186,33 @@ public abstract class DataController extends BaseController {
                                           required = false) String httpLocale,
                                       @RequestParam(required = false) MultiValueMap<String, String> query)
             throws Exception {
+        return getSeriesData(request, response, datasetId, httpLocale, query, DataEncoding.JSON);
+    }
+
+    @RequestMapping(value = "/{datasetId}/observations",
+        produces = {
+            Constants.APPLICATION_CBOR,
+            Constants.APPLICATION_SMILE,
+            Constants.APPLICATION_MSGPACK
+        },
+        method = RequestMethod.GET)
+    public void getSeriesDataAsBinary(HttpServletRequest request,
+                                      HttpServletResponse response,
+                                      @PathVariable String datasetId,
+                                      @RequestHeader(value = Parameters.HttpHeader.ACCEPT_LANGUAGE,
+                                          required = false) String httpLocale,
+                                      @RequestParam(required = false) MultiValueMap<String, String> query)
+            throws Exception {
+        getSeriesData(request, response, datasetId, httpLocale, query, getRequestedBinaryEncoding(request));
+    }
+
+    private ModelAndView getSeriesData(HttpServletRequest request,
+                                       HttpServletResponse response,
+                                       String datasetId,
+                                       String httpLocale,
+                                       MultiValueMap<String, String> query,
+                                       DataEncoding encoding)
+            throws Exception {
         IoParameters map = createParameters(datasetId, query, httpLocale, response);
         LOGGER.debug("get data for item '{}' with query: {}", datasetId, map);
         checkAgainstTimespanRestriction(map.getTimespan());
@@ -141,13 +224,33 @@ public abstract class DataController extends BaseController {
         // map);
         // String valueType = ValueType.extractType(datasetId, handleAsValueTypeFallback);
         String valueType = getValueType(map, request.getRequestURI());
-        IoProcessChain< ? > ioChain = createIoFactory(valueType).setParameters(map)
-                                                                .createProcessChain();
+        IoHandlerFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> ioFactory =
+                createIoFactory(valueType).setParameters(map);
+        RequestCost cost = estimateCost(ioFactory, response);
+        if (cost.isDecision(RequestCost.Decision.GENERALIZE)) {
+            map = map.replaceWith(Parameters.GENERALIZE, Boolean.TRUE.toString());
+            ioFactory.setParameters(map);
+        }
+        IoProcessChain<Data<AbstractValue< ? >>> ioChain = ioFactory.createProcessChain();
+        checkStreamingRequirement(cost, isStreamable(ioChain));
+
+        if (isDirectlyWritable(ioChain, map)) {
+            StreamingIoProcessChain<AbstractValue< ? >> streamingChain =
+                    (StreamingIoProcessChain<AbstractValue< ? >>) ioChain;
+            JsonDataWriter<AbstractValue< ? >> writer = createJsonDataWriter(streamingChain, encoding, response);
+            if (map.isExpanded()) {
+                writer.writeDataCollection(Collections.singleton(datasetId), response.getOutputStream());
+            } else {
+                writer.writeData(datasetId, response.getOutputStream());
+            }
+            return null;
+        }
 
         DataCollection< ? > dataCollection = ioChain.getProcessedData();
-        return map.isExpanded()
-                ? new ModelAndView().addObject(dataCollection.getSeriesOutput())
-                : new ModelAndView().addObject(dataCollection.getSeries(datasetId));
+        Object output = map.isExpanded()
+                ? dataCollection.getSeriesOutput()
+                : dataCollection.getSeries(datasetId);
+        return writeOutput(output, encoding, response);
     }
 
     @RequestMapping(value = "/observations",
@@ -161,6 +264,31 @@ public abstract class DataController extends BaseController {
                                               required = false) String httpLocale,
                                           @RequestBody RequestSimpleParameterSet simpleParameters)
             throws Exception {
+        return getCollectionData(request, response, httpLocale, simpleParameters, DataEncoding.JSON);
+    }
+
+    @RequestMapping(value = "/observations",
+        produces = {
+            Constants.APPLICATION_CBOR,
+            Constants.APPLICATION_SMILE,
+            Constants.APPLICATION_MSGPACK
+        },
+        method = RequestMethod.POST)
+    public void getCollectionDataAsBinary(HttpServletRequest request,
+                                          HttpServletResponse response,
+                                          @RequestHeader(value = Parameters.HttpHeader.ACCEPT_LANGUAGE,
+                                              required = false) String httpLocale,
+                                          @RequestBody RequestSimpleParameterSet simpleParameters)
+            throws Exception {
+        getCollectionData(request, response, httpLocale, simpleParameters, getRequestedBinaryEncoding(request));
+    }
+
+    private ModelAndView getCollectionData(HttpServletRequest request,
+                                           HttpServletResponse response,
+                                           String httpLocale,
+                                           RequestSimpleParameterSet simpleParameters,
+                                           DataEncoding encoding)
+            throws Exception {
         IoParameters parameters = createParameters(simpleParameters, httpLocale, response);
         LOGGER.debug("get data collection with parameter set: {}", parameters);
         checkForUnknownDatasetIds(parameters, parameters.getDatasets());
@@ -168,11 +296,29 @@ public abstract class DataController extends BaseController {
 
         // final String datasetType = getValueType(parameters);
         final String valueType = getValueType(parameters, request.getRequestURI());
-        IoProcessChain< ? > ioChain = createIoFactory(valueType).setParameters(parameters)
-                                                                .createProcessChain();
+        IoHandlerFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> ioFactory =
+                createIoFactory(valueType).setParameters(parameters);
+        RequestCost cost = estimateCost(ioFactory, response);
+        if (cost.isDecision(RequestCost.Decision.GENERALIZE)) {
+            parameters = parameters.replaceWith(Parameters.GENERALIZE, Boolean.TRUE.toString());
+            ioFactory.setParameters(parameters);
+        }
+        IoProcessChain<Data<AbstractValue< ? >>> ioChain = ioFactory.createProcessChain();
+        checkStreamingRequirement(cost, isStreamable(ioChain));
+
+        if (isStreamable(ioChain) && !parameters.isAggregate()) {
+            // collections are written unformatted, i.e. as time value pairs
+            StreamingIoProcessChain<AbstractValue< ? >> streamingChain =
+                    (StreamingIoProcessChain<AbstractValue< ? >>) ioChain;
+            createJsonDataWriter(streamingChain, encoding, response).writeDataCollection(parameters.getDatasets(),
+                                                                                         response.getOutputStream());
+            return null;
+        }
 
-        DataCollection< ? > processed = ioChain.getData();
-        return new ModelAndView().addObject(processed.getSeriesOutput());
+        DataCollection< ? > processed = parameters.isAggregate()
+                ? ioChain.getProcessedData()
+                : ioChain.getData();
+        return writeOutput(processed.getSeriesOutput(), encoding, response);
     }
 
     // private String getValueType(IoParameters parameters) {
@@ -230,6 +376,55 @@ public abstract class DataController extends BaseController {
         }
     }
 
+    @RequestMapping(value = "/observations",
+        produces = {
+            Constants.APPLICATION_ARROW_STREAM
+        },
+        method = RequestMethod.POST)
+    public void getCollectionDataAsArrowStream(HttpServletRequest request,
+                                               HttpServletResponse response,
+                                               @RequestHeader(value = Parameters.HttpHeader.ACCEPT_LANGUAGE,
+                                                   required = false) String httpLocale,
+                                               @RequestBody RequestSimpleParameterSet simpleParameters)
+            throws Exception {
+        IoParameters parameters = createParameters(simpleParameters, httpLocale, response);
+        LOGGER.debug("get data collection arrow stream with parameter set: {}", parameters);
+        checkForUnknownDatasetIds(parameters, parameters.getDatasets());
+        checkAgainstTimespanRestriction(parameters.getTimespan());
+
+        final String valueType = getValueType(parameters, request.getRequestURI());
+        IoHandlerFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> ioFactory =
+                createCheckedIoFactory(valueType, parameters, true, response);
+        response.setContentType(Constants.APPLICATION_ARROW_STREAM);
+        ioFactory.createHandler(Constants.APPLICATION_ARROW_STREAM)
+                 .writeBinary(response.getOutputStream());
+    }
+
+    @RequestMapping(value = "/{datasetId}/observations",
+        produces = {
+            Constants.APPLICATION_ARROW_STREAM
+        },
+        method = RequestMethod.GET)
+    public void getSeriesDataAsArrowStream(HttpServletRequest request,
+                                           HttpServletResponse response,
+                                           @PathVariable String datasetId,
+                                           @RequestHeader(value = Parameters.HttpHeader.ACCEPT_LANGUAGE,
+                                               required = false) String httpLocale,
+                                           @RequestParam(required = false) MultiValueMap<String, String> query)
+            throws Exception {
+        IoParameters parameters = createParameters(datasetId, query, httpLocale, response);
+        LOGGER.debug("get data arrow stream for '{}' with query: {}", datasetId, parameters);
+        checkAgainstTimespanRestriction(parameters.getTimespan());
+        checkForUnknownDatasetId(parameters, datasetId);
+
+        final String valueType = getValueType(parameters, request.getRequestURI());
+        IoHandlerFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> ioFactory =
+                createCheckedIoFactory(valueType, parameters, true, response);
+        response.setContentType(Constants.APPLICATION_ARROW_STREAM);
+        ioFactory.createHandler(Constants.APPLICATION_ARROW_STREAM)
+                 .writeBinary(response.getOutputStream());
+    }
+
     @RequestMapping(value = "/observations",
         produces = {
             Constants.APPLICATION_PDF
@@ -248,11 +443,12 @@ public abstract class DataController extends BaseController {
 
         // final String datasetType = getValueType(parameters);
         final String valueType = getValueType(parameters, request.getRequestURI());
+        IoHandlerFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> ioFactory =
+                createCheckedIoFactory(valueType, parameters, false, response);
         String outputFormat = Constants.APPLICATION_PDF;
         response.setContentType(outputFormat);
-        createIoFactory(valueType).setParameters(parameters)
-                                  .createHandler(outputFormat)
-                                  .writeBinary(response.getOutputStream());
+        ioFactory.createHandler(outputFormat)
+                 .writeBinary(response.getOutputStream());
     }
 
     @RequestMapping(value = {"/{datasetId}/observations", "/{datasetId}/observations.pdf", "/{datasetId}/data.pdf"},
@@ -274,14 +470,15 @@ public abstract class DataController extends BaseController {
 
         // final String datasetType = getValueType(parameters);
         final String valueType = getValueType(parameters, request.getRequestURI());
+        IoHandlerFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> ioFactory =
+                createCheckedIoFactory(valueType, parameters, false, response);
         String outputFormat = Constants.APPLICATION_PDF;
         response.setContentType(outputFormat);
         response.setHeader(CONTENT_DISPOSITION_HEADER,
                 CONTENT_DISPOSITION_VALUE_TEMPLATE + validateResponseSplitting(datasetId) + ".pdf\"");
 
-        createIoFactory(valueType).setParameters(parameters)
-                                  .createHandler(outputFormat)
-                                  .writeBinary(response.getOutputStream());
+        ioFactory.createHandler(outputFormat)
+                 .writeBinary(response.getOutputStream());
     }
 
     @RequestMapping(value = {"/{datasetId}/observations", "/{datasetId}/observations.zip", "/{datasetId}/data.zip"},
@@ -304,16 +501,18 @@ public abstract class DataController extends BaseController {
         checkAgainstTimespanRestriction(parameters.getTimespan());
         checkForUnknownDatasetId(parameters, datasetId);
 
+        // final String datasetType = getValueType(parameters);
+        final String valueType = getValueType(parameters, request.getRequestURI());
+        IoHandlerFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> ioFactory =
+                createCheckedIoFactory(valueType, parameters, true, response);
+
         response.setCharacterEncoding(DEFAULT_RESPONSE_ENCODING);
         response.setContentType(Constants.APPLICATION_ZIP);
         response.setHeader(CONTENT_DISPOSITION_HEADER,
                 CONTENT_DISPOSITION_VALUE_TEMPLATE + validateResponseSplitting(datasetId) + ".zip\"");
 
-        // final String datasetType = getValueType(parameters);
-        final String valueType = getValueType(parameters, request.getRequestURI());
-        createIoFactory(valueType).setParameters(parameters)
-                                  .createHandler(Constants.APPLICATION_ZIP)
-                                  .writeBinary(response.getOutputStream());
+        ioFactory.createHandler(Constants.APPLICATION_ZIP)
+                 .writeBinary(response.getOutputStream());
     }
 
     @RequestMapping(value = {"/{datasetId}/observations", "/{datasetId}/observations.csv", "/{datasetId}/data.csv"},
@@ -333,6 +532,11 @@ public abstract class DataController extends BaseController {
         checkAgainstTimespanRestriction(parameters.getTimespan());
         checkForUnknownDatasetId(parameters, datasetId);
 
+        // final String datasetType = getValueType(parameters);
+        final String valueType = getValueType(parameters, request.getRequestURI());
+        IoHandlerFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> ioFactory =
+                createCheckedIoFactory(valueType, parameters, true, response);
+
         String extension = ".";
         response.setCharacterEncoding(DEFAULT_RESPONSE_ENCODING);
         if (Boolean.parseBoolean(parameters.getOther(Parameters.ZIP))) {
@@ -348,11 +552,189 @@ public abstract class DataController extends BaseController {
                                    + validateResponseSplitting(extension)
                                    + "\"");
 
-        // final String datasetType = getValueType(parameters);
-        final String valueType = getValueType(parameters, request.getRequestURI());
-        createIoFactory(valueType).setParameters(parameters)
-                                  .createHandler(Constants.TEXT_CSV)
-                                  .writeBinary(response.getOutputStream());
+        ioFactory.createHandler(Constants.TEXT_CSV)
+                 .writeBinary(response.getOutputStream());
+    }
+
+    /**
+     * Estimates the cost of the request and reports it via the {@value #REQUEST_COST_HEADER} header.
+     *
+     * @throws BadRequestException
+     *         if the request is rejected as too expensive
+     */
+    private RequestCost estimateCost(IoHandlerFactory< ? , ? > ioFactory, HttpServletResponse response) {
+        return estimateCost(ioFactory, true, response);
+    }
+
+    private RequestCost estimateCost(IoHandlerFactory< ? , ? > ioFactory,
+                                     boolean generalizable,
+                                     HttpServletResponse response) {
+        RequestCost cost = ioFactory.estimateCost(generalizable);
+        if (cost.isEstimated()) {
+            response.setHeader(REQUEST_COST_HEADER, cost.toHeaderValue());
+        }
+        if (cost.isDecision(RequestCost.Decision.REJECT)) {
+            throw new BadRequestException("Request would read about " + cost.getEstimatedValues()
+                    + " values, which exceeds the configured limit.")
+                    .addHint("Please use a shorter timespan or less datasets.");
+        }
+        return cost;
+    }
+
+    /**
+     * Creates the factory of an output handler once the cost of the request has been checked like for JSON
+     * output. Exports (e.g. CSV or Arrow) are streamed if possible, but never generalized, so that raw values
+     * are exported. Reports are rendered in memory, so they get generalized but cannot be streamed.
+     */
+    private IoHandlerFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> createCheckedIoFactory(
+            String valueType,
+            IoParameters parameters,
+            boolean export,
+            HttpServletResponse response) throws DatasetFactoryException {
+        IoHandlerFactory<DatasetOutput<AbstractValue< ? >>, AbstractValue< ? >> ioFactory =
+                createIoFactory(valueType).setParameters(parameters);
+        RequestCost cost = estimateCost(ioFactory, !export, response);
+        if (cost.isDecision(RequestCost.Decision.GENERALIZE)) {
+            ioFactory.setParameters(parameters.replaceWith(Parameters.GENERALIZE, Boolean.TRUE.toString()));
+        }
+        if (cost.isDecision(RequestCost.Decision.STREAM)) {
+            checkStreamingRequirement(cost, export && isStreamable(ioFactory.createProcessChain()));
+        }
+        return ioFactory;
+    }
+
+    private void checkStreamingRequirement(RequestCost cost, boolean streamable) {
+        if (cost.isDecision(RequestCost.Decision.STREAM) && !streamable) {
+            throw new BadRequestException("Request would read about " + cost.getEstimatedValues()
+                    + " values, which can only be returned as stream, but streaming is not available.")
+                    .addHint("Please use a shorter timespan, or request generalized or aggregated data.");
+        }
+    }
+
+    private boolean isStreamable(IoProcessChain< ? > ioChain) {
+        return ioChain instanceof StreamingIoProcessChain
+                && ((StreamingIoProcessChain< ? >) ioChain).supportsStreaming();
+    }
+
+    private boolean isDirectlyWritable(IoProcessChain<Data<AbstractValue< ? >>> ioChain, IoParameters parameters) {
+        // data classified by result times, aggregated or in a chart format is rendered via formatters
+        return !parameters.shallClassifyByResultTimes()
+                && !parameters.isAggregate()
+                && isStreamable(ioChain)
+                && JsonDataWriter.supportsFormat(((StreamingIoProcessChain< ? >) ioChain).getFormat());
+    }
+
+    private JsonDataWriter<AbstractValue< ? >> createJsonDataWriter(
+            StreamingIoProcessChain<AbstractValue< ? >> ioChain,
+            DataEncoding encoding,
+            HttpServletResponse response) {
+        // no content length is set, so the output gets transferred in chunks
+        setContentType(encoding, response);
+        return new JsonDataWriter<>(getObjectMapper(encoding), ioChain);
+    }
+
+    private ModelAndView writeOutput(Object output, DataEncoding encoding, HttpServletResponse response)
+            throws IOException {
+        if (!encoding.isBinary()) {
+            return new ModelAndView().addObject(output);
+        }
+        setContentType(encoding, response);
+        getObjectMapper(encoding).writeValue(response.getOutputStream(), output);
+        return null;
+    }
+
+    private void setContentType(DataEncoding encoding, HttpServletResponse response) {
+        if (!encoding.isBinary()) {
+            response.setCharacterEncoding(DEFAULT_RESPONSE_ENCODING);
+        }
+        response.setContentType(encoding.getMimeType().getMimeType());
+    }
+
+    /**
+     * @param request
+     *        the request
+     * @return the binary encoding with the highest quality among the accepted media types,
+     *         {@link DataEncoding#CBOR} if no binary encoding has been accepted explicitly
+     */
+    protected DataEncoding getRequestedBinaryEncoding(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            for (DataEncoding encoding : DataEncoding.values()) {
+                if (encoding.isBinary()
+                        && mediaType.includes(MediaType.parseMediaType(encoding.getMimeType().getMimeType()))) {
+                    return encoding;
+                }
+            }
+        }
+        return DataEncoding.CBOR;
+    }
+
+    protected ObjectMapper getObjectMapper(DataEncoding encoding) {
+        return encoding.isBinary()
+                ? binaryMappers.computeIfAbsent(encoding, e -> e.createMapper(getObjectMapper()))
+                : getObjectMapper();
+    }
+
+    protected ObjectMapper getObjectMapper() {
+        if (objectMapper == null) {
+            objectMapper = createObjectMapper().registerModule(new ValueSerializerModule());
+        }
+        return objectMapper;
+    }
+
+    /**
+     * Sets the mapper used to write streamed JSON output. The mapper should be configured like the one used
+     * to render JSON views. A {@link ValueSerializerModule} gets registered on a copy of the given mapper, so
+     * that the shared mapper stays untouched. Mappers for binary encodings are derived from the copy.
+     *
+     * @param objectMapper
+     *        the object mapper
+     */
+    @Autowired(required = false)
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper != null
+                ? objectMapper.copy()
+                              .registerModule(new ValueSerializerModule())
+                : null;
+        this.binaryMappers.clear();
+    }
+
+    /**
+     * @param generalizationExecutor
+     *        the executor generalizing multiple series in parallel, series are generalized serially if not set
+     */
+    @Autowired(required = false)
+    public void setGeneralizationExecutor(GeneralizationExecutor generalizationExecutor) {
+        this.generalizationExecutor = generalizationExecutor;
+    }
+
+    /**
+     * @param generalizationCache
+     *        the cache of generalized series, generalized series are not cached if not set
+     */
+    @Autowired(required = false)
+    public void setGeneralizationCache(GeneralizationCache generalizationCache) {
+        this.generalizationCache = generalizationCache;
+    }
+
+    /**
+     * @param pyramidStore
+     *        the store of generalization pyramids, series are generalized from raw values only if not set
+     */
+    @Autowired(required = false)
+    public void setPyramidStore(PyramidStore pyramidStore) {
+        this.pyramidStore = pyramidStore;
+    }
+
+    /**
+     * @param requestCostEstimator
+     *        the estimator of request costs, costs are not estimated if not set
+     */
+    @Autowired(required = false)
+    public void setRequestCostEstimator(RequestCostEstimator requestCostEstimator) {
+        this.requestCostEstimator = requestCostEstimator;
     }
 
     protected void checkAgainstTimespanRestriction(IntervalWithTimeZone timespan) {
@@ -388,7 +770,13 @@ public abstract class DataController extends BaseController {
         if (!ioFactoryCreator.isKnown(valueType)) {
             throw new ResourceNotFoundException("unknown dataset type: " + valueType);
         }
-        return ioFactoryCreator.create(valueType).setDataService(dataService).setDatasetService(datasetService);
+        return ioFactoryCreator.create(valueType)
+                               .setDataService(dataService)
+                               .setDatasetService(datasetService)
+                               .setGeneralizationExecutor(generalizationExecutor)
+                               .setGeneralizationCache(generalizationCache)
+                               .setPyramidStore(pyramidStore)
+                               .setRequestCostEstimator(requestCostEstimator);
     }
 
     @Override
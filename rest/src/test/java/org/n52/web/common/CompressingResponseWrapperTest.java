@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.web.common;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.web.common.ServletStubs.ResponseStub;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+
+public class CompressingResponseWrapperTest {
+
+    private static final int MIN_SIZE = 100;
+
+    private ResponseStub response;
+
+    @BeforeEach
+    public void setUp() {
+        response = new ResponseStub();
+    }
+
+    @Test
+    public void when_bodyExceedsMinSize_then_bodyIsCompressed() throws IOException {
+        CompressingResponseWrapper wrapper = createWrapper(ContentEncoding.GZIP);
+        wrapper.setContentType("application/json");
+        wrapper.setContentLength(1000);
+        write(wrapper, createContent(1000));
+
+        assertThat(response.getHeader("Content-Encoding"), is("gzip"));
+        assertThat(response.getHeader("Content-Length"), is(nullValue()));
+        assertThat(readAll(new GZIPInputStream(new ByteArrayInputStream(response.getBody()))),
+                   is(createContent(1000)));
+    }
+
+    @Test
+    public void when_bodyWithinMinSize_then_bodyIsWrittenAsIs() throws IOException {
+        CompressingResponseWrapper wrapper = createWrapper(ContentEncoding.GZIP);
+        wrapper.setContentType("application/json");
+        write(wrapper, createContent(MIN_SIZE));
+
+        assertThat(response.getHeader("Content-Encoding"), is(nullValue()));
+        assertThat(response.getHeader("Content-Length"), is(Integer.toString(MIN_SIZE)));
+        assertThat(response.getBody(), is(createContent(MIN_SIZE)));
+    }
+
+    @Test
+    public void when_contentTypeIsCompressedAlready_then_contentLengthIsKept() throws IOException {
+        CompressingResponseWrapper wrapper = createWrapper(ContentEncoding.GZIP);
+        wrapper.setContentType("image/png");
+        wrapper.setContentLength(1000);
+        write(wrapper, createContent(1000));
+
+        assertThat(response.getHeader("Content-Encoding"), is(nullValue()));
+        assertThat(response.getHeader("Content-Length"), is("1000"));
+        assertThat(response.getBody(), is(createContent(1000)));
+    }
+
+    @Test
+    public void when_contentLengthSetAsHeader_then_contentLengthIsKeptForUncompressedBody() throws IOException {
+        CompressingResponseWrapper wrapper = createWrapper(ContentEncoding.GZIP);
+        wrapper.setContentType("application/pdf");
+        wrapper.setHeader("Content-Length", "1000");
+        write(wrapper, createContent(1000));
+
+        assertThat(response.getHeader("Content-Length"), is("1000"));
+    }
+
+    @Test
+    public void when_writeListenerSet_then_passedThroughUncompressed() throws IOException {
+        CompressingResponseWrapper wrapper = createWrapper(ContentEncoding.GZIP);
+        wrapper.setContentType("application/json");
+        WriteListener listener = new WriteListener() {
+
+            @Override
+            public void onWritePossible() {
+                // not called by the stub
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                // not called by the stub
+            }
+        };
+        ServletOutputStream stream = wrapper.getOutputStream();
+        stream.write(createContent(10));
+        stream.setWriteListener(listener);
+        stream.write(createContent(1000));
+        wrapper.finish();
+
+        assertThat(response.getWriteListener(), is(sameInstance(listener)));
+        assertThat(response.getHeader("Content-Encoding"), is(nullValue()));
+        assertThat(response.getBody().length, is(1010));
+    }
+
+    @Test
+    public void when_zstdNegotiated_then_bodyIsStreamedAsZstd() throws IOException {
+        CompressingResponseWrapper wrapper = createWrapper(ContentEncoding.ZSTD);
+        wrapper.setContentType("application/json");
+        byte[] content = createContent(100_000);
+        ServletOutputStream stream = wrapper.getOutputStream();
+        for (int offset = 0; offset < content.length; offset += 1000) {
+            stream.write(content, offset, 1000);
+        }
+        wrapper.finish();
+
+        assertThat(response.getHeader("Content-Encoding"), is("zstd"));
+        assertThat(readAll(new ZstdInputStream(new ByteArrayInputStream(response.getBody()))), is(content));
+    }
+
+    @Test
+    public void when_writerUsed_then_bodyIsCompressed() throws IOException {
+        CompressingResponseWrapper wrapper = createWrapper(ContentEncoding.GZIP);
+        wrapper.setContentType("application/json");
+        String content = new String(createContent(1000), StandardCharsets.UTF_8);
+        wrapper.getWriter()
+               .write(content);
+        wrapper.finish();
+
+        assertThat(response.getHeader("Content-Encoding"), is("gzip"));
+        assertThat(readAll(new GZIPInputStream(new ByteArrayInputStream(response.getBody()))),
+                   is(createContent(1000)));
+    }
+
+    @Test
+    public void when_cachedContentWritten_then_encodedVariantIsWrittenAsIs() throws IOException {
+        CompressingResponseWrapper wrapper = createWrapper(ContentEncoding.GZIP);
+        HttpServletResponseWrapper outer = new HttpServletResponseWrapper(wrapper);
+        assertThat(CompressingResponseWrapper.unwrap(outer), is(sameInstance(wrapper)));
+
+        CompressedContent content = new CompressedContent(createContent(1000), "application/json");
+        wrapper.setContentType(content.getContentType());
+        assertThat(wrapper.isCompressing(content.getContent().length), is(true));
+        byte[] encoded = content.getEncoded(ContentEncoding.GZIP);
+        wrapper.setHeader("Content-Encoding", "gzip");
+        wrapper.setContentLength(encoded.length);
+        write(wrapper, encoded);
+
+        // compressed once, i.e. not compressed again by the wrapper
+        assertThat(response.getHeader("Content-Length"), is(Integer.toString(encoded.length)));
+        assertThat(readAll(new GZIPInputStream(new ByteArrayInputStream(response.getBody()))),
+                   is(createContent(1000)));
+        assertThat(content.getEncoded(ContentEncoding.GZIP), is(sameInstance(encoded)));
+    }
+
+    private CompressingResponseWrapper createWrapper(ContentEncoding encoding) {
+        return new CompressingResponseWrapper(response.getResponse(), encoding, encoding.getDefaultLevel(), MIN_SIZE);
+    }
+
+    private void write(CompressingResponseWrapper wrapper, byte[] content) throws IOException {
+        wrapper.getOutputStream()
+               .write(content);
+        wrapper.finish();
+    }
+
+    static byte[] createContent(int length) {
+        byte[] content = new byte[length];
+        byte[] pattern = "{\"timestamp\":1600000000000,\"value\":42},".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < length; i++) {
+            content[i] = pattern[i % pattern.length];
+        }
+        return content;
+    }
+
+    static byte[] readAll(InputStream stream) throws IOException {
+        try (InputStream input = stream) {
+            return input.readAllBytes();
+        }
+    }
+
+}
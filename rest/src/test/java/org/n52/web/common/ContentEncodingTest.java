@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.web.common;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+
+public class ContentEncodingTest {
+
+    private static final List<ContentEncoding> ALL = Arrays.asList(ContentEncoding.values());
+
+    @Test
+    public void when_noAcceptEncoding_then_noEncodingNegotiated() {
+        assertThat(ContentEncoding.negotiate(null, ALL), is(Optional.empty()));
+        assertThat(ContentEncoding.negotiate("identity", ALL), is(Optional.empty()));
+    }
+
+    @Test
+    public void when_equalQualities_then_serverPreferenceWins() {
+        assertThat(ContentEncoding.negotiate("gzip, deflate, zstd", ALL), is(Optional.of(ContentEncoding.ZSTD)));
+        List<ContentEncoding> gzipFirst = Arrays.asList(ContentEncoding.GZIP, ContentEncoding.DEFLATE);
+        assertThat(ContentEncoding.negotiate("deflate, gzip", gzipFirst), is(Optional.of(ContentEncoding.GZIP)));
+    }
+
+    @Test
+    public void when_qualitiesGiven_then_highestQualityWins() {
+        assertThat(ContentEncoding.negotiate("zstd;q=0.5, gzip;q=0.8", ALL), is(Optional.of(ContentEncoding.GZIP)));
+        assertThat(ContentEncoding.negotiate("zstd;q=0, *", ALL), is(Optional.of(ContentEncoding.GZIP)));
+        assertThat(ContentEncoding.negotiate("*;q=0", ALL), is(Optional.empty()));
+    }
+
+    @Test
+    public void when_encodingGzip_then_decodableContent() throws IOException {
+        byte[] content = createContent();
+        byte[] encoded = encode(ContentEncoding.GZIP, content, 9);
+        assertThat(encoded.length, is(lessThan(content.length)));
+        assertThat(readAll(new GZIPInputStream(new ByteArrayInputStream(encoded))), is(content));
+    }
+
+    @Test
+    public void when_encodingDeflate_then_decodableZlibContent() throws IOException {
+        byte[] content = createContent();
+        byte[] encoded = encode(ContentEncoding.DEFLATE, content, 1);
+        assertThat(readAll(new InflaterInputStream(new ByteArrayInputStream(encoded))), is(content));
+    }
+
+    @Test
+    public void when_encodingZstd_then_decodableStream() throws IOException {
+        byte[] content = createContent();
+        byte[] encoded = encode(ContentEncoding.ZSTD, content, ContentEncoding.ZSTD.getDefaultLevel());
+        assertThat(encoded.length, is(lessThan(content.length)));
+        assertThat(readAll(new ZstdInputStream(new ByteArrayInputStream(encoded))), is(content));
+    }
+
+    private byte[] encode(ContentEncoding encoding, byte[] content, int level) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (OutputStream stream = encoding.encode(encoded, level)) {
+            // written in chunks like a response body
+            for (int offset = 0; offset < content.length; offset += 1000) {
+                stream.write(content, offset, Math.min(1000, content.length - offset));
+            }
+        }
+        return encoded.toByteArray();
+    }
+
+    private byte[] createContent() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append("{\"timestamp\":")
+                .append(1600000000000L + i * 600000L)
+                .append(",\"value\":")
+                .append(i % 17)
+                .append("},");
+        }
+        json.setCharAt(json.length() - 1, ']');
+        return json.toString()
+                   .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] readAll(InputStream stream) throws IOException {
+        try (InputStream input = stream) {
+            return input.readAllBytes();
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.web.common;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.n52.web.common.ServletStubs.ResponseStub;
+
+public class ResponseCompressionFilterTest {
+
+    private static final byte[] CONTENT = CompressingResponseWrapperTest.createContent(10_000);
+
+    private ResponseCompressionFilter filter;
+
+    private ResponseStub response;
+
+    @BeforeEach
+    public void setUp() {
+        filter = new ResponseCompressionFilter();
+        response = new ResponseStub();
+    }
+
+    @Test
+    public void when_defaults_then_allEncodingsWithZstdFirst() {
+        assertThat(filter.getEncodings(),
+                   contains(ContentEncoding.ZSTD, ContentEncoding.GZIP, ContentEncoding.DEFLATE));
+    }
+
+    @Test
+    public void when_gzipAccepted_then_responseIsCompressed() throws ServletException, IOException {
+        filter.setEncodings("gzip,deflate");
+        doFilter("GET", "deflate, gzip");
+
+        assertThat(response.getHeader("Vary"), is("Accept-Encoding"));
+        assertThat(response.getHeader("Content-Encoding"), is("gzip"));
+        assertThat(CompressingResponseWrapperTest.readAll(new GZIPInputStream(
+                new ByteArrayInputStream(response.getBody()))), is(CONTENT));
+    }
+
+    @Test
+    public void when_noEncodingAccepted_then_responseIsWrittenAsIs() throws ServletException, IOException {
+        doFilter("GET", null);
+
+        assertThat(response.getHeader("Vary"), is("Accept-Encoding"));
+        assertThat(response.getHeader("Content-Encoding"), is(nullValue()));
+        assertThat(response.getBody(), is(CONTENT));
+    }
+
+    @Test
+    public void when_headRequest_then_responseIsWrittenAsIs() throws ServletException, IOException {
+        doFilter("HEAD", "gzip");
+
+        assertThat(response.getHeader("Content-Encoding"), is(nullValue()));
+    }
+
+    @Test
+    public void when_encodingsEmpty_then_compressionIsDisabled() throws ServletException, IOException {
+        filter.setEncodings("");
+        doFilter("GET", "gzip");
+
+        assertThat(response.getHeader("Vary"), is(nullValue()));
+        assertThat(response.getHeader("Content-Encoding"), is(nullValue()));
+        assertThat(response.getBody(), is(CONTENT));
+    }
+
+    @Test
+    public void when_unsupportedEncodingConfigured_then_exception() {
+        assertThrows(IllegalArgumentException.class, () -> filter.setEncodings("gzip,br"));
+    }
+
+    @Test
+    public void when_levelOutOfRange_then_exception() {
+        assertThrows(IllegalArgumentException.class, () -> filter.setGzipLevel(10));
+    }
+
+    private void doFilter(String method, String acceptEncoding) throws ServletException, IOException {
+        FilterChain chain = (request, servletResponse) -> {
+            servletResponse.setContentType("application/json");
+            servletResponse.getOutputStream()
+                           .write(CONTENT);
+        };
+        filter.doFilterInternal(ServletStubs.createRequest(method, acceptEncoding), response.getResponse(), chain);
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.web.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Minimal in-memory request and response for testing servlet filters and response wrappers.
+ */
+final class ServletStubs {
+
+    private ServletStubs() {
+    }
+
+    static HttpServletRequest createRequest(String method, String acceptEncoding) {
+        return (HttpServletRequest) Proxy.newProxyInstance(ServletStubs.class.getClassLoader(),
+                                                           new Class< ? >[] {HttpServletRequest.class},
+                                                           (proxy, invoked, args) -> {
+                                                               if ("getMethod".equals(invoked.getName())) {
+                                                                   return method;
+                                                               }
+                                                               if ("getHeader".equals(invoked.getName())
+                                                                       && isAcceptEncoding(args[0])) {
+                                                                   return acceptEncoding;
+                                                               }
+                                                               return getDefault(invoked);
+                                                           });
+    }
+
+    private static boolean isAcceptEncoding(Object name) {
+        return "Accept-Encoding".equalsIgnoreCase((String) name);
+    }
+
+    private static Object getDefault(Method method) {
+        Class< ? > type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    /**
+     * Records headers and body written to a {@link HttpServletResponse}.
+     */
+    static final class ResponseStub {
+
+        private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private final HttpServletResponse response;
+
+        private WriteListener writeListener;
+
+        private PrintWriter writer;
+
+        private final ServletOutputStream outputStream = new ServletOutputStream() {
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                writeListener = listener;
+            }
+        };
+
+        ResponseStub() {
+            this.response = (HttpServletResponse) Proxy.newProxyInstance(ServletStubs.class.getClassLoader(),
+                                                                         new Class< ? >[] {HttpServletResponse.class},
+                                                                         (proxy, invoked, args) -> invoke(invoked,
+                                                                                                          args));
+        }
+
+        HttpServletResponse getResponse() {
+            return response;
+        }
+
+        String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        byte[] getBody() {
+            return body.toByteArray();
+        }
+
+        WriteListener getWriteListener() {
+            return writeListener;
+        }
+
+        private Object invoke(Method method, Object[] args) throws IOException {
+            switch (method.getName()) {
+                case "setHeader":
+                    headers.put((String) args[0], (String) args[1]);
+                    return null;
+                case "addHeader":
+                    headers.merge((String) args[0], (String) args[1], (first, second) -> first + "," + second);
+                    return null;
+                case "getHeader":
+                    return headers.get((String) args[0]);
+                case "containsHeader":
+                    return headers.containsKey((String) args[0]);
+                case "setContentType":
+                    headers.put("Content-Type", (String) args[0]);
+                    return null;
+                case "getContentType":
+                    return headers.get("Content-Type");
+                case "setContentLength":
+                case "setContentLengthLong":
+                    headers.put("Content-Length", args[0].toString());
+                    return null;
+                case "getCharacterEncoding":
+                    return StandardCharsets.UTF_8.name();
+                case "getOutputStream":
+                    return outputStream;
+                case "getWriter":
+                    if (writer == null) {
+                        writer = new PrintWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                    }
+                    return writer;
+                case "flushBuffer":
+                    if (writer != null) {
+                        writer.flush();
+                    }
+                    return null;
+                case "resetBuffer":
+                    body.reset();
+                    return null;
+                case "reset":
+                    body.reset();
+                    headers.clear();
+                    return null;
+                default:
+                    return getDefault(method);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.web.ctrl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.n52.web.ctrl.ResourcesController.ResourceCollection;
+
+public class ResourceCounterTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private final CountDownLatch blocked = new CountDownLatch(1);
+
+    @AfterEach
+    public void tearDown() {
+        blocked.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void when_noTimeoutConfigured_then_countSequentially() {
+        ResourceCounter counter = new ResourceCounter(0, null);
+        ResourceCollection stations = ResourceCollection.createResource("stations");
+        Map<ResourceCollection, Supplier<Long>> counts = new LinkedHashMap<>();
+        counts.put(stations, () -> 42L);
+        counter.count(counts);
+
+        assertThat(counter.isConcurrent(), is(false));
+        assertThat(stations.getSize(), is(42L));
+    }
+
+    @Test
+    public void when_countTimesOut_then_sizeUnknown() {
+        ResourceCounter counter = new ResourceCounter(100, executor);
+        ResourceCollection stations = ResourceCollection.createResource("stations");
+        ResourceCollection datasets = ResourceCollection.createResource("datasets");
+        Map<ResourceCollection, Supplier<Long>> counts = new LinkedHashMap<>();
+        counts.put(stations, () -> 42L);
+        counts.put(datasets, this::blockedCount);
+        counter.count(counts);
+
+        assertThat(stations.getSize(), is(42L));
+        assertThat(datasets.getSize(), is(nullValue()));
+    }
+
+    @Test
+    public void when_countFails_then_exceptionIsThrown() {
+        ResourceCounter counter = new ResourceCounter(1000, executor);
+        Map<ResourceCollection, Supplier<Long>> counts = new LinkedHashMap<>();
+        counts.put(ResourceCollection.createResource("stations"), () -> {
+            throw new IllegalStateException("failed");
+        });
+        assertThrows(IllegalStateException.class, () -> counter.count(counts));
+    }
+
+    private Long blockedCount() {
+        try {
+            blocked.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                  .interrupt();
+        }
+        return 1L;
+    }
+
+}
@@ -30,6 +30,10 @@ package org.n52.io;
 public interface Constants {
 
     String APPLICATION_JSON = "application/json";
+    String APPLICATION_CBOR = "application/cbor";
+    String APPLICATION_SMILE = "application/x-jackson-smile";
+    String APPLICATION_MSGPACK = "application/msgpack";
+    String APPLICATION_ARROW_STREAM = "application/vnd.apache.arrow.stream";
     String APPLICATION_PDF = "application/pdf";
     String APPLICATION_ZIP = "application/zip";
     String IMAGE_PNG = "image/png";
@@ -38,6 +42,10 @@ public interface Constants {
     enum MimeType {
 
         APPLICATION_JSON(Constants.APPLICATION_JSON, "json"),
+        APPLICATION_CBOR(Constants.APPLICATION_CBOR, "cbor"),
+        APPLICATION_SMILE(Constants.APPLICATION_SMILE, "smile"),
+        APPLICATION_MSGPACK(Constants.APPLICATION_MSGPACK, "msgpack"),
+        APPLICATION_ARROW_STREAM(Constants.APPLICATION_ARROW_STREAM, "arrow"),
         APPLICATION_PDF(Constants.APPLICATION_PDF, "pdf"),
         APPLICATION_ZIP(Constants.APPLICATION_ZIP, "zip"),
         IMAGE_PNG(Constants.IMAGE_PNG, "png"),
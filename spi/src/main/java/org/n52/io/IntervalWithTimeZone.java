@@ -42,7 +42,9 @@ import org.joda.time.Interval;
  */
 public class IntervalWithTimeZone {
 
-    private String timespan;
+    private final String timespan;
+
+    private final Interval interval;
 
     /**
      * @param timespan
@@ -51,7 +53,7 @@ public class IntervalWithTimeZone {
      *         if timespan is not a valid interval.
      */
     public IntervalWithTimeZone(String timespan) {
-        Interval.parse(timespan);
+        this.interval = Interval.parse(timespan);
         this.timespan = timespan;
     }
 
@@ -62,7 +64,7 @@ public class IntervalWithTimeZone {
     }
 
     public Interval toInterval() {
-        return Interval.parse(timespan);
+        return interval;
     }
 
     @Override
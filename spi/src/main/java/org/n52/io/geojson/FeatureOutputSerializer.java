@@ -33,7 +33,6 @@ import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import java.io.IOException;
 import java.util.Map;
-import org.locationtech.jts.geom.Geometry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +40,8 @@ public class FeatureOutputSerializer extends JsonSerializer<GeoJSONFeature> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FeatureOutputSerializer.class);
 
+    private static final GeoJSONGeometryWriter GEOMETRY_WRITER = new GeoJSONGeometryWriter();
+
     @Override
     public void serialize(GeoJSONFeature value, JsonGenerator gen, SerializerProvider serializers)
             throws IOException, JsonProcessingException {
@@ -56,19 +57,18 @@ public class FeatureOutputSerializer extends JsonSerializer<GeoJSONFeature> {
         }
         if (value.isSetGeometry()) {
             gen.writeStringField("type", "Feature");
-            gen.writeObjectField("geometry", encodeGeometry(value));
+            gen.writeFieldName("geometry");
+            writeGeometry(value, gen);
         }
         gen.writeEndObject();
     }
 
-    private Object encodeGeometry(GeoJSONFeature value) {
+    private void writeGeometry(GeoJSONFeature value, JsonGenerator gen) throws IOException {
         try {
-            final GeoJSONEncoder enc = new GeoJSONEncoder();
-            final Geometry geometry = value.getGeometry();
-            return enc.encodeGeometry(geometry);
+            GEOMETRY_WRITER.writeGeometry(value.getGeometry(), gen);
         } catch (GeoJSONException e) {
             LOGGER.error("could not properly encode geometry.", e);
-            return null;
+            gen.writeNull();
         }
     }
 
@@ -207,10 +207,7 @@ public class GeoJSONEncoder {
     }
 
     protected int encodeCRS(int srid, int parentSrid, ObjectNode json) {
-        if (srid == parentSrid
-                || srid == 0
-                || parentSrid == DEFAULT_SRID
-                && srid == DEFAULT_SRID) {
+        if (resolveSrid(srid, parentSrid) == parentSrid) {
             return parentSrid;
         } else {
             json.putObject(JSONConstants.CRS)
@@ -221,4 +218,22 @@ public class GeoJSONEncoder {
         }
     }
 
+    /**
+     * @param srid
+     *        the geometry's srid
+     * @param parentSrid
+     *        the srid of the enclosing geometry
+     * @return the parent srid if the geometry inherits it, the geometry's srid if it has to be linked
+     *         explicitly
+     */
+    static int resolveSrid(int srid, int parentSrid) {
+        if (srid == parentSrid
+                || srid == 0
+                || parentSrid == DEFAULT_SRID
+                && srid == DEFAULT_SRID) {
+            return parentSrid;
+        }
+        return srid;
+    }
+
 }
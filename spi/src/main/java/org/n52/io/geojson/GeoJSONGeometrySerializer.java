@@ -42,14 +42,16 @@ public class GeoJSONGeometrySerializer extends JsonSerializer<Geometry> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GeoJSONGeometrySerializer.class);
 
+    private static final GeoJSONGeometryWriter GEOMETRY_WRITER = new GeoJSONGeometryWriter();
+
     @Override
     public void serialize(Geometry geometry, JsonGenerator gen, SerializerProvider serializers)
             throws IOException, JsonProcessingException {
         try {
-            final GeoJSONEncoder enc = new GeoJSONEncoder();
-            gen.writeObject(enc.encodeGeometry(geometry));
+            GEOMETRY_WRITER.writeGeometry(geometry, gen);
         } catch (GeoJSONException e) {
             LOGGER.error("could not properly encode geometry.", e);
+            gen.writeNull();
         }
 
     }
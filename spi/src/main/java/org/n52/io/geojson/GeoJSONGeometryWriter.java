@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.geojson;
+
+import java.io.IOException;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.n52.shetland.util.JTSHelper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes geometries as GeoJSON directly to a {@link JsonGenerator}. Output and CRS link semantics are the
+ * same as of {@link GeoJSONEncoder}, but no intermediate JSON tree is created. Instances are stateless and can
+ * be shared.
+ *
+ * @see GeoJSONEncoder
+ */
+public class GeoJSONGeometryWriter {
+
+    /**
+     * Writes the geometry or <code>null</code> if the geometry is <code>null</code> or empty.
+     *
+     * @param geometry
+     *        the geometry to write
+     * @param gen
+     *        the generator to write to
+     * @throws IOException
+     *         if writing fails
+     * @throws GeoJSONException
+     *         if the geometry (or one of its members) is of unknown type. In this case nothing has been written.
+     */
+    public void writeGeometry(Geometry geometry, JsonGenerator gen) throws IOException, GeoJSONException {
+        writeGeometry(geometry, GeoJSONEncoder.DEFAULT_SRID, gen);
+    }
+
+    public void writeGeometry(Geometry geometry, int parentSrid, JsonGenerator gen)
+            throws IOException, GeoJSONException {
+        if (geometry == null || geometry.isEmpty()) {
+            gen.writeNull();
+        } else {
+            assertKnownType(geometry);
+            write(geometry, parentSrid, gen);
+        }
+    }
+
+    private void assertKnownType(Geometry geometry) throws GeoJSONException {
+        if (geometry instanceof GeometryCollection
+                && !(geometry instanceof MultiPoint
+                        || geometry instanceof MultiLineString
+                        || geometry instanceof MultiPolygon)) {
+            for (int i = 0; i < geometry.getNumGeometries(); ++i) {
+                Geometry member = geometry.getGeometryN(i);
+                if (!member.isEmpty()) {
+                    assertKnownType(member);
+                }
+            }
+        } else if (!(geometry instanceof Point
+                || geometry instanceof LineString
+                || geometry instanceof Polygon
+                || geometry instanceof GeometryCollection)) {
+            throw new GeoJSONException("unknown geometry type " + geometry.getGeometryType());
+        }
+    }
+
+    private void write(Geometry geometry, int parentSrid, JsonGenerator gen) throws IOException {
+        if (geometry.isEmpty()) {
+            gen.writeNull();
+        } else if (geometry instanceof Point) {
+            writeStart(JSONConstants.POINT, gen);
+            writeCoordinates((Point) geometry, gen);
+            writeEnd(geometry, parentSrid, gen);
+        } else if (geometry instanceof LineString) {
+            writeStart(JSONConstants.LINE_STRING, gen);
+            writeCoordinates(((LineString) geometry).getCoordinateSequence(), gen);
+            writeEnd(geometry, parentSrid, gen);
+        } else if (geometry instanceof Polygon) {
+            writeStart(JSONConstants.POLYGON, gen);
+            writeCoordinates((Polygon) geometry, gen);
+            writeEnd(geometry, parentSrid, gen);
+        } else if (geometry instanceof MultiPoint) {
+            writeStart(JSONConstants.MULTI_POINT, gen);
+            gen.writeStartArray();
+            for (int i = 0; i < geometry.getNumGeometries(); ++i) {
+                writeCoordinates((Point) geometry.getGeometryN(i), gen);
+            }
+            gen.writeEndArray();
+            writeEnd(geometry, parentSrid, gen);
+        } else if (geometry instanceof MultiLineString) {
+            writeStart(JSONConstants.MULTI_LINE_STRING, gen);
+            gen.writeStartArray();
+            for (int i = 0; i < geometry.getNumGeometries(); ++i) {
+                writeCoordinates(((LineString) geometry.getGeometryN(i)).getCoordinateSequence(), gen);
+            }
+            gen.writeEndArray();
+            writeEnd(geometry, parentSrid, gen);
+        } else if (geometry instanceof MultiPolygon) {
+            writeStart(JSONConstants.MULTI_POLYGON, gen);
+            gen.writeStartArray();
+            for (int i = 0; i < geometry.getNumGeometries(); ++i) {
+                writeCoordinates((Polygon) geometry.getGeometryN(i), gen);
+            }
+            gen.writeEndArray();
+            writeEnd(geometry, parentSrid, gen);
+        } else {
+            writeCollection((GeometryCollection) geometry, parentSrid, gen);
+        }
+    }
+
+    private void writeCollection(GeometryCollection geometry, int parentSrid, JsonGenerator gen)
+            throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField(JSONConstants.TYPE, JSONConstants.GEOMETRY_COLLECTION);
+        gen.writeFieldName(JSONConstants.GEOMETRIES);
+        gen.writeStartArray();
+        int srid = GeoJSONEncoder.resolveSrid(geometry.getSRID(), parentSrid);
+        for (int i = 0; i < geometry.getNumGeometries(); ++i) {
+            write(geometry.getGeometryN(i), srid, gen);
+        }
+        gen.writeEndArray();
+        writeEnd(geometry, parentSrid, gen);
+    }
+
+    private void writeStart(String type, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField(JSONConstants.TYPE, type);
+        gen.writeFieldName(JSONConstants.COORDINATES);
+    }
+
+    private void writeEnd(Geometry geometry, int parentSrid, JsonGenerator gen) throws IOException {
+        int srid = geometry.getSRID();
+        if (GeoJSONEncoder.resolveSrid(srid, parentSrid) != parentSrid) {
+            gen.writeObjectFieldStart(JSONConstants.CRS);
+            gen.writeStringField(JSONConstants.TYPE, JSONConstants.LINK);
+            gen.writeObjectFieldStart(JSONConstants.PROPERTIES);
+            gen.writeStringField(JSONConstants.HREF, GeoJSONEncoder.SRID_LINK_PREFIX + srid);
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+        gen.writeEndObject();
+    }
+
+    private void writeCoordinates(Point geometry, JsonGenerator gen) throws IOException {
+        Coordinate coordinate = geometry.getCoordinate();
+        writeCoordinate(coordinate.x, coordinate.y, coordinate.getZ(), gen);
+    }
+
+    private void writeCoordinates(Polygon geometry, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        Coordinate[] exterior = JTSHelper.getExteriorRingCoordinatesFromPolygon(geometry);
+        gen.writeStartArray();
+        for (Coordinate coordinate : exterior) {
+            writeCoordinate(coordinate.x, coordinate.y, coordinate.getZ(), gen);
+        }
+        gen.writeEndArray();
+        for (int i = 0; i < geometry.getNumInteriorRing(); ++i) {
+            writeCoordinates(geometry.getInteriorRingN(i).getCoordinateSequence(), gen);
+        }
+        gen.writeEndArray();
+    }
+
+    private void writeCoordinates(CoordinateSequence coordinates, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        for (int i = 0; i < coordinates.size(); ++i) {
+            Coordinate coordinate = coordinates.getCoordinate(i);
+            writeCoordinate(coordinate.x, coordinate.y, coordinate.getZ(), gen);
+        }
+        gen.writeEndArray();
+    }
+
+    private void writeCoordinate(double x, double y, double z, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        gen.writeNumber(x);
+        gen.writeNumber(y);
+        if (!Double.isNaN(z)) {
+            gen.writeNumber(z);
+        }
+        gen.writeEndArray();
+    }
+
+}
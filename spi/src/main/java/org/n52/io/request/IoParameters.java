@@ -36,12 +36,13 @@ import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -50,14 +51,21 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
 import org.joda.time.Instant;
+import org.joda.time.Period;
 import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISOPeriodFormat;
 import org.locationtech.jts.geom.Point;
 import org.n52.io.IntervalWithTimeZone;
 import org.n52.io.IoParseException;
@@ -80,6 +88,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 
@@ -89,20 +98,51 @@ public final class IoParameters implements Parameters {
 
     private static final String DEFAULT_CONFIG_FILE = "config-general.json";
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new JodaModule());
 
     private static final ODataFesParser ODATA_PARSER = new ODataFesParser();
 
-    private static final Map<String, Map<String, JsonNode>> LOADED_CONFIGS = new LinkedHashMap<>();
+    // lower cased configs, value lists are shared and must not be modified
+    private static final Map<String, MultiValueMap<String, JsonNode>> LOADED_CONFIGS = new ConcurrentHashMap<>();
 
     private static final String QUANTITY = "quantity";
 
     private static final String SPLIT_REGEX = "\\,";
 
+    /**
+     * Parameters whose comma separated values are evaluated as set, i.e. independent of their order.
+     */
+    private static final Set<String> SET_VALUED_PARAMETERS = Stream.of(SERVICES,
+                                                                       CATEGORIES,
+                                                                       FEATURES,
+                                                                       OFFERINGS,
+                                                                       PHENOMENA,
+                                                                       PROCEDURES,
+                                                                       STATIONS,
+                                                                       PLATFORMS,
+                                                                       DATASETS,
+                                                                       SAMPLINGS,
+                                                                       MEASURING_PROGRAMS,
+                                                                       TAGS,
+                                                                       FILTER_FIELDS,
+                                                                       FILTER_DATASET_TYPES,
+                                                                       FILTER_OBSERVATION_TYPES,
+                                                                       FILTER_VALUE_TYPES,
+                                                                       FILTER_PLATFORM_GEOMETRIES,
+                                                                       FILTER_OBSERVED_GEOMETRIES,
+                                                                       GEOMETRY_TYPES,
+                                                                       SEARCH_TYPES,
+                                                                       SELECT)
+                                                                   .map(String::toLowerCase)
+                                                                   .collect(toSet());
+
     private final MultiValueMap<String, JsonNode> query;
 
     private final FilterResolver filterResolver;
 
+    // values derived from the query, parsed once per instance
+    private final Map<String, Object> derivedValues = new ConcurrentHashMap<>();
+
     private boolean behaveBackwardsCompatible;
 
     private BiConsumer<String, IoParseException> parseExceptionHandle;
@@ -138,30 +178,22 @@ public final class IoParameters implements Parameters {
     }
 
     private IoParameters(File defaultConfig) {
-        MultiValueMap<String, JsonNode> config = new LinkedMultiValueMap<>();
-        config.setAll(getFileConfig(defaultConfig));
-        query = mergeToLowerCasedKeys(config);
+        query = new LinkedMultiValueMap<>(getFileConfig(defaultConfig));
         filterResolver = new FilterResolver(this);
-        OBJECT_MAPPER.registerModule(new JodaModule());
     }
 
-    private Map<String, JsonNode> getFileConfig(File file) {
-        if (file != null) {
-            if (!LOADED_CONFIGS.containsKey(file.getAbsolutePath())) {
-                Map<String, JsonNode> config = readDefaultConfig(file);
-                LOADED_CONFIGS.put(file.getAbsolutePath(), config);
-            }
-            return LOADED_CONFIGS.get(file.getAbsolutePath());
-        } else {
-            if (!LOADED_CONFIGS.containsKey(DEFAULT_CONFIG_FILE)) {
-                Map<String, JsonNode> config = readDefaultConfig(null);
-                LOADED_CONFIGS.put(DEFAULT_CONFIG_FILE, config);
-            }
-        }
-        return LOADED_CONFIGS.get(DEFAULT_CONFIG_FILE);
+    private static MultiValueMap<String, JsonNode> getFileConfig(File file) {
+        String key = file != null
+            ? file.getAbsolutePath()
+            : DEFAULT_CONFIG_FILE;
+        return LOADED_CONFIGS.computeIfAbsent(key, k -> {
+            MultiValueMap<String, JsonNode> config = new LinkedMultiValueMap<>();
+            config.setAll(readDefaultConfig(file));
+            return mergeToLowerCasedKeys(config);
+        });
     }
 
-    private Map<String, JsonNode> readDefaultConfig(File config) {
+    private static Map<String, JsonNode> readDefaultConfig(File config) {
         try (InputStream stream = config == null
             ? getDefaultConfigFile()
             : new FileInputStream(config)) {
@@ -200,14 +232,39 @@ public final class IoParameters implements Parameters {
 
     private IoParameters setBehaveBackwardsCompatible(boolean behaveBackwardsCompatible) {
         this.behaveBackwardsCompatible = behaveBackwardsCompatible;
+        derivedValues.clear();
         return this;
     }
 
     public IoParameters setParseExceptionHandle(BiConsumer<String, IoParseException> handle) {
         this.parseExceptionHandle = handle;
+        derivedValues.clear();
         return this;
     }
 
+    /**
+     * Returns a value derived from the query. As the query does not change, the value is derived only once
+     * and shared by subsequent calls. <code>null</code> values are not memoized.
+     *
+     * @param key
+     *        the key of the derived value
+     * @param derivation
+     *        derives the value, on failure nothing gets memoized
+     * @return the derived value
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T memoize(String key, Supplier<T> derivation) {
+        // no computeIfAbsent, derivations may memoize values themselves
+        Object value = derivedValues.get(key);
+        if (value == null) {
+            value = derivation.get();
+            if (value != null) {
+                derivedValues.putIfAbsent(key, value);
+            }
+        }
+        return (T) value;
+    }
+
     /**
      * @return the value of {@value #OFFSET} parameter. If not present, the default {@value #DEFAULT_OFFSET}
      *         is returned.
@@ -277,6 +334,122 @@ public final class IoParameters implements Parameters {
         return getAsBoolean(GENERALIZE, DEFAULT_GENERALIZE);
     }
 
+    /**
+     * @return <code>true</code> if values shall be aggregated to time buckets of {@value #AGGREGATE}
+     */
+    public boolean isAggregate() {
+        return containsParameter(AGGREGATE);
+    }
+
+    /**
+     * @return the bucket size of {@value #AGGREGATE} or <code>null</code> if not present.
+     * @throws IoParseException
+     *         if the value is not an ISO8601 period of a single positive field.
+     */
+    public Period getAggregationPeriod() {
+        if (!containsParameter(AGGREGATE)) {
+            return null;
+        }
+        return memoize(AGGREGATE, this::parseAggregationPeriod);
+    }
+
+    private Period parseAggregationPeriod() {
+        try {
+            Period period = ISOPeriodFormat.standard()
+                                           .parsePeriod(getAsString(AGGREGATE));
+            int fields = 0;
+            for (int i = 0; i < period.size(); i++) {
+                int value = period.getValue(i);
+                if (value < 0) {
+                    fields = -1;
+                    break;
+                }
+                fields += value != 0
+                    ? 1
+                    : 0;
+            }
+            if (fields == 1) {
+                return period;
+            }
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Invalid aggregation period '{}'.", getAsString(AGGREGATE), e);
+        }
+        throw createIoParseException(AGGREGATE).addHint("Value must be an ISO8601 period of a single field.")
+                                               .addHint("Valid examples: 'PT15M', 'PT1H', 'P1D', 'P1W' or 'P1M'.");
+    }
+
+    /**
+     * @return the functions of {@value #AGGREGATION_FUNCTIONS}, or all functions if not present.
+     * @throws IoParseException
+     *         if a function is unknown.
+     */
+    public Set<AggregationFunction> getAggregationFunctions() {
+        return EnumSet.copyOf(memoize(AGGREGATION_FUNCTIONS, this::parseAggregationFunctions));
+    }
+
+    private Set<AggregationFunction> parseAggregationFunctions() {
+        Set<AggregationFunction> functions = EnumSet.noneOf(AggregationFunction.class);
+        for (String function : csvToSet(getAsString(AGGREGATION_FUNCTIONS, DEFAULT_AGGREGATION_FUNCTIONS))) {
+            try {
+                functions.add(AggregationFunction.of(function));
+            } catch (IllegalArgumentException e) {
+                throw createIoParseException(AGGREGATION_FUNCTIONS, e)
+                        .addHint("Valid functions are: " + DEFAULT_AGGREGATION_FUNCTIONS);
+            }
+        }
+        return functions;
+    }
+
+    /**
+     * @return <code>true</code> if a rolling window of {@value #ROLLING_WINDOW} shall be applied on values
+     */
+    public boolean hasRollingWindow() {
+        return containsParameter(ROLLING_WINDOW);
+    }
+
+    /**
+     * @return the duration of {@value #ROLLING_WINDOW} or <code>null</code> if not present.
+     * @throws IoParseException
+     *         if the value is not a positive ISO8601 period of fixed length.
+     */
+    public Duration getRollingWindow() {
+        if (!containsParameter(ROLLING_WINDOW)) {
+            return null;
+        }
+        return memoize(ROLLING_WINDOW, this::parseRollingWindow);
+    }
+
+    private Duration parseRollingWindow() {
+        try {
+            Duration window = ISOPeriodFormat.standard()
+                                             .parsePeriod(getAsString(ROLLING_WINDOW))
+                                             .toStandardDuration();
+            if (window.getMillis() > 0) {
+                return window;
+            }
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            LOGGER.debug("Invalid rolling window '{}'.", getAsString(ROLLING_WINDOW), e);
+        }
+        throw createIoParseException(ROLLING_WINDOW)
+                .addHint("Value must be a positive ISO8601 period of fixed length (no years or months).")
+                .addHint("Valid examples: 'PT10M', 'PT1H' or 'P1D'.");
+    }
+
+    /**
+     * @return the function of {@value #ROLLING_FUNCTION}, or {@link RollingFunction#AVG} if not present.
+     * @throws IoParseException
+     *         if the function is unknown.
+     */
+    public RollingFunction getRollingFunction() {
+        String function = getAsString(ROLLING_FUNCTION, DEFAULT_ROLLING_FUNCTION);
+        try {
+            return RollingFunction.of(function);
+        } catch (IllegalArgumentException e) {
+            throw createIoParseException(ROLLING_FUNCTION, e)
+                    .addHint("Valid functions are: avg, min, max, time_weighted_avg");
+        }
+    }
+
     /**
      * @return <code>true</code> if a legend shall be included when rendering a chart, <code>false</code>
      *         otherwise.
@@ -306,6 +479,7 @@ public final class IoParameters implements Parameters {
 
     public IoParameters setDefaultLocale(String defaultLocale) {
         this.defaultLocale = defaultLocale;
+        derivedValues.clear();
         return this;
     }
 
@@ -316,7 +490,7 @@ public final class IoParameters implements Parameters {
      */
     public StyleProperties getSingleStyle() {
         return containsParameter(STYLE)
-            ? parseStyleProperties()
+            ? memoize(STYLE, this::parseStyleProperties)
             : StyleProperties.createDefaults();
     }
 
@@ -327,7 +501,7 @@ public final class IoParameters implements Parameters {
      */
     public Map<String, StyleProperties> getReferencedStyles() {
         return containsParameter(STYLES)
-            ? parseMultipleStyleProperties()
+            ? memoize(STYLES, this::parseMultipleStyleProperties)
             : Collections.emptyMap();
     }
 
@@ -386,8 +560,9 @@ public final class IoParameters implements Parameters {
      *         if timespan could not be parsed.
      */
     public IntervalWithTimeZone getTimespan() {
+        // relative timespans (e.g. containing 'now') refer to the first call
         return containsParameter(TIMESPAN)
-            ? validateTimespan(getNormalizedTimespan())
+            ? memoize(TIMESPAN, () -> validateTimespan(getNormalizedTimespan()))
             : createDefaultTimespan();
     }
 
@@ -434,6 +609,10 @@ public final class IoParameters implements Parameters {
         if (!containsParameter(OUTPUT_TIMEZONE)) {
             return DEFAULT_OUTPUT_TIMEZONE;
         }
+        return memoize(OUTPUT_TIMEZONE, this::parseOutputTimezone);
+    }
+
+    private String parseOutputTimezone() {
         String timezone = getAsString(OUTPUT_TIMEZONE);
         Set<String> availableIDs = DateTimeZone.getAvailableIDs();
         DateTimeZone zone = availableIDs.contains(timezone)
@@ -444,7 +623,7 @@ public final class IoParameters implements Parameters {
 
     public IntervalWithTimeZone getLastValueMatches() {
         return containsParameter(LAST_VALUE_MATCHES)
-            ? validateTimespan(getNormalizedTimespan(null, LAST_VALUE_MATCHES))
+            ? memoize(LAST_VALUE_MATCHES, () -> validateTimespan(getNormalizedTimespan(null, LAST_VALUE_MATCHES)))
             : null;
     }
 
@@ -623,10 +802,15 @@ public final class IoParameters implements Parameters {
     }
 
     Set<String> getValuesOf(String parameterName, boolean lowerCase) {
-        return containsParameter(parameterName)
-                ? new HashSet<>(lowerCase ? csvToLowerCasedSet(getAsString(parameterName))
-                        : csvToSet(getAsString(parameterName)))
-                : new HashSet<>(0);
+        if (!containsParameter(parameterName)) {
+            return new HashSet<>(0);
+        }
+        // callers may modify the returned set
+        String key = "values:" + parameterName + (lowerCase ? ":lowercased" : "");
+        return new HashSet<>(memoize(key,
+            () -> lowerCase
+                ? csvToLowerCasedSet(getAsString(parameterName))
+                : csvToSet(getAsString(parameterName))));
     }
 
     private Set<String> csvToLowerCasedSet(String csv) {
@@ -663,9 +847,7 @@ public final class IoParameters implements Parameters {
             return null;
         }
 
-        BoundingBox bboxBounds = createBbox();
-        BoundingBox bounds = parseBoundsFromVicinity();
-        return mergeBounds(bounds, bboxBounds);
+        return memoize(BBOX, () -> mergeBounds(parseBoundsFromVicinity(), createBbox()));
     }
 
     private BoundingBox mergeBounds(BoundingBox bounds, BoundingBox bboxBounds) {
@@ -1031,6 +1213,10 @@ public final class IoParameters implements Parameters {
         if (object == null) {
             return null;
         }
+        if (object instanceof String) {
+            // same as serializing and parsing the string
+            return TextNode.valueOf((String) object);
+        }
         try {
             return OBJECT_MAPPER.readTree(OBJECT_MAPPER.writeValueAsString(object));
         } catch (IOException e) {
@@ -1050,7 +1236,7 @@ public final class IoParameters implements Parameters {
     public IoParameters removeAllOf(String key) {
         MultiValueMap<String, JsonNode> newValues = new LinkedMultiValueMap<>(query);
         newValues.remove(key.toLowerCase());
-        return new IoParameters(newValues).setParseExceptionHandle(parseExceptionHandle);
+        return derive(newValues);
     }
 
     /**
@@ -1080,12 +1266,22 @@ public final class IoParameters implements Parameters {
 
             MultiValueMap<String, JsonNode> mergedValues = new LinkedMultiValueMap<>(query);
             mergedValues.putAll(convertToJsonNodes(newValues));
-            return new IoParameters(mergedValues).setParseExceptionHandle(parseExceptionHandle);
+            return derive(mergedValues);
         } else {
             return removeAllOf(key);
         }
     }
 
+    /**
+     * Derives an instance from an already lower cased query. Like other instances, the derived instance is
+     * based on the default config. Value lists are shared (and never modified), so only the maps get copied.
+     */
+    private IoParameters derive(MultiValueMap<String, JsonNode> lowerCasedQuery) {
+        IoParameters derived = new IoParameters((File) null);
+        derived.query.putAll(lowerCasedQuery);
+        return derived.setParseExceptionHandle(parseExceptionHandle);
+    }
+
     public IoParameters replaceWith(String key, String... values) {
         return removeAllOf(key).extendWith(key, values);
     }
@@ -1115,12 +1311,43 @@ public final class IoParameters implements Parameters {
         return parameters;
     }
 
+    /**
+     * Creates a key identifying these parameters, e.g. to cache results created from them. Two instances
+     * evaluating to the same parameter values get the same key, regardless of the order the parameters were
+     * given in and of the order of values of set-valued parameters (e.g. filters like
+     * {@value Parameters#PROCEDURES}).
+     *
+     * @return the canonical key
+     */
+    public String getCanonicalKey() {
+        return memoize("canonicalKey", this::createCanonicalKey);
+    }
+
+    private String createCanonicalKey() {
+        StringBuilder key = new StringBuilder();
+        for (String parameter : new TreeSet<>(query.keySet())) {
+            String value = getAsString(parameter);
+            if (value != null && SET_VALUED_PARAMETERS.contains(parameter)) {
+                value = String.join(",", new TreeSet<>(csvToSet(value)));
+            }
+            key.append(parameter)
+               .append('=')
+               .append(value)
+               .append('&');
+        }
+        return key.append("backwardsCompatible=")
+                  .append(behaveBackwardsCompatible)
+                  .append("&defaultLocale=")
+                  .append(defaultLocale)
+                  .toString();
+    }
+
     @Override
     public String toString() {
         return "IoParameters{ behaveBackwardsCompatible: " + behaveBackwardsCompatible + ", query=" + query + '}';
     }
 
-    protected Map<String, JsonNode> mergeToLowerCasedKeys(Map<String, JsonNode> parameters) {
+    protected static Map<String, JsonNode> mergeToLowerCasedKeys(Map<String, JsonNode> parameters) {
         Map<String, JsonNode> queryParameters = new HashMap<>();
         for (Entry<String, JsonNode> entry : parameters.entrySet()) {
             String parameter = entry.getKey();
@@ -1130,7 +1357,7 @@ public final class IoParameters implements Parameters {
         return queryParameters;
     }
 
-    protected MultiValueMap<String, JsonNode> mergeToLowerCasedKeys(MultiValueMap<String, JsonNode> parameters) {
+    protected static MultiValueMap<String, JsonNode> mergeToLowerCasedKeys(MultiValueMap<String, JsonNode> parameters) {
         MultiValueMap<String, JsonNode> queryParameters = new LinkedMultiValueMap<>();
         for (Entry<String, List<JsonNode>> entry : parameters.entrySet()) {
             String parameter = entry.getKey();
@@ -1143,7 +1370,10 @@ public final class IoParameters implements Parameters {
                 if (currentValues == null) {
                     queryParameters.put(lowerCasedKey, values);
                 } else {
-                    currentValues.addAll(values);
+                    // value lists may be shared
+                    List<JsonNode> mergedValues = new ArrayList<>(currentValues);
+                    mergedValues.addAll(values);
+                    queryParameters.put(lowerCasedKey, mergedValues);
                 }
             }
         }
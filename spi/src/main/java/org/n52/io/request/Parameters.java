@@ -178,6 +178,39 @@ public interface Parameters {
      */
     boolean DEFAULT_GENERALIZE = false;
 
+    /**
+     * Determines the size of time buckets to aggregate values to, as ISO8601 period of a single field (e.g.
+     * <code>PT1H</code>, <code>P1D</code> or <code>P1M</code>).
+     */
+    String AGGREGATE = "aggregate";
+
+    /**
+     * Determines the comma separated functions to apply when aggregating values (see
+     * {@link AggregationFunction}).
+     */
+    String AGGREGATION_FUNCTIONS = "aggregationFunctions";
+
+    /**
+     * The default aggregation functions.
+     */
+    String DEFAULT_AGGREGATION_FUNCTIONS = "min,max,avg,sum,count,first,last";
+
+    /**
+     * Determines the duration of a trailing rolling window applied on values, as ISO8601 period of fixed
+     * length (e.g. <code>PT1H</code>).
+     */
+    String ROLLING_WINDOW = "rollingWindow";
+
+    /**
+     * Determines the function to apply on rolling windows (see {@link RollingFunction}).
+     */
+    String ROLLING_FUNCTION = "rollingFunction";
+
+    /**
+     * The default rolling window function.
+     */
+    String DEFAULT_ROLLING_FUNCTION = "avg";
+
     /**
      * Determines how raw data shall be queried from service.
      */
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.response;
+
+import java.io.IOException;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
+import org.n52.shetland.util.DateTimeHelper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Encodes timestamps as ISO 8601 strings, e.g. <code>2016-03-27T01:59:59.999+01:00</code>, identical to
+ * {@link DateTimeHelper#formatDateTime2IsoString(DateTime)}.
+ * <p>
+ * The encoder keeps a reusable character buffer. Date prefix and zone offset suffix are computed once per
+ * local day and zone, so that consecutive timestamps of a series only need their time-of-day digits to be
+ * written. Days containing an offset transition are not cached, years outside <code>0000-9999</code> and
+ * non-ISO chronologies are delegated to {@link DateTimeHelper}.
+ * <p>
+ * Instances are not thread-safe. Use {@link #forCurrentThread()} to obtain a per-thread instance.
+ */
+public final class IsoTimestampEncoder {
+
+    private static final ThreadLocal<IsoTimestampEncoder> ENCODERS = ThreadLocal.withInitial(IsoTimestampEncoder::new);
+
+    private static final ISOChronology UTC_CHRONOLOGY = ISOChronology.getInstanceUTC();
+
+    private static final long MILLIS_PER_DAY = DateTimeConstants.MILLIS_PER_DAY;
+
+    private static final int MAX_YEAR = 9999;
+
+    private static final int TIME_OFFSET = 11;
+
+    private static final int OFFSET_INDEX = 23;
+
+    private static final int LENGTH = 29;
+
+    private final char[] buffer = new char[LENGTH];
+
+    // UTC offsets are written as 'Z'
+    private int length = LENGTH;
+
+    private DateTimeZone cachedZone;
+
+    private long cachedBase;
+
+    private long cachedStart;
+
+    private long cachedEnd;
+
+    public static IsoTimestampEncoder forCurrentThread() {
+        return ENCODERS.get();
+    }
+
+    /**
+     * @param dateTime
+     *        the time to encode in its own zone
+     * @return the ISO 8601 representation or <code>null</code> if dateTime is <code>null</code>
+     */
+    public String encode(DateTime dateTime) {
+        if (dateTime == null) {
+            return null;
+        }
+        return isEncodable(dateTime) && fillBuffer(dateTime.getMillis(), dateTime.getZone())
+            ? new String(buffer, 0, length)
+            : DateTimeHelper.formatDateTime2IsoString(dateTime);
+    }
+
+    /**
+     * @param millis
+     *        the instant to encode
+     * @param zone
+     *        the zone to encode the instant in
+     * @return the ISO 8601 representation
+     */
+    public String encode(long millis, DateTimeZone zone) {
+        return fillBuffer(millis, zone)
+            ? new String(buffer, 0, length)
+            : DateTimeHelper.formatDateTime2IsoString(new DateTime(millis, zone));
+    }
+
+    /**
+     * Writes the ISO 8601 representation as JSON string without creating an intermediate string.
+     *
+     * @param dateTime
+     *        the time to encode in its own zone
+     * @param generator
+     *        the generator to write to
+     * @throws IOException
+     *         if writing fails
+     */
+    public void write(DateTime dateTime, JsonGenerator generator) throws IOException {
+        if (dateTime == null) {
+            generator.writeNull();
+        } else if (isEncodable(dateTime) && fillBuffer(dateTime.getMillis(), dateTime.getZone())) {
+            generator.writeString(buffer, 0, length);
+        } else {
+            generator.writeString(DateTimeHelper.formatDateTime2IsoString(dateTime));
+        }
+    }
+
+    private static boolean isEncodable(DateTime dateTime) {
+        return dateTime.getChronology() instanceof ISOChronology;
+    }
+
+    private boolean fillBuffer(long millis, DateTimeZone zone) {
+        if (zone != cachedZone || millis < cachedStart || millis >= cachedEnd) {
+            if (!fillPrefixAndSuffix(millis, zone)) {
+                return false;
+            }
+        }
+        writeTimeOfDay((int) (millis - cachedBase));
+        return true;
+    }
+
+    private boolean fillPrefixAndSuffix(long millis, DateTimeZone zone) {
+        cachedZone = null;
+        int offset = zone.getOffset(millis);
+        long localMillis = millis + offset;
+        long localDayStart = Math.floorDiv(localMillis, MILLIS_PER_DAY) * MILLIS_PER_DAY;
+        int year = UTC_CHRONOLOGY.year().get(localDayStart);
+        if (year < 0 || year > MAX_YEAR || offset % DateTimeConstants.MILLIS_PER_MINUTE != 0) {
+            return false;
+        }
+        writeDate(year, UTC_CHRONOLOGY.monthOfYear().get(localDayStart),
+                  UTC_CHRONOLOGY.dayOfMonth().get(localDayStart));
+        writeOffset(offset);
+
+        long base = localDayStart - offset;
+        long start = base;
+        long end = base + MILLIS_PER_DAY;
+        long transition = zone.nextTransition(start);
+        if (transition > start && transition <= millis) {
+            // offset changed earlier this day, cache from the instant on
+            start = millis;
+            transition = zone.nextTransition(start);
+        }
+        if (transition > start && transition < end) {
+            end = transition;
+        }
+        cachedZone = zone;
+        cachedBase = base;
+        cachedStart = start;
+        cachedEnd = end;
+        return true;
+    }
+
+    private void writeDate(int year, int month, int day) {
+        write4(0, year);
+        buffer[4] = '-';
+        write2(5, month);
+        buffer[7] = '-';
+        write2(8, day);
+        buffer[10] = 'T';
+    }
+
+    private void writeTimeOfDay(int millisOfDay) {
+        int millis = millisOfDay % 1000;
+        int seconds = millisOfDay / 1000;
+        write2(TIME_OFFSET, seconds / 3600);
+        buffer[TIME_OFFSET + 2] = ':';
+        write2(TIME_OFFSET + 3, seconds / 60 % 60);
+        buffer[TIME_OFFSET + 5] = ':';
+        write2(TIME_OFFSET + 6, seconds % 60);
+        buffer[TIME_OFFSET + 8] = '.';
+        write3(TIME_OFFSET + 9, millis);
+    }
+
+    private void writeOffset(int offset) {
+        if (offset == 0) {
+            buffer[OFFSET_INDEX] = 'Z';
+            length = OFFSET_INDEX + 1;
+            return;
+        }
+        int minutes = Math.abs(offset) / DateTimeConstants.MILLIS_PER_MINUTE;
+        buffer[OFFSET_INDEX] = offset < 0 ? '-' : '+';
+        write2(OFFSET_INDEX + 1, minutes / 60);
+        buffer[OFFSET_INDEX + 3] = ':';
+        write2(OFFSET_INDEX + 4, minutes % 60);
+        length = LENGTH;
+    }
+
+    private void write4(int index, int value) {
+        write2(index, value / 100);
+        write2(index + 2, value % 100);
+    }
+
+    private void write3(int index, int value) {
+        buffer[index] = (char) ('0' + value / 100);
+        write2(index + 1, value % 100);
+    }
+
+    private void write2(int index, int value) {
+        buffer[index] = (char) ('0' + value / 10);
+        buffer[index + 1] = (char) ('0' + value % 10);
+    }
+
+}
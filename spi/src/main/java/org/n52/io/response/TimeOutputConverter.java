@@ -27,8 +27,6 @@
  */
 package org.n52.io.response;
 
-import org.n52.shetland.util.DateTimeHelper;
-
 import com.fasterxml.jackson.databind.util.StdConverter;
 
 public class TimeOutputConverter extends StdConverter<TimeOutput, Object> {
@@ -39,7 +37,7 @@ public class TimeOutputConverter extends StdConverter<TimeOutput, Object> {
             if (value.isUnixTime()) {
                 return value.getMillis();
             } else {
-                return DateTimeHelper.formatDateTime2IsoString(value.getDateTime());
+                return IsoTimestampEncoder.forCurrentThread().encode(value.getDateTime());
             }
         }
         return null;
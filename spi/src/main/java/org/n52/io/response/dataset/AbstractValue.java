@@ -157,6 +157,11 @@ public abstract class AbstractValue<T> implements Comparable<AbstractValue<T>>,
         this.value = value;
     }
 
+    @JsonIgnore
+    public ValueFormatter<T> getValueFormatter() {
+        return valueFormatter;
+    }
+
     @JsonIgnore
     public void setValueFormatter(ValueFormatter<T> valueFormatter) {
         this.valueFormatter = valueFormatter;
@@ -31,10 +31,13 @@ import java.math.BigDecimal;
 
 import org.n52.io.response.OptionalOutput;
 import org.n52.io.response.SelfSerializedOutput;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.TimeOutputConverter;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 public class AggregationOutput<V extends AbstractValue<?>> extends SelfSerializedOutput {
 
@@ -42,6 +45,11 @@ public class AggregationOutput<V extends AbstractValue<?>> extends SelfSerialize
     private OptionalOutput<V> max;
     private OptionalOutput<Long> count;
     private OptionalOutput<BigDecimal> avg;
+    private OptionalOutput<BigDecimal> sum;
+    private OptionalOutput<V> first;
+    private OptionalOutput<V> last;
+    private TimeOutput timestart;
+    private TimeOutput timeend;
 
     @JsonInclude(Include.NON_EMPTY)
     public V getMin() {
@@ -97,9 +105,78 @@ public class AggregationOutput<V extends AbstractValue<?>> extends SelfSerialize
         return this;
     }
 
+    /**
+     * @return the sum
+     */
+    @JsonInclude(Include.NON_EMPTY)
+    public BigDecimal getSum() {
+        return getIfSerialized(sum);
+    }
+
+    /**
+     * @param sum the sum to set
+     * @return this
+     */
+    public AggregationOutput<V> setSum(OptionalOutput<BigDecimal> sum) {
+        this.sum = sum;
+        return this;
+    }
+
+    @JsonInclude(Include.NON_EMPTY)
+    public V getFirst() {
+        return getIfSerialized(first);
+    }
+
+    public AggregationOutput<V> setFirst(OptionalOutput<V> first) {
+        this.first = first;
+        return this;
+    }
+
+    @JsonInclude(Include.NON_EMPTY)
+    public V getLast() {
+        return getIfSerialized(last);
+    }
+
+    public AggregationOutput<V> setLast(OptionalOutput<V> last) {
+        this.last = last;
+        return this;
+    }
+
+    /**
+     * @return the start of the aggregated time bucket, if aggregated per bucket
+     */
+    @JsonInclude(Include.NON_NULL)
+    @JsonSerialize(converter = TimeOutputConverter.class)
+    public TimeOutput getTimestart() {
+        return timestart;
+    }
+
+    public AggregationOutput<V> setTimestart(TimeOutput timestart) {
+        this.timestart = timestart;
+        return this;
+    }
+
+    /**
+     * @return the end of the aggregated time bucket (exclusive), if aggregated per bucket
+     */
+    @JsonInclude(Include.NON_NULL)
+    @JsonSerialize(converter = TimeOutputConverter.class)
+    public TimeOutput getTimeend() {
+        return timeend;
+    }
+
+    public AggregationOutput<V> setTimeend(TimeOutput timeend) {
+        this.timeend = timeend;
+        return this;
+    }
+
     @JsonIgnore
     public boolean isEmpty() {
         return min != null && min.isAbsent() && max != null && max.isAbsent() && count != null && count.isAbsent()
-                && avg != null && avg.isAbsent();
+                && avg != null && avg.isAbsent() && isAbsent(sum) && isAbsent(first) && isAbsent(last);
+    }
+
+    private static boolean isAbsent(OptionalOutput<?> output) {
+        return output == null || output.isAbsent();
     }
 }
@@ -0,0 +1,475 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.response.dataset;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.locationtech.jts.geom.Geometry;
+import org.n52.io.response.DetectionLimitOutput;
+import org.n52.io.response.TimeOutput;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * A {@link Data} variant which keeps numeric values in primitive columns instead of one value object per
+ * observation. Timestamps are held as a sorted array of epoch millis, values as a <code>double</code> array
+ * along with a no-data bitmap. Rarely used value members (timestart, geometry, parameters, valid time, result
+ * time and detection limit) are kept in sparse side tables keyed by timestamp.
+ * <p>
+ * {@link #getValues()} returns a read-only view which creates value instances lazily while iterating. This
+ * way formatters, generalizers, IO handlers and JSON serialization work unchanged. Consumers aware of the
+ * columnar layout can access the columns directly via index, e.g. {@link #getTimestamp(int)} and
+ * {@link #getDoubleValue(int)}.
+ * </p>
+ * <p>
+ * Like {@link Data} values are ordered by timestamp and a value with an already contained timestamp is
+ * ignored.
+ * </p>
+ *
+ * @param <V>
+ *        the value type
+ * @param <N>
+ *        the numeric type of the value
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+public abstract class ColumnarData<V extends NumericValue<N>, N extends Number> extends Data<V> {
+
+    private static final long serialVersionUID = -4395729283629461542L;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] timestamps;
+
+    private double[] values;
+
+    private final BitSet noDataValues = new BitSet();
+
+    private int size;
+
+    private DateTimeZone timezone;
+
+    private boolean unixTime;
+
+    private ValueFormatter<N> valueFormatter;
+
+    private final Map<Long, TimeOutput> timestampOverrides = new HashMap<>();
+
+    private final Map<Long, TimeOutput> timestarts = new HashMap<>();
+
+    private final Map<Long, Geometry> geometries = new HashMap<>();
+
+    private final Map<Long, Set<Map<String, Object>>> parameters = new HashMap<>();
+
+    private final Map<Long, AbstractValue<N>.ValidTime> validTimes = new HashMap<>();
+
+    private final Map<Long, TimeOutput> resultTimes = new HashMap<>();
+
+    private final Map<Long, DetectionLimitOutput> detectionLimits = new HashMap<>();
+
+    public ColumnarData() {
+        this(null);
+    }
+
+    public ColumnarData(DatasetMetadata<V> metadata) {
+        this(metadata, DEFAULT_CAPACITY);
+    }
+
+    public ColumnarData(DatasetMetadata<V> metadata, int expectedSize) {
+        super(metadata);
+        int capacity = Math.max(expectedSize, 1);
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    /**
+     * @return a new and empty instance of the concrete columnar type.
+     */
+    protected abstract ColumnarData<V, N> createEmpty();
+
+    /**
+     * @return a new and empty value instance of the concrete value type.
+     */
+    protected abstract V createValue();
+
+    /**
+     * Restores the value as it has been added.
+     *
+     * @param timestamp
+     *        the timestamp of the value
+     * @param value
+     *        the value as stored in the value column
+     * @return the restored value
+     */
+    protected abstract N restoreValue(long timestamp, double value);
+
+    /**
+     * Hook called for each non-null value added. Implementations may keep what is needed to restore the
+     * value exactly (e.g. the scale of a decimal value).
+     *
+     * @param timestamp
+     *        the timestamp of the value
+     * @param value
+     *        the value added
+     */
+    protected void retainValue(long timestamp, N value) {
+        // nothing to retain by default
+    }
+
+    @Override
+    public void addValues(V[] toAdd) {
+        if (toAdd != null) {
+            for (V value : toAdd) {
+                addNewValue(value);
+            }
+        }
+    }
+
+    @Override
+    public Data<V> addNewValue(V value) {
+        TimeOutput time = getTimeOf(value);
+        long timestamp = time.getMillis();
+        int position = size == 0 || timestamps[size - 1] < timestamp
+                ? size
+                : Arrays.binarySearch(timestamps, 0, size, timestamp);
+        if (position >= 0 && position < size) {
+            // like a sorted set: keep the value already contained
+            return this;
+        }
+        position = position < 0
+                ? -position - 1
+                : position;
+        insertAt(position, timestamp);
+        retainTime(timestamp, time);
+        retainValueDetails(timestamp, value);
+
+        N numericValue = value.getValue();
+        if (numericValue == null) {
+            noDataValues.set(position);
+        } else {
+            values[position] = numericValue.doubleValue();
+            retainValue(timestamp, numericValue);
+        }
+        return this;
+    }
+
+    @Override
+    public Data<V> addData(Data<V> toAdd) {
+        ColumnarData<V, N> data = createEmpty();
+        data.setMetadata(getMetadata());
+        data.setValueFormatter(valueFormatter);
+        for (V value : getValues()) {
+            data.addNewValue(value);
+        }
+        for (V value : toAdd.getValues()) {
+            data.addNewValue(value);
+        }
+        return data;
+    }
+
+    @Override
+    @JsonSerialize(typing = JsonSerialize.Typing.STATIC)
+    public Set<V> getValues() {
+        return new ValuesView();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @param timestamp
+     *        the timestamp to look for
+     * @return the index of the value with the given timestamp or a negative number if not contained.
+     */
+    public int indexOf(long timestamp) {
+        int index = Arrays.binarySearch(timestamps, 0, size, timestamp);
+        return index < 0
+                ? -1
+                : index;
+    }
+
+    /**
+     * @param index
+     *        the value index
+     * @return the timestamp (or time end) of the value at the given index as epoch millis.
+     */
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    /**
+     * @param index
+     *        the value index
+     * @return the value at the given index as <code>double</code>, <code>Double.NaN</code> if it is a no-data
+     *         value.
+     */
+    public double getDoubleValue(int index) {
+        checkIndex(index);
+        return noDataValues.get(index)
+                ? Double.NaN
+                : values[index];
+    }
+
+    /**
+     * @param index
+     *        the value index
+     * @return if the value at the given index is a no-data value.
+     */
+    public boolean isNoDataValue(int index) {
+        checkIndex(index);
+        return noDataValues.get(index);
+    }
+
+    /**
+     * Creates a value instance for the given index.
+     *
+     * @param index
+     *        the value index
+     * @return a newly created value instance.
+     */
+    public V getValueAt(int index) {
+        checkIndex(index);
+        long timestamp = timestamps[index];
+        V value = createValue();
+        TimeOutput time = timestampOverrides.get(timestamp);
+        value.setTimestamp(time != null
+                ? time
+                : new TimeOutput(new DateTime(timestamp, timezone), unixTime));
+        value.setTimestart(timestarts.get(timestamp));
+        value.setValue(noDataValues.get(index)
+                ? null
+                : restoreValue(timestamp, values[index]));
+        value.setValueFormatter(valueFormatter);
+        value.setGeometry(geometries.get(timestamp));
+        Set<Map<String, Object>> valueParameters = parameters.get(timestamp);
+        if (valueParameters != null) {
+            value.setParameters(valueParameters);
+        }
+        value.setValidTime(validTimes.get(timestamp));
+        value.setResultTime(resultTimes.get(timestamp));
+        value.setDetectionLimit(detectionLimits.get(timestamp));
+        return value;
+    }
+
+    /**
+     * Returns the timestamp column. The array is trimmed to {@link #size()} and must not be modified.
+     *
+     * @return the timestamps of all values as epoch millis in ascending order.
+     */
+    @JsonIgnore
+    public long[] getTimestampColumn() {
+        trimToSize();
+        return timestamps;
+    }
+
+    /**
+     * Returns the value column. The array is trimmed to {@link #size()} and must not be modified. Entries of
+     * no-data values are <code>0</code>, check {@link #getNoDataBitmap()}.
+     *
+     * @return the values as <code>double</code> in order of {@link #getTimestampColumn()}.
+     */
+    @JsonIgnore
+    public double[] getValueColumn() {
+        trimToSize();
+        return values;
+    }
+
+    /**
+     * @return a bitmap with all indices of no-data values set. Must not be modified.
+     */
+    @JsonIgnore
+    public BitSet getNoDataBitmap() {
+        return noDataValues;
+    }
+
+    /**
+     * @return <code>true</code> if at least one value has a member kept in a side table (e.g. timestart,
+     *         geometry or parameters), <code>false</code> if all values are plain time/value pairs.
+     */
+    @JsonIgnore
+    public boolean hasValueDetails() {
+        return !(timestampOverrides.isEmpty()
+                && timestarts.isEmpty()
+                && geometries.isEmpty()
+                && parameters.isEmpty()
+                && validTimes.isEmpty()
+                && resultTimes.isEmpty()
+                && detectionLimits.isEmpty());
+    }
+
+    /**
+     * @return the timezone of the values' timestamps (taken from the first value added)
+     */
+    @JsonIgnore
+    public DateTimeZone getTimezone() {
+        return timezone;
+    }
+
+    /**
+     * @return if timestamps shall be formatted as unix time (taken from the first value added)
+     */
+    @JsonIgnore
+    public boolean isUnixTime() {
+        return unixTime;
+    }
+
+    /**
+     * Sets the formatter applied to all values of this instance. As the columnar layout does not keep
+     * formatters per value, it has to be set on series level.
+     *
+     * @param valueFormatter
+     *        the value formatter
+     */
+    @JsonIgnore
+    public void setValueFormatter(ValueFormatter<N> valueFormatter) {
+        this.valueFormatter = valueFormatter;
+    }
+
+    /**
+     * Reduces the capacity of the columns to the actual size.
+     */
+    public void trimToSize() {
+        if (timestamps.length != size) {
+            timestamps = Arrays.copyOf(timestamps, size);
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    private TimeOutput getTimeOf(V value) {
+        TimeOutput time = value.isSetTimeend()
+                ? value.getTimeend()
+                : value.getTimestamp();
+        if (time == null || time.getDateTime() == null) {
+            throw new IllegalArgumentException("Value has no timestamp: " + value);
+        }
+        return time;
+    }
+
+    private void retainTime(long timestamp, TimeOutput time) {
+        DateTimeZone zone = time.getDateTime()
+                                .getZone();
+        if (size == 1 && timezone == null) {
+            timezone = zone;
+            unixTime = time.isUnixTime();
+        } else if (!zone.equals(timezone) || time.isUnixTime() != unixTime) {
+            timestampOverrides.put(timestamp, time);
+        }
+    }
+
+    private void retainValueDetails(long timestamp, V value) {
+        putIfNotNull(timestarts, timestamp, value.getTimestart());
+        putIfNotNull(geometries, timestamp, value.getGeometry());
+        putIfNotNull(parameters, timestamp, value.getParameters());
+        putIfNotNull(validTimes, timestamp, value.getValidTime());
+        putIfNotNull(resultTimes, timestamp, value.getResultTime());
+        putIfNotNull(detectionLimits, timestamp, value.getDetectionLimit());
+    }
+
+    private <T> void putIfNotNull(Map<Long, T> sideTable, long timestamp, T value) {
+        if (value != null) {
+            sideTable.put(timestamp, value);
+        }
+    }
+
+    private void insertAt(int index, long timestamp) {
+        ensureCapacity(size + 1);
+        if (index < size) {
+            System.arraycopy(timestamps, index, timestamps, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            for (int i = size - 1; i >= index; i--) {
+                noDataValues.set(i + 1, noDataValues.get(i));
+            }
+        }
+        timestamps[index] = timestamp;
+        values[index] = 0d;
+        noDataValues.clear(index);
+        size++;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > timestamps.length) {
+            int newCapacity = Math.max(minCapacity, timestamps.length + (timestamps.length >> 1) + 1);
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Read-only view on the columns creating value instances while iterating.
+     */
+    private final class ValuesView extends AbstractSet<V> {
+
+        @Override
+        public Iterator<V> iterator() {
+            return new Iterator<V>() {
+
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public V next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return getValueAt(next++);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+    }
+
+}
@@ -74,7 +74,7 @@ public class Data<V extends AbstractValue< ? >> implements Serializable {
 
     public Data<V> addData(Data<V> toAdd) {
         Data<V> data = new Data<>(metadata);
-        data.values.addAll(Stream.concat(values.stream(), toAdd.values.stream())
+        data.values.addAll(Stream.concat(values.stream(), toAdd.getValues().stream())
                                  .collect(Collectors.toList()));
         return data;
     }
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.response.dataset;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.locationtech.jts.geom.Geometry;
+import org.n52.io.geojson.GeoJSONGeometrySerializer;
+import org.n52.io.response.IsoTimestampEncoder;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.bool.BooleanValue;
+import org.n52.io.response.dataset.category.CategoryValue;
+import org.n52.io.response.dataset.count.CountValue;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.io.response.dataset.text.TextValue;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Serializes values of the well known types {@link QuantityValue}, {@link CountValue}, {@link TextValue},
+ * {@link BooleanValue} and {@link CategoryValue} by writing their fields directly. The output is equal to
+ * the default bean serialization of {@link AbstractValue}. Values of other types are passed to the default
+ * serializer.
+ * <p>
+ * Whether <code>null</code> fields are written is decided once from the mapper's default property
+ * inclusion. Use {@link #isApplicable(SerializationConfig)} to check if a mapper configuration is supported
+ * at all.
+ * </p>
+ *
+ * @see ValueSerializerModule
+ */
+public class ValueSerializer extends StdSerializer<AbstractValue< ? >>
+        implements ContextualSerializer, ResolvableSerializer {
+
+    private static final long serialVersionUID = -5418385929361245302L;
+
+    private static final Set<Class< ? >> KNOWN_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            QuantityValue.class,
+            CountValue.class,
+            TextValue.class,
+            BooleanValue.class,
+            CategoryValue.class)));
+
+    private static final String TIMESTART = "timestart";
+    private static final String TIMESTAMP = "timestamp";
+    private static final String TIMEEND = "timeend";
+    private static final String VALUE = "value";
+    private static final String GEOMETRY = "geometry";
+    private static final String PARAMETERS = "parameters";
+    private static final String VALID_TIME = "validTime";
+    private static final String VALID_TIME_START = "start";
+    private static final String VALID_TIME_END = "end";
+    private static final String RESULT_TIME = "resultTime";
+    private static final String DETECTION_LIMIT = "detectionLimit";
+
+    private final transient JsonSerializer<Object> defaultSerializer;
+
+    private final transient GeoJSONGeometrySerializer geometrySerializer = new GeoJSONGeometrySerializer();
+
+    private final boolean suppressNulls;
+
+    @SuppressWarnings("unchecked")
+    public ValueSerializer(JsonSerializer< ? > defaultSerializer, boolean suppressNulls) {
+        super(AbstractValue.class, false);
+        this.defaultSerializer = (JsonSerializer<Object>) defaultSerializer;
+        this.suppressNulls = suppressNulls;
+    }
+
+    /**
+     * @param type
+     *        the value type
+     * @return <code>true</code> if values of the given type are written directly
+     */
+    public static boolean isKnownType(Class< ? > type) {
+        return KNOWN_TYPES.contains(type);
+    }
+
+    /**
+     * Checks if the output of this serializer is equal to the default bean serialization for the given
+     * configuration. This is not the case for alphabetically sorted properties, naming strategies, mix-ins
+     * or property inclusions other than <code>ALWAYS</code> or <code>NON_NULL</code>.
+     *
+     * @param config
+     *        the serialization config
+     * @return <code>true</code> if the serializer can be used with the given configuration
+     */
+    public static boolean isApplicable(SerializationConfig config) {
+        JsonInclude.Include inclusion = getInclusion(config);
+        return !config.isEnabled(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                && config.getPropertyNamingStrategy() == null
+                && config.findMixInClassFor(AbstractValue.class) == null
+                && (inclusion == JsonInclude.Include.ALWAYS
+                        || inclusion == JsonInclude.Include.USE_DEFAULTS
+                        || inclusion == JsonInclude.Include.NON_NULL
+                        || inclusion == JsonInclude.Include.NON_ABSENT);
+    }
+
+    /**
+     * @param config
+     *        the serialization config
+     * @return <code>true</code> if <code>null</code> fields are omitted for the given configuration
+     */
+    public static boolean isSuppressingNulls(SerializationConfig config) {
+        JsonInclude.Include inclusion = getInclusion(config);
+        return inclusion == JsonInclude.Include.NON_NULL
+                || inclusion == JsonInclude.Include.NON_ABSENT;
+    }
+
+    private static JsonInclude.Include getInclusion(SerializationConfig config) {
+        return config.getDefaultPropertyInclusion()
+                     .getValueInclusion();
+    }
+
+    @Override
+    public void serialize(AbstractValue< ? > value, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        if (!isKnownType(value.getClass()) || provider.getActiveView() != null) {
+            defaultSerializer.serialize(value, gen, provider);
+            return;
+        }
+        gen.writeStartObject(value);
+        writeTime(TIMESTART, value.getTimestart(), gen);
+        writeTime(TIMESTAMP, value.getTimestamp(), gen);
+        writeValue(value.getValue(), gen, provider);
+        writeGeometry(value.getGeometry(), gen, provider);
+        writeObject(PARAMETERS, value.getParameters(), gen, provider);
+        writeValidTime(value.getValidTime(), gen);
+        writeObject(RESULT_TIME, value.getResultTime(), gen, provider);
+        writeObject(DETECTION_LIMIT, value.getDetectionLimit(), gen, provider);
+        writeTime(TIMEEND, value.getTimeend(), gen);
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(AbstractValue< ? > value,
+                                  JsonGenerator gen,
+                                  SerializerProvider provider,
+                                  TypeSerializer typeSer)
+            throws IOException {
+        defaultSerializer.serializeWithType(value, gen, provider, typeSer);
+    }
+
+    private void writeTime(String name, TimeOutput time, JsonGenerator gen) throws IOException {
+        if (time == null) {
+            writeNullField(name, gen);
+        } else {
+            gen.writeFieldName(name);
+            // see TimeOutputConverter
+            if (time.getDateTime() == null) {
+                gen.writeNull();
+            } else if (time.isUnixTime()) {
+                gen.writeNumber(time.getMillis());
+            } else {
+                IsoTimestampEncoder.forCurrentThread().write(time.getDateTime(), gen);
+            }
+        }
+    }
+
+    private void writeValue(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (value == null) {
+            // always included, see AbstractValue#getValue()
+            gen.writeNullField(VALUE);
+        } else if (value instanceof BigDecimal) {
+            gen.writeFieldName(VALUE);
+            gen.writeNumber((BigDecimal) value);
+        } else if (value instanceof Integer) {
+            gen.writeFieldName(VALUE);
+            gen.writeNumber((Integer) value);
+        } else if (value instanceof String) {
+            gen.writeStringField(VALUE, (String) value);
+        } else if (value instanceof Boolean) {
+            gen.writeBooleanField(VALUE, (Boolean) value);
+        } else {
+            provider.defaultSerializeField(VALUE, value, gen);
+        }
+    }
+
+    private void writeGeometry(Geometry geometry, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        if (geometry == null) {
+            writeNullField(GEOMETRY, gen);
+        } else {
+            gen.writeFieldName(GEOMETRY);
+            geometrySerializer.serialize(geometry, gen, provider);
+        }
+    }
+
+    private void writeValidTime(AbstractValue< ? >.ValidTime validTime, JsonGenerator gen) throws IOException {
+        if (validTime == null) {
+            writeNullField(VALID_TIME, gen);
+        } else {
+            gen.writeFieldName(VALID_TIME);
+            gen.writeStartObject(validTime);
+            writeTime(VALID_TIME_START, validTime.getStart(), gen);
+            writeTime(VALID_TIME_END, validTime.getEnd(), gen);
+            gen.writeEndObject();
+        }
+    }
+
+    private void writeObject(String name, Object object, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        if (object == null) {
+            writeNullField(name, gen);
+        } else {
+            provider.defaultSerializeField(name, object, gen);
+        }
+    }
+
+    private void writeNullField(String name, JsonGenerator gen) throws IOException {
+        if (!suppressNulls) {
+            gen.writeNullField(name);
+        }
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (defaultSerializer instanceof ResolvableSerializer) {
+            ((ResolvableSerializer) defaultSerializer).resolve(provider);
+        }
+    }
+
+    @Override
+    public JsonSerializer< ? > createContextual(SerializerProvider provider, BeanProperty property)
+            throws JsonMappingException {
+        if (defaultSerializer instanceof ContextualSerializer) {
+            JsonSerializer< ? > contextual = ((ContextualSerializer) defaultSerializer).createContextual(provider,
+                                                                                                          property);
+            if (contextual != defaultSerializer) {
+                return new ValueSerializer(contextual, suppressNulls);
+            }
+        }
+        return this;
+    }
+
+}
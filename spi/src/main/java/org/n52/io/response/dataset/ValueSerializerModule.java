@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.response.dataset;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+/**
+ * Registers a {@link ValueSerializer} for {@link AbstractValue} and its well known subtypes. Register this
+ * module on the mapper used to render observation data. For mapper configurations the serializer does not
+ * support, the default bean serializers are kept.
+ */
+public class ValueSerializerModule extends SimpleModule {
+
+    private static final long serialVersionUID = 2947013356420519406L;
+
+    public ValueSerializerModule() {
+        super(ValueSerializerModule.class.getSimpleName());
+        setSerializerModifier(new ValueSerializerModifier());
+    }
+
+    private static final class ValueSerializerModifier extends BeanSerializerModifier {
+
+        private static final long serialVersionUID = -4404866329632466046L;
+
+        @Override
+        public JsonSerializer< ? > modifySerializer(SerializationConfig config,
+                                                   BeanDescription beanDesc,
+                                                   JsonSerializer< ? > serializer) {
+            Class< ? > type = beanDesc.getBeanClass();
+            boolean valueType = type == AbstractValue.class || ValueSerializer.isKnownType(type);
+            return valueType && ValueSerializer.isApplicable(config)
+                    ? new ValueSerializer(serializer, ValueSerializer.isSuppressingNulls(config))
+                    : serializer;
+        }
+
+    }
+
+}
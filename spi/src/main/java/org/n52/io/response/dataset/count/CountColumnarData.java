@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.response.dataset.count;
+
+import org.n52.io.response.dataset.ColumnarData;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DatasetMetadata;
+
+/**
+ * Columnar representation of count data.
+ */
+public class CountColumnarData extends ColumnarData<CountValue, Integer> {
+
+    private static final long serialVersionUID = -6125917745839204772L;
+
+    public CountColumnarData() {
+        super();
+    }
+
+    public CountColumnarData(DatasetMetadata<CountValue> metadata) {
+        super(metadata);
+    }
+
+    public CountColumnarData(DatasetMetadata<CountValue> metadata, int expectedSize) {
+        super(metadata, expectedSize);
+    }
+
+    /**
+     * Creates a columnar copy of the given data.
+     *
+     * @param data
+     *        the data to copy
+     * @return a columnar instance containing all values and the metadata of the given data. The value formatter
+     *         of the first value is taken as series-level formatter.
+     */
+    public static CountColumnarData of(Data<CountValue> data) {
+        if (data instanceof CountColumnarData) {
+            return (CountColumnarData) data;
+        }
+        int expectedSize = (int) Math.min(data.size(), Integer.MAX_VALUE);
+        CountColumnarData columnar = new CountColumnarData(data.getMetadata(), expectedSize);
+        for (CountValue value : data.getValues()) {
+            if (columnar.size() == 0) {
+                columnar.setValueFormatter(value.getValueFormatter());
+            }
+            columnar.addNewValue(value);
+        }
+        return columnar;
+    }
+
+    @Override
+    protected CountColumnarData createEmpty() {
+        return new CountColumnarData();
+    }
+
+    @Override
+    protected CountValue createValue() {
+        return new CountValue();
+    }
+
+    @Override
+    protected Integer restoreValue(long timestamp, double value) {
+        return (int) value;
+    }
+
+}
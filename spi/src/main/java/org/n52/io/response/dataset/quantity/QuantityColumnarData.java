@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.response.dataset.quantity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.n52.io.response.dataset.ColumnarData;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DatasetMetadata;
+
+/**
+ * Columnar representation of quantity data. Decimal values are restored with the scale of the first value
+ * added. Values which cannot be restored exactly from their <code>double</code> representation are kept
+ * separately, so that output does not differ from a plain {@link Data} instance.
+ */
+public class QuantityColumnarData extends ColumnarData<QuantityValue, BigDecimal> {
+
+    private static final long serialVersionUID = 2278036447183561904L;
+
+    private final Map<Long, BigDecimal> exactValues = new HashMap<>();
+
+    private Integer scale;
+
+    public QuantityColumnarData() {
+        super();
+    }
+
+    public QuantityColumnarData(DatasetMetadata<QuantityValue> metadata) {
+        super(metadata);
+    }
+
+    public QuantityColumnarData(DatasetMetadata<QuantityValue> metadata, int expectedSize) {
+        super(metadata, expectedSize);
+    }
+
+    /**
+     * Creates a columnar copy of the given data.
+     *
+     * @param data
+     *        the data to copy
+     * @return a columnar instance containing all values and the metadata of the given data. The value formatter
+     *         of the first value is taken as series-level formatter.
+     */
+    public static QuantityColumnarData of(Data<QuantityValue> data) {
+        if (data instanceof QuantityColumnarData) {
+            return (QuantityColumnarData) data;
+        }
+        int expectedSize = (int) Math.min(data.size(), Integer.MAX_VALUE);
+        QuantityColumnarData columnar = new QuantityColumnarData(data.getMetadata(), expectedSize);
+        for (QuantityValue value : data.getValues()) {
+            if (columnar.size() == 0) {
+                columnar.setValueFormatter(value.getValueFormatter());
+            }
+            columnar.addNewValue(value);
+        }
+        return columnar;
+    }
+
+    @Override
+    protected QuantityColumnarData createEmpty() {
+        return new QuantityColumnarData();
+    }
+
+    @Override
+    protected QuantityValue createValue() {
+        return new QuantityValue();
+    }
+
+    @Override
+    protected void retainValue(long timestamp, BigDecimal value) {
+        if (scale == null) {
+            scale = value.scale();
+        }
+        if (!value.equals(restore(value.doubleValue()))) {
+            exactValues.put(timestamp, value);
+        }
+    }
+
+    @Override
+    protected BigDecimal restoreValue(long timestamp, double value) {
+        BigDecimal exactValue = exactValues.get(timestamp);
+        return exactValue != null
+                ? exactValue
+                : restore(value);
+    }
+
+    private BigDecimal restore(double value) {
+        BigDecimal decimal = BigDecimal.valueOf(value);
+        return scale == null || decimal.scale() == scale
+                ? decimal
+                : decimal.setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.spi.srv;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.n52.io.response.dataset.AbstractValue;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DatasetMetadata;
+
+/**
+ * A forward only cursor over the values of a single dataset in ascending time order. A cursor may hold
+ * backend resources (e.g. an open database result) and has to be closed after use.
+ *
+ * @param <V>
+ *        the value type
+ */
+public interface DataCursor<V extends AbstractValue< ? >> extends Iterator<V>, AutoCloseable {
+
+    /**
+     * Returns the metadata of the dataset, e.g. reference values or the values beyond the requested
+     * timespan. Implementations may provide metadata not before all values have been consumed.
+     *
+     * @return the dataset metadata or <code>null</code> if not available
+     */
+    DatasetMetadata<V> getMetadata();
+
+    /**
+     * Releases all resources held by this cursor.
+     */
+    @Override
+    void close();
+
+    /**
+     * Creates a cursor over already materialized data.
+     *
+     * @param <V>
+     *        the value type
+     * @param data
+     *        the data to iterate, may be <code>null</code>
+     * @return a cursor over the values of the given data
+     */
+    static <V extends AbstractValue< ? >> DataCursor<V> of(Data<V> data) {
+        Iterator<V> values = data != null
+                ? data.getValues().iterator()
+                : null;
+        return new DataCursor<V>() {
+
+            @Override
+            public boolean hasNext() {
+                return values != null && values.hasNext();
+            }
+
+            @Override
+            public V next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return values.next();
+            }
+
+            @Override
+            public DatasetMetadata<V> getMetadata() {
+                return data != null
+                        ? data.getMetadata()
+                        : null;
+            }
+
+            @Override
+            public void close() {
+                // nothing to release
+            }
+        };
+    }
+
+}
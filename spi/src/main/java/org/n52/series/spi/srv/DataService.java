@@ -33,7 +33,9 @@ import org.n52.io.response.dataset.Data;
 import org.n52.io.response.dataset.DataCollection;
 
 /**
- * Provides access to the actual series data via {@link IoParameters}.
+ * Provides access to the actual series data via {@link IoParameters}. Implementations being able to provide
+ * data incrementally may implement {@link StreamingDataService} in addition, implementations being able to
+ * downsample data close to the source may implement {@link DownsamplingDataService}.
  * @param <T> the data type
  */
 public interface DataService<T extends Data<? extends AbstractValue< ? >>> extends RawDataInfo {
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.spi.srv;
+
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.dataset.AbstractValue;
+import org.n52.io.response.dataset.Data;
+import org.n52.io.response.dataset.DataCollection;
+
+/**
+ * Optional extension of a {@link DataService} which is able to downsample data close to the data source
+ * (e.g. within a database query) instead of shipping all values to be generalized afterwards. Consumers are
+ * expected to fall back to {@link #getData(IoParameters)} in case the service does not support the requested
+ * downsampling.
+ * <p>
+ * Downsampled series are expected to
+ * </p>
+ * <ul>
+ * <li>contain the same series as {@link #getData(IoParameters)} would return,</li>
+ * <li>not exceed the {@link DownsamplingRequest#getTargetPointCount() target point count} per series (if
+ * limited), apart from no-data values marking gaps,</li>
+ * <li>contain the first and the last value of each series, and</li>
+ * <li>preserve the visual characteristics of the algorithm (see {@link DownsamplingRequest}).</li>
+ * </ul>
+ *
+ * @param <V>
+ *        the value type
+ */
+public interface DownsamplingDataService<V extends AbstractValue< ? >> extends DataService<Data<V>> {
+
+    /**
+     * Checks if data for the given parameters can be provided via
+     * {@link #getDownsampledData(DownsamplingRequest, IoParameters)}.
+     *
+     * @param request
+     *        the downsampling request
+     * @param parameters
+     *        the request parameters
+     * @return <code>true</code>, if data can be downsampled as requested
+     */
+    boolean supportsDownsampling(DownsamplingRequest request, IoParameters parameters);
+
+    /**
+     * Gets data downsampled as requested.
+     *
+     * @param request
+     *        the downsampling request
+     * @param parameters
+     *        the request parameters, e.g. containing algorithm specific options
+     * @return the downsampled data
+     */
+    DataCollection<Data<V>> getDownsampledData(DownsamplingRequest request, IoParameters parameters);
+
+}
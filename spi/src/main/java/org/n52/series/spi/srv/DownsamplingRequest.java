@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.spi.srv;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Describes how a {@link DownsamplingDataService} shall downsample data.
+ */
+public final class DownsamplingRequest {
+
+    /**
+     * Largest-Triangle-Three-Buckets: exactly the target point count of values, picking the value of each
+     * bucket spanning the largest triangle with its neighbour buckets.
+     */
+    public static final String LARGEST_TRIANGLE_THREE_BUCKETS = "LTTB";
+
+    /**
+     * Douglas-Peucker: values deviating less than a tolerance value from a line between kept values are
+     * dropped. The target point count is optional.
+     */
+    public static final String DOUGLAS_PEUCKER = "DP";
+
+    /**
+     * M4: the first, last, minimum and maximum value of each bucket, i.e. a quarter of the target point count
+     * of buckets.
+     */
+    public static final String M4 = "M4";
+
+    private final String algorithm;
+
+    private final int targetPointCount;
+
+    /**
+     * @param algorithm
+     *        the algorithm code, e.g. {@link #LARGEST_TRIANGLE_THREE_BUCKETS}
+     * @param targetPointCount
+     *        the maximum number of values per series, less than or equal to zero if not limited
+     */
+    public DownsamplingRequest(String algorithm, int targetPointCount) {
+        Objects.requireNonNull(algorithm, "algorithm must not be null");
+        this.algorithm = algorithm.toUpperCase(Locale.ROOT);
+        this.targetPointCount = targetPointCount;
+    }
+
+    /**
+     * @return the algorithm code in upper case
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public boolean isAlgorithm(String code) {
+        return algorithm.equalsIgnoreCase(code);
+    }
+
+    /**
+     * @return the maximum number of values per series, less than or equal to zero if not limited
+     */
+    public int getTargetPointCount() {
+        return targetPointCount;
+    }
+
+    public boolean isLimited() {
+        return targetPointCount > 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(algorithm, targetPointCount);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DownsamplingRequest)) {
+            return false;
+        }
+        DownsamplingRequest other = (DownsamplingRequest) obj;
+        return algorithm.equals(other.algorithm)
+                && targetPointCount == other.targetPointCount;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [algorithm=" + algorithm + ", targetPointCount=" + targetPointCount
+                + "]";
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.spi.srv;
+
+import org.n52.io.request.IoParameters;
+import org.n52.io.response.dataset.AbstractValue;
+import org.n52.io.response.dataset.Data;
+
+/**
+ * Optional extension of a {@link DataService} which is able to provide data of a single dataset
+ * incrementally instead of materializing a complete {@link org.n52.io.response.dataset.DataCollection}.
+ * Consumers are expected to fall back to {@link #getData(IoParameters)} in case the service does not
+ * support streaming for a particular request.
+ *
+ * @param <V>
+ *        the value type
+ */
+public interface StreamingDataService<V extends AbstractValue< ? >> extends DataService<Data<V>> {
+
+    /**
+     * Checks if data for the given parameters can be provided via {@link #getDataCursor(String, IoParameters)}.
+     *
+     * @param parameters
+     *        the request parameters
+     * @return <code>true</code>, if data can be streamed
+     */
+    default boolean supportsStreaming(IoParameters parameters) {
+        return true;
+    }
+
+    /**
+     * Opens a cursor over the values of the given dataset. The caller is responsible to close the cursor.
+     *
+     * @param datasetId
+     *        the dataset id
+     * @param parameters
+     *        the request parameters
+     * @return a time ordered cursor over the dataset values
+     */
+    DataCursor<V> getDataCursor(String datasetId, IoParameters parameters);
+
+}
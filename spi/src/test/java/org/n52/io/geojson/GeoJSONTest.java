@@ -34,11 +34,15 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.Random;
 
 import org.n52.io.crs.CRSUtils;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.junit.jupiter.api.Test;
 import org.locationtech.jts.geom.Coordinate;
@@ -80,6 +84,10 @@ public class GeoJSONTest {
 
     private final GeoJSONDecoder dec = new GeoJSONDecoder();
 
+    private final GeoJSONGeometryWriter writer = new GeoJSONGeometryWriter();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
     private Coordinate randomCoordinate() {
         return new Coordinate(random.nextInt(1000), random.nextInt(1000));
     }
@@ -296,11 +304,42 @@ public class GeoJSONTest {
             // errors.checkThat(json, is(instanceOf(JSONConstants.GEOMETRY)));
             // errors.checkThat(json2, is(instanceOf(JSONConstants.GEOMETRY)));
             assertThat(json, is(equalTo(json2)));
+            assertThat(write(geom), is(equalTo(toString(json))));
+    }
+
+    private String write(Geometry geometry) throws GeoJSONException {
+        StringWriter output = new StringWriter();
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(output)) {
+            writer.writeGeometry(geometry, gen);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toString();
+    }
+
+    private String toString(JsonNode json) {
+        try {
+            return mapper.writeValueAsString(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Test
     public void testNull() throws GeoJSONException {
         assertThat(enc.encodeGeometry(null), is(nullValue()));
+        assertThat(write(null), is("null"));
+    }
+
+    @Test
+    public void testUnknownGeometryMemberIsRejectedBeforeWriting() throws GeoJSONException {
+        GeometryCollection collection = geometryFactory.createGeometryCollection(new Geometry[] {
+            randomPoint(2000),
+            new UnknownGeometry(geometryFactory)
+        });
+        assertThrows(GeoJSONException.class, () -> {
+            writer.writeGeometry(collection, mapper.getFactory().createGenerator(new StringWriter()));
+        });
     }
 
     @Test
@@ -313,6 +352,7 @@ public class GeoJSONTest {
     @Test
     public void testEmpty() throws GeoJSONException {
         assertThat(enc.encodeGeometry(new EmptyGeometry(geometryFactory)), is(nullValue()));
+        assertThat(write(new EmptyGeometry(geometryFactory)), is("null"));
     }
 
     private class RandomZCoordinateFilter implements CoordinateFilter {
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.request;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Measures creating {@link IoParameters} from a typical data request and deriving parameters from it like
+ * controllers do. Run via {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IoParametersBenchmark {
+
+    private MultiValueMap<String, String> query;
+
+    private IoParameters parameters;
+
+    @Setup
+    public void setUp() {
+        query = new LinkedMultiValueMap<>();
+        query.add(Parameters.TIMESPAN, "PT24H/now");
+        query.add(Parameters.DATASETS, "ds_1,ds_2,ds_3");
+        query.add(Parameters.EXPANDED, "true");
+        query.add(Parameters.FORMAT, "flot");
+        query.add(Parameters.LOCALE, "de");
+        query.add(Parameters.LIMIT, "100");
+        query.add(Parameters.OFFSET, "0");
+        query.add(Parameters.HREF_BASE, "http://localhost:8080/api");
+        parameters = IoParameters.createFromMultiValueMap(query);
+    }
+
+    @Benchmark
+    public IoParameters create() {
+        return IoParameters.createFromMultiValueMap(query);
+    }
+
+    @Benchmark
+    public IoParameters derive() {
+        // as for paging headers, backwards compatibility and generalization
+        return parameters.removeAllOf(Parameters.LIMIT)
+                         .removeAllOf(Parameters.OFFSET)
+                         .respectBackwardsCompatibility()
+                         .replaceWith(Parameters.GENERALIZE, Boolean.toString(true))
+                         .extendWith(Parameters.FILTER_DATASET_TYPES, "timeseries");
+    }
+
+    @Benchmark
+    public Object createAndDerive() {
+        IoParameters derived = IoParameters.createFromMultiValueMap(query)
+                                           .removeAllOf(Parameters.LIMIT)
+                                           .removeAllOf(Parameters.OFFSET)
+                                           .respectBackwardsCompatibility()
+                                           .replaceWith(Parameters.GENERALIZE, Boolean.toString(true));
+        derived.getTimespan();
+        derived.getDatasets();
+        return derived.getCanonicalKey();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IoParametersBenchmark.class.getSimpleName())
+                                       .build()).run();
+    }
+
+}
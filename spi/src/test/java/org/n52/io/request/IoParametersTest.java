@@ -29,6 +29,8 @@ package org.n52.io.request;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -42,6 +44,7 @@ import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -49,6 +52,8 @@ import java.util.Optional;
 import org.hamcrest.Matchers;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.joda.time.Period;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.junit.jupiter.api.Disabled;
@@ -57,6 +62,7 @@ import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
 import org.n52.io.IntervalWithTimeZone;
+import org.n52.io.IoParseException;
 import org.n52.io.crs.BoundingBox;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -334,6 +340,133 @@ public class IoParametersTest {
     }
 
 
+    @Test
+    public void when_aggregateNotSet_then_noAggregationPeriod() {
+        IoParameters parameters = createDefaults();
+        assertFalse(parameters.isAggregate());
+        assertThat(parameters.getAggregationPeriod(), is(Matchers.nullValue()));
+    }
+
+    @Test
+    public void when_aggregateSetToPeriod_then_aggregationPeriodIsParsed() {
+        IoParameters parameters = createDefaults().extendWith(Parameters.AGGREGATE, "PT15M");
+        assertTrue(parameters.isAggregate());
+        assertThat(parameters.getAggregationPeriod(), is(Period.minutes(15)));
+    }
+
+    @Test
+    public void when_aggregateSetToPeriodOfMultipleFields_then_exceptionIsThrown() {
+        IoParameters parameters = createDefaults().extendWith(Parameters.AGGREGATE, "P1DT12H");
+        assertThrows(IoParseException.class, () -> parameters.getAggregationPeriod());
+    }
+
+    @Test
+    public void when_aggregationFunctionsNotSet_then_allFunctionsAreReturned() {
+        IoParameters parameters = createDefaults();
+        assertThat(parameters.getAggregationFunctions(), is(EnumSet.allOf(AggregationFunction.class)));
+    }
+
+    @Test
+    public void when_aggregationFunctionsSet_then_functionsAreParsedCaseInsensitive() {
+        IoParameters parameters = createDefaults().extendWith(Parameters.AGGREGATION_FUNCTIONS, "Min,avg");
+        assertThat(parameters.getAggregationFunctions(),
+                   containsInAnyOrder(AggregationFunction.MIN, AggregationFunction.AVG));
+    }
+
+    @Test
+    public void when_aggregationFunctionUnknown_then_exceptionIsThrown() {
+        IoParameters parameters = createDefaults().extendWith(Parameters.AGGREGATION_FUNCTIONS, "median");
+        assertThrows(IoParseException.class, () -> parameters.getAggregationFunctions());
+    }
+
+    @Test
+    public void when_rollingWindowSet_then_durationIsParsed() {
+        IoParameters parameters = createDefaults().extendWith(Parameters.ROLLING_WINDOW, "PT1H30M");
+        assertTrue(parameters.hasRollingWindow());
+        assertThat(parameters.getRollingWindow(), is(Duration.standardMinutes(90)));
+    }
+
+    @Test
+    public void when_rollingWindowOfVariableLength_then_exceptionIsThrown() {
+        IoParameters parameters = createDefaults().extendWith(Parameters.ROLLING_WINDOW, "P1M");
+        assertThrows(IoParseException.class, () -> parameters.getRollingWindow());
+    }
+
+    @Test
+    public void when_rollingFunctionNotSet_then_averageIsReturned() {
+        IoParameters parameters = createDefaults();
+        assertThat(parameters.getRollingFunction(), is(RollingFunction.AVG));
+    }
+
+    @Test
+    public void when_filterValuesInDifferentOrder_then_sameCanonicalKey() {
+        IoParameters first = createDefaults().extendWith(Parameters.PROCEDURES, "p1", "p2")
+                                             .extendWith(Parameters.LOCALE, "de");
+        IoParameters second = createDefaults().extendWith(Parameters.LOCALE, "de")
+                                              .extendWith(Parameters.PROCEDURES, "p2", "p1");
+        assertThat(first.getCanonicalKey(), is(second.getCanonicalKey()));
+    }
+
+    @Test
+    public void when_parameterValuesDiffer_then_differentCanonicalKey() {
+        IoParameters parameters = createDefaults().extendWith(Parameters.PROCEDURES, "p1");
+        assertThat(parameters.getCanonicalKey(),
+                   is(not(parameters.extendWith(Parameters.PROCEDURES, "p2").getCanonicalKey())));
+        assertThat(parameters.getCanonicalKey(),
+                   is(not(parameters.extendWith(Parameters.EXPANDED, "true").getCanonicalKey())));
+    }
+
+    @Test
+    public void when_timespanRequestedTwice_then_parsedOnce() {
+        IoParameters parameters = createDefaults().extendWith(Parameters.TIMESPAN, "PT6H/now");
+        assertThat(parameters.getTimespan(), is(sameInstance(parameters.getTimespan())));
+    }
+
+    @Test
+    public void when_filterValuesModified_then_parametersUnchanged() {
+        IoParameters parameters = createDefaults().extendWith(Parameters.PROCEDURES, "p1", "p2");
+        parameters.getProcedures()
+                  .add("p3");
+        assertThat(parameters.getProcedures(), containsInAnyOrder("p1", "p2"));
+    }
+
+    @Test
+    public void when_defaultLocaleChanged_then_canonicalKeyChanged() {
+        IoParameters parameters = createDefaults();
+        String key = parameters.getCanonicalKey();
+        assertThat(parameters.setDefaultLocale("de")
+                             .getCanonicalKey(),
+                   is(not(key)));
+    }
+
+    @Test
+    public void when_configuredParameterRemoved_then_configValueIsRestored() {
+        IoParameters parameters = createDefaults().replaceWith(Parameters.WIDTH, "100");
+        assertThat(parameters.getWidth(), is(100));
+        assertThat(parameters.removeAllOf(Parameters.WIDTH)
+                             .getWidth(),
+                   is(2000));
+    }
+
+    @Test
+    public void when_derivingParameters_then_originalUnchanged() {
+        IoParameters parameters = createDefaults().extendWith(Parameters.DATASETS, "ds_1");
+        IoParameters derived = parameters.extendWith(Parameters.DATASETS, "ds_2")
+                                         .removeAllOf(Parameters.WIDTH);
+        assertThat(derived.getDatasets(), containsInAnyOrder("ds_1", "ds_2"));
+        assertThat(parameters.getDatasets(), containsInAnyOrder("ds_1"));
+        assertThat(parameters.getWidth(), is(2000));
+    }
+
+    @Test
+    public void when_stringConvertedToJsonNode_then_textNodeIsReturned() {
+        assertThat(IoParameters.getJsonNodeFrom("PT6H/now")
+                               .asText(),
+                   is("PT6H/now"));
+        assertTrue(IoParameters.getJsonNodeFrom("42")
+                               .isTextual());
+    }
+
     private File getAlternativeConfigFile() throws URISyntaxException {
         Path root = Paths.get(getClass().getResource("/")
                                         .toURI());
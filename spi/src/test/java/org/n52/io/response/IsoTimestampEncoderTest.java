@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.response;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.GJChronology;
+import org.junit.jupiter.api.Test;
+import org.n52.shetland.util.DateTimeHelper;
+
+public class IsoTimestampEncoderTest {
+
+    private static final long HOUR = 3600_000L;
+
+    private final IsoTimestampEncoder encoder = new IsoTimestampEncoder();
+
+    @Test
+    public void when_utc_then_zInsteadOfOffset() {
+        DateTime time = new DateTime(0L, DateTimeZone.UTC);
+        assertThat(encoder.encode(time), is("1970-01-01T00:00:00.000Z"));
+    }
+
+    @Test
+    public void when_zoneChangesToUtc_then_zInsteadOfOffset() {
+        assertThat(encoder.encode(new DateTime(0L, DateTimeZone.forOffsetHours(2))),
+                   is("1970-01-01T02:00:00.000+02:00"));
+        assertThat(encoder.encode(new DateTime(0L, DateTimeZone.UTC)), is("1970-01-01T00:00:00.000Z"));
+        assertThat(encoder.encode(new DateTime(2020, 1, 1, 0, 0, DateTimeZone.forID("Europe/London"))),
+                   is("2020-01-01T00:00:00.000Z"));
+    }
+
+    @Test
+    public void when_negativeMillis_then_sameAsDateTimeHelper() {
+        for (long millis = -3 * HOUR; millis < 3 * HOUR; millis += 997) {
+            assertEncodedAsDateTimeHelper(new DateTime(millis, DateTimeZone.UTC));
+        }
+    }
+
+    @Test
+    public void when_fixedOffsetZones_then_sameAsDateTimeHelper() {
+        DateTimeZone[] zones = {
+            DateTimeZone.forOffsetHours(2),
+            DateTimeZone.forOffsetHoursMinutes(-9, -30),
+            DateTimeZone.forOffsetHoursMinutes(5, 45)
+        };
+        for (DateTimeZone zone : zones) {
+            for (long millis = 1_500_000_000_000L; millis < 1_500_000_000_000L + 72 * HOUR; millis += 7 * 60_001L) {
+                assertEncodedAsDateTimeHelper(new DateTime(millis, zone));
+            }
+        }
+    }
+
+    @Test
+    public void when_crossingDaylightSavingTransitions_then_sameAsDateTimeHelper() {
+        DateTimeZone zone = DateTimeZone.forID("Europe/Berlin");
+        long spring = new DateTime(2016, 3, 27, 0, 0, zone).getMillis();
+        long autumn = new DateTime(2016, 10, 30, 0, 0, zone).getMillis();
+        for (long start : new long[] {spring, autumn}) {
+            for (long millis = start - 2 * HOUR; millis < start + 26 * HOUR; millis += 59_999L) {
+                assertEncodedAsDateTimeHelper(new DateTime(millis, zone));
+            }
+        }
+    }
+
+    @Test
+    public void when_alternatingZones_then_prefixIsNotReusedAcrossZones() {
+        DateTimeZone utc = DateTimeZone.UTC;
+        DateTimeZone tokyo = DateTimeZone.forID("Asia/Tokyo");
+        for (long millis = 0; millis < 48 * HOUR; millis += HOUR / 2) {
+            assertEncodedAsDateTimeHelper(new DateTime(millis, utc));
+            assertEncodedAsDateTimeHelper(new DateTime(millis, tokyo));
+        }
+    }
+
+    @Test
+    public void when_outOfRangeYearOrOtherChronology_then_sameAsDateTimeHelper() {
+        assertEncodedAsDateTimeHelper(new DateTime(10000, 1, 1, 0, 0, DateTimeZone.UTC));
+        assertEncodedAsDateTimeHelper(new DateTime(-1, 12, 31, 23, 59, DateTimeZone.UTC));
+        assertEncodedAsDateTimeHelper(new DateTime(1500, 6, 1, 12, 0, GJChronology.getInstance(DateTimeZone.UTC)));
+        assertEncodedAsDateTimeHelper(new DateTime(1880, 6, 1, 12, 0, DateTimeZone.forID("Europe/Berlin")));
+    }
+
+    @Test
+    public void when_encodingMillisWithZone_then_sameAsDateTime() {
+        DateTimeZone zone = DateTimeZone.forID("America/New_York");
+        long millis = 1_458_000_000_123L;
+        assertThat(encoder.encode(millis, zone), is(encoder.encode(new DateTime(millis, zone))));
+    }
+
+    @Test
+    public void when_unixTime_then_converterReturnsMillis() {
+        TimeOutputConverter converter = new TimeOutputConverter();
+        DateTime time = new DateTime(1_458_000_000_123L, DateTimeZone.forOffsetHours(1));
+        assertThat(converter.convert(new TimeOutput(time, true)), is(1_458_000_000_123L));
+        assertThat(converter.convert(new TimeOutput(time, false)), is("2016-03-15T01:00:00.123+01:00"));
+    }
+
+    private void assertEncodedAsDateTimeHelper(DateTime time) {
+        assertThat(encoder.encode(time), is(DateTimeHelper.formatDateTime2IsoString(time)));
+    }
+
+}
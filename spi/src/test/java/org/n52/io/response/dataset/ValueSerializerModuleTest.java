@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.response.dataset;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.n52.io.response.DetectionLimitOutput;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.bool.BooleanValue;
+import org.n52.io.response.dataset.category.CategoryValue;
+import org.n52.io.response.dataset.count.CountValue;
+import org.n52.io.response.dataset.quantity.QuantityValue;
+import org.n52.io.response.dataset.text.TextValue;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ValueSerializerModuleTest {
+
+    private ObjectMapper defaultMapper;
+
+    private ObjectMapper mapper;
+
+    @BeforeEach
+    public void setUp() {
+        defaultMapper = new ObjectMapper();
+        mapper = new ObjectMapper().registerModule(new ValueSerializerModule());
+    }
+
+    @Test
+    public void when_moduleRegistered_then_valueSerializerIsUsed() throws JsonProcessingException {
+        assertThat(mapper.getSerializerProviderInstance()
+                         .findValueSerializer(QuantityValue.class),
+                   instanceOf(ValueSerializer.class));
+    }
+
+    @Test
+    public void when_serializingSimpleValues_then_outputIsEqual() throws JsonProcessingException {
+        assertSameOutput(createValue(new QuantityValue(), new BigDecimal("12.30")));
+        assertSameOutput(createValue(new QuantityValue(), null));
+        assertSameOutput(createValue(new CountValue(), 42));
+        assertSameOutput(createValue(new TextValue(), "some \"text\""));
+        assertSameOutput(createValue(new BooleanValue(), Boolean.TRUE));
+        assertSameOutput(createValue(new CategoryValue(), "category"));
+    }
+
+    @Test
+    public void when_serializingValueWithDetails_then_outputIsEqual() throws JsonProcessingException {
+        QuantityValue value = createValue(new QuantityValue(), new BigDecimal("-0.5"));
+        value.setTimestart(new TimeOutput(new DateTime(500L, DateTimeZone.UTC)));
+        value.setValidTime(new TimeOutput(new DateTime(0L, DateTimeZone.UTC)), null);
+        value.setGeometry(new GeometryFactory().createPoint(new Coordinate(7.2, 52.1)));
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put("name", "depth");
+        parameter.put("value", 10);
+        value.addParameter(parameter);
+        DetectionLimitOutput detectionLimit = new DetectionLimitOutput();
+        detectionLimit.setFlag((short) 1);
+        detectionLimit.setDetectionLimit(BigDecimal.TEN);
+        value.setDetectionLimit(detectionLimit);
+        assertSameOutput(value);
+    }
+
+    @Test
+    public void when_serializingUnixTime_then_outputIsEqual() throws JsonProcessingException {
+        CountValue value = new CountValue();
+        value.setTimestamp(new TimeOutput(new DateTime(1000L), true));
+        value.setValue(1);
+        assertSameOutput(value);
+    }
+
+    @Test
+    public void when_suppressingNulls_then_outputIsEqual() throws JsonProcessingException {
+        defaultMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        assertSameOutput(createValue(new QuantityValue(), null));
+        assertSameOutput(createValue(new TextValue(), "text"));
+
+        BooleanValue value = createValue(new BooleanValue(), Boolean.FALSE);
+        value.setValidTime(new TimeOutput(new DateTime(0L, DateTimeZone.UTC)), null);
+        assertSameOutput(value);
+    }
+
+    @Test
+    public void when_serializingData_then_outputIsEqual() throws JsonProcessingException {
+        Data<QuantityValue> data = new Data<>();
+        data.addNewValue(createValue(new QuantityValue(), BigDecimal.ONE));
+        DatasetMetadata<QuantityValue> metadata = new DatasetMetadata<>();
+        metadata.setValueBeforeTimespan(createValue(new QuantityValue(), BigDecimal.ZERO));
+        data.setMetadata(metadata);
+        assertThat(mapper.writeValueAsString(data), is(defaultMapper.writeValueAsString(data)));
+    }
+
+    private void assertSameOutput(AbstractValue< ? > value) throws JsonProcessingException {
+        assertThat(mapper.writeValueAsString(value), is(defaultMapper.writeValueAsString(value)));
+    }
+
+    private <T, V extends AbstractValue<T>> V createValue(V value, T actualValue) {
+        value.setTimestamp(new TimeOutput(new DateTime(1000L, DateTimeZone.forOffsetHours(2))));
+        value.setValue(actualValue);
+        return value;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.response.dataset.count;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+
+public class CountColumnarDataTest {
+
+    @Test
+    public void when_copiedFromData_then_valueFormatterIsKept() {
+        Data<CountValue> expected = new Data<>();
+        expected.addNewValue(createValue(1000L, 1));
+        expected.addNewValue(createValue(2000L, 2));
+        CountColumnarData data = CountColumnarData.of(expected);
+
+        assertThat(data.size(), is(2L));
+        assertThat(data.getValueAt(1).getFormattedValue(), is("2 times"));
+    }
+
+    private CountValue createValue(long timestamp, Integer value) {
+        CountValue countValue = new CountValue();
+        countValue.setTimestamp(new TimeOutput(new DateTime(timestamp, DateTimeZone.UTC)));
+        countValue.setValue(value);
+        countValue.setValueFormatter(v -> v + " times");
+        return countValue;
+    }
+
+}
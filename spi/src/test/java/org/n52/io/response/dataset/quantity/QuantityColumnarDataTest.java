@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2013-2022 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.io.response.dataset.quantity;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hamcrest.core.IsNull;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+import org.n52.io.response.TimeOutput;
+import org.n52.io.response.dataset.Data;
+
+public class QuantityColumnarDataTest {
+
+    private static final DateTimeZone ZONE = DateTimeZone.forID("Europe/Berlin");
+
+    @Test
+    public void when_valuesAddedUnordered_then_valuesAreSortedByTimestamp() {
+        QuantityColumnarData data = new QuantityColumnarData();
+        data.addNewValue(createValue(3000L, "3"));
+        data.addNewValue(createValue(1000L, "1"));
+        data.addNewValue(createValue(2000L, "2"));
+        assertThat(data.size(), is(3L));
+        assertThat(data.getTimestamp(0), is(1000L));
+        assertThat(data.getTimestamp(2), is(3000L));
+        assertThat(data.indexOf(2000L), is(1));
+    }
+
+    @Test
+    public void when_timestampAlreadyExists_then_valueIsIgnored() {
+        Data<QuantityValue> expected = new Data<>();
+        QuantityColumnarData data = new QuantityColumnarData();
+        for (QuantityValue value : createValues()) {
+            expected.addNewValue(value);
+            data.addNewValue(value);
+        }
+        assertThat(data.size(), is(expected.size()));
+    }
+
+    @Test
+    public void when_noDataValueAdded_then_nullValueIsRestored() {
+        QuantityColumnarData data = new QuantityColumnarData();
+        data.addNewValue(createValue(1000L, null));
+        assertThat(data.isNoDataValue(0), is(true));
+        assertThat(Double.isNaN(data.getDoubleValue(0)), is(true));
+        assertThat(data.getValueAt(0).getValue(), IsNull.nullValue());
+    }
+
+    @Test
+    public void when_decimalValuesAdded_then_valuesAreRestoredExactly() {
+        Data<QuantityValue> expected = new Data<>();
+        QuantityColumnarData data = new QuantityColumnarData();
+        for (QuantityValue value : createValues()) {
+            expected.addNewValue(value);
+            data.addNewValue(value);
+        }
+        assertThat(toValues(data), contains(toValues(expected).toArray()));
+    }
+
+    @Test
+    public void when_copiedFromData_then_timestampsAndZonesAreEqual() {
+        Data<QuantityValue> expected = new Data<>();
+        createValues().forEach(expected::addNewValue);
+        QuantityValue utcValue = new QuantityValue();
+        utcValue.setTimestamp(new TimeOutput(new DateTime(8000L, DateTimeZone.UTC)));
+        utcValue.setValue(new BigDecimal("3.14"));
+        expected.addNewValue(utcValue);
+        QuantityColumnarData data = QuantityColumnarData.of(expected);
+
+        List<DateTime> expectedTimes = new ArrayList<>();
+        expected.getValues().forEach(v -> expectedTimes.add(v.getTimestamp().getDateTime()));
+        List<DateTime> actualTimes = new ArrayList<>();
+        data.getValues().forEach(v -> actualTimes.add(v.getTimestamp().getDateTime()));
+        assertThat(actualTimes, contains(expectedTimes.toArray()));
+    }
+
+    @Test
+    public void when_copiedFromData_then_valueFormatterIsKept() {
+        Data<QuantityValue> expected = new Data<>();
+        createValues().forEach(value -> {
+            value.setValueFormatter(v -> v.setScale(3, RoundingMode.HALF_UP).toPlainString());
+            expected.addNewValue(value);
+        });
+        QuantityColumnarData data = QuantityColumnarData.of(expected);
+
+        assertThat(data.getValueAt(0).getFormattedValue(), is("1.100"));
+    }
+
+    @Test
+    public void when_columnarDataAdded_then_allValuesAreContained() {
+        Data<QuantityValue> expected = new Data<>();
+        createValues().forEach(expected::addNewValue);
+        QuantityColumnarData toAdd = new QuantityColumnarData();
+        toAdd.addNewValue(createValue(10000L, "42"));
+
+        Data<QuantityValue> actual = expected.addData(toAdd);
+
+        assertThat(actual.size(), is(expected.size() + 1));
+        assertThat(actual.getValues().stream().anyMatch(v -> v.getTimestamp().getMillis() == 10000L), is(true));
+    }
+
+    private List<BigDecimal> toValues(Data<QuantityValue> data) {
+        List<BigDecimal> values = new ArrayList<>();
+        data.getValues().forEach(v -> values.add(v.getValue()));
+        return values;
+    }
+
+    private List<QuantityValue> createValues() {
+        List<QuantityValue> values = new ArrayList<>();
+        values.add(createValue(5000L, "12.30"));
+        values.add(createValue(1000L, "1.1"));
+        values.add(createValue(3000L, null));
+        values.add(createValue(2000L, "0.30000000000000004"));
+        values.add(createValue(4000L, "1E+3"));
+        values.add(createValue(1000L, "7"));
+        values.add(createValue(9000L, "12.345"));
+        values.add(createValue(7000L, "-0.00"));
+        return values;
+    }
+
+    private QuantityValue createValue(long timestamp, String value) {
+        QuantityValue quantityValue = new QuantityValue();
+        quantityValue.setTimestamp(new TimeOutput(new DateTime(timestamp, ZONE)));
+        quantityValue.setValue(value != null ? new BigDecimal(value) : null);
+        return quantityValue;
+    }
+
+}